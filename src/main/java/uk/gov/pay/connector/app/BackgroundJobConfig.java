@@ -0,0 +1,38 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class BackgroundJobConfig extends Configuration {
+
+    private Duration initialDelay = Duration.seconds(20);
+    // a job runs again after minimumInterval while it has a backlog, and backs off up to maximumInterval while it has none
+    private Duration minimumInterval = Duration.seconds(10);
+    private Duration maximumInterval = Duration.minutes(5);
+    private int batchSize = 100;
+
+    public BackgroundJobConfig() {
+    }
+
+    BackgroundJobConfig(Duration minimumInterval, Duration maximumInterval, int batchSize) {
+        this.minimumInterval = minimumInterval;
+        this.maximumInterval = maximumInterval;
+        this.batchSize = batchSize;
+    }
+
+    public java.time.Duration getInitialDelayAsJavaDuration() {
+        return java.time.Duration.ofMillis(initialDelay.toMilliseconds());
+    }
+
+    public java.time.Duration getMinimumIntervalAsJavaDuration() {
+        return java.time.Duration.ofMillis(minimumInterval.toMilliseconds());
+    }
+
+    public java.time.Duration getMaximumIntervalAsJavaDuration() {
+        return java.time.Duration.ofMillis(maximumInterval.toMilliseconds());
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class BackgroundJobsConfig extends Configuration {
+
+    // when disabled, charges are expired through POST /v1/tasks/expired-charges-sweep and captured by the capture process scheduler
+    private boolean enabled = false;
+    // renewed every third of this while a job runs, so only needs to outlast a node that stopped renewing
+    private Duration leaseFor = Duration.minutes(10);
+
+    @Valid
+    @NotNull
+    private BackgroundJobConfig expireCharges = new BackgroundJobConfig(Duration.minutes(1), Duration.minutes(10), 5000);
+
+    @Valid
+    @NotNull
+    private BackgroundJobConfig captureCharges = new BackgroundJobConfig(Duration.seconds(10), Duration.seconds(200), 10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public java.time.Duration getLeaseForAsJavaDuration() {
+        return java.time.Duration.ofMillis(leaseFor.toMilliseconds());
+    }
+
+    public BackgroundJobConfig getExpireCharges() {
+        return expireCharges;
+    }
+
+    public BackgroundJobConfig getCaptureCharges() {
+        return captureCharges;
+    }
+}
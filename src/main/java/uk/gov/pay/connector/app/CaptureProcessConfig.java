@@ -12,6 +12,10 @@ public class CaptureProcessConfig extends Configuration {
     private Duration retryFailuresEvery;
     private int maximumRetries;
 
+    private int threadsPerGateway = 1;
+    private int maximumBatchesPerRun = 1;
+    private Duration claimChargesFor = Duration.minutes(10);
+
     public long getSchedulerInitialDelayInSeconds() {
         return schedulerInitialDelayInSeconds;
     }
@@ -39,4 +43,16 @@ public class CaptureProcessConfig extends Configuration {
     public int getMaximumRetries() {
         return maximumRetries;
     }
+
+    public int getThreadsPerGateway() {
+        return threadsPerGateway;
+    }
+
+    public int getMaximumBatchesPerRun() {
+        return maximumBatchesPerRun;
+    }
+
+    public java.time.Duration getClaimChargesForAsJavaDuration() {
+        return java.time.Duration.ofMillis(claimChargesFor.toMilliseconds());
+    }
 }
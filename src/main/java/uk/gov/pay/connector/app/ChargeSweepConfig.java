@@ -0,0 +1,19 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+
+public class ChargeSweepConfig extends Configuration {
+
+    // charges fetched, and expired without a gateway cancel in one database transaction, at a time
+    private int expiryChunkSize = 500;
+    // gateway cancels of authorised charges in progress at the same time
+    private int expiryCancelConcurrency = 10;
+
+    public int getExpiryChunkSize() {
+        return expiryChunkSize;
+    }
+
+    public int getExpiryCancelConcurrency() {
+        return expiryCancelConcurrency;
+    }
+}
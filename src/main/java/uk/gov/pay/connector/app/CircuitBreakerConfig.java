@@ -0,0 +1,31 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class CircuitBreakerConfig extends Configuration {
+
+    // consecutive gateway failures that open the circuit, 0 means the circuit never opens
+    private int failureThreshold = 0;
+    private Duration openFor = Duration.seconds(30);
+    // requests let through to probe the gateway once the circuit has been open for openFor
+    private int halfOpenRequests = 1;
+    // concurrent requests per gateway, account type and operation, 0 means no limit
+    private int maximumConcurrentRequests = 0;
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public java.time.Duration getOpenForAsJavaDuration() {
+        return java.time.Duration.ofMillis(openFor.toMilliseconds());
+    }
+
+    public int getHalfOpenRequests() {
+        return halfOpenRequests;
+    }
+
+    public int getMaximumConcurrentRequests() {
+        return maximumConcurrentRequests;
+    }
+}
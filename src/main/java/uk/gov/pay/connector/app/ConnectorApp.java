@@ -3,9 +3,11 @@ package uk.gov.pay.connector.app;
 import com.codahale.metrics.graphite.GraphiteReporter;
 import com.codahale.metrics.graphite.GraphiteSender;
 import com.codahale.metrics.graphite.GraphiteUDP;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.google.inject.persist.UnitOfWork;
 import io.dropwizard.Application;
 import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.AuthValueFactoryProvider;
@@ -22,6 +24,7 @@ import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import uk.gov.pay.connector.auth.BasicAuthUser;
 import uk.gov.pay.connector.auth.SmartpayAccountSpecificAuthenticator;
 import uk.gov.pay.connector.command.RenderStateTransitionGraphCommand;
+import uk.gov.pay.connector.dao.NotificationInboxDao;
 import uk.gov.pay.connector.filters.LoggingFilter;
 import uk.gov.pay.connector.filters.SchemeRewriteFilter;
 import uk.gov.pay.connector.healthcheck.CardExecutorServiceHealthCheck;
@@ -37,11 +40,18 @@ import uk.gov.pay.connector.resources.EmailNotificationResource;
 import uk.gov.pay.connector.resources.GatewayAccountResource;
 import uk.gov.pay.connector.resources.HealthCheckResource;
 import uk.gov.pay.connector.resources.NotificationResource;
+import uk.gov.pay.connector.resources.PaymentStatisticsResource;
 import uk.gov.pay.connector.resources.SecurityTokensResource;
 import uk.gov.pay.connector.resources.TransactionsSummaryResource;
 import uk.gov.pay.connector.service.Auth3dsDetailsFactory;
 import uk.gov.pay.connector.service.CaptureProcessScheduler;
 import uk.gov.pay.connector.service.CardCaptureProcess;
+import uk.gov.pay.connector.service.NotificationInboxProcessor;
+import uk.gov.pay.connector.service.NotificationService;
+import uk.gov.pay.connector.service.jobs.BackgroundJobLeases;
+import uk.gov.pay.connector.service.jobs.BackgroundJobScheduler;
+import uk.gov.pay.connector.service.jobs.CaptureChargesJob;
+import uk.gov.pay.connector.service.jobs.ExpireChargesJob;
 import uk.gov.pay.connector.util.DependentResourceWaitCommand;
 import uk.gov.pay.connector.util.TrustingSSLSocketFactory;
 
@@ -93,6 +103,7 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
         environment.jersey().register(injector.getInstance(ChargesFrontendResource.class));
         environment.jersey().register(injector.getInstance(ChargeRefundsResource.class));
         environment.jersey().register(injector.getInstance(TransactionsSummaryResource.class));
+        environment.jersey().register(injector.getInstance(PaymentStatisticsResource.class));
         environment.jersey().register(injector.getInstance(NotificationResource.class));
         environment.jersey().register(injector.getInstance(CardResource.class));
         environment.jersey().register(injector.getInstance(CardTypesResource.class));
@@ -154,7 +165,22 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
     }
 
     private void setupSchedulers(ConnectorConfiguration configuration, Environment environment, Injector injector) {
-        CaptureProcessScheduler captureProcessScheduler = new CaptureProcessScheduler(configuration, environment, injector.getInstance(CardCaptureProcess.class));
-        environment.lifecycle().manage(captureProcessScheduler);
+        BackgroundJobsConfig backgroundJobsConfig = configuration.getBackgroundJobsConfig();
+        if (backgroundJobsConfig.isEnabled()) {
+            environment.lifecycle().manage(new BackgroundJobScheduler(environment,
+                    injector.getInstance(BackgroundJobLeases.class), injector.getInstance(UnitOfWork.class),
+                    ImmutableMap.of(
+                            injector.getInstance(ExpireChargesJob.class), backgroundJobsConfig.getExpireCharges(),
+                            injector.getInstance(CaptureChargesJob.class), backgroundJobsConfig.getCaptureCharges())));
+        } else {
+            CaptureProcessScheduler captureProcessScheduler = new CaptureProcessScheduler(configuration, environment, injector.getInstance(CardCaptureProcess.class));
+            environment.lifecycle().manage(captureProcessScheduler);
+        }
+
+        if (configuration.getNotificationInboxConfig().isEnabled()) {
+            environment.lifecycle().manage(new NotificationInboxProcessor(configuration, environment,
+                    injector.getInstance(NotificationInboxDao.class), injector.getInstance(NotificationService.class),
+                    injector.getInstance(UnitOfWork.class)));
+        }
     }
 }
@@ -19,10 +19,42 @@ public class    ConnectorConfiguration extends Configuration {
     @NotNull
     private ExecutorServiceConfig executorServiceConfig = new ExecutorServiceConfig();
 
+    @Valid
+    @NotNull
+    private CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+
     @Valid
     @NotNull
     private CaptureProcessConfig captureProcessConfig;
 
+    @Valid
+    @NotNull
+    private TokensConfig tokensConfig = new TokensConfig();
+
+    @Valid
+    @NotNull
+    private GatewayAccountCacheConfig gatewayAccountCacheConfig = new GatewayAccountCacheConfig();
+
+    @Valid
+    @NotNull
+    private NotificationInboxConfig notificationInboxConfig = new NotificationInboxConfig();
+
+    @Valid
+    @NotNull
+    private NotificationSourceConfig notificationSourceConfig = new NotificationSourceConfig();
+
+    @Valid
+    @NotNull
+    private NotificationCredentialsCacheConfig notificationCredentialsCacheConfig = new NotificationCredentialsCacheConfig();
+
+    @Valid
+    @NotNull
+    private ChargeSweepConfig chargeSweepConfig = new ChargeSweepConfig();
+
+    @Valid
+    @NotNull
+    private BackgroundJobsConfig backgroundJobsConfig = new BackgroundJobsConfig();
+
     @Valid
     @NotNull
     @JsonProperty("transactionsPaginationServiceConfig")
@@ -118,6 +150,10 @@ public class    ConnectorConfiguration extends Configuration {
         return executorServiceConfig;
     }
 
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return circuitBreakerConfig;
+    }
+
     public TransactionsPaginationServiceConfig getTransactionsPaginationConfig() {
         return transactionsPaginationServiceConfig;
     }
@@ -146,4 +182,32 @@ public class    ConnectorConfiguration extends Configuration {
         return captureProcessConfig;
     }
 
+    public TokensConfig getTokensConfig() {
+        return tokensConfig;
+    }
+
+    public GatewayAccountCacheConfig getGatewayAccountCacheConfig() {
+        return gatewayAccountCacheConfig;
+    }
+
+    public NotificationInboxConfig getNotificationInboxConfig() {
+        return notificationInboxConfig;
+    }
+
+    public NotificationSourceConfig getNotificationSourceConfig() {
+        return notificationSourceConfig;
+    }
+
+    public NotificationCredentialsCacheConfig getNotificationCredentialsCacheConfig() {
+        return notificationCredentialsCacheConfig;
+    }
+
+    public ChargeSweepConfig getChargeSweepConfig() {
+        return chargeSweepConfig;
+    }
+
+    public BackgroundJobsConfig getBackgroundJobsConfig() {
+        return backgroundJobsConfig;
+    }
+
 }
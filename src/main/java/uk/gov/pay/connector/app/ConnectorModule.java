@@ -8,12 +8,19 @@ import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.persist.jpa.JpaPersistModule;
 import io.dropwizard.db.DataSourceFactory;
 import io.dropwizard.setup.Environment;
+import uk.gov.pay.connector.auth.VerifiedCredentialsCache;
 import uk.gov.pay.connector.model.builder.EntityBuilder;
 import uk.gov.pay.connector.resources.GatewayAccountRequestValidator;
+import uk.gov.pay.connector.service.CardCaptureProcess;
 import uk.gov.pay.connector.service.CardExecutorService;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
+import uk.gov.pay.connector.service.ChargeExpiryService;
+import uk.gov.pay.connector.service.GatewayAccountCache;
 import uk.gov.pay.connector.service.GatewayAccountServicesFactory;
 import uk.gov.pay.connector.service.PaymentProviders;
+import uk.gov.pay.connector.service.jobs.BackgroundJobLeases;
 import uk.gov.pay.connector.service.notify.NotifyClientFactoryProvider;
+import uk.gov.pay.connector.util.DnsUtils;
 import uk.gov.pay.connector.util.HashUtil;
 import uk.gov.pay.connector.validations.RequestValidator;
 
@@ -33,7 +40,14 @@ public class ConnectorModule extends AbstractModule {
         bind(ConnectorConfiguration.class).toInstance(configuration);
         bind(Environment.class).toInstance(environment);
         bind(CardExecutorService.class).in(Singleton.class);
+        bind(CardCaptureProcess.class).in(Singleton.class);
+        bind(ChargeExpiryService.class).in(Singleton.class);
+        bind(BackgroundJobLeases.class).in(Singleton.class);
         bind(PaymentProviders.class).in(Singleton.class);
+        bind(CardTypeCatalogue.class).in(Singleton.class);
+        bind(GatewayAccountCache.class).in(Singleton.class);
+        bind(DnsUtils.class).asEagerSingleton();
+        bind(VerifiedCredentialsCache.class).in(Singleton.class);
         bind(EntityBuilder.class);
         bind(HashUtil.class);
         bind(RequestValidator.class);
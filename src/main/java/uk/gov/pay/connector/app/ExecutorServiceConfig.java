@@ -4,8 +4,20 @@ import io.dropwizard.Configuration;
 
 public class ExecutorServiceConfig extends Configuration {
 
+    public enum ThreadMode {
+        // fixed pool of threadsPerCpu * available processors
+        PLATFORM,
+        // a new virtual thread per task; needs a JDK with virtual threads, otherwise falls back to PLATFORM
+        VIRTUAL
+    }
+
     private int threadsPerCpu;
     private int timeoutInSeconds;
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+    // 0 means no limit
+    private int maximumQueueSize = 0;
+    // 0 means no limit
+    private int maximumInFlightPerGateway = 0;
 
     public int getThreadsPerCpu() {
         return threadsPerCpu;
@@ -14,4 +26,16 @@ public class ExecutorServiceConfig extends Configuration {
     public int getTimeoutInSeconds() {
         return timeoutInSeconds;
     }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    public int getMaximumQueueSize() {
+        return maximumQueueSize;
+    }
+
+    public int getMaximumInFlightPerGateway() {
+        return maximumInFlightPerGateway;
+    }
 }
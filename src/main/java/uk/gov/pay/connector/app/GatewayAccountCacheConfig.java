@@ -0,0 +1,14 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class GatewayAccountCacheConfig extends Configuration {
+
+    // bounds how long another connector node can serve an account changed through this one, 0 disables the cache
+    private Duration expireAfter = Duration.minutes(1);
+
+    public java.time.Duration getExpireAfterAsJavaDuration() {
+        return java.time.Duration.ofMillis(expireAfter.toMilliseconds());
+    }
+}
@@ -0,0 +1,19 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class NotificationCredentialsCacheConfig extends Configuration {
+
+    // how long a successful check of notification credentials is reused for, 0 disables the cache
+    private Duration expireAfter = Duration.minutes(5);
+    private int maximumSize = 1000;
+
+    public java.time.Duration getExpireAfterAsJavaDuration() {
+        return java.time.Duration.ofMillis(expireAfter.toMilliseconds());
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+}
@@ -0,0 +1,40 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class NotificationInboxConfig extends Configuration {
+
+    // when disabled, notifications are applied while the gateway waits for the response
+    private boolean enabled = false;
+    private int workerThreads = 2;
+    private int batchSize = 100;
+    private Duration pollInterval = Duration.seconds(1);
+    // should comfortably exceed the time needed to apply a batch
+    private Duration claimFor = Duration.minutes(5);
+    private int maximumAttempts = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public java.time.Duration getPollIntervalAsJavaDuration() {
+        return java.time.Duration.ofMillis(pollInterval.toMilliseconds());
+    }
+
+    public java.time.Duration getClaimForAsJavaDuration() {
+        return java.time.Duration.ofMillis(claimFor.toMilliseconds());
+    }
+
+    public int getMaximumAttempts() {
+        return maximumAttempts;
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NotificationSourceConfig extends Configuration {
+
+    // how long the reverse DNS lookup of a notification source address is reused for
+    private Duration verifiedExpireAfter = Duration.minutes(10);
+    // how long an address whose reverse DNS lookup found no host is rejected without looking it up again
+    private Duration rejectedExpireAfter = Duration.minutes(1);
+    private int maximumCachedAddresses = 10000;
+
+    // address ranges and host names by notification domain; sources of the domains listed here are checked
+    // against them instead of by reverse DNS lookups
+    private Map<String, List<String>> allowList = new LinkedHashMap<>();
+    private Duration allowListRefreshInterval = Duration.minutes(10);
+
+    public java.time.Duration getVerifiedExpireAfterAsJavaDuration() {
+        return java.time.Duration.ofMillis(verifiedExpireAfter.toMilliseconds());
+    }
+
+    public java.time.Duration getRejectedExpireAfterAsJavaDuration() {
+        return java.time.Duration.ofMillis(rejectedExpireAfter.toMilliseconds());
+    }
+
+    public int getMaximumCachedAddresses() {
+        return maximumCachedAddresses;
+    }
+
+    public Map<String, List<String>> getAllowList() {
+        return allowList;
+    }
+
+    public java.time.Duration getAllowListRefreshIntervalAsJavaDuration() {
+        return java.time.Duration.ofMillis(allowListRefreshInterval.toMilliseconds());
+    }
+}
@@ -0,0 +1,19 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+public class TokensConfig extends Configuration {
+
+    // unused tokens older than this are deleted by the expired tokens sweep
+    private Duration expireAfter = Duration.days(1);
+    private int purgeBatchSize = 1000;
+
+    public java.time.Duration getExpireAfterAsJavaDuration() {
+        return java.time.Duration.ofMillis(expireAfter.toMilliseconds());
+    }
+
+    public int getPurgeBatchSize() {
+        return purgeBatchSize;
+    }
+}
@@ -1,12 +1,32 @@
 package uk.gov.pay.connector.app;
 
 import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
 
 public class TransactionsPaginationServiceConfig extends Configuration {
 
     private int displayPageSize;
 
+    private int exportFetchSize = 500;
+
+    // each export streams from a database connection of its own for as long as it runs
+    private int maximumConcurrentExports = 2;
+
+    private Duration exportStatementTimeout = Duration.minutes(10);
+
     public int getDisplayPageSize() {
         return displayPageSize;
     }
+
+    public int getExportFetchSize() {
+        return exportFetchSize;
+    }
+
+    public int getMaximumConcurrentExports() {
+        return maximumConcurrentExports;
+    }
+
+    public java.time.Duration getExportStatementTimeoutAsJavaDuration() {
+        return java.time.Duration.ofMillis(exportStatementTimeout.toMilliseconds());
+    }
 }
@@ -17,12 +17,14 @@ import static java.lang.String.format;
 public class SmartpayAccountSpecificAuthenticator implements Authenticator<BasicCredentials, BasicAuthUser> {
     private GatewayAccountDao gatewayAccountDao;
     private HashUtil hashUtil;
+    private VerifiedCredentialsCache verifiedCredentialsCache;
     private static final Logger logger = LoggerFactory.getLogger(SmartpayAccountSpecificAuthenticator.class);
 
     @Inject
-    public SmartpayAccountSpecificAuthenticator(GatewayAccountDao gatewayAccountDao, HashUtil hashUtil) {
+    public SmartpayAccountSpecificAuthenticator(GatewayAccountDao gatewayAccountDao, HashUtil hashUtil, VerifiedCredentialsCache verifiedCredentialsCache) {
         this.gatewayAccountDao = gatewayAccountDao;
         this.hashUtil = hashUtil;
+        this.verifiedCredentialsCache = verifiedCredentialsCache;
 
     }
 
@@ -39,6 +41,14 @@ public class SmartpayAccountSpecificAuthenticator implements Authenticator<Basic
     }
 
     private boolean matchCredentials(BasicCredentials basicCredentials, GatewayAccountEntity gatewayAccountEntity) {
-        return hashUtil.check(basicCredentials.getPassword(), gatewayAccountEntity.getNotificationCredentials().getPassword());
+        String hashedPassword = gatewayAccountEntity.getNotificationCredentials().getPassword();
+        if (verifiedCredentialsCache.isVerified(basicCredentials.getUsername(), basicCredentials.getPassword(), hashedPassword)) {
+            return true;
+        }
+        boolean matches = hashUtil.check(basicCredentials.getPassword(), hashedPassword);
+        if (matches) {
+            verifiedCredentialsCache.verified(basicCredentials.getUsername(), basicCredentials.getPassword(), hashedPassword);
+        }
+        return matches;
     }
 }
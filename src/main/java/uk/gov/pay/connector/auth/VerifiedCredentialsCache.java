@@ -0,0 +1,76 @@
+package uk.gov.pay.connector.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.NotificationCredentialsCacheConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Notification credentials that recently passed a BCrypt check, so that a burst of notifications costs one BCrypt
+ * check per username rather than one per request.
+ * <p>
+ * Only successful checks are remembered, so guessing passwords still costs a BCrypt check per guess. Entries hold an
+ * HMAC of the presented password and the stored hash under a key generated at startup, never the password itself,
+ * and a change of stored hash, e.g. on another connector node, no longer matches them.
+ */
+public class VerifiedCredentialsCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, byte[]> verifiedDigestsByUsername;
+    private final SecretKeySpec digestKey;
+    private final boolean enabled;
+
+    @Inject
+    public VerifiedCredentialsCache(ConnectorConfiguration configuration) {
+        this(configuration.getNotificationCredentialsCacheConfig());
+    }
+
+    VerifiedCredentialsCache(NotificationCredentialsCacheConfig config) {
+        this.enabled = !config.getExpireAfterAsJavaDuration().isZero();
+        this.verifiedDigestsByUsername = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterAsJavaDuration().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.digestKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    public boolean isVerified(String username, String password, String hashedPassword) {
+        byte[] verifiedDigest = verifiedDigestsByUsername.getIfPresent(username);
+        return verifiedDigest != null && MessageDigest.isEqual(verifiedDigest, digestOf(password, hashedPassword));
+    }
+
+    public void verified(String username, String password, String hashedPassword) {
+        if (enabled) {
+            verifiedDigestsByUsername.put(username, digestOf(password, hashedPassword));
+        }
+    }
+
+    public void invalidate(String username) {
+        verifiedDigestsByUsername.invalidate(username);
+    }
+
+    private byte[] digestOf(String password, String hashedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(hashedPassword.getBytes(UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
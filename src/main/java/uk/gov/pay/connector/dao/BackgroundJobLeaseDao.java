@@ -0,0 +1,56 @@
+package uk.gov.pay.connector.dao;
+
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+/**
+ * Leases that let a background job run on one connector node at a time. Each job has a row in
+ * <code>background_job_leases</code>, created by the migration that introduces the job.
+ * <p>
+ * Lease times are compared with the database clock rather than the clocks of the nodes, so nodes whose
+ * clocks drift apart still agree on when a lease has expired.
+ */
+@Transactional
+public class BackgroundJobLeaseDao {
+
+    private final Provider<EntityManager> entityManager;
+
+    @Inject
+    public BackgroundJobLeaseDao(Provider<EntityManager> entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Takes the lease of {@code jobName} for {@code leaseFor} if it is free, has expired or is already held by
+     * {@code leaseHolder}. Of two nodes trying at once, the second re-evaluates the condition after the first
+     * commits and fails.
+     *
+     * @return whether {@code leaseHolder} now holds the lease
+     */
+    public boolean tryAcquire(String jobName, String leaseHolder, Duration leaseFor) {
+        int updated = entityManager.get()
+                .createNativeQuery("UPDATE background_job_leases SET " +
+                        "lease_holder = ?leaseHolder, " +
+                        "leased_until = (now() at time zone 'utc') + CAST(?leaseFor AS interval) " +
+                        "WHERE job_name = ?jobName " +
+                        "AND (leased_until IS NULL OR leased_until < (now() at time zone 'utc') OR lease_holder = ?leaseHolder)")
+                .setParameter("leaseHolder", leaseHolder)
+                .setParameter("leaseFor", leaseFor.toMillis() + " milliseconds")
+                .setParameter("jobName", jobName)
+                .executeUpdate();
+        return updated == 1;
+    }
+
+    public void release(String jobName, String leaseHolder) {
+        entityManager.get()
+                .createNativeQuery("UPDATE background_job_leases SET lease_holder = NULL, leased_until = NULL " +
+                        "WHERE job_name = ?jobName AND lease_holder = ?leaseHolder")
+                .setParameter("jobName", jobName)
+                .setParameter("leaseHolder", leaseHolder)
+                .executeUpdate();
+    }
+}
@@ -3,8 +3,10 @@ package uk.gov.pay.connector.dao;
 import com.google.inject.Provider;
 import com.google.inject.persist.Transactional;
 import org.apache.commons.lang3.StringUtils;
+import uk.gov.pay.connector.model.domain.AmountSummary;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
+import uk.gov.pay.connector.service.PaymentGatewayName;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -17,8 +19,12 @@ import javax.persistence.criteria.Root;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static uk.gov.pay.connector.model.domain.ChargeStatus.CAPTURE_APPROVED;
 import static uk.gov.pay.connector.model.domain.ChargeStatus.CAPTURE_APPROVED_RETRY;
@@ -26,13 +32,17 @@ import static uk.gov.pay.connector.model.domain.ChargeStatus.CAPTURE_APPROVED_RE
 @Transactional
 public class ChargeDao extends JpaDao<ChargeEntity> {
 
+    private static final String ID = "id";
     private static final String STATUS = "status";
+    private static final String AMOUNT = "amount";
     private static final String CREATED_DATE = "createdDate";
     private static final String GATEWAY_ACCOUNT = "gatewayAccount";
     private static final String CARD_DETAILS = "cardDetails";
     private static final String REFERENCE = "reference";
     private static final String EMAIL = "email";
     private static final String SQL_ESCAPE_SEQ = "\\\\";
+    private static final String DATABASE_NOW = "(now() at time zone 'utc')";
+    private static final int MAXIMUM_CAPTURE_CLAIM_ATTEMPTS = 3;
 
     @Inject
     public ChargeDao(final Provider<EntityManager> entityManager) {
@@ -54,6 +64,17 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .getResultList().stream().findFirst();
     }
 
+    public Optional<String> findGatewayNameByExternalId(String externalId) {
+
+        String query = "SELECT c.gatewayAccount.gatewayName FROM ChargeEntity c " +
+                "WHERE c.externalId = :externalId";
+
+        return entityManager.get()
+                .createQuery(query, String.class)
+                .setParameter("externalId", externalId)
+                .getResultList().stream().findFirst();
+    }
+
     public Optional<ChargeEntity> findByTokenId(String tokenId) {
         String query = "SELECT te.chargeEntity FROM TokenEntity te WHERE te.token=:tokenId";
 
@@ -90,6 +111,22 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .setParameter("provider", provider).getResultList().stream().findFirst();
     }
 
+    public List<ChargeEntity> findByProviderAndTransactionIds(String provider, Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String query = "SELECT c FROM ChargeEntity c " +
+                "WHERE c.gatewayTransactionId IN :gatewayTransactionIds " +
+                "AND c.gatewayAccount.gatewayName = :provider";
+
+        return entityManager.get()
+                .createQuery(query, ChargeEntity.class)
+                .setParameter("gatewayTransactionIds", transactionIds)
+                .setParameter("provider", provider)
+                .getResultList();
+    }
+
     public List<ChargeEntity> findBeforeDateWithStatusIn(ZonedDateTime date, List<ChargeStatus> statuses) {
         ChargeSearchParams params = new ChargeSearchParams()
                 .withToDate(date)
@@ -97,7 +134,41 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         return findAllBy(params);
     }
 
-    public List<ChargeEntity> findByAccountBetweenDatesWithStatusIn(Long gatewayAccountId,
+    /**
+     * Returns up to {@code limit} charges created before {@code date} with one of {@code statuses}, in id order,
+     * starting after {@code afterId}, so that a sweep can walk every candidate one chunk at a time even while
+     * the charges it has already seen keep their status.
+     */
+    public List<ChargeEntity> findBeforeDateWithStatusInAfterId(ZonedDateTime date, List<ChargeStatus> statuses, long afterId, int limit) {
+        String query = "SELECT c FROM ChargeEntity c " +
+                "WHERE c.createdDate < :date " +
+                "AND c.status IN :statuses " +
+                "AND c.id > :afterId " +
+                "ORDER BY c.id ASC";
+
+        return entityManager.get()
+                .createQuery(query, ChargeEntity.class)
+                .setParameter("date", date)
+                .setParameter("statuses", statuses.stream().map(ChargeStatus::getValue).collect(Collectors.toList()))
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public long countBeforeDateWithStatusIn(ZonedDateTime date, List<ChargeStatus> statuses) {
+        String query = "SELECT count(c) FROM ChargeEntity c " +
+                "WHERE c.createdDate < :date " +
+                "AND c.status IN :statuses";
+
+        Number count = (Number) entityManager.get()
+                .createQuery(query)
+                .setParameter("date", date)
+                .setParameter("statuses", statuses.stream().map(ChargeStatus::getValue).collect(Collectors.toList()))
+                .getSingleResult();
+        return count.longValue();
+    }
+
+    public AmountSummary summariseByAccountBetweenDatesWithStatusIn(Long gatewayAccountId,
                                                                     ZonedDateTime from, ZonedDateTime to,
                                                                     List<ChargeStatus> statuses) {
         ChargeSearchParams params = new ChargeSearchParams()
@@ -105,7 +176,13 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .withFromDate(from)
                 .withToDate(to)
                 .withInternalStates(statuses);
-        return findAllBy(params);
+        CriteriaBuilder cb = entityManager.get().getCriteriaBuilder();
+        CriteriaQuery<AmountSummary> cq = cb.createQuery(AmountSummary.class);
+        Root<ChargeEntity> charge = cq.from(ChargeEntity.class);
+
+        cq.select(cb.construct(AmountSummary.class, cb.count(charge), cb.sum(charge.get(AMOUNT))))
+                .where(buildParamPredicates(params, cb, charge).toArray(new Predicate[]{}));
+        return entityManager.get().createQuery(cq).getSingleResult();
     }
 
     public List<ChargeEntity> findAllBy(ChargeSearchParams params) {
@@ -114,6 +191,9 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         Root<ChargeEntity> charge = cq.from(ChargeEntity.class);
 
         List<Predicate> predicates = buildParamPredicates(params, cb, charge);
+        if (params.getCursor() != null) {
+            return findAllAfterCursor(params, cb, cq, charge, predicates);
+        }
         cq.select(charge)
                 .where(predicates.toArray(new Predicate[]{}))
                 .orderBy(cb.desc(charge.get(CREATED_DATE)));
@@ -127,6 +207,24 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         return query.getResultList();
     }
 
+    private List<ChargeEntity> findAllAfterCursor(ChargeSearchParams params, CriteriaBuilder cb, CriteriaQuery<ChargeEntity> cq,
+                                                  Root<ChargeEntity> charge, List<Predicate> predicates) {
+        SearchCursor cursor = params.getCursor();
+        if (!cursor.isFirst()) {
+            Path<ZonedDateTime> createdDate = charge.get(CREATED_DATE);
+            predicates.add(cb.or(
+                    cb.lessThan(createdDate, cursor.getCreatedDate()),
+                    cb.and(cb.equal(createdDate, cursor.getCreatedDate()), cb.lessThan(charge.get(ID), cursor.getId()))));
+        }
+        cq.select(charge)
+                .where(predicates.toArray(new Predicate[]{}))
+                .orderBy(cb.desc(charge.get(CREATED_DATE)), cb.desc(charge.get(ID)));
+
+        return entityManager.get().createQuery(cq)
+                .setMaxResults(params.getDisplaySize().intValue())
+                .getResultList();
+    }
+
     public Long getTotalFor(ChargeSearchParams params) {
         CriteriaBuilder cb = entityManager.get().getCriteriaBuilder();
         CriteriaQuery<Long> cq = cb.createQuery(Long.class);
@@ -143,9 +241,9 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         if (params.getGatewayAccountId() != null)
             predicates.add(cb.equal(charge.get(GATEWAY_ACCOUNT).get("id"), params.getGatewayAccountId()));
         if (StringUtils.isNotBlank(params.getReference()))
-            predicates.add(likePredicate(cb, charge.get(REFERENCE), params.getReference()));
+            predicates.add(likePredicate(cb, charge.get(REFERENCE), params.getReference(), params.isExactMatch()));
         if (StringUtils.isNotBlank(params.getEmail()))
-            predicates.add(likePredicate(cb, charge.get(EMAIL), params.getEmail()));
+            predicates.add(likePredicate(cb, charge.get(EMAIL), params.getEmail(), params.isExactMatch()));
         if (params.getInternalStates() != null && !params.getInternalStates().isEmpty())
             predicates.add(charge.get(STATUS).in(params.getInternalStates()));
         if (!params.getCardBrands().isEmpty()) {
@@ -159,12 +257,15 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         return predicates;
     }
 
-    private Predicate likePredicate(CriteriaBuilder cb, Path<String> expression, String element) {
+    // lower(column) LIKE is what the trigram indexes of the searched columns are built for. Without the
+    // wildcards they match whole values only, which the indexes narrow down to a handful of rows
+    private Predicate likePredicate(CriteriaBuilder cb, Path<String> expression, String element, boolean exactMatch) {
         String escapedReference = element
                 .replaceAll("_", SQL_ESCAPE_SEQ + "_")
-                .replaceAll("%", SQL_ESCAPE_SEQ + "%");
+                .replaceAll("%", SQL_ESCAPE_SEQ + "%")
+                .toLowerCase();
 
-        return cb.like(cb.lower(expression), '%' + escapedReference.toLowerCase() + '%');
+        return cb.like(cb.lower(expression), exactMatch ? escapedReference : '%' + escapedReference + '%');
     }
 
     public int countChargesForCapture() {
@@ -178,24 +279,89 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         return count.intValue();
     }
 
-    public List<ChargeEntity> findChargesForCapture(int maxNumberOfCharges, Duration notAttemptedWithin) {
-        String query = "SELECT c FROM ChargeEntity c WHERE " +
-                "(c.status=:captureApprovedStatus OR c.status=:captureApprovedRetryStatus) " +
-                "AND NOT EXISTS (" +
-                "  SELECT ce FROM ChargeEventEntity ce WHERE " +
-                "    ce.chargeEntity = c AND " +
-                "    ce.status = :eventStatus AND " +
-                "    ce.updated >= :cutoffDate " +
+    /**
+     * Claims up to {@code maxNumberOfCharges} of the oldest charges awaiting capture for {@code claimFor},
+     * so that connector nodes running the capture process concurrently each get a disjoint batch.
+     * <p>
+     * A charge is claimed by moving its <code>capture_claimed_until</code> lease forward with a conditional
+     * update; a node that loses the race on a row re-evaluates the lease after the winner commits and
+     * skips it. The rows it lost are made up for by claiming the next oldest charges, up to
+     * {@value #MAXIMUM_CAPTURE_CLAIM_ATTEMPTS} times, so a node does not end its run on a short or empty claim
+     * while charges are waiting. Leases use the database clock and expire on their own, so charges claimed by
+     * a node that dies are picked up again.
+     */
+    public List<ChargeEntity> claimChargesForCapture(int maxNumberOfCharges, Duration notAttemptedWithin, Duration claimFor) {
+        return claimChargesForCapture(Optional.empty(), maxNumberOfCharges, notAttemptedWithin, claimFor);
+    }
+
+    /**
+     * Like {@link #claimChargesForCapture(int, Duration, Duration)}, but only claims charges of accounts
+     * using {@code paymentGatewayName}.
+     */
+    public List<ChargeEntity> claimChargesForCapture(PaymentGatewayName paymentGatewayName, int maxNumberOfCharges,
+                                                     Duration notAttemptedWithin, Duration claimFor) {
+        return claimChargesForCapture(Optional.of(paymentGatewayName), maxNumberOfCharges, notAttemptedWithin, claimFor);
+    }
+
+    private List<ChargeEntity> claimChargesForCapture(Optional<PaymentGatewayName> paymentGatewayName, int maxNumberOfCharges,
+                                                      Duration notAttemptedWithin, Duration claimFor) {
+        String query = "WITH candidates AS (" +
+                "  SELECT c.id FROM charges c WHERE " +
+                "    c.status IN (?captureApprovedStatus, ?captureApprovedRetryStatus) AND " +
+                (paymentGatewayName.isPresent()
+                        ? "    c.gateway_account_id IN (SELECT ga.id FROM gateway_accounts ga WHERE ga.payment_provider = ?paymentProvider) AND "
+                        : "") +
+                "    (c.capture_claimed_until IS NULL OR c.capture_claimed_until < " + DATABASE_NOW + ") AND " +
+                "    NOT EXISTS (" +
+                "      SELECT 1 FROM charge_events ce WHERE " +
+                "        ce.charge_id = c.id AND " +
+                "        ce.status = ?eventStatus AND " +
+                "        ce.updated >= " + DATABASE_NOW + " - interval '1 millisecond' * ?notAttemptedWithinMillis" +
+                "    ) " +
+                "  ORDER BY c.created_date ASC " +
+                "  LIMIT ?limit" +
+                "), claimed AS (" +
+                "  UPDATE charges SET capture_claimed_until = " + DATABASE_NOW + " + interval '1 millisecond' * ?claimForMillis " +
+                "  WHERE id IN (SELECT id FROM candidates) " +
+                "  AND (capture_claimed_until IS NULL OR capture_claimed_until < " + DATABASE_NOW + ") " +
+                "  RETURNING id" +
                 ") " +
-                "ORDER BY c.createdDate ASC";
+                "SELECT c.id, cl.id IS NOT NULL FROM candidates c LEFT JOIN claimed cl ON cl.id = c.id";
+
+        List<Long> claimedIds = new ArrayList<>();
+        for (int attempt = 0; attempt < MAXIMUM_CAPTURE_CLAIM_ATTEMPTS && claimedIds.size() < maxNumberOfCharges; attempt++) {
+            Query claim = entityManager.get()
+                    .createNativeQuery(query)
+                    .setParameter("captureApprovedStatus", CAPTURE_APPROVED.getValue())
+                    .setParameter("captureApprovedRetryStatus", CAPTURE_APPROVED_RETRY.getValue())
+                    .setParameter("eventStatus", CAPTURE_APPROVED_RETRY.getValue())
+                    .setParameter("notAttemptedWithinMillis", notAttemptedWithin.toMillis())
+                    .setParameter("claimForMillis", claimFor.toMillis())
+                    .setParameter("limit", maxNumberOfCharges - claimedIds.size());
+            paymentGatewayName.ifPresent(gatewayName -> claim.setParameter("paymentProvider", gatewayName.getName()));
+            List<?> candidates = claim.getResultList();
+
+            int lost = 0;
+            for (Object candidate : candidates) {
+                Object[] row = (Object[]) candidate;
+                if (Boolean.TRUE.equals(row[1])) {
+                    claimedIds.add(((Number) row[0]).longValue());
+                } else {
+                    lost++;
+                }
+            }
+            if (lost == 0) {
+                break;
+            }
+        }
+
+        if (claimedIds.isEmpty()) {
+            return Collections.emptyList();
+        }
 
         return entityManager.get()
-                .createQuery(query, ChargeEntity.class)
-                .setMaxResults(maxNumberOfCharges)
-                .setParameter("captureApprovedStatus", CAPTURE_APPROVED.getValue())
-                .setParameter("captureApprovedRetryStatus", CAPTURE_APPROVED_RETRY.getValue())
-                .setParameter("eventStatus", CAPTURE_APPROVED_RETRY)
-                .setParameter("cutoffDate", ZonedDateTime.now().minus(notAttemptedWithin))
+                .createQuery("SELECT c FROM ChargeEntity c WHERE c.id IN :chargeIds ORDER BY c.createdDate ASC", ChargeEntity.class)
+                .setParameter("chargeIds", claimedIds)
                 .getResultList();
     }
 
@@ -212,6 +378,26 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .getSingleResult()).intValue();
     }
 
+    public Map<Long, Integer> countCaptureRetriesForCharges(Collection<Long> chargeIds) {
+        if (chargeIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String query = "SELECT ce.chargeEntity.id, count(ce) FROM ChargeEventEntity ce WHERE " +
+                "    ce.chargeEntity.id IN :chargeIds AND " +
+                "    (ce.status = :captureApprovedStatus OR ce.status = :captureApprovedRetryStatus) " +
+                "GROUP BY ce.chargeEntity.id";
+
+        List<Object[]> retriesPerCharge = entityManager.get()
+                .createQuery(query, Object[].class)
+                .setParameter("chargeIds", chargeIds)
+                .setParameter("captureApprovedStatus", CAPTURE_APPROVED)
+                .setParameter("captureApprovedRetryStatus", CAPTURE_APPROVED_RETRY)
+                .getResultList();
+
+        return retriesPerCharge.stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> ((Number) row[1]).intValue()));
+    }
+
     public List<ChargeEntity> findByIdAndLimit(Long id, int limit) {
             return entityManager.get()
                     .createQuery("SELECT c FROM ChargeEntity c WHERE c.id > :id ORDER BY c.id", ChargeEntity.class)
@@ -25,10 +25,13 @@ public class ChargeSearchParams {
     private Long gatewayAccountId;
     private String reference;
     private String email;
+    private boolean exactMatch;
     private ZonedDateTime fromDate;
     private ZonedDateTime toDate;
     private Long page;
     private Long displaySize;
+    private SearchCursor cursor;
+    private boolean withTotal;
     private List<String> cardBrands = new ArrayList<>();
     private Set<ChargeStatus> internalStates = new HashSet<>();
     private Set<ChargeStatus> internalChargeStatuses = new HashSet<>();
@@ -147,6 +150,18 @@ public class ChargeSearchParams {
         return this;
     }
 
+    /**
+     * Whether the reference and email filters match whole values, ignoring case, rather than any part of them
+     */
+    public boolean isExactMatch() {
+        return exactMatch;
+    }
+
+    public ChargeSearchParams withExactMatch(boolean exactMatch) {
+        this.exactMatch = exactMatch;
+        return this;
+    }
+
     public ZonedDateTime getFromDate() {
         return fromDate;
     }
@@ -187,6 +202,24 @@ public class ChargeSearchParams {
         return this;
     }
 
+    public SearchCursor getCursor() {
+        return cursor;
+    }
+
+    public ChargeSearchParams withCursor(SearchCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public boolean isWithTotal() {
+        return withTotal;
+    }
+
+    public ChargeSearchParams withTotal(boolean withTotal) {
+        this.withTotal = withTotal;
+        return this;
+    }
+
     public List<String> getCardBrands() {
         return cardBrands;
     }
@@ -200,6 +233,8 @@ public class ChargeSearchParams {
             builder.append("&reference=").append(reference);
         if (email != null)
             builder.append("&email=").append(email);
+        if (exactMatch)
+            builder.append("&exact_match=true");
         if (fromDate != null)
             builder.append("&from_date=").append(fromDate);
         if (toDate != null)
@@ -208,6 +243,10 @@ public class ChargeSearchParams {
             builder.append("&page=").append(page);
         if (displaySize != null)
             builder.append("&display_size=").append(displaySize);
+        if (cursor != null)
+            builder.append("&cursor=").append(cursor.encode());
+        if (cursor != null && withTotal)
+            builder.append("&with_total=true");
 
         getExternalStates().stream()
                 .findFirst()
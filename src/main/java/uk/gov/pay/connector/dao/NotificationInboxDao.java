@@ -0,0 +1,181 @@
+package uk.gov.pay.connector.dao;
+
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.model.domain.NotificationInboxEntity;
+import uk.gov.pay.connector.model.domain.UTCDateTimeConverter;
+import uk.gov.pay.connector.service.PaymentGatewayName;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+@Transactional
+public class NotificationInboxDao extends JpaDao<NotificationInboxEntity> {
+
+    private static final String DATABASE_NOW = "(now() at time zone 'utc')";
+
+    private final UTCDateTimeConverter utcDateTimeConverter;
+
+    @Inject
+    public NotificationInboxDao(final Provider<EntityManager> entityManager, UTCDateTimeConverter utcDateTimeConverter) {
+        super(entityManager);
+        this.utcDateTimeConverter = utcDateTimeConverter;
+    }
+
+    /**
+     * Stores a notification with the transaction ids of the charges it is about, which keep the notifications
+     * of a charge in the order they arrived in when they are claimed.
+     */
+    public NotificationInboxEntity append(PaymentGatewayName paymentGatewayName, String payload, Collection<String> transactionIds) {
+        NotificationInboxEntity entity = NotificationInboxEntity.receivedNotificationFor(paymentGatewayName, payload);
+        Number id = (Number) entityManager.get()
+                .createNativeQuery("INSERT INTO notification_inbox (payment_gateway_name, payload, received_date, transaction_ids) " +
+                        "VALUES (?paymentGatewayName, ?payload, ?receivedDate, CAST(?transactionIds AS text[])) " +
+                        "RETURNING id")
+                .setParameter("paymentGatewayName", paymentGatewayName.getName())
+                .setParameter("payload", payload)
+                .setParameter("receivedDate", utcDateTimeConverter.convertToDatabaseColumn(entity.getReceivedDate()))
+                .setParameter("transactionIds", asTextArrayLiteral(transactionIds))
+                .getSingleResult();
+        entity.setId(id.longValue());
+        entity.setTransactionIds(new ArrayList<>(transactionIds));
+        return entity;
+    }
+
+    /**
+     * Claims up to {@code maxNumberOfNotifications} of the oldest unprocessed notifications for {@code claimFor},
+     * so that workers on every connector node each get a disjoint batch. Notifications that already failed
+     * {@code maximumAttempts} times are left in the inbox for investigation.
+     * <p>
+     * A notification is not claimed while an older one about the same charge is claimed by another worker, so
+     * the notifications of a charge are applied in order, in one batch or one after another, never side by side.
+     * Claims are taken one at a time, under a lock on the <code>notification-inbox-claims</code> row of
+     * <code>background_job_leases</code>, so two workers cannot each claim one of them at the same moment.
+     * Leases use the database clock, and leases held by a worker that dies expire on their own.
+     */
+    public List<NotificationInboxEntity> claimBatch(int maxNumberOfNotifications, Duration claimFor, int maximumAttempts) {
+        entityManager.get()
+                .createNativeQuery("SELECT job_name FROM background_job_leases WHERE job_name = 'notification-inbox-claims' FOR UPDATE")
+                .getResultList();
+
+        String query = "UPDATE notification_inbox SET claimed_until = " + DATABASE_NOW + " + interval '1 millisecond' * ?claimForMillis " +
+                "WHERE id IN (" +
+                "  SELECT n.id FROM notification_inbox n WHERE " +
+                "    n.processed_date IS NULL AND " +
+                "    n.attempts < ?maximumAttempts AND " +
+                "    (n.claimed_until IS NULL OR n.claimed_until < " + DATABASE_NOW + ") AND " +
+                "    NOT EXISTS (" +
+                "      SELECT 1 FROM notification_inbox o WHERE " +
+                "        o.id < n.id AND " +
+                "        o.processed_date IS NULL AND " +
+                "        o.attempts < ?maximumAttempts AND " +
+                "        o.claimed_until >= " + DATABASE_NOW + " AND " +
+                "        o.transaction_ids && n.transaction_ids" +
+                "    ) " +
+                "  ORDER BY n.id ASC " +
+                "  LIMIT ?limit" +
+                ") " +
+                "AND processed_date IS NULL " +
+                "AND (claimed_until IS NULL OR claimed_until < " + DATABASE_NOW + ") " +
+                "RETURNING id";
+
+        List<?> claimedIds = entityManager.get()
+                .createNativeQuery(query)
+                .setParameter("claimForMillis", claimFor.toMillis())
+                .setParameter("maximumAttempts", maximumAttempts)
+                .setParameter("limit", maxNumberOfNotifications)
+                .getResultList();
+
+        if (claimedIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> ids = claimedIds.stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(toList());
+
+        List<NotificationInboxEntity> notifications = entityManager.get()
+                .createQuery("SELECT n FROM NotificationInboxEntity n WHERE n.id IN :ids ORDER BY n.id ASC", NotificationInboxEntity.class)
+                .setParameter("ids", ids)
+                .getResultList();
+
+        Map<Long, List<String>> transactionIdsById = findTransactionIds(ids);
+        notifications.forEach(notification ->
+                notification.setTransactionIds(transactionIdsById.getOrDefault(notification.getId(), Collections.emptyList())));
+        return notifications;
+    }
+
+    private Map<Long, List<String>> findTransactionIds(Collection<Long> ids) {
+        List<Object[]> rows = entityManager.get()
+                .createNativeQuery("SELECT id, unnest(transaction_ids) FROM notification_inbox WHERE id = ANY(CAST(?ids AS bigint[]))")
+                .setParameter("ids", asArrayLiteral(ids))
+                .getResultList();
+
+        return rows.stream().collect(groupingBy(
+                row -> ((Number) row[0]).longValue(),
+                mapping(row -> (String) row[1], toList())));
+    }
+
+    public int markProcessed(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.get()
+                .createNativeQuery("UPDATE notification_inbox SET processed_date = ?processedDate, claimed_until = NULL WHERE id = ANY(CAST(?ids AS bigint[]))")
+                .setParameter("processedDate", utcDateTimeConverter.convertToDatabaseColumn(ZonedDateTime.now()))
+                .setParameter("ids", asArrayLiteral(ids))
+                .executeUpdate();
+    }
+
+    /**
+     * Releases the claim on each notification without counting an attempt against it, so the next poll
+     * claims it again.
+     */
+    public int releaseClaim(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.get()
+                .createNativeQuery("UPDATE notification_inbox SET claimed_until = NULL WHERE id = ANY(CAST(?ids AS bigint[]))")
+                .setParameter("ids", asArrayLiteral(ids))
+                .executeUpdate();
+    }
+
+    /**
+     * Counts an attempt against each notification and releases its claim, so the next poll retries it
+     * until it reaches the maximum number of attempts.
+     */
+    public int recordFailedAttempt(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.get()
+                .createNativeQuery("UPDATE notification_inbox SET attempts = attempts + 1, claimed_until = NULL WHERE id = ANY(CAST(?ids AS bigint[]))")
+                .setParameter("ids", asArrayLiteral(ids))
+                .executeUpdate();
+    }
+
+    // a PostgreSQL array literal, as lists are not expanded into native query parameters
+    private static String asArrayLiteral(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(joining(",", "{", "}"));
+    }
+
+    // elements are quoted, so transaction ids holding commas, braces or quotes stay whole
+    private static String asTextArrayLiteral(Collection<String> values) {
+        return values.stream()
+                .map(value -> "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(joining(",", "{", "}"));
+    }
+}
@@ -111,7 +111,7 @@ public class OldTransactionDao {
 
         if (isNotBlank(params.getEmail())) {
             queryFilters = queryFilters.and(
-                    field("c.email").lower().like(buildLikeClauseContaining(params.getEmail().toLowerCase())));
+                    field("c.email").lower().like(buildLikeClause(params.getEmail().toLowerCase(), params.isExactMatch())));
         }
 
         if (!params.getCardBrands().isEmpty()) {
@@ -121,7 +121,7 @@ public class OldTransactionDao {
 
         if (isNotBlank(params.getReference())) {
             queryFilters = queryFilters.and(
-                    field("c.reference").lower().like(buildLikeClauseContaining(params.getReference().toLowerCase())));
+                    field("c.reference").lower().like(buildLikeClause(params.getReference().toLowerCase(), params.isExactMatch())));
         }
 
         Condition queryFiltersForCharges = queryFilters;
@@ -229,11 +229,11 @@ public class OldTransactionDao {
         return queryForCharges.unionAll(queryForRefunds);
     }
 
-    private String buildLikeClauseContaining(String textToFind) {
+    private String buildLikeClause(String textToFind, boolean exactMatch) {
         String escapedLikeClause = textToFind
                 .replaceAll("_", "\\\\_")
                 .replaceAll("%", "\\\\%");
-        return '%' + escapedLikeClause + '%';
+        return exactMatch ? escapedLikeClause : '%' + escapedLikeClause + '%';
     }
 
     private Set<String> mapChargeStatuses(Set<ChargeStatus> status) {
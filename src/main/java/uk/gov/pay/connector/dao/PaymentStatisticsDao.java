@@ -0,0 +1,237 @@
+package uk.gov.pay.connector.dao;
+
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.model.domain.PaymentStatistic;
+import uk.gov.pay.connector.model.domain.PaymentStatisticsKey;
+import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Daily rollup of the number and total amount of transactions per gateway account, day, operation,
+ * status and card brand. Rows are adjusted in the same database transaction as the status changes
+ * they reflect, so summaries over any range of days read a handful of rows rather than the
+ * transactions themselves.
+ */
+@Transactional
+public class PaymentStatisticsDao {
+
+    private static final String SELECT_TRANSACTIONS_ROLLUP =
+            "SELECT pr.gateway_account_id, " +
+                    "CAST(COALESCE(t.created_date, pr.created_date) AS date), " +
+                    "t.operation, " +
+                    "t.status, " +
+                    "COALESCE(c.card_brand, ''), " +
+                    "COUNT(t.id), " +
+                    "SUM(t.amount) " +
+                    "FROM transactions t " +
+                    "JOIN payment_requests pr ON pr.id = t.payment_request_id " +
+                    // refunds are counted against the card brand of the charge they refund
+                    "LEFT JOIN transactions ct ON ct.payment_request_id = pr.id AND ct.operation = 'CHARGE' " +
+                    "LEFT JOIN cards c ON c.transaction_id = ct.id ";
+
+    private static final ThreadLocal<Map<PaymentStatisticsKey, long[]>> BATCHED_ADJUSTMENTS = new ThreadLocal<>();
+
+    private final Provider<EntityManager> entityManager;
+
+    @Inject
+    public PaymentStatisticsDao(Provider<EntityManager> entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public void add(PaymentStatisticsKey key, long amount) {
+        adjust(key, 1, amount);
+    }
+
+    public void remove(PaymentStatisticsKey key, long amount) {
+        adjust(key, -1, -amount);
+    }
+
+    /**
+     * Moves one transaction of the given amount from the row it used to be counted in to the row it
+     * now belongs to. Does nothing when both keys are the same. The two rows are adjusted in
+     * {@link PaymentStatisticsKey#LOCK_ORDER}, whichever way the transaction moves.
+     */
+    public void move(PaymentStatisticsKey from, PaymentStatisticsKey to, long amount) {
+        if (from.equals(to)) {
+            return;
+        }
+        if (PaymentStatisticsKey.LOCK_ORDER.compare(from, to) < 0) {
+            remove(from, amount);
+            add(to, amount);
+        } else {
+            add(to, amount);
+            remove(from, amount);
+        }
+    }
+
+    /**
+     * Runs {@code work} holding back the adjustments it makes, then applies them summed per row and in
+     * {@link PaymentStatisticsKey#LOCK_ORDER}. Work that changes the status of many transactions in one
+     * database transaction, such as a chunk of expired charges, then locks each row once and in the
+     * same order as everyone else, rather than holding row locks in whatever order its charges came in.
+     * <p>
+     * Must be called in the database transaction the work runs in. Nested calls are applied by the
+     * outermost one.
+     */
+    public <T> T batchAdjustments(Supplier<T> work) {
+        if (BATCHED_ADJUSTMENTS.get() != null) {
+            return work.get();
+        }
+
+        Map<PaymentStatisticsKey, long[]> adjustments = new TreeMap<>(PaymentStatisticsKey.LOCK_ORDER);
+        BATCHED_ADJUSTMENTS.set(adjustments);
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            BATCHED_ADJUSTMENTS.remove();
+        }
+
+        adjustments.forEach((key, countAndAmount) -> {
+            if (countAndAmount[0] != 0 || countAndAmount[1] != 0) {
+                apply(key, countAndAmount[0], countAndAmount[1]);
+            }
+        });
+        return result;
+    }
+
+    private void adjust(PaymentStatisticsKey key, long count, long amount) {
+        Map<PaymentStatisticsKey, long[]> adjustments = BATCHED_ADJUSTMENTS.get();
+        if (adjustments == null) {
+            apply(key, count, amount);
+            return;
+        }
+        long[] countAndAmount = adjustments.computeIfAbsent(key, ignored -> new long[2]);
+        countAndAmount[0] += count;
+        countAndAmount[1] += amount;
+    }
+
+    /**
+     * Adds {@code count} and {@code amount} to the row of {@code key}, creating the row if needed.
+     * <p>
+     * The row is updated, or inserted when there is none, under a transaction-scoped advisory lock on
+     * the key, so two transactions creating the same row cannot both insert it. INSERT ... ON CONFLICT
+     * is not used because it needs PostgreSQL 9.5 while the tests run against 9.4. The lock is taken
+     * after a shared lock on the gateway account, which {@link #rebuildForAccount(Long)} takes
+     * exclusively, so no adjustment interleaves with a rebuild of the same account.
+     */
+    private void apply(PaymentStatisticsKey key, long count, long amount) {
+        EntityManager em = entityManager.get();
+
+        em.createNativeQuery("SELECT COUNT(*) FROM (" +
+                "SELECT pg_advisory_xact_lock(?2, ?3) FROM (SELECT pg_advisory_xact_lock_shared(?1)) AS account_lock" +
+                ") AS row_lock")
+                .setParameter(1, key.getGatewayAccountId())
+                .setParameter(2, key.getGatewayAccountId().intValue())
+                .setParameter(3, key.lockId())
+                .getSingleResult();
+
+        int updated = em.createNativeQuery("UPDATE payment_statistics_daily SET " +
+                "transaction_count = transaction_count + ?6, " +
+                "total_amount = total_amount + ?7 " +
+                "WHERE gateway_account_id = ?1 AND day = ?2 AND operation = ?3 AND status = ?4 AND card_brand = ?5")
+                .setParameter(1, key.getGatewayAccountId())
+                .setParameter(2, Date.valueOf(key.getDay()))
+                .setParameter(3, key.getOperation().name())
+                .setParameter(4, key.getStatus())
+                .setParameter(5, key.getCardBrand())
+                .setParameter(6, count)
+                .setParameter(7, amount)
+                .executeUpdate();
+
+        if (updated == 0) {
+            em.createNativeQuery("INSERT INTO payment_statistics_daily " +
+                    "(gateway_account_id, day, operation, status, card_brand, transaction_count, total_amount) " +
+                    "VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)")
+                    .setParameter(1, key.getGatewayAccountId())
+                    .setParameter(2, Date.valueOf(key.getDay()))
+                    .setParameter(3, key.getOperation().name())
+                    .setParameter(4, key.getStatus())
+                    .setParameter(5, key.getCardBrand())
+                    .setParameter(6, count)
+                    .setParameter(7, amount)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Sums the rollup rows of an account for the days between {@code fromDay} and {@code toDay}, both
+     * inclusive, by operation, status and card brand and, when {@code perDay} is set, by day.
+     */
+    public List<PaymentStatistic> summariseByAccountBetweenDays(Long gatewayAccountId, LocalDate fromDay, LocalDate toDay, boolean perDay) {
+        String groupBy = perDay ? "day, operation, status, card_brand" : "operation, status, card_brand";
+        String query = "SELECT " + (perDay ? "day" : "NULL") + ", operation, status, card_brand, " +
+                "SUM(transaction_count), SUM(total_amount) " +
+                "FROM payment_statistics_daily " +
+                "WHERE gateway_account_id = ?1 AND day >= ?2 AND day <= ?3 " +
+                "GROUP BY " + groupBy + " " +
+                "HAVING SUM(transaction_count) <> 0 " +
+                "ORDER BY " + groupBy;
+
+        List<Object[]> rows = entityManager.get()
+                .createNativeQuery(query)
+                .setParameter(1, gatewayAccountId)
+                .setParameter(2, Date.valueOf(fromDay))
+                .setParameter(3, Date.valueOf(toDay))
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new PaymentStatistic(
+                        row[0] == null ? null : ((Date) row[0]).toLocalDate(),
+                        TransactionOperation.valueOf((String) row[1]),
+                        (String) row[2],
+                        (String) row[3],
+                        ((Number) row[4]).longValue(),
+                        ((Number) row[5]).longValue()))
+                .collect(toList());
+    }
+
+    /**
+     * Recomputes the rollup of one gateway account from its transactions.
+     * <p>
+     * The account is locked exclusively first, so the rebuild waits for the transactions adjusting its
+     * rows to commit and the ones that come after wait for the rebuild. Each statement reads the
+     * transactions committed when it starts, so a status change is either in the rebuilt rows or
+     * applied to them afterwards, never both or neither.
+     *
+     * @return the number of rollup rows written
+     */
+    public int rebuildForAccount(Long gatewayAccountId) {
+        entityManager.get()
+                .createNativeQuery("SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(?1)) AS account_lock")
+                .setParameter(1, gatewayAccountId)
+                .getSingleResult();
+
+        entityManager.get()
+                .createNativeQuery("DELETE FROM payment_statistics_daily WHERE gateway_account_id = ?1")
+                .setParameter(1, gatewayAccountId)
+                .executeUpdate();
+
+        return entityManager.get()
+                .createNativeQuery("INSERT INTO payment_statistics_daily " +
+                        "(gateway_account_id, day, operation, status, card_brand, transaction_count, total_amount) " +
+                        SELECT_TRANSACTIONS_ROLLUP +
+                        "WHERE pr.gateway_account_id = ?1 " +
+                        "GROUP BY 1, 2, 3, 4, 5")
+                .setParameter(1, gatewayAccountId)
+                .executeUpdate();
+    }
+
+    public List<Long> findGatewayAccountIdsWithTransactions() {
+        List<Number> ids = entityManager.get()
+                .createNativeQuery("SELECT DISTINCT gateway_account_id FROM payment_requests ORDER BY gateway_account_id")
+                .getResultList();
+        return ids.stream().map(Number::longValue).collect(toList());
+    }
+}
@@ -2,6 +2,7 @@ package uk.gov.pay.connector.dao;
 
 import com.google.inject.Provider;
 import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.model.domain.AmountSummary;
 import uk.gov.pay.connector.model.domain.RefundEntity;
 import uk.gov.pay.connector.model.domain.RefundHistory;
 import uk.gov.pay.connector.model.domain.RefundStatus;
@@ -20,6 +21,7 @@ public class RefundDao extends JpaDao<RefundEntity> {
 
     private static final String ID = "id";
     private static final String STATUS = "status";
+    private static final String AMOUNT = "amount";
     private static final String CREATED_DATE = "createdDate";
     private static final String CHARGE_ENTITY = "chargeEntity";
     private static final String GATEWAY_ACCOUNT = "gatewayAccount";
@@ -47,20 +49,20 @@ public class RefundDao extends JpaDao<RefundEntity> {
                 .getResultList().stream().findFirst();
     }
 
-    public List<RefundEntity> findByAccountBetweenDatesWithStatusIn(Long gatewayAccountId,
+    public AmountSummary summariseByAccountBetweenDatesWithStatusIn(Long gatewayAccountId,
                                                                     ZonedDateTime from, ZonedDateTime to,
                                                                     List<RefundStatus> statuses) {
         CriteriaBuilder criteriaBuilder = entityManager.get().getCriteriaBuilder();
-        CriteriaQuery<RefundEntity> criteriaQuery = criteriaBuilder.createQuery(RefundEntity.class);
+        CriteriaQuery<AmountSummary> criteriaQuery = criteriaBuilder.createQuery(AmountSummary.class);
         Root<RefundEntity> refund = criteriaQuery.from(RefundEntity.class);
         criteriaQuery
-                .select(refund)
+                .select(criteriaBuilder.construct(AmountSummary.class, criteriaBuilder.count(refund), criteriaBuilder.sum(refund.get(AMOUNT))))
                 .where(
                         criteriaBuilder.equal(refund.get(CHARGE_ENTITY).get(GATEWAY_ACCOUNT).get(ID), gatewayAccountId),
                         criteriaBuilder.greaterThanOrEqualTo(refund.get(CREATED_DATE), from),
                         criteriaBuilder.lessThan(refund.get(CREATED_DATE), to),
                         refund.get(STATUS).in(statuses));
-        return entityManager.get().createQuery(criteriaQuery).getResultList();
+        return entityManager.get().createQuery(criteriaQuery).getSingleResult();
     }
 
     public List<RefundHistory> searchHistoryByChargeId(Long chargeId) {
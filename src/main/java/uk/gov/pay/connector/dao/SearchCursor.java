@@ -0,0 +1,108 @@
+package uk.gov.pay.connector.dao;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Opaque keyset position in a search result ordered by {@code created_date DESC, id DESC}.
+ * <p>
+ * A cursor points at the last row of a page; the next page holds the rows strictly after it,
+ * so fetching it costs the same regardless of how deep into the result set it is.
+ */
+public class SearchCursor {
+
+    private static final String SEPARATOR = "|";
+    private static final SearchCursor FIRST = new SearchCursor(null, null);
+
+    private final ZonedDateTime createdDate;
+    private final Long id;
+
+    private SearchCursor(ZonedDateTime createdDate, Long id) {
+        this.createdDate = createdDate;
+        this.id = id;
+    }
+
+    public static SearchCursor first() {
+        return FIRST;
+    }
+
+    public static SearchCursor after(ZonedDateTime createdDate, Long id) {
+        return new SearchCursor(Objects.requireNonNull(createdDate), Objects.requireNonNull(id));
+    }
+
+    /**
+     * @param cursor the value of the <code>cursor</code> query param, empty for the first page
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static SearchCursor decode(String cursor) {
+        if (cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Malformed search cursor: " + cursor);
+            }
+            Instant createdDate = Instant.parse(decoded.substring(0, separatorIndex));
+            Long id = Long.valueOf(decoded.substring(separatorIndex + 1));
+            return after(ZonedDateTime.ofInstant(createdDate, ZoneId.of("UTC")), id);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed search cursor: " + cursor, e);
+        }
+    }
+
+    public static boolean isValid(String cursor) {
+        try {
+            decode(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public boolean isFirst() {
+        return createdDate == null;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        if (isFirst()) {
+            return "";
+        }
+        String position = createdDate.toInstant().toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(UTF_8));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchCursor that = (SearchCursor) o;
+        return Objects.equals(createdDate, that.createdDate) &&
+                Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdDate, id);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
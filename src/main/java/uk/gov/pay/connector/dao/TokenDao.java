@@ -3,17 +3,26 @@ package uk.gov.pay.connector.dao;
 import com.google.inject.Provider;
 import com.google.inject.persist.Transactional;
 import uk.gov.pay.connector.model.domain.TokenEntity;
+import uk.gov.pay.connector.model.domain.UTCDateTimeConverter;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Transactional
 public class TokenDao extends JpaDao<TokenEntity> {
 
+    private final UTCDateTimeConverter utcDateTimeConverter;
+
     @Inject
-    public TokenDao(Provider<EntityManager> entityManager) {
+    public TokenDao(Provider<EntityManager> entityManager, UTCDateTimeConverter utcDateTimeConverter) {
         super(entityManager);
+        this.utcDateTimeConverter = utcDateTimeConverter;
     }
 
     public Optional<TokenEntity> findByTokenId(String tokenId) {
@@ -24,11 +33,46 @@ public class TokenDao extends JpaDao<TokenEntity> {
                 .findFirst();
     }
 
+    /**
+     * @return the latest token issued for the charge, if it has not been used (tokens are deleted once used)
+     */
     public Optional<TokenEntity> findByChargeId(Long chargeId) {
         return entityManager.get()
-                .createQuery("SELECT t FROM TokenEntity t WHERE t.chargeEntity.id = :chargeId", TokenEntity.class)
+                .createQuery("SELECT t FROM TokenEntity t WHERE t.chargeEntity.id = :chargeId ORDER BY t.id DESC", TokenEntity.class)
                 .setParameter("chargeId", chargeId)
+                .setMaxResults(1)
                 .getResultList().stream()
                 .findFirst();
     }
+
+    /**
+     * As {@link #findByChargeId(Long)} for many charges in one query, e.g. for a page of search results
+     *
+     * @return the latest unused token of each of the charges that has one, by charge id
+     */
+    public Map<Long, TokenEntity> findByChargeIds(Collection<Long> chargeIds) {
+        if (chargeIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return entityManager.get()
+                .createQuery("SELECT t FROM TokenEntity t WHERE t.chargeEntity.id IN :chargeIds ORDER BY t.id", TokenEntity.class)
+                .setParameter("chargeIds", chargeIds)
+                .getResultList().stream()
+                .collect(Collectors.toMap(token -> token.getChargeEntity().getId(), token -> token, (older, latest) -> latest));
+    }
+
+    /**
+     * Deletes up to <code>limit</code> tokens created before the given date, in a transaction of its own so that
+     * a large purge does not hold locks on the whole table.
+     *
+     * @return the number of tokens deleted
+     */
+    public int deleteTokensCreatedBefore(ZonedDateTime date, int limit) {
+        return entityManager.get()
+                .createNativeQuery("DELETE FROM tokens WHERE id IN " +
+                        "(SELECT id FROM tokens WHERE created_date < ?createdBefore ORDER BY created_date LIMIT ?limit)")
+                .setParameter("createdBefore", utcDateTimeConverter.convertToDatabaseColumn(date))
+                .setParameter("limit", limit)
+                .executeUpdate();
+    }
 }
@@ -12,10 +12,24 @@ import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import javax.persistence.Query;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,6 +39,37 @@ import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 @Transactional
 public class TransactionDao extends JpaDao<TransactionEntity> {
 
+    private static final String SELECT_TRANSACTIONS =
+            "SELECT " +
+                    "t.operation AS transaction_type, " +
+                    "t.id AS charge_id, " +
+                    "p.external_id AS external_id, " +
+                    "p.reference AS reference, " +
+                    "p.description AS description, " +
+                    "t.status AS status, " +
+                    "t2.email AS email, " +
+                    "p.gateway_account_id AS gateway_account_id," +
+                    "t2.gateway_transaction_id AS gateway_transaction_id, " +
+                    "t.created_date AS date_created, " +
+                    "c.card_brand AS card_brand, " +
+                    "'CHANGE_ME' AS card_brand_label, " +
+                    "c.cardholder_name AS cardholder_name, " +
+                    "c.expiry_date AS expiry_date, " +
+                    "c.last_digits_card_number AS last_digits_card_number, " +
+                    "c.address_city AS address_city, " +
+                    "c.address_country AS address_country, " +
+                    "c.address_county AS address_county, " +
+                    "c.address_line1 AS address_line1, " +
+                    "c.address_line2 AS address_line2, " +
+                    "c.address_postcode AS address_postcode, " +
+                    "p.amount AS amount " +
+                    "FROM transactions t JOIN transactions t2 ON t.payment_request_id = t2.payment_request_id AND t2.operation = 'CHARGE' " +
+                    "JOIN payment_requests p ON t.payment_request_id = p.id " +
+                    "JOIN gateway_accounts g ON t.gateway_account_id = g.id " +
+                    "LEFT JOIN cards c ON t2.id = c.transaction_id ";
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("\\?([A-Za-z]\\w*)");
+
     private final UTCDateTimeConverter utcDateTimeConverter;
 
     @Inject
@@ -34,37 +79,12 @@ public class TransactionDao extends JpaDao<TransactionEntity> {
     }
 
     public List<Transaction> search(ChargeSearchParams params) {
-        String queryStart =
-                "SELECT " +
-                        "t.operation AS transaction_type, " +
-                        "t.id AS charge_id, " +
-                        "p.external_id AS external_id, " +
-                        "p.reference AS reference, " +
-                        "p.description AS description, " +
-                        "t.status AS status, " +
-                        "t2.email AS email, " +
-                        "p.gateway_account_id AS gateway_account_id," +
-                        "t2.gateway_transaction_id AS gateway_transaction_id, " +
-                        "t.created_date AS date_created, " +
-                        "c.card_brand AS card_brand, " +
-                        "'CHANGE_ME' AS card_brand_label, " +
-                        "c.cardholder_name AS cardholder_name, " +
-                        "c.expiry_date AS expiry_date, " +
-                        "c.last_digits_card_number AS last_digits_card_number, " +
-                        "c.address_city AS address_city, " +
-                        "c.address_country AS address_country, " +
-                        "c.address_county AS address_county, " +
-                        "c.address_line1 AS address_line1, " +
-                        "c.address_line2 AS address_line2, " +
-                        "c.address_postcode AS address_postcode, " +
-                        "p.amount AS amount " +
-                        "FROM transactions t JOIN transactions t2 ON t.payment_request_id = t2.payment_request_id AND t2.operation = 'CHARGE' " +
-                        "JOIN payment_requests p ON t.payment_request_id = p.id " +
-                        "JOIN gateway_accounts g ON t.gateway_account_id = g.id " +
-                        "LEFT JOIN cards c ON t2.id = c.transaction_id ";
-
         List<String> statuses = getStatuses(params);
-        StringBuilder queryBuilder = buildQueryString(queryStart, params, statuses);
+        StringBuilder queryBuilder = buildQueryString(SELECT_TRANSACTIONS, params, statuses);
+
+        if (params.getCursor() != null) {
+            return searchAfterCursor(queryBuilder, params, statuses);
+        }
 
         String query = queryBuilder.append("ORDER BY t.created_date DESC LIMIT ?limit OFFSET ?offset").toString();
 
@@ -77,6 +97,109 @@ public class TransactionDao extends JpaDao<TransactionEntity> {
         return (List<Transaction>) typedQuery.getResultList();
     }
 
+    private List<Transaction> searchAfterCursor(StringBuilder queryBuilder, ChargeSearchParams params, List<String> statuses) {
+        SearchCursor cursor = params.getCursor();
+        if (!cursor.isFirst()) {
+            queryBuilder.append("AND (t.created_date, t.id) < (?cursorDate, ?cursorId) ");
+        }
+        String query = queryBuilder.append("ORDER BY t.created_date DESC, t.id DESC LIMIT ?limit").toString();
+
+        Query typedQuery = entityManager.get().createNativeQuery(query, "TransactionMapping");
+        typedQuery = setParams(typedQuery, params, statuses);
+        if (!cursor.isFirst()) {
+            typedQuery.setParameter("cursorDate", utcDateTimeConverter.convertToDatabaseColumn(cursor.getCreatedDate()));
+            typedQuery.setParameter("cursorId", cursor.getId());
+        }
+        typedQuery.setParameter("limit", params.getDisplaySize());
+
+        return (List<Transaction>) typedQuery.getResultList();
+    }
+
+    /**
+     * Passes every transaction matching the search filters, newest first, to {@code consumer} as it is
+     * read, ignoring the page, display size and cursor of {@code params}.
+     * <p>
+     * The query runs over plain JDBC with a forward-only cursor so PostgreSQL hands the rows over
+     * {@code fetchSize} at a time rather than all at once, which it only does inside a transaction.
+     * It gets a read only connection of its own rather than one of the entity manager's, so a long export
+     * never keeps a connection from the requests, and PostgreSQL cancels it once it has run for
+     * {@code statementTimeout}. Transactions read this way are not managed by the entity manager.
+     */
+    public void stream(ChargeSearchParams params, int fetchSize, Duration statementTimeout, Consumer<Transaction> consumer) {
+        List<String> statuses = getStatuses(params);
+        String query = buildQueryString(SELECT_TRANSACTIONS, params, statuses)
+                .append("ORDER BY t.created_date DESC, t.id DESC")
+                .toString();
+
+        // JDBC only knows positional parameters, so each ?name becomes a ? bound to its value in turn
+        Map<String, Object> values = parameterValues(params, statuses);
+        List<Object> positionalValues = new ArrayList<>();
+        Matcher matcher = NAMED_PARAMETER.matcher(query);
+        while (matcher.find()) {
+            positionalValues.add(values.get(matcher.group(1)));
+        }
+
+        try (Connection connection = openReadOnlyConnection(statementTimeout);
+             PreparedStatement statement = connection.prepareStatement(matcher.replaceAll("?"),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < positionalValues.size(); i++) {
+                statement.setObject(i + 1, positionalValues.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(toTransaction(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Failed to stream transactions", e);
+        }
+    }
+
+    private Connection openReadOnlyConnection(Duration statementTimeout) throws SQLException {
+        // the same database and credentials as the persistence unit
+        Map<String, Object> properties = entityManager.get().getEntityManagerFactory().getProperties();
+        Connection connection = DriverManager.getConnection((String) properties.get("javax.persistence.jdbc.url"),
+                (String) properties.get("javax.persistence.jdbc.user"), (String) properties.get("javax.persistence.jdbc.password"));
+        try {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET statement_timeout = " + statementTimeout.toMillis());
+            }
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private Transaction toTransaction(ResultSet resultSet) throws SQLException {
+        return new Transaction(
+                resultSet.getString("transaction_type"),
+                resultSet.getLong("charge_id"),
+                resultSet.getString("external_id"),
+                resultSet.getString("reference"),
+                resultSet.getString("description"),
+                resultSet.getString("status"),
+                resultSet.getString("email"),
+                resultSet.getLong("gateway_account_id"),
+                resultSet.getString("gateway_transaction_id"),
+                resultSet.getTimestamp("date_created"),
+                resultSet.getString("card_brand"),
+                resultSet.getString("card_brand_label"),
+                resultSet.getString("cardholder_name"),
+                resultSet.getString("expiry_date"),
+                resultSet.getString("last_digits_card_number"),
+                resultSet.getString("address_city"),
+                resultSet.getString("address_country"),
+                resultSet.getString("address_county"),
+                resultSet.getString("address_line1"),
+                resultSet.getString("address_line2"),
+                resultSet.getString("address_postcode"),
+                resultSet.getLong("amount"));
+    }
+
     private void setPagination(ChargeSearchParams params, Query typedQuery) {
         final long displaySize = params.getDisplaySize().intValue();
         long offset = (params.getPage() - 1) * displaySize;
@@ -119,38 +242,43 @@ public class TransactionDao extends JpaDao<TransactionEntity> {
     }
 
     private Query setParams(Query typedQuery, ChargeSearchParams params, List<String> statuses) {
-        typedQuery.setParameter("gatewayAccountId", params.getGatewayAccountId());
+        parameterValues(params, statuses).forEach(typedQuery::setParameter);
+        return typedQuery;
+    }
+
+    private Map<String, Object> parameterValues(ChargeSearchParams params, List<String> statuses) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("gatewayAccountId", params.getGatewayAccountId());
 
         // here add the values for the optional params
         if (isNotEmpty(params.getEmail())) {
-            String formattedEmail = getEscapedString(params.getEmail());
-            typedQuery.setParameter("email", "%" + formattedEmail + "%");
+            values.put("email", likePattern(params.getEmail(), params.isExactMatch()));
         }
 
         if (isNotEmpty(params.getReference())) {
-            typedQuery.setParameter("reference", "%" + getEscapedString(params.getReference()) + "%");
+            values.put("reference", likePattern(params.getReference(), params.isExactMatch()));
         }
 
         if (params.getFromDate() != null) {
             final Timestamp databaseFormatted = utcDateTimeConverter.convertToDatabaseColumn(params.getFromDate());
-            typedQuery.setParameter("createdDate", databaseFormatted);
+            values.put("createdDate", databaseFormatted);
         }
 
         if (params.getToDate() != null) {
             final Timestamp databaseFormatted = utcDateTimeConverter.convertToDatabaseColumn(params.getToDate());
-            typedQuery.setParameter("toDate", databaseFormatted);
+            values.put("toDate", databaseFormatted);
         }
 
         if (params.getTransactionType() != null) {
             TransactionOperation operation = params.getTransactionType().equals(TransactionType.PAYMENT) ?
                     TransactionOperation.CHARGE : TransactionOperation.REFUND;
-            typedQuery.setParameter("operation", operation.name());
+            values.put("operation", operation.name());
         }
 
-        addInParameters(typedQuery, params.getCardBrands(), "cardBrand");
-        addInParameters(typedQuery, statuses, "status");
+        addInParameters(values, params.getCardBrands(), "cardBrand");
+        addInParameters(values, statuses, "status");
 
-        return typedQuery;
+        return values;
     }
 
     private StringBuilder buildQueryString(String queryString, ChargeSearchParams params, List<String> statuses) {
@@ -158,11 +286,11 @@ public class TransactionDao extends JpaDao<TransactionEntity> {
         query.append("WHERE t.gateway_account_id = ?gatewayAccountId ");
         // here add the optional params
         if (isNotEmpty(params.getEmail())) {
-            query.append("AND t2.email ILIKE ?email ");
+            query.append("AND lower(t2.email) LIKE ?email ");
         }
 
         if (isNotEmpty(params.getReference())) {
-            query.append("AND p.reference ILIKE ?reference ");
+            query.append("AND lower(p.reference) LIKE ?reference ");
         }
 
         if (params.getFromDate() != null) {
@@ -192,14 +320,21 @@ public class TransactionDao extends JpaDao<TransactionEntity> {
     }
 
     //Had to add as EclipseLink addParameter cannot work out lists.
-    private void addInParameters(Query typedQuery, List<String> values, String parameterName) {
+    private void addInParameters(Map<String, Object> parameterValues, List<String> values, String parameterName) {
         if (!values.isEmpty()) {
             for (int counter = 0; counter < values.size(); counter++) {
-                typedQuery.setParameter(parameterName + counter, values.get(counter));
+                parameterValues.put(parameterName + counter, values.get(counter));
             }
         }
     }
 
+    // matched against lower(column) so the trigram indexes on the lowercased columns can be used, whole values
+    // only when an exact match is asked for
+    private String likePattern(String inputString, boolean exactMatch) {
+        String escapedString = getEscapedString(inputString);
+        return exactMatch ? escapedString : "%" + escapedString + "%";
+    }
+
     private String getEscapedString(String inputString) {
         return inputString.toLowerCase()
                 .replaceAll("_", "\\\\_")
@@ -0,0 +1,12 @@
+package uk.gov.pay.connector.exception;
+
+import javax.ws.rs.WebApplicationException;
+
+import static java.lang.String.format;
+import static uk.gov.pay.connector.util.ResponseUtil.serviceUnavailableResponse;
+
+public class OperationRejectedRuntimeException extends WebApplicationException {
+    public OperationRejectedRuntimeException(String operationType, String chargeId) {
+        super(serviceUnavailableResponse(format("%s for charge rejected, too many operations in progress, %s", operationType, chargeId)));
+    }
+}
@@ -3,33 +3,56 @@ package uk.gov.pay.connector.healthcheck;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheck;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import uk.gov.pay.connector.service.CardExecutorService;
 
 import javax.inject.Inject;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public class CardExecutorServiceHealthCheck extends HealthCheck {
 
-    private ThreadPoolExecutor threadPoolExecutor;
+    private static final int MAXIMUM_HEALTHY_QUEUE_SIZE = 10;
+
+    private final CardExecutorService cardExecutorService;
+    private final ExecutorService executor;
 
     @Inject
     public CardExecutorServiceHealthCheck(CardExecutorService cardExecutorService) {
-        this.threadPoolExecutor = (ThreadPoolExecutor)cardExecutorService.getExecutor();
+        this.cardExecutorService = cardExecutorService;
+        this.executor = cardExecutorService.getExecutor();
         initialiseMetrics(cardExecutorService.getMetricRegistry());
     }
 
+    // a virtual thread per task executor has no pool or queue: every task runs on a thread of its own
     private void initialiseMetrics(MetricRegistry metricRegistry) {
-        metricRegistry.<Gauge<Integer>>register("card-executor.active-threads", () -> threadPoolExecutor.getActiveCount());
-        metricRegistry.<Gauge<Integer>>register("card-executor.pool-size", () -> threadPoolExecutor.getPoolSize());
-        metricRegistry.<Gauge<Integer>>register("card-executor.core-pool-size", () -> threadPoolExecutor.getCorePoolSize());
-        metricRegistry.<Gauge<Integer>>register("card-executor.queue-size", () ->
-                threadPoolExecutor.getQueue() == null ? 0 : threadPoolExecutor.getQueue().size());
+        metricRegistry.<Gauge<Integer>>register("card-executor.active-threads", () -> threadPoolExecutor()
+                .map(ThreadPoolExecutor::getActiveCount)
+                .orElseGet(cardExecutorService::getActiveTaskCount));
+        metricRegistry.<Gauge<Integer>>register("card-executor.pool-size", () -> threadPoolExecutor()
+                .map(ThreadPoolExecutor::getPoolSize)
+                .orElseGet(cardExecutorService::getActiveTaskCount));
+        metricRegistry.<Gauge<Integer>>register("card-executor.core-pool-size", () -> threadPoolExecutor()
+                .map(ThreadPoolExecutor::getCorePoolSize)
+                .orElse(0));
+        metricRegistry.<Gauge<Integer>>register("card-executor.queue-size", this::queueSize);
+    }
+
+    private Optional<ThreadPoolExecutor> threadPoolExecutor() {
+        return executor instanceof ThreadPoolExecutor
+                ? Optional.of((ThreadPoolExecutor) executor)
+                : Optional.empty();
+    }
+
+    private int queueSize() {
+        return threadPoolExecutor()
+                .map(threadPoolExecutor -> threadPoolExecutor.getQueue() == null ? 0 : threadPoolExecutor.getQueue().size())
+                .orElse(0);
     }
 
     @Override
     protected Result check() throws Exception {
-        if (threadPoolExecutor.getQueue().size() <= 10) {
+        if (queueSize() <= MAXIMUM_HEALTHY_QUEUE_SIZE) {
             return Result.healthy();
         }
 
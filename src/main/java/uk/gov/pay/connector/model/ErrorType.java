@@ -7,4 +7,5 @@ public enum ErrorType {
     GATEWAY_URL_DNS_ERROR,
     GATEWAY_CONNECTION_TIMEOUT_ERROR,
     GATEWAY_CONNECTION_SOCKET_ERROR,
+    GATEWAY_UNAVAILABLE_ERROR,
 }
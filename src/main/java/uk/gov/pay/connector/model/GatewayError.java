@@ -2,6 +2,7 @@ package uk.gov.pay.connector.model;
 
 import static uk.gov.pay.connector.model.ErrorType.GATEWAY_CONNECTION_SOCKET_ERROR;
 import static uk.gov.pay.connector.model.ErrorType.GATEWAY_CONNECTION_TIMEOUT_ERROR;
+import static uk.gov.pay.connector.model.ErrorType.GATEWAY_UNAVAILABLE_ERROR;
 import static uk.gov.pay.connector.model.ErrorType.GATEWAY_URL_DNS_ERROR;
 import static uk.gov.pay.connector.model.ErrorType.GENERIC_GATEWAY_ERROR;
 import static uk.gov.pay.connector.model.ErrorType.MALFORMED_RESPONSE_RECEIVED_FROM_GATEWAY;
@@ -40,6 +41,10 @@ public class GatewayError {
         return new GatewayError(msg, GATEWAY_CONNECTION_SOCKET_ERROR);
     }
 
+    public static GatewayError gatewayUnavailable(String msg) {
+        return new GatewayError(msg, GATEWAY_UNAVAILABLE_ERROR);
+    }
+
     public String getMessage() {
         return message;
     }
@@ -1,14 +1,13 @@
 package uk.gov.pay.connector.model;
 
 import uk.gov.pay.connector.model.domain.ChargeStatus;
-import uk.gov.pay.connector.model.domain.Status;
 
 import java.util.Objects;
 
 public class GatewayStatusWithCurrentStatus<T> implements StatusMapFromStatus<T> {
 
     private final T status;
-    private final Status currentStatus;
+    private final ChargeStatus currentStatus;
 
     public static <T> GatewayStatusWithCurrentStatus of(T status, ChargeStatus currentStatus) {
         return new GatewayStatusWithCurrentStatus<>(status, currentStatus);
@@ -24,6 +23,10 @@ public class GatewayStatusWithCurrentStatus<T> implements StatusMapFromStatus<T>
         return status;
     }
 
+    public ChargeStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) {
@@ -0,0 +1,107 @@
+package uk.gov.pay.connector.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import uk.gov.pay.connector.model.domain.ChargeStatus;
+import uk.gov.pay.connector.model.domain.PaymentStatistic;
+import uk.gov.pay.connector.model.domain.RefundStatus;
+import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonFormat(shape = JsonFormat.Shape.OBJECT)
+public class PaymentStatisticsResponse {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(shape = JsonFormat.Shape.OBJECT)
+    public static class Statistic {
+
+        @JsonProperty("day")
+        private String day;
+
+        @JsonProperty("transaction_type")
+        private String transactionType;
+
+        @JsonProperty("status")
+        private String status;
+
+        @JsonProperty("card_brand")
+        private String cardBrand;
+
+        @JsonProperty("count")
+        private long count;
+
+        @JsonProperty("total_in_pence")
+        private long totalInPence;
+
+        Statistic(PaymentStatistic statistic) {
+            this.day = statistic.getDay().map(LocalDate::toString).orElse(null);
+            if (statistic.getOperation() == TransactionOperation.CHARGE) {
+                this.transactionType = TransactionType.PAYMENT.getValue();
+                this.status = ChargeStatus.valueOf(statistic.getStatus()).getValue();
+            } else {
+                this.transactionType = TransactionType.REFUND.getValue();
+                this.status = RefundStatus.valueOf(statistic.getStatus()).getValue();
+            }
+            this.cardBrand = statistic.getCardBrand().orElse(null);
+            this.count = statistic.getCount();
+            this.totalInPence = statistic.getTotalAmount();
+        }
+
+        public String getDay() {
+            return day;
+        }
+
+        public String getTransactionType() {
+            return transactionType;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getCardBrand() {
+            return cardBrand;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalInPence() {
+            return totalInPence;
+        }
+    }
+
+    @JsonProperty("from_date")
+    private String fromDate;
+
+    @JsonProperty("to_date")
+    private String toDate;
+
+    @JsonProperty("statistics")
+    private List<Statistic> statistics;
+
+    public PaymentStatisticsResponse(LocalDate fromDate, LocalDate toDate, List<PaymentStatistic> statistics) {
+        this.fromDate = fromDate.toString();
+        this.toDate = toDate.toString();
+        this.statistics = statistics.stream().map(Statistic::new).collect(toList());
+    }
+
+    public String getFromDate() {
+        return fromDate;
+    }
+
+    public String getToDate() {
+        return toDate;
+    }
+
+    public List<Statistic> getStatistics() {
+        return statistics;
+    }
+}
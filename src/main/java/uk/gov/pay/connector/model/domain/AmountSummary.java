@@ -0,0 +1,24 @@
+package uk.gov.pay.connector.model.domain;
+
+/**
+ * Number and total amount of the charges or refunds matched by an aggregate query.
+ */
+public class AmountSummary {
+
+    private final long count;
+    private final long totalAmount;
+
+    public AmountSummary(Long count, Long totalAmount) {
+        // SUM is null when no rows match
+        this.count = count == null ? 0 : count;
+        this.totalAmount = totalAmount == null ? 0 : totalAmount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+}
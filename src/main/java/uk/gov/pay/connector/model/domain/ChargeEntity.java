@@ -1,6 +1,8 @@
 package uk.gov.pay.connector.model.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.exception.InvalidStateTransitionException;
@@ -78,12 +80,16 @@ public class ChargeEntity extends AbstractVersionedEntity {
     @JoinColumn(name = "gateway_account_id", updatable = false)
     private GatewayAccountEntity gatewayAccount;
 
+    // refunds and events are read for all the charges of a query at once, with one IN query each,
+    // rather than one query per charge, so a page of search results costs the same few queries at any size
     @OneToMany(mappedBy = "chargeEntity", fetch = FetchType.EAGER)
     @OrderBy("createdDate")
+    @BatchFetch(BatchFetchType.IN)
     private List<RefundEntity> refunds = new ArrayList<>();
 
     @OneToMany(mappedBy = "chargeEntity")
     @OrderBy("updated DESC")
+    @BatchFetch(BatchFetchType.IN)
     private List<ChargeEventEntity> events = new ArrayList<>();
 
     @Column(name = "description")
@@ -1,10 +1,10 @@
 package uk.gov.pay.connector.model.domain;
 
-import org.apache.commons.lang3.StringUtils;
 import uk.gov.pay.connector.model.api.ExternalChargeState;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.stream;
@@ -58,6 +58,9 @@ public enum ChargeStatus implements Status {
     USER_CANCELLED("USER CANCELLED", EXTERNAL_FAILED_CANCELLED),
     USER_CANCEL_ERROR("USER CANCEL ERROR", EXTERNAL_FAILED_CANCELLED);
 
+    private static final Map<String, ChargeStatus> BY_VALUE = stream(values())
+            .collect(Collectors.toMap(ChargeStatus::getValue, status -> status));
+
     private String value;
     private ExternalChargeState externalStatus;
 
@@ -79,12 +82,11 @@ public enum ChargeStatus implements Status {
     }
 
     public static ChargeStatus fromString(String status) {
-        for (ChargeStatus stat : values()) {
-            if (StringUtils.equals(stat.getValue(), status)) {
-                return stat;
-            }
+        ChargeStatus stat = BY_VALUE.get(status);
+        if (stat == null) {
+            throw new IllegalArgumentException("charge status not recognized: " + status);
         }
-        throw new IllegalArgumentException("charge status not recognized: " + status);
+        return stat;
     }
 
     public static List<ChargeStatus> fromExternal(ExternalChargeState externalStatus) {
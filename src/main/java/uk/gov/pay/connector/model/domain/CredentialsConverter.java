@@ -3,6 +3,8 @@ package uk.gov.pay.connector.model.domain;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.postgresql.util.PGobject;
 
 import javax.persistence.AttributeConverter;
@@ -13,12 +15,18 @@ import java.util.Map;
 
 @Converter
 public class CredentialsConverter implements AttributeConverter<Map<String,String>, PGobject> {
+
+    // readers and writers are immutable and thread-safe, so one pair serves every conversion
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader CREDENTIALS_READER = OBJECT_MAPPER.readerFor(new TypeReference<Map<String, String>>() {});
+    private static final ObjectWriter CREDENTIALS_WRITER = OBJECT_MAPPER.writer();
+
     @Override
     public PGobject convertToDatabaseColumn(Map<String,String> credentials) {
         PGobject pgCredentials = new PGobject();
         pgCredentials.setType("json");
         try {
-            pgCredentials.setValue(new ObjectMapper().writeValueAsString(credentials));
+            pgCredentials.setValue(CREDENTIALS_WRITER.writeValueAsString(credentials));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } catch (JsonProcessingException e) {
@@ -30,7 +38,7 @@ public class CredentialsConverter implements AttributeConverter<Map<String,Strin
     @Override
     public Map<String,String> convertToEntityAttribute(PGobject dbCredentials) {
         try {
-            return new ObjectMapper().readValue(dbCredentials.toString(), new TypeReference<Map<String, String>>() {});
+            return CREDENTIALS_READER.readValue(dbCredentials.toString());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
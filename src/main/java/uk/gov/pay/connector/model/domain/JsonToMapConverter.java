@@ -3,6 +3,8 @@ package uk.gov.pay.connector.model.domain;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.postgresql.util.PGobject;
 
 import javax.persistence.AttributeConverter;
@@ -15,13 +17,19 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 @Converter
 public class JsonToMapConverter implements AttributeConverter<Map<String, String>, PGobject> {
+
+    // readers and writers are immutable and thread-safe, so one pair serves every conversion
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader MAP_READER = OBJECT_MAPPER.readerFor(new TypeReference<Map<String, String>>() {});
+    private static final ObjectWriter MAP_WRITER = OBJECT_MAPPER.writer();
+
     @Override
     public PGobject convertToDatabaseColumn(Map<String, String> keyValueMap) {
         PGobject pGobject = new PGobject();
         pGobject.setType("json");
         if(null != keyValueMap && !keyValueMap.isEmpty()) {
             try {
-                pGobject.setValue(new ObjectMapper().writeValueAsString(keyValueMap));
+                pGobject.setValue(MAP_WRITER.writeValueAsString(keyValueMap));
             } catch (SQLException | JsonProcessingException e) {
                 throw new RuntimeException(e);
             }
@@ -33,7 +41,7 @@ public class JsonToMapConverter implements AttributeConverter<Map<String, String
     public Map<String, String> convertToEntityAttribute(PGobject pgObject) {
         try {
             if (pgObject != null && !isEmpty(pgObject.toString())) {
-                return new ObjectMapper().readValue(pgObject.toString(), new TypeReference<Map<String, String>>() {});
+                return MAP_READER.readValue(pgObject.toString());
             }
             return null;
 
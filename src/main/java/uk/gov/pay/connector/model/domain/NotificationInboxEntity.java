@@ -0,0 +1,107 @@
+package uk.gov.pay.connector.model.domain;
+
+import uk.gov.pay.connector.service.PaymentGatewayName;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+
+@Entity
+@Table(name = "notification_inbox")
+@SequenceGenerator(name = "notification_inbox_id_seq",
+        sequenceName = "notification_inbox_id_seq", allocationSize = 1)
+public class NotificationInboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_inbox_id_seq")
+    private Long id;
+
+    @Column(name = "payment_gateway_name")
+    private String paymentGatewayName;
+
+    @Column(name = "payload")
+    private String payload;
+
+    @Column(name = "received_date")
+    @Convert(converter = UTCDateTimeConverter.class)
+    private ZonedDateTime receivedDate;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "claimed_until")
+    @Convert(converter = UTCDateTimeConverter.class)
+    private ZonedDateTime claimedUntil;
+
+    @Column(name = "processed_date")
+    @Convert(converter = UTCDateTimeConverter.class)
+    private ZonedDateTime processedDate;
+
+    // a text[] column, which is read and written with native queries by NotificationInboxDao
+    @Transient
+    private List<String> transactionIds = Collections.emptyList();
+
+    public NotificationInboxEntity() {
+    }
+
+    public static NotificationInboxEntity receivedNotificationFor(PaymentGatewayName paymentGatewayName, String payload) {
+        NotificationInboxEntity entity = new NotificationInboxEntity();
+        entity.paymentGatewayName = paymentGatewayName.getName();
+        entity.payload = payload;
+        entity.receivedDate = ZonedDateTime.now(ZoneId.of("UTC"));
+        return entity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public PaymentGatewayName getPaymentGatewayName() {
+        return PaymentGatewayName.valueFrom(paymentGatewayName);
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public ZonedDateTime getReceivedDate() {
+        return receivedDate;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public ZonedDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public ZonedDateTime getProcessedDate() {
+        return processedDate;
+    }
+
+    /**
+     * The transaction ids of the charges the notifications in the payload are about.
+     */
+    public List<String> getTransactionIds() {
+        return transactionIds;
+    }
+
+    public void setTransactionIds(List<String> transactionIds) {
+        this.transactionIds = transactionIds;
+    }
+}
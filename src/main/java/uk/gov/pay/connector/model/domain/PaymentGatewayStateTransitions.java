@@ -5,6 +5,9 @@ import com.google.common.graph.MutableValueGraph;
 import com.google.common.graph.ValueGraphBuilder;
 import org.apache.commons.lang3.tuple.Triple;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -41,19 +44,33 @@ import static uk.gov.pay.connector.model.domain.ChargeStatus.USER_CANCEL_READY;
 import static uk.gov.pay.connector.model.domain.ChargeStatus.USER_CANCEL_SUBMITTED;
 
 public class PaymentGatewayStateTransitions {
-    private static PaymentGatewayStateTransitions instance;
+    private static final PaymentGatewayStateTransitions INSTANCE = new PaymentGatewayStateTransitions();
 
     public static PaymentGatewayStateTransitions getInstance() {
-        if (instance == null) {
-            instance = new PaymentGatewayStateTransitions();
-        }
-        return instance;
+        return INSTANCE;
     }
 
-    private ImmutableValueGraph<ChargeStatus, String> graph;
+    private final ImmutableValueGraph<ChargeStatus, String> graph;
+
+    // the graph compiled into the target statuses of each status, so that checking a transition,
+    // which happens on every status change, is a bit test rather than a walk of the graph
+    private final Map<ChargeStatus, Set<ChargeStatus>> validTargetStatuses;
 
     private PaymentGatewayStateTransitions() {
         graph = buildGraph();
+        validTargetStatuses = compile(graph);
+    }
+
+    private static Map<ChargeStatus, Set<ChargeStatus>> compile(ImmutableValueGraph<ChargeStatus, String> graph) {
+        Map<ChargeStatus, Set<ChargeStatus>> validTargetStatuses = new EnumMap<>(ChargeStatus.class);
+        for (ChargeStatus status : ChargeStatus.values()) {
+            Set<ChargeStatus> targetStatuses = EnumSet.noneOf(ChargeStatus.class);
+            if (graph.nodes().contains(status)) {
+                targetStatuses.addAll(graph.successors(status));
+            }
+            validTargetStatuses.put(status, targetStatuses);
+        }
+        return validTargetStatuses;
     }
 
     private static ImmutableValueGraph<ChargeStatus, String> buildGraph() {
@@ -144,6 +161,6 @@ public class PaymentGatewayStateTransitions {
     }
 
     private boolean isValidTransitionImpl(ChargeStatus state, ChargeStatus targetState) {
-        return graph.edgeValueOrDefault(state, targetState, null) != null;
+        return validTargetStatuses.get(state).contains(targetState);
     }
 }
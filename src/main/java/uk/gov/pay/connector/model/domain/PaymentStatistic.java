@@ -0,0 +1,54 @@
+package uk.gov.pay.connector.model.domain;
+
+import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Number and total amount of an account's transactions with the same operation, status and
+ * card brand, read from the daily payment statistics rollup. The day is only present when
+ * the rollup was summarised per day.
+ */
+public class PaymentStatistic {
+
+    private final LocalDate day;
+    private final TransactionOperation operation;
+    private final String status;
+    private final String cardBrand;
+    private final long count;
+    private final long totalAmount;
+
+    public PaymentStatistic(LocalDate day, TransactionOperation operation, String status, String cardBrand, long count, long totalAmount) {
+        this.day = day;
+        this.operation = operation;
+        this.status = status;
+        this.cardBrand = cardBrand;
+        this.count = count;
+        this.totalAmount = totalAmount;
+    }
+
+    public Optional<LocalDate> getDay() {
+        return Optional.ofNullable(day);
+    }
+
+    public TransactionOperation getOperation() {
+        return operation;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Optional<String> getCardBrand() {
+        return PaymentStatisticsKey.NO_CARD_BRAND.equals(cardBrand) ? Optional.empty() : Optional.ofNullable(cardBrand);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+}
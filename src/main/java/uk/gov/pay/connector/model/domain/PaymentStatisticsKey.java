@@ -0,0 +1,128 @@
+package uk.gov.pay.connector.model.domain;
+
+import uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEntity;
+import uk.gov.pay.connector.model.domain.transaction.TransactionEntity;
+import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The row of the daily payment statistics rollup a transaction is counted in:
+ * its gateway account, the UTC day it was created, its operation, its current status
+ * and the brand of the card used to pay (empty until a card is known).
+ */
+public class PaymentStatisticsKey {
+
+    public static final String NO_CARD_BRAND = "";
+
+    /**
+     * The order rows are locked in: by gateway account, then by {@link #lockId()}, the lock actually
+     * taken, so keys sharing a lock id are still locked in the same order by every transaction.
+     */
+    public static final Comparator<PaymentStatisticsKey> LOCK_ORDER = Comparator
+            .comparing(PaymentStatisticsKey::getGatewayAccountId)
+            .thenComparingInt(PaymentStatisticsKey::lockId)
+            .thenComparing(PaymentStatisticsKey::lockName);
+
+    private final Long gatewayAccountId;
+    private final LocalDate day;
+    private final TransactionOperation operation;
+    private final String status;
+    private final String cardBrand;
+
+    public PaymentStatisticsKey(Long gatewayAccountId, LocalDate day, TransactionOperation operation, String status, String cardBrand) {
+        this.gatewayAccountId = gatewayAccountId;
+        this.day = day;
+        this.operation = operation;
+        this.status = status;
+        this.cardBrand = cardBrand == null ? NO_CARD_BRAND : cardBrand;
+    }
+
+    public static PaymentStatisticsKey of(TransactionEntity<?, ?> transaction) {
+        PaymentRequestEntity paymentRequest = transaction.getPaymentRequest();
+        ZonedDateTime createdDate = transaction.getCreatedDate() != null ? transaction.getCreatedDate() : paymentRequest.getCreatedDate();
+        return new PaymentStatisticsKey(
+                paymentRequest.getGatewayAccount().getId(),
+                createdDate.withZoneSameInstant(ZoneOffset.UTC).toLocalDate(),
+                transaction.getOperation(),
+                ((Enum<?>) transaction.getStatus()).name(),
+                cardBrandOf(paymentRequest));
+    }
+
+    private static String cardBrandOf(PaymentRequestEntity paymentRequest) {
+        // refunds are counted against the brand of the card of the charge they refund
+        if (!paymentRequest.hasChargeTransaction()) {
+            return NO_CARD_BRAND;
+        }
+        ChargeTransactionEntity chargeTransaction = paymentRequest.getChargeTransaction();
+        return chargeTransaction.getCard() != null ? chargeTransaction.getCard().getCardBrand() : NO_CARD_BRAND;
+    }
+
+    public Long getGatewayAccountId() {
+        return gatewayAccountId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public TransactionOperation getOperation() {
+        return operation;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCardBrand() {
+        return cardBrand;
+    }
+
+    /**
+     * Names the row within its gateway account from values that are the same on every node, unlike
+     * the hash codes of enums, which differ from one JVM to the next.
+     */
+    public String lockName() {
+        return day.toEpochDay() + "|" + operation.name() + "|" + status + "|" + cardBrand;
+    }
+
+    /**
+     * The advisory lock id of the row within its gateway account: the hash code of {@link #lockName()},
+     * which {@link String#hashCode()} defines the same way on every JVM.
+     */
+    public int lockId() {
+        return lockName().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PaymentStatisticsKey that = (PaymentStatisticsKey) o;
+        return Objects.equals(gatewayAccountId, that.gatewayAccountId) &&
+                Objects.equals(day, that.day) &&
+                operation == that.operation &&
+                Objects.equals(status, that.status) &&
+                Objects.equals(cardBrand, that.cardBrand);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gatewayAccountId, day, operation, status, cardBrand);
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentStatisticsKey{" +
+                "gatewayAccountId=" + gatewayAccountId +
+                ", day=" + day +
+                ", operation=" + operation +
+                ", status='" + status + '\'' +
+                ", cardBrand='" + cardBrand + '\'' +
+                '}';
+    }
+}
@@ -1,9 +1,9 @@
 package uk.gov.pay.connector.model.domain;
 
-import org.apache.commons.lang3.StringUtils;
 import uk.gov.pay.connector.model.api.ExternalRefundStatus;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.stream;
@@ -16,6 +16,9 @@ public enum RefundStatus implements Status {
     REFUND_ERROR("REFUND ERROR", EXTERNAL_ERROR),
     REFUNDED("REFUNDED", EXTERNAL_SUCCESS);
 
+    private static final Map<String, RefundStatus> BY_VALUE = stream(values())
+            .collect(Collectors.toMap(RefundStatus::getValue, status -> status));
+
     private String value;
     private ExternalRefundStatus externalStatus;
 
@@ -37,12 +40,11 @@ public enum RefundStatus implements Status {
     }
 
     public static RefundStatus fromString(String status) {
-        for (RefundStatus stat : values()) {
-            if (StringUtils.equals(stat.getValue(), status)) {
-                return stat;
-            }
+        RefundStatus stat = BY_VALUE.get(status);
+        if (stat == null) {
+            throw new IllegalArgumentException("Refund status not recognized: " + status);
         }
-        throw new IllegalArgumentException("Refund status not recognized: " + status);
+        return stat;
     }
 
     public static List<RefundStatus> fromExternal(ExternalRefundStatus externalStatus) {
@@ -3,6 +3,7 @@ package uk.gov.pay.connector.model.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
@@ -11,6 +12,8 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.UUID;
 
 @Entity
@@ -31,6 +34,10 @@ public class TokenEntity extends AbstractVersionedEntity {
     @JoinColumn(name = "charge_id", nullable = false)
     ChargeEntity chargeEntity;
 
+    @Column(name = "created_date")
+    @Convert(converter = UTCDateTimeConverter.class)
+    private ZonedDateTime createdDate;
+
     public TokenEntity() {
     }
 
@@ -38,6 +45,7 @@ public class TokenEntity extends AbstractVersionedEntity {
         TokenEntity tokenEntity = new TokenEntity();
         tokenEntity.setChargeEntity(chargeEntity);
         tokenEntity.setToken(UUID.randomUUID().toString());
+        tokenEntity.setCreatedDate(ZonedDateTime.now(ZoneId.of("UTC")));
         return tokenEntity;
     }
 
@@ -64,4 +72,12 @@ public class TokenEntity extends AbstractVersionedEntity {
     public void setChargeEntity(ChargeEntity chargeEntity) {
         this.chargeEntity = chargeEntity;
     }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(ZonedDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
 }
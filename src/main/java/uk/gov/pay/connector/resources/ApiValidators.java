@@ -3,8 +3,10 @@ package uk.gov.pay.connector.resources;
 import fj.data.Either;
 import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.connector.dao.GatewayAccountDao;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.model.builder.PatchRequestBuilder;
 
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
@@ -57,8 +59,17 @@ class ApiValidators {
     }
 
     static Optional<List> validateQueryParams(List<Pair<String, String>> dateParams, List<Pair<String, Long>> nonNegativePairMap) {
+        return validateQueryParams(dateParams, nonNegativePairMap, Pair.of("cursor", null));
+    }
+
+    static Optional<List> validateQueryParams(List<Pair<String, String>> dateParams, List<Pair<String, Long>> nonNegativePairMap,
+                                              Pair<String, String> cursorParam) {
         Map<String, String> invalidQueryParams = new HashMap<>();
 
+        if (cursorParam.getRight() != null && !SearchCursor.isValid(cursorParam.getRight())) {
+            invalidQueryParams.put(cursorParam.getLeft(), "query param '%s' not in correct format");
+        }
+
         dateParams.forEach(param -> {
             String dateString = param.getRight();
             if (isNotBlank(dateString) && !parseZonedDateTime(dateString).isPresent()) {
@@ -138,6 +149,44 @@ class ApiValidators {
         return left(errors);
     }
 
+    static Either<List<String>, Pair<LocalDate, LocalDate>> validateFromDayIsNotAfterToDay(
+            String fromDateParamName, String fromDate, String toDateParamName, String toDate) {
+        List<String> errors = newArrayList();
+
+        Optional<LocalDate> fromOptional = parseLocalDate(fromDate);
+        if (!fromOptional.isPresent()) {
+            errors.add("query param '" + fromDateParamName + "' not in correct format");
+        }
+
+        Optional<LocalDate> toOptional = parseLocalDate(toDate);
+        if (!toOptional.isPresent()) {
+            errors.add("query param '" + toDateParamName + "' not in correct format");
+        }
+
+        if (fromOptional.isPresent() && toOptional.isPresent()) {
+            LocalDate from = fromOptional.get();
+            LocalDate to = toOptional.get();
+            if (to.isBefore(from)) {
+                errors.add("query param '" + toDateParamName + "' must not be earlier than '" + fromDateParamName + "'");
+            } else {
+                return right(Pair.of(from, to));
+            }
+        }
+
+        return left(errors);
+    }
+
+    private static Optional<LocalDate> parseLocalDate(String date) {
+        if (date == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(LocalDate.parse(date));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
     private static Optional<ZonedDateTime> parseZonedDateTime(String zdt) {
         if (zdt == null) {
             return Optional.empty();
@@ -97,6 +97,7 @@ public class CardResource {
             case GATEWAY_URL_DNS_ERROR:
             case GATEWAY_CONNECTION_TIMEOUT_ERROR:
             case GATEWAY_CONNECTION_SOCKET_ERROR:
+            case GATEWAY_UNAVAILABLE_ERROR:
                 return serviceErrorResponse(error.getMessage());
         }
 
@@ -9,19 +9,24 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
-import uk.gov.pay.connector.dao.GatewayAccountDao;
-import uk.gov.pay.connector.model.domain.ChargeEntity;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.service.ChargeExpiryService;
 import uk.gov.pay.connector.service.ChargeService;
+import uk.gov.pay.connector.service.GatewayAccountCache;
+import uk.gov.pay.connector.service.jobs.BackgroundJobLeases;
+import uk.gov.pay.connector.service.jobs.ExpireChargesJob;
 import uk.gov.pay.connector.service.search.SearchService;
+import uk.gov.pay.connector.service.search.TransactionExportService;
 import uk.gov.pay.connector.service.search.TransactionSearchStrategy;
 import uk.gov.pay.connector.util.ResponseUtil;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,7 +37,6 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.created;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static uk.gov.pay.connector.model.TransactionType.inferTransactionTypeFrom;
-import static uk.gov.pay.connector.service.ChargeExpiryService.EXPIRABLE_STATUSES;
 import static uk.gov.pay.connector.service.search.SearchService.TYPE.CHARGE;
 import static uk.gov.pay.connector.service.search.SearchService.TYPE.TRANSACTION;
 import static uk.gov.pay.connector.util.ResponseUtil.*;
@@ -59,32 +63,39 @@ public class ChargesApiResource {
     private static final String ACCOUNT_ID = "accountId";
     private static final String PAGE = "page";
     private static final String DISPLAY_SIZE = "display_size";
+    private static final String CURSOR = "cursor";
+    private static final String WITH_TOTAL = "with_total";
+    private static final String EXACT_MATCH = "exact_match";
     private static final Set<String> CHARGE_REQUEST_KEYS_THAT_MAY_HAVE_PII = Collections.singleton("description");
-    private static final int ONE_HOUR = 3600;
-    private static final String CHARGE_EXPIRY_WINDOW = "CHARGE_EXPIRY_WINDOW_SECONDS";
     private static final Logger logger = LoggerFactory.getLogger(ChargesApiResource.class);
     static int MIN_AMOUNT = 1;
     static int MAX_AMOUNT = 10000000;
     private final ChargeDao chargeDao;
-    private final GatewayAccountDao gatewayAccountDao;
+    private final GatewayAccountCache gatewayAccountCache;
     private final ChargeService chargeService;
     private final ConnectorConfiguration configuration;
     private final ChargeExpiryService chargeExpiryService;
     private final TransactionSearchStrategy transactionSearchStrategy;
+    private final TransactionExportService transactionExportService;
+    private final BackgroundJobLeases backgroundJobLeases;
     private SearchService searchService;
 
     @Inject
-    public ChargesApiResource(ChargeDao chargeDao, GatewayAccountDao gatewayAccountDao,
+    public ChargesApiResource(ChargeDao chargeDao, GatewayAccountCache gatewayAccountCache,
                               ChargeService chargeService, SearchService searchService,
                               ChargeExpiryService chargeExpiryService, ConnectorConfiguration configuration,
-                              TransactionSearchStrategy transactionSearchStrategy) {
+                              TransactionSearchStrategy transactionSearchStrategy,
+                              TransactionExportService transactionExportService,
+                              BackgroundJobLeases backgroundJobLeases) {
         this.chargeDao = chargeDao;
-        this.gatewayAccountDao = gatewayAccountDao;
+        this.gatewayAccountCache = gatewayAccountCache;
         this.chargeService = chargeService;
         this.searchService = searchService;
         this.chargeExpiryService = chargeExpiryService;
         this.configuration = configuration;
         this.transactionSearchStrategy = transactionSearchStrategy;
+        this.transactionExportService = transactionExportService;
+        this.backgroundJobLeases = backgroundJobLeases;
     }
 
     private static String stringifyChargeRequestWithoutPii(Map<String, String> map) {
@@ -109,6 +120,7 @@ public class ChargesApiResource {
     public Response getChargesJson(@PathParam(ACCOUNT_ID) Long accountId,
                                    @QueryParam(EMAIL_KEY) String email,
                                    @QueryParam(REFERENCE_KEY) String reference,
+                                   @QueryParam(EXACT_MATCH) boolean exactMatch,
                                    @QueryParam(STATE_KEY) String state,
                                    @QueryParam(PAYMENT_STATES_KEY) CommaDelimitedSetParameter paymentStates,
                                    @QueryParam(REFUND_STATES_KEY) CommaDelimitedSetParameter refundStates,
@@ -117,6 +129,8 @@ public class ChargesApiResource {
                                    @QueryParam(TO_DATE_KEY) String toDate,
                                    @QueryParam(PAGE) Long pageNumber,
                                    @QueryParam(DISPLAY_SIZE) Long displaySize,
+                                   @QueryParam(CURSOR) String cursor,
+                                   @QueryParam(WITH_TOTAL) boolean withTotal,
                                    @HeaderParam("features") CommaDelimitedSetParameter features,
                                    @Context UriInfo uriInfo) {
 
@@ -126,18 +140,28 @@ public class ChargesApiResource {
         boolean isFeatureTransactionsEnabled = features != null && features.has("REFUNDS_IN_TX_LIST");
 
         return ApiValidators
-                .validateQueryParams(inputDatePairMap, nonNegativePairMap) //TODO - improvement, get the entire searchparam object into the validateQueryParams
+                .validateQueryParams(inputDatePairMap, nonNegativePairMap, cursorParam(cursor)) //TODO - improvement, get the entire searchparam object into the validateQueryParams
                 .map(ResponseUtil::badRequestResponse)
                 .orElseGet(() -> {
+                    // keyset pagination is not available for the deprecated charges and refunds union search
+                    if (cursor != null && isFeatureTransactionsEnabled) {
+                        return badRequestResponse("Parameter [cursor] is not supported with the REFUNDS_IN_TX_LIST feature");
+                    }
                     ChargeSearchParams searchParams = new ChargeSearchParams()
                             .withGatewayAccountId(accountId)
                             .withEmailLike(email)
                             .withReferenceLike(reference)
+                            .withExactMatch(exactMatch)
                             .withCardBrands(removeBlanks(cardBrands))
                             .withFromDate(parseDate(fromDate))
                             .withToDate(parseDate(toDate))
-                            .withDisplaySize(displaySize != null ? displaySize : configuration.getTransactionsPaginationConfig().getDisplayPageSize())
-                            .withPage(pageNumber != null ? pageNumber : 1);
+                            .withDisplaySize(displaySize != null ? displaySize : configuration.getTransactionsPaginationConfig().getDisplayPageSize());
+
+                    if (cursor != null) {
+                        searchParams.withCursor(SearchCursor.decode(cursor)).withTotal(withTotal);
+                    } else {
+                        searchParams.withPage(pageNumber != null ? pageNumber : 1);
+                    }
 
                     if (isFeatureTransactionsEnabled) {
                         searchParams
@@ -147,9 +171,9 @@ public class ChargesApiResource {
                     } else {
                         searchParams.withExternalState(state);
                     }
-                    return gatewayAccountDao.findById(accountId)
-                            .map(gatewayAccount -> listCharges(searchParams, isFeatureTransactionsEnabled, uriInfo))
-                            .orElseGet(() -> notFoundResponse(format("account with id %s not found", accountId)));
+                    return gatewayAccountCache.exists(accountId)
+                            ? listCharges(searchParams, isFeatureTransactionsEnabled, uriInfo)
+                            : notFoundResponse(format("account with id %s not found", accountId));
                 }); // always the first page if its missing
     }
 
@@ -159,6 +183,7 @@ public class ChargesApiResource {
     public Response getChargesJsonV2(@PathParam(ACCOUNT_ID) Long accountId,
                                    @QueryParam(EMAIL_KEY) String email,
                                    @QueryParam(REFERENCE_KEY) String reference,
+                                   @QueryParam(EXACT_MATCH) boolean exactMatch,
                                    @QueryParam(PAYMENT_STATES_KEY) CommaDelimitedSetParameter paymentStates,
                                    @QueryParam(REFUND_STATES_KEY) CommaDelimitedSetParameter refundStates,
                                    @QueryParam(CARD_BRAND_KEY) List<String> cardBrands,
@@ -181,6 +206,7 @@ public class ChargesApiResource {
                             .withGatewayAccountId(accountId)
                             .withEmailLike(email)
                             .withReferenceLike(reference)
+                            .withExactMatch(exactMatch)
                             .withCardBrands(removeBlanks(cardBrands))
                             .withFromDate(parseDate(fromDate))
                             .withToDate(parseDate(toDate))
@@ -190,9 +216,9 @@ public class ChargesApiResource {
                             .addExternalChargeStates(toList(paymentStates))
                             .addExternalRefundStates(toList(refundStates));
 
-                    return gatewayAccountDao.findById(accountId)
-                            .map(gatewayAccount -> listCharges(searchParams, isFeatureTransactionsEnabled, uriInfo))
-                            .orElseGet(() -> notFoundResponse(format("account with id %s not found", accountId)));
+                    return gatewayAccountCache.exists(accountId)
+                            ? listCharges(searchParams, isFeatureTransactionsEnabled, uriInfo)
+                            : notFoundResponse(format("account with id %s not found", accountId));
                 }); // always the first page if its missing
     }
 
@@ -209,6 +235,7 @@ public class ChargesApiResource {
     public Response getTransactionsJson(@PathParam(ACCOUNT_ID) Long accountId,
                                         @QueryParam(EMAIL_KEY) String email,
                                         @QueryParam(REFERENCE_KEY) String reference,
+                                        @QueryParam(EXACT_MATCH) boolean exactMatch,
                                         @QueryParam(PAYMENT_STATES_KEY) List<String> paymentStates,
                                         @QueryParam(REFUND_STATES_KEY) List<String> refundStates,
                                         @QueryParam(CARD_BRAND_KEY) List<String> cardBrands,
@@ -216,34 +243,90 @@ public class ChargesApiResource {
                                         @QueryParam(TO_DATE_KEY) String toDate,
                                         @QueryParam(PAGE) Long pageNumber,
                                         @QueryParam(DISPLAY_SIZE) Long displaySize,
+                                        @QueryParam(CURSOR) String cursor,
+                                        @QueryParam(WITH_TOTAL) boolean withTotal,
                                         @Context UriInfo uriInfo) {
         List<Pair<String, String>> inputDatePairMap = ImmutableList.of(Pair.of(FROM_DATE_KEY, fromDate), Pair.of(TO_DATE_KEY, toDate));
         List<Pair<String, Long>> nonNegativePairMap = ImmutableList.of(Pair.of(PAGE, pageNumber), Pair.of(DISPLAY_SIZE, displaySize));
 
         return ApiValidators
-                .validateQueryParams(inputDatePairMap, nonNegativePairMap) //TODO - improvement, get the entire searchparam object into the validateQueryParams
+                .validateQueryParams(inputDatePairMap, nonNegativePairMap, cursorParam(cursor)) //TODO - improvement, get the entire searchparam object into the validateQueryParams
                 .map(ResponseUtil::badRequestResponse)
                 .orElseGet(() -> {
                     ChargeSearchParams searchParams = new ChargeSearchParams()
                             .withGatewayAccountId(accountId)
                             .withEmailLike(email)
                             .withReferenceLike(reference)
+                            .withExactMatch(exactMatch)
                             .withCardBrands(removeBlanks(cardBrands))
                             .withFromDate(parseDate(fromDate))
                             .withToDate(parseDate(toDate))
                             .withDisplaySize(displaySize != null ? displaySize : configuration.getTransactionsPaginationConfig().getDisplayPageSize())
                             .withTransactionType(inferTransactionTypeFrom(paymentStates, refundStates))
                             .addExternalChargeStates(paymentStates)
-                            .addExternalRefundStates(refundStates)
-                            .withPage(pageNumber != null ? pageNumber : 1);
+                            .addExternalRefundStates(refundStates);
 
-                    return gatewayAccountDao.findById(accountId)
-                            .map(gatewayAccount -> listTransactions(searchParams, uriInfo))
-                            .orElseGet(() -> notFoundResponse(format("account with id %s not found", accountId)));
+                    if (cursor != null) {
+                        searchParams.withCursor(SearchCursor.decode(cursor)).withTotal(withTotal);
+                    } else {
+                        searchParams.withPage(pageNumber != null ? pageNumber : 1);
+                    }
+
+                    return gatewayAccountCache.exists(accountId)
+                            ? listTransactions(searchParams, uriInfo)
+                            : notFoundResponse(format("account with id %s not found", accountId));
 
                 }); // always the first page if its missing
     }
 
+    @GET
+    @Path("/v1/api/accounts/{accountId}/transactions/export")
+    @Produces({"application/x-ndjson", "text/csv"})
+    public Response exportTransactions(@PathParam(ACCOUNT_ID) Long accountId,
+                                       @QueryParam(EMAIL_KEY) String email,
+                                       @QueryParam(REFERENCE_KEY) String reference,
+                                       @QueryParam(EXACT_MATCH) boolean exactMatch,
+                                       @QueryParam(PAYMENT_STATES_KEY) List<String> paymentStates,
+                                       @QueryParam(REFUND_STATES_KEY) List<String> refundStates,
+                                       @QueryParam(CARD_BRAND_KEY) List<String> cardBrands,
+                                       @QueryParam(FROM_DATE_KEY) String fromDate,
+                                       @QueryParam(TO_DATE_KEY) String toDate,
+                                       @Context Request request,
+                                       @Context UriInfo uriInfo) {
+        List<Pair<String, String>> inputDatePairMap = ImmutableList.of(Pair.of(FROM_DATE_KEY, fromDate), Pair.of(TO_DATE_KEY, toDate));
+
+        return ApiValidators
+                .validateQueryParams(inputDatePairMap, Collections.emptyList())
+                .map(ResponseUtil::badRequestResponse)
+                .orElseGet(() -> {
+                    ChargeSearchParams searchParams = new ChargeSearchParams()
+                            .withGatewayAccountId(accountId)
+                            .withEmailLike(email)
+                            .withReferenceLike(reference)
+                            .withExactMatch(exactMatch)
+                            .withCardBrands(removeBlanks(cardBrands))
+                            .withFromDate(parseDate(fromDate))
+                            .withToDate(parseDate(toDate))
+                            .withTransactionType(inferTransactionTypeFrom(paymentStates, refundStates))
+                            .addExternalChargeStates(paymentStates)
+                            .addExternalRefundStates(refundStates);
+
+                    if (!gatewayAccountCache.exists(accountId)) {
+                        return notFoundResponse(format("account with id %s not found", accountId));
+                    }
+                    // the @Produces types, newline delimited JSON first so that it is the default
+                    Variant variant = request.selectVariant(Variant.mediaTypes(
+                            TransactionExportService.NDJSON_TYPE, TransactionExportService.CSV_TYPE).build());
+                    return transactionExportService.export(searchParams, variant.getMediaType(), uriInfo)
+                            .map(export -> Response.ok(export, variant).build())
+                            .orElseGet(() -> serviceUnavailableResponse("Too many transaction exports are running, try again later"));
+                });
+    }
+
+    private Pair<String, String> cursorParam(String cursor) {
+        return Pair.of(CURSOR, cursor);
+    }
+
     private List<String> removeBlanks(List<String> cardBrands) {
         return cardBrands.stream().filter(StringUtils::isNotBlank).collect(Collectors.toList());
     }
@@ -278,19 +361,13 @@ public class ChargesApiResource {
     @Path("/v1/tasks/expired-charges-sweep")
     @Produces(APPLICATION_JSON)
     public Response expireCharges(@Context UriInfo uriInfo) {
-        List<ChargeEntity> charges = chargeDao.findBeforeDateWithStatusIn(getExpiryDate(), EXPIRABLE_STATUSES);
-        logger.info(format("Charges found for expiry - number_of_charges=%s, since_date=%s", charges.size(), getExpiryDate()));
-        Map<String, Integer> resultMap = chargeExpiryService.expire(charges);
-        return successResponseWithEntity(resultMap);
-    }
-
-    private ZonedDateTime getExpiryDate() {
-        int chargeExpiryWindowSeconds = ONE_HOUR;
-        if (StringUtils.isNotBlank(System.getenv(CHARGE_EXPIRY_WINDOW))) {
-            chargeExpiryWindowSeconds = Integer.parseInt(System.getenv(CHARGE_EXPIRY_WINDOW));
-        }
-        logger.debug("Charge expiry window size in seconds: " + chargeExpiryWindowSeconds);
-        return ZonedDateTime.now().minusSeconds(chargeExpiryWindowSeconds);
+        ZonedDateTime expiryDate = chargeExpiryService.getExpiryDate();
+        logger.info(format("Sweeping charges for expiry - since_date=%s", expiryDate));
+        // holds the lease of the background expiry job, so the two never sweep at the same time
+        return backgroundJobLeases.runHolding(ExpireChargesJob.NAME,
+                leaseHeld -> chargeExpiryService.sweep(expiryDate, Integer.MAX_VALUE, leaseHeld))
+                .map(ResponseUtil::successResponseWithEntity)
+                .orElseGet(() -> conflictErrorResponse("Charges are already being swept for expiry"));
     }
 
     private ZonedDateTime parseDate(String date) {
@@ -5,11 +5,11 @@ import com.google.common.collect.ImmutableList;
 import io.dropwizard.jersey.PATCH;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.model.ChargeResponse;
 import uk.gov.pay.connector.model.builder.PatchRequestBuilder;
 import uk.gov.pay.connector.model.domain.*;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
 import uk.gov.pay.connector.service.ChargeService;
 import uk.gov.pay.connector.util.DateTimeUtils;
 
@@ -40,13 +40,13 @@ public class ChargesFrontendResource {
     private static final String NEW_STATUS = "new_status";
     private final ChargeDao chargeDao;
     private final ChargeService chargeService;
-    private final CardTypeDao cardTypeDao;
+    private final CardTypeCatalogue cardTypeCatalogue;
 
     @Inject
-    public ChargesFrontendResource(ChargeDao chargeDao, ChargeService chargeService, CardTypeDao cardTypeDao) {
+    public ChargesFrontendResource(ChargeDao chargeDao, ChargeService chargeService, CardTypeCatalogue cardTypeCatalogue) {
         this.chargeDao = chargeDao;
         this.chargeService = chargeService;
-        this.cardTypeDao = cardTypeDao;
+        this.cardTypeCatalogue = cardTypeCatalogue;
     }
 
     @GET
@@ -129,14 +129,7 @@ public class ChargesFrontendResource {
     }
 
     private Optional<String> findCardBrandLabel(String cardBrand) {
-        if (cardBrand == null) {
-            return Optional.empty();
-        }
-
-        return cardTypeDao.findByBrand(cardBrand)
-                .stream()
-                .findFirst()
-                .map(CardTypeEntity::getLabel);
+        return cardTypeCatalogue.findLabel(cardBrand);
     }
 
     private ChargeResponse buildChargeResponse(UriInfo uriInfo, ChargeEntity charge) {
@@ -2,6 +2,7 @@ package uk.gov.pay.connector.resources;
 
 import black.door.hate.HalRepresentation;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.model.ChargeResponse;
 
 import javax.ws.rs.core.Response;
@@ -18,6 +19,7 @@ public class ChargesPaginationResponseBuilder {
     private List<ChargeResponse> chargeResponses;
 
     private Long totalCount;
+    private SearchCursor nextCursor;
     private Long selfPageNum;
     private URI selfLink;
     private URI firstLink;
@@ -42,7 +44,15 @@ public class ChargesPaginationResponseBuilder {
         return this;
     }
 
+    public ChargesPaginationResponseBuilder withNextCursor(SearchCursor nextCursor) {
+        this.nextCursor = nextCursor;
+        return this;
+    }
+
     public Response buildResponse() {
+        if (searchParams.getCursor() != null) {
+            return buildCursorResponse();
+        }
         Long size = searchParams.getDisplaySize();
         long lastPage = totalCount > 0 ? (totalCount + size - 1) / size : 1;
         buildLinks(lastPage);
@@ -62,6 +72,31 @@ public class ChargesPaginationResponseBuilder {
         return ok(halRepresentationBuilder.build().toString()).build();
     }
 
+    private Response buildCursorResponse() {
+        SearchCursor selfCursor = searchParams.getCursor();
+        searchParams.withCursor(SearchCursor.first());
+        firstLink = uriWithParams(searchParams.buildQueryParams());
+
+        if (nextCursor != null) {
+            searchParams.withCursor(nextCursor);
+            nextLink = uriWithParams(searchParams.buildQueryParams());
+        }
+        searchParams.withCursor(selfCursor);
+
+        HalRepresentation.HalRepresentationBuilder halRepresentationBuilder = HalRepresentation.builder()
+                .addProperty("results", chargeResponses)
+                .addProperty("count", chargeResponses.size())
+                .addLink("self", selfLink)
+                .addLink("first_page", firstLink);
+
+        if (totalCount != null) {
+            halRepresentationBuilder.addProperty("total", totalCount);
+        }
+        addLinkNotNull(halRepresentationBuilder, "next_page", nextLink);
+
+        return ok(halRepresentationBuilder.build().toString()).build();
+    }
+
     private void addLinkNotNull(HalRepresentation.HalRepresentationBuilder halRepresentationBuilder, String name, URI uri) {
         if (uri != null) {
             halRepresentationBuilder.addLink(name, uri);
@@ -1,6 +1,5 @@
 package uk.gov.pay.connector.resources;
 
-import com.google.inject.persist.Transactional;
 import io.dropwizard.jersey.PATCH;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,12 +7,14 @@ import uk.gov.pay.connector.dao.EmailNotificationsDao;
 import uk.gov.pay.connector.dao.GatewayAccountDao;
 import uk.gov.pay.connector.model.builder.PatchRequestBuilder;
 import uk.gov.pay.connector.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.service.GatewayAccountCache;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 
 import static java.lang.String.format;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -30,23 +31,24 @@ public class EmailNotificationResource {
 
     private final EmailNotificationsDao emailNotificationsDao;
     private final GatewayAccountDao gatewayDao;
+    private final GatewayAccountCache gatewayAccountCache;
 
     @Inject
-    public EmailNotificationResource(GatewayAccountDao gatewayDao, EmailNotificationsDao emailNotificationsDao) {
+    public EmailNotificationResource(GatewayAccountDao gatewayDao, GatewayAccountCache gatewayAccountCache, EmailNotificationsDao emailNotificationsDao) {
         this.emailNotificationsDao = emailNotificationsDao;
         this.gatewayDao = gatewayDao;
+        this.gatewayAccountCache = gatewayAccountCache;
     }
 
     @GET
     @Path("/v1/api/accounts/{accountId}/email-notification")
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response getEmailNotificationText(@PathParam("accountId") Long gatewayAccountId) {
         logger.info("Getting email notification text for account id {}", gatewayAccountId);
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.findById(gatewayAccountId)
                 .map(gatewayAccount ->
-                        emailNotificationsDao.findByAccountId(gatewayAccount.getId())
+                        Optional.ofNullable(gatewayAccount.getEmailNotification())
                                 .map(emailNotificationEntity -> Response.ok().entity(emailNotificationEntity).build())
                                 .orElseGet(() -> Response.ok().build()))
                 .orElseGet(() -> notFoundResponse(format("Account with id %s not found.", gatewayAccountId)));
@@ -56,13 +58,12 @@ public class EmailNotificationResource {
     @Path("/v1/api/accounts/{accountId}/email-notification")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response updateEmailNotification(@PathParam("accountId") Long gatewayAccountId, Map<String, String> payload) {
         if (!payload.containsKey(EMAIL_NOTIFICATION_TEMPLATE_BODY)) {
             return fieldsMissingResponse(Collections.singletonList(EMAIL_NOTIFICATION_TEMPLATE_BODY));
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map(gatewayAccount ->
                         emailNotificationsDao.findByAccountId(gatewayAccountId).map(emailNotificationEntity -> {
                             emailNotificationEntity.setTemplateBody(payload.get(EMAIL_NOTIFICATION_TEMPLATE_BODY));
@@ -72,14 +73,13 @@ public class EmailNotificationResource {
                                     new EmailNotificationEntity(gatewayAccount, payload.get(EMAIL_NOTIFICATION_TEMPLATE_BODY)));
                             return Response.ok().build();
                         }))
-                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     @PATCH
     @Path("/v1/api/accounts/{accountId}/email-notification")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response enableEmailNotification(@PathParam("accountId") Long gatewayAccountId, Map<String, String> emailPatchMap) {
         PatchRequestBuilder.PatchRequest emailPatchRequest;
 
@@ -93,7 +93,7 @@ public class EmailNotificationResource {
             return badRequestResponse("Bad patch parameters" + emailPatchMap.toString());
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map(gatewayAccount -> emailNotificationsDao.findByAccountId(gatewayAccountId)
                         .map(emailNotificationEntity -> {
                             emailNotificationEntity.setEnabled(Boolean.parseBoolean(emailPatchRequest.getValue()));
@@ -102,6 +102,6 @@ public class EmailNotificationResource {
                             gatewayAccount.setEmailNotification(new EmailNotificationEntity(gatewayAccount));
                             return Response.ok().build();
                         }))
-                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 }
@@ -5,11 +5,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.inject.persist.Transactional;
 import io.dropwizard.jersey.PATCH;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.auth.VerifiedCredentialsCache;
 import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.GatewayAccountDao;
 import uk.gov.pay.connector.exception.CredentialsException;
@@ -17,7 +17,9 @@ import uk.gov.pay.connector.model.GatewayAccountRequest;
 import uk.gov.pay.connector.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
 import uk.gov.pay.connector.model.domain.GatewayAccountResourceDTO;
+import uk.gov.pay.connector.model.domain.NotificationCredentials;
 import uk.gov.pay.connector.model.domain.UuidAbstractEntity;
+import uk.gov.pay.connector.service.GatewayAccountCache;
 import uk.gov.pay.connector.service.GatewayAccountNotificationCredentialsService;
 import uk.gov.pay.connector.service.GatewayAccountServicesFactory;
 import uk.gov.pay.connector.service.PaymentGatewayName;
@@ -75,22 +77,26 @@ public class GatewayAccountResource {
 
 
     private final GatewayAccountDao gatewayDao;
+    private final GatewayAccountCache gatewayAccountCache;
     private final CardTypeDao cardTypeDao;
     private final Map<String, List<String>> providerCredentialFields;
     private final GatewayAccountNotificationCredentialsService gatewayAccountNotificationCredentialsService;
     private final GatewayAccountRequestValidator validator;
     private final GatewayAccountServicesFactory gatewayAccountServicesFactory;
-
+    private final VerifiedCredentialsCache verifiedCredentialsCache;
 
     @Inject
-    public GatewayAccountResource(GatewayAccountDao gatewayDao, CardTypeDao cardTypeDao, ConnectorConfiguration conf,
+    public GatewayAccountResource(GatewayAccountDao gatewayDao, GatewayAccountCache gatewayAccountCache, CardTypeDao cardTypeDao, ConnectorConfiguration conf,
                                   GatewayAccountNotificationCredentialsService gatewayAccountNotificationCredentialsService,
-                                  GatewayAccountRequestValidator validator, GatewayAccountServicesFactory gatewayAccountServicesFactory) {
+                                  GatewayAccountRequestValidator validator, GatewayAccountServicesFactory gatewayAccountServicesFactory,
+                                  VerifiedCredentialsCache verifiedCredentialsCache) {
         this.gatewayDao = gatewayDao;
+        this.gatewayAccountCache = gatewayAccountCache;
         this.cardTypeDao = cardTypeDao;
         this.gatewayAccountNotificationCredentialsService = gatewayAccountNotificationCredentialsService;
         this.validator = validator;
         this.gatewayAccountServicesFactory = gatewayAccountServicesFactory;
+        this.verifiedCredentialsCache = verifiedCredentialsCache;
         providerCredentialFields = newHashMap();
         providerCredentialFields.put("worldpay", conf.getWorldpayConfig().getCredentials());
         providerCredentialFields.put("smartpay", conf.getSmartpayConfig().getCredentials());
@@ -103,8 +109,8 @@ public class GatewayAccountResource {
     @JsonView(GatewayAccountEntity.Views.ApiView.class)
     public Response getGatewayAccount(@PathParam("accountId") Long accountId) {
         logger.debug("Getting gateway account for account id {}", accountId);
-        return gatewayDao
-                .findById(GatewayAccountEntity.class, accountId)
+        return gatewayAccountCache
+                .findById(accountId)
                 .map(gatewayAccount -> Response.ok().entity(gatewayAccount.withoutCredentials()).build())
                 .orElseGet(() -> notFoundResponse(format("Account with id %s not found.", accountId)));
 
@@ -136,7 +142,7 @@ public class GatewayAccountResource {
     @JsonView(GatewayAccountEntity.Views.ApiView.class)
     public Response getGatewayAccountWithCredentials(@PathParam("accountId") Long gatewayAccountId) throws IOException {
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.findById(gatewayAccountId)
                 .map(serviceAccount ->
                 {
                     serviceAccount.getCredentials().remove("password");
@@ -152,8 +158,8 @@ public class GatewayAccountResource {
     @JsonView(GatewayAccountEntity.Views.ApiView.class)
     public Response getGatewayAccountAcceptedCardTypes(@PathParam("accountId") Long accountId) {
         logger.info("Getting accepted card types for gateway account with account id {}", accountId);
-        return gatewayDao
-                .findById(GatewayAccountEntity.class, accountId)
+        return gatewayAccountCache
+                .findById(accountId)
                 .map(gatewayAccount -> successResponseWithEntity(ImmutableMap.of(CARD_TYPES_FIELD_NAME, gatewayAccount.getCardTypes())))
                 .orElseGet(() -> notFoundResponse(format("Account with id %s not found.", accountId)));
 
@@ -212,28 +218,26 @@ public class GatewayAccountResource {
     @Path("/v1/api/accounts/{accountId}")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response patchGatewayAccount(@PathParam("accountId") Long gatewayAccountId, JsonNode payload) {
         return validator.validatePatchRequest(payload)
                 .map(errors -> Response.status(BAD_REQUEST).entity(errors).build())
-                .orElseGet(() -> gatewayAccountServicesFactory.getUpdateService()
+                .orElseGet(() -> gatewayAccountCache.update(gatewayAccountId, () -> gatewayAccountServicesFactory.getUpdateService()
                         .doPatch(gatewayAccountId, GatewayAccountRequest.from(payload))
                         .map(gatewayAccount -> Response.ok().build())
-                        .orElseGet(() -> Response.status(NOT_FOUND).build()));
+                        .orElseGet(() -> Response.status(NOT_FOUND).build())));
     }
 
     @PATCH
     @Path("/v1/frontend/accounts/{accountId}/credentials")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     @JsonView(GatewayAccountEntity.Views.ApiView.class)
     public Response updateGatewayAccountCredentials(@PathParam("accountId") Long gatewayAccountId, Map<String, Object> gatewayAccountPayload) {
         if (!gatewayAccountPayload.containsKey(CREDENTIALS_FIELD_NAME)) {
             return fieldsMissingResponse(Arrays.asList(CREDENTIALS_FIELD_NAME));
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map(gatewayAccount ->
                         {
                             Map credentialsPayload = (Map) gatewayAccountPayload.get(CREDENTIALS_FIELD_NAME);
@@ -247,14 +251,13 @@ public class GatewayAccountResource {
                         }
                 )
                 .orElseGet(() ->
-                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     @PATCH
     @Path("/v1/frontend/accounts/{accountId}/servicename")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response updateGatewayAccountServiceName(@PathParam("accountId") Long gatewayAccountId, Map<String, String> gatewayAccountPayload) {
         if (!gatewayAccountPayload.containsKey(SERVICE_NAME_FIELD_NAME)) {
             return fieldsMissingResponse(Arrays.asList(SERVICE_NAME_FIELD_NAME));
@@ -265,7 +268,7 @@ public class GatewayAccountResource {
             return fieldsInvalidSizeResponse(Arrays.asList(SERVICE_NAME_FIELD_NAME));
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map(gatewayAccount ->
                         {
                             gatewayAccount.setServiceName(serviceName);
@@ -273,20 +276,19 @@ public class GatewayAccountResource {
                         }
                 )
                 .orElseGet(() ->
-                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     @PATCH
     @Path("/v1/frontend/accounts/{accountId}/3ds-toggle")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response updateGatewayAccount3dsToggle(@PathParam("accountId") Long gatewayAccountId, Map<String, String> gatewayAccountPayload) {
         if (!gatewayAccountPayload.containsKey(REQUIRES_3DS_FIELD_NAME)) {
             return fieldsMissingResponse(Arrays.asList(REQUIRES_3DS_FIELD_NAME));
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map(gatewayAccount ->
                         {
                             boolean requires3ds = Boolean.parseBoolean(gatewayAccountPayload.get(REQUIRES_3DS_FIELD_NAME));
@@ -298,14 +300,13 @@ public class GatewayAccountResource {
                         }
                 )
                 .orElseGet(() ->
-                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     @POST
     @Path("/v1/frontend/accounts/{accountId}/card-types")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response updateGatewayAccountAcceptedCardTypes(@PathParam("accountId") Long gatewayAccountId, Map<String, List<UUID>> cardTypes) {
 
         if (!cardTypes.containsKey(CARD_TYPES_FIELD_NAME)) {
@@ -324,7 +325,7 @@ public class GatewayAccountResource {
             return badRequestResponse(format("CardType(s) referenced by id(s) '%s' not found", String.join(",", extractNotFoundCardTypeIds(cardTypeIds, cardTypeEntities))));
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map(gatewayAccount -> {
                     if (!gatewayAccount.isRequires3ds() && hasAnyRequired3ds(cardTypeEntities)) {
                         return Response.status(Status.CONFLICT).build();
@@ -333,7 +334,7 @@ public class GatewayAccountResource {
                     return Response.ok().build();
                 })
                 .orElseGet(() ->
-                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                        notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     private boolean hasAnyRequired3ds(List<CardTypeEntity> cardTypeEntities) {
@@ -357,7 +358,6 @@ public class GatewayAccountResource {
     @Path("/v1/api/accounts/{accountId}/notification-credentials")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response createOrUpdateGatewayAccountNotificationCredentials(@PathParam("accountId") Long gatewayAccountId, Map<String, String> notificationCredentials) {
         if (!notificationCredentials.containsKey(USERNAME_KEY)) {
             return fieldsMissingResponse(Collections.singletonList(USERNAME_KEY));
@@ -367,39 +367,42 @@ public class GatewayAccountResource {
             return fieldsMissingResponse(Collections.singletonList(PASSWORD_KEY));
         }
 
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map((gatewayAccountEntity) -> {
+                    Optional<String> previousUsername = Optional.ofNullable(gatewayAccountEntity.getNotificationCredentials())
+                            .map(NotificationCredentials::getUserName);
                     try {
                         gatewayAccountNotificationCredentialsService.setCredentialsForAccount(notificationCredentials,
                                 gatewayAccountEntity);
                     } catch (CredentialsException e) {
                         return badRequestResponse("Credentials update failure: " + e.getMessage());
                     }
+                    previousUsername.ifPresent(verifiedCredentialsCache::invalidate);
+                    verifiedCredentialsCache.invalidate(notificationCredentials.get(USERNAME_KEY));
 
                     return Response.ok().build();
 
                 })
-                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     @PATCH
     @Path("/v1/api/accounts/{accountId}/description-analytics-id")
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
-    @Transactional
     public Response updateDescriptionAndOrAnalyticsID(@PathParam("accountId") Long gatewayAccountId, Map<String, String> payload) {
         if (!payload.containsKey(DESCRIPTION_FIELD_NAME) && !payload.containsKey(ANALYTICS_ID_FIELD_NAME)) {
             return fieldsMissingResponse(Arrays.asList(DESCRIPTION_FIELD_NAME, ANALYTICS_ID_FIELD_NAME));
         }
         Optional<String> descriptionMaybe = Optional.ofNullable(payload.get(DESCRIPTION_FIELD_NAME));
         Optional<String> analyticsIdMaybe = Optional.ofNullable(payload.get(ANALYTICS_ID_FIELD_NAME));
-        return gatewayDao.findById(gatewayAccountId)
+        return gatewayAccountCache.update(gatewayAccountId, () -> gatewayDao.findById(gatewayAccountId)
                 .map((gatewayAccountEntity) -> {
                     descriptionMaybe.ifPresent(gatewayAccountEntity::setDescription);
                     analyticsIdMaybe.ifPresent(gatewayAccountEntity::setAnalyticsId);
                     return Response.ok().build();
                 })
-                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId)));
+                .orElseGet(() -> notFoundResponse(format("The gateway account id '%s' does not exist", gatewayAccountId))));
     }
 
     private Map<String, Object> addSelfLink(URI chargeId, Map<String, Object> charge) {
@@ -2,6 +2,7 @@ package uk.gov.pay.connector.resources;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.service.NotificationService;
 import uk.gov.pay.connector.service.PaymentGatewayName;
 
@@ -27,10 +28,12 @@ public class NotificationResource {
     private static final Logger logger = LoggerFactory.getLogger(NotificationResource.class);
 
     private final NotificationService notificationService;
+    private final boolean notificationInboxEnabled;
 
     @Inject
-    public NotificationResource(NotificationService notificationService) {
+    public NotificationResource(NotificationService notificationService, ConnectorConfiguration configuration) {
         this.notificationService = notificationService;
+        this.notificationInboxEnabled = configuration.getNotificationInboxConfig().isEnabled();
     }
 
     @POST
@@ -66,7 +69,7 @@ public class NotificationResource {
 
     private Response handleNotification(String ipAddress, String name, String notification) {
         PaymentGatewayName paymentGatewayName = PaymentGatewayName.valueFrom(name);
-        if (!notificationService.handleNotificationFor(ipAddress, paymentGatewayName, notification)) {
+        if (!handle(ipAddress, paymentGatewayName, notification)) {
             logger.error("Rejected notification for ip '{}'", ipAddress);
             return forbiddenErrorResponse();
         }
@@ -75,6 +78,13 @@ public class NotificationResource {
         return Response.ok(response).build();
     }
 
+    private boolean handle(String ipAddress, PaymentGatewayName paymentGatewayName, String notification) {
+        if (notificationInboxEnabled) {
+            return notificationService.acceptNotificationFor(ipAddress, paymentGatewayName, notification);
+        }
+        return notificationService.handleNotificationFor(ipAddress, paymentGatewayName, notification);
+    }
+
     private String getResponseFor(PaymentGatewayName provider) {
         if (provider == SMARTPAY) {
             return "[accepted]";
@@ -0,0 +1,77 @@
+package uk.gov.pay.connector.resources;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.tuple.Pair;
+import uk.gov.pay.connector.dao.GatewayAccountDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
+import uk.gov.pay.connector.model.PaymentStatisticsResponse;
+import uk.gov.pay.connector.service.PaymentStatisticsRebuildService;
+import uk.gov.pay.connector.util.ResponseUtil;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static fj.data.Either.reduce;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static uk.gov.pay.connector.resources.ApiValidators.validateFromDayIsNotAfterToDay;
+import static uk.gov.pay.connector.resources.ApiValidators.validateGatewayAccountReference;
+import static uk.gov.pay.connector.util.ResponseUtil.successResponseWithEntity;
+
+@Path("/")
+public class PaymentStatisticsResource {
+
+    private static final String ACCOUNT_ID = "accountId";
+    private static final String FROM_DATE = "from_date";
+    private static final String TO_DATE = "to_date";
+    private static final String PER_DAY = "per_day";
+
+    private final GatewayAccountDao gatewayAccountDao;
+    private final PaymentStatisticsDao paymentStatisticsDao;
+    private final PaymentStatisticsRebuildService paymentStatisticsRebuildService;
+
+    @Inject
+    public PaymentStatisticsResource(GatewayAccountDao gatewayAccountDao, PaymentStatisticsDao paymentStatisticsDao,
+                                     PaymentStatisticsRebuildService paymentStatisticsRebuildService) {
+        this.gatewayAccountDao = gatewayAccountDao;
+        this.paymentStatisticsDao = paymentStatisticsDao;
+        this.paymentStatisticsRebuildService = paymentStatisticsRebuildService;
+    }
+
+    @GET
+    @Path("/v1/api/accounts/{accountId}/payment-statistics")
+    @Produces(APPLICATION_JSON)
+    public Response getPaymentStatistics(@PathParam(ACCOUNT_ID) Long gatewayAccountId,
+                                         @QueryParam(FROM_DATE) String fromDate,
+                                         @QueryParam(TO_DATE) String toDate,
+                                         @QueryParam(PER_DAY) boolean perDay) {
+        return reduce(validateGatewayAccountReference(gatewayAccountDao, gatewayAccountId)
+                .bimap(ResponseUtil::notFoundResponse,
+                        success -> reduce(validateFromDayIsNotAfterToDay(FROM_DATE, fromDate, TO_DATE, toDate)
+                                .bimap(ResponseUtil::badRequestResponse,
+                                        fromDayAndToDay -> summarise(gatewayAccountId, fromDayAndToDay, perDay)))));
+    }
+
+    @POST
+    @Path("/v1/tasks/payment-statistics-rebuild")
+    @Produces(APPLICATION_JSON)
+    public Response rebuildPaymentStatistics(@QueryParam("account_id") Long gatewayAccountId) {
+        return successResponseWithEntity(ImmutableMap.of("rows", paymentStatisticsRebuildService.rebuild(Optional.ofNullable(gatewayAccountId))));
+    }
+
+    private Response summarise(Long gatewayAccountId, Pair<LocalDate, LocalDate> fromDayAndToDay, boolean perDay) {
+        PaymentStatisticsResponse response = new PaymentStatisticsResponse(
+                fromDayAndToDay.getLeft(),
+                fromDayAndToDay.getRight(),
+                paymentStatisticsDao.summariseByAccountBetweenDays(gatewayAccountId, fromDayAndToDay.getLeft(), fromDayAndToDay.getRight(), perDay));
+
+        return Response.ok(response).build();
+    }
+}
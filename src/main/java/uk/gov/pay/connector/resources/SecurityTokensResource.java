@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.resources;
 
 import com.fasterxml.jackson.annotation.JsonView;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,6 +9,7 @@ import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.TokenDao;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.service.TokenPurgeService;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
@@ -23,11 +25,13 @@ public class SecurityTokensResource {
     private final Logger logger = LoggerFactory.getLogger(SecurityTokensResource.class);
     private final TokenDao tokenDao;
     private ChargeDao chargeDao;
+    private final TokenPurgeService tokenPurgeService;
 
     @Inject
-    public SecurityTokensResource(TokenDao tokenDao, ChargeDao chargeDao) {
+    public SecurityTokensResource(TokenDao tokenDao, ChargeDao chargeDao, TokenPurgeService tokenPurgeService) {
         this.tokenDao = tokenDao;
         this.chargeDao = chargeDao;
+        this.tokenPurgeService = tokenPurgeService;
     }
 
     @GET
@@ -51,4 +55,11 @@ public class SecurityTokensResource {
                 .ifPresent(tokenDao::remove);
         return noContentResponse();
     }
+
+    @POST
+    @Path("/v1/tasks/expired-tokens-sweep")
+    @Produces(APPLICATION_JSON)
+    public Response deleteExpiredTokens() {
+        return successResponseWithEntity(ImmutableMap.of("deleted", tokenPurgeService.purgeExpiredTokens()));
+    }
 }
@@ -7,9 +7,8 @@ import uk.gov.pay.connector.dao.RefundDao;
 import uk.gov.pay.connector.model.TransactionsSummaryResponse;
 import uk.gov.pay.connector.model.api.ExternalChargeState;
 import uk.gov.pay.connector.model.api.ExternalRefundStatus;
-import uk.gov.pay.connector.model.domain.ChargeEntity;
+import uk.gov.pay.connector.model.domain.AmountSummary;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
-import uk.gov.pay.connector.model.domain.RefundEntity;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.util.ResponseUtil;
 
@@ -70,23 +69,23 @@ public class TransactionsSummaryResource {
     }
 
     private Response summarisePaymentsAndRefunds(Long gatewayAccountId, Pair<ZonedDateTime, ZonedDateTime> fromDateAndToDate) {
-        List<ChargeEntity> successfulPayments = chargeDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary successfulPayments = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
                 gatewayAccountId,
                 fromDateAndToDate.getLeft(),
                 fromDateAndToDate.getRight(),
                 CHARGE_SUCCESS_STATUSES);
 
-        int successfulPaymentsCount = successfulPayments.size();
-        long successfulPaymentsTotalInPence = successfulPayments.stream().mapToLong(ChargeEntity::getAmount).sum();
+        int successfulPaymentsCount = (int) successfulPayments.getCount();
+        long successfulPaymentsTotalInPence = successfulPayments.getTotalAmount();
 
-        List<RefundEntity> successfulRefunds = refundDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary successfulRefunds = refundDao.summariseByAccountBetweenDatesWithStatusIn(
                 gatewayAccountId,
                 fromDateAndToDate.getLeft(),
                 fromDateAndToDate.getRight(),
                 REFUND_SUCCESS_STATUSES);
 
-        int successfulRefundsCount = successfulRefunds.size();
-        long successfulRefundsTotalInPence = successfulRefunds.stream().mapToLong(RefundEntity::getAmount).sum();
+        int successfulRefundsCount = (int) successfulRefunds.getCount();
+        long successfulRefundsTotalInPence = successfulRefunds.getTotalAmount();
 
         long netIncome = successfulPaymentsTotalInPence - successfulRefundsTotalInPence;
 
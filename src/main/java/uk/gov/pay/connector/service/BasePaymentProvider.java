@@ -6,6 +6,7 @@ import uk.gov.pay.connector.model.gateway.GatewayResponse.GatewayResponseBuilder
 
 import java.util.EnumMap;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 
 import static fj.data.Either.reduce;
@@ -41,7 +42,7 @@ abstract public class BasePaymentProvider<T extends BaseResponse, R> implements
         GatewayClient gatewayClient = gatewayOperationClientMap.get(request.getRequestType());
         return reduce(
                 gatewayClient
-                        .postRequestFor(route, request.getGatewayAccount(), order.apply(request))
+                        .postRequestFor(route, request.getGatewayAccount(), order.apply(request), clazz)
                         .bimap(
                                 GatewayResponse::with,
                                 r -> mapToResponse(r, clazz, responseIdentifier, gatewayClient)
@@ -49,6 +50,25 @@ abstract public class BasePaymentProvider<T extends BaseResponse, R> implements
         );
     }
 
+    protected <U extends GatewayRequest> CompletionStage<GatewayResponse<BaseResponse>> sendReceiveAsync(U request, Function<U, GatewayOrder> order,
+                                                                                                      Class<? extends BaseResponse> clazz,
+                                                                                                      Function<GatewayClient.Response, Optional<String>> responseIdentifier) {
+
+        return sendReceiveAsync(null, request, order, clazz, responseIdentifier);
+    }
+
+    protected <U extends GatewayRequest> CompletionStage<GatewayResponse<BaseResponse>> sendReceiveAsync(String route, U request, Function<U, GatewayOrder> order,
+                                                                                                      Class<? extends BaseResponse> clazz,
+                                                                                                      Function<GatewayClient.Response, Optional<String>> responseIdentifier) {
+        GatewayClient gatewayClient = gatewayOperationClientMap.get(request.getRequestType());
+        return gatewayClient
+                .postRequestForAsync(route, request.getGatewayAccount(), order.apply(request), clazz)
+                .thenApply(result -> (GatewayResponse<BaseResponse>) reduce(result.bimap(
+                        GatewayResponse::with,
+                        r -> mapToResponse(r, clazz, responseIdentifier, gatewayClient)
+                )));
+    }
+
     private GatewayResponse mapToResponse(GatewayClient.Response response,
                                           Class<? extends BaseResponse> clazz,
                                           Function<GatewayClient.Response, Optional<String>> responseIdentifier,
@@ -68,5 +68,6 @@ public class CaptureProcessScheduler implements Managed {
 
     public void stop() {
         scheduledExecutorService.shutdown();
+        cardCaptureProcess.shutdown();
     }
 }
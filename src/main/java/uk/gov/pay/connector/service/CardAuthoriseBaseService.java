@@ -9,6 +9,7 @@ import uk.gov.pay.connector.dao.ChargeEventDao;
 import uk.gov.pay.connector.exception.ConflictRuntimeException;
 import uk.gov.pay.connector.exception.GenericGatewayRuntimeException;
 import uk.gov.pay.connector.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.exception.OperationRejectedRuntimeException;
 import uk.gov.pay.connector.model.domain.AuthorisationDetails;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
@@ -18,6 +19,9 @@ import uk.gov.pay.connector.model.gateway.GatewayResponse;
 import javax.persistence.OptimisticLockException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus;
@@ -35,7 +39,7 @@ public abstract class CardAuthoriseBaseService<T extends AuthorisationDetails> e
 
     public GatewayResponse doAuthorise(String chargeId, T gatewayAuthRequest) {
 
-        Supplier authorisationSupplier = () -> {
+        Supplier<CompletionStage<GatewayResponse<BaseAuthoriseResponse>>> authorisationSupplier = () -> {
             ChargeEntity charge;
             try {
                 charge = preOperation(chargeId, gatewayAuthRequest);
@@ -46,17 +50,27 @@ public abstract class CardAuthoriseBaseService<T extends AuthorisationDetails> e
                 LOG.info("OptimisticLockException in doAuthorise for charge external_id=" + chargeId);
                 throw new ConflictRuntimeException(chargeId);
             }
-             GatewayResponse<BaseAuthoriseResponse> operationResponse = operation(charge, gatewayAuthRequest);
-            return postOperation(chargeId, gatewayAuthRequest, operationResponse);
+            return operationAsync(charge, gatewayAuthRequest);
         };
 
-        Pair<ExecutionStatus, GatewayResponse> executeResult = cardExecutorService.execute(authorisationSupplier);
+        Function<GatewayResponse<BaseAuthoriseResponse>, GatewayResponse> completion =
+                operationResponse -> postOperation(chargeId, gatewayAuthRequest, operationResponse);
+
+        // an unknown charge is reported by preOperation
+        PaymentGatewayName gatewayName = chargeDao.findGatewayNameByExternalId(chargeId)
+                .map(PaymentGatewayName::valueFrom)
+                .orElse(null);
+
+        // no executor thread is held while the gateway responds; postOperation runs on the executor once it has
+        Pair<ExecutionStatus, GatewayResponse> executeResult = cardExecutorService.executeAsync(gatewayName, authorisationSupplier, completion);
 
         switch (executeResult.getLeft()) {
             case COMPLETED:
                 return executeResult.getRight();
             case IN_PROGRESS:
                 throw new OperationAlreadyInProgressRuntimeException(OperationType.AUTHORISATION.getValue(), chargeId);
+            case REJECTED:
+                throw new OperationRejectedRuntimeException(OperationType.AUTHORISATION.getValue(), chargeId);
             default:
                 throw new GenericGatewayRuntimeException("Exception occurred while doing authorisation");
         }
@@ -77,6 +91,14 @@ public abstract class CardAuthoriseBaseService<T extends AuthorisationDetails> e
 
     protected abstract GatewayResponse<BaseAuthoriseResponse> operation(ChargeEntity charge, T gatewayAuthRequest);
 
+    /**
+     * The gateway call of {@link #operation(ChargeEntity, AuthorisationDetails)}, for operations that can be
+     * made without holding a card executor thread until the gateway responds.
+     */
+    protected CompletionStage<GatewayResponse<BaseAuthoriseResponse>> operationAsync(ChargeEntity charge, T gatewayAuthRequest) {
+        return CompletableFuture.completedFuture(operation(charge, gatewayAuthRequest));
+    }
+
     protected abstract List<ChargeStatus> getLegalStates();
 
 }
@@ -5,7 +5,6 @@ import com.google.inject.persist.Transactional;
 import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.StringUtils;
 import uk.gov.pay.connector.dao.CardDao;
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeEventDao;
 import uk.gov.pay.connector.dao.PaymentRequestDao;
@@ -16,7 +15,6 @@ import uk.gov.pay.connector.model.domain.AuthCardDetails;
 import uk.gov.pay.connector.model.domain.Card3dsEntity;
 import uk.gov.pay.connector.model.domain.CardDetailsEntity;
 import uk.gov.pay.connector.model.domain.CardEntity;
-import uk.gov.pay.connector.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
@@ -28,7 +26,7 @@ import uk.gov.pay.connector.model.gateway.GatewayResponse;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionStage;
 
 import static uk.gov.pay.connector.model.domain.ChargeStatus.AUTHORISATION_ABORTED;
 import static uk.gov.pay.connector.model.domain.ChargeStatus.AUTHORISATION_ERROR;
@@ -40,7 +38,7 @@ import static uk.gov.pay.connector.model.domain.NumbersInStringsSanitizer.saniti
 
 public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetails> {
 
-    private final CardTypeDao cardTypeDao;
+    private final CardTypeCatalogue cardTypeCatalogue;
     private final CardDao cardDao;
     private final Auth3dsDetailsFactory auth3dsDetailsFactory;
     private final PaymentRequestDao paymentRequestDao;
@@ -48,7 +46,7 @@ public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetai
     @Inject
     public CardAuthoriseService(ChargeDao chargeDao,
                                 ChargeEventDao chargeEventDao,
-                                CardTypeDao cardTypeDao,
+                                CardTypeCatalogue cardTypeCatalogue,
                                 CardDao cardDao,
                                 PaymentProviders providers,
                                 CardExecutorService cardExecutorService,
@@ -56,7 +54,7 @@ public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetai
                                 Environment environment,
                                 PaymentRequestDao paymentRequestDao, ChargeStatusUpdater chargeStatusUpdater) {
         super(chargeDao, chargeEventDao, providers, cardExecutorService, environment, chargeStatusUpdater);
-        this.cardTypeDao = cardTypeDao;
+        this.cardTypeCatalogue = cardTypeCatalogue;
         this.cardDao = cardDao;
         this.auth3dsDetailsFactory = auth3dsDetailsFactory;
         this.paymentRequestDao = paymentRequestDao;
@@ -94,10 +92,7 @@ public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetai
     }
 
     private boolean cardBrandRequires3ds(String cardBrand) {
-        List<CardTypeEntity> cardTypes = cardTypeDao.findByBrand(cardBrand).stream()
-                .filter(cardTypeEntity -> cardTypeEntity.getBrand().equals(cardBrand))
-                .collect(Collectors.toList());
-        return cardTypes.stream().anyMatch(CardTypeEntity::isRequires3ds);
+        return cardTypeCatalogue.requires3ds(cardBrand);
     }
 
     public GatewayResponse<BaseAuthoriseResponse> operation(ChargeEntity chargeEntity, AuthCardDetails authCardDetails) {
@@ -105,6 +100,12 @@ public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetai
                 .authorise(AuthorisationGatewayRequest.valueOf(chargeEntity, authCardDetails));
     }
 
+    @Override
+    protected CompletionStage<GatewayResponse<BaseAuthoriseResponse>> operationAsync(ChargeEntity chargeEntity, AuthCardDetails authCardDetails) {
+        return getPaymentProviderFor(chargeEntity)
+                .authoriseAsync(AuthorisationGatewayRequest.valueOf(chargeEntity, authCardDetails));
+    }
+
     @Override
     protected List<ChargeStatus> getLegalStates() {
         return ImmutableList.of(
@@ -159,7 +160,7 @@ public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetai
 
                 paymentRequestEntity.ifPresent(paymentRequest -> {
                     ChargeTransactionEntity chargeTransaction = paymentRequest.getChargeTransaction();
-                    chargeTransaction.setCard(cardEntity);
+                    chargeStatusUpdater.updateCard(chargeTransaction, cardEntity);
                     if(chargeEntity.get3dsDetails() != null) {
                         Card3dsEntity card3dsEntity = Card3dsEntity.from(chargeEntity);
                         chargeTransaction.setCard3ds(card3dsEntity);
@@ -180,6 +181,7 @@ public class CardAuthoriseService extends CardAuthoriseBaseService<AuthCardDetai
     private ChargeStatus mapError(GatewayError gatewayError) {
         switch (gatewayError.getErrorType()) {
             case GENERIC_GATEWAY_ERROR:
+            case GATEWAY_UNAVAILABLE_ERROR:
                 return AUTHORISATION_ERROR;
             case GATEWAY_CONNECTION_TIMEOUT_ERROR:
                 return AUTHORISATION_TIMEOUT;
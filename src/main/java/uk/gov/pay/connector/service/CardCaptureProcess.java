@@ -3,6 +3,7 @@ package uk.gov.pay.connector.service;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Stopwatch;
+import com.google.inject.persist.UnitOfWork;
 import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,64 +13,191 @@ import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import static java.util.stream.Collectors.toList;
+
 public class CardCaptureProcess {
 
+    private static final String CAPTURE_EXECUTOR_NAME = "CardCaptureProcess-%s-%%d";
+    private static final String DRAIN_EXECUTOR_NAME = "CardCaptureProcess-drain-%d";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ChargeDao chargeDao;
     private final CardCaptureService captureService;
     private final MetricRegistry metricRegistry;
     private final CaptureProcessConfig captureConfig;
+    private final Map<PaymentGatewayName, ExecutorService> captureExecutors;
+    private final ExecutorService drainExecutor;
+    private final UnitOfWork unitOfWork;
     private volatile long queueSize;
     private final Counter queueSizeMetric;
 
     @Inject
-    public CardCaptureProcess(Environment environment, ChargeDao chargeDao, CardCaptureService cardCaptureService, ConnectorConfiguration connectorConfiguration) {
+    public CardCaptureProcess(Environment environment, ChargeDao chargeDao, CardCaptureService cardCaptureService,
+                              ConnectorConfiguration connectorConfiguration, UnitOfWork unitOfWork) {
+        this(chargeDao, cardCaptureService, connectorConfiguration.getCaptureProcessConfig(),
+                captureExecutorsFor(environment, connectorConfiguration.getCaptureProcessConfig()),
+                environment.lifecycle()
+                        .executorService(DRAIN_EXECUTOR_NAME)
+                        .minThreads(PaymentGatewayName.values().length)
+                        .maxThreads(PaymentGatewayName.values().length)
+                        .build(),
+                unitOfWork, environment.metrics());
+    }
+
+    CardCaptureProcess(ChargeDao chargeDao,
+                       CardCaptureService cardCaptureService,
+                       CaptureProcessConfig captureConfig,
+                       Map<PaymentGatewayName, ExecutorService> captureExecutors,
+                       ExecutorService drainExecutor,
+                       UnitOfWork unitOfWork,
+                       MetricRegistry metricRegistry) {
         this.chargeDao = chargeDao;
         this.captureService = cardCaptureService;
-        this.captureConfig = connectorConfiguration.getCaptureProcessConfig();
-        metricRegistry = environment.metrics();
+        this.captureConfig = captureConfig;
+        this.captureExecutors = captureExecutors;
+        this.drainExecutor = drainExecutor;
+        this.unitOfWork = unitOfWork;
+        this.metricRegistry = metricRegistry;
 
         queueSizeMetric = metricRegistry.counter("gateway-operations.capture-process.queue-size");
     }
 
+    // one bounded pool per gateway, so a slow gateway cannot hold up captures for the others
+    private static Map<PaymentGatewayName, ExecutorService> captureExecutorsFor(Environment environment, CaptureProcessConfig captureConfig) {
+        int threadsPerGateway = Math.max(1, captureConfig.getThreadsPerGateway());
+        Map<PaymentGatewayName, ExecutorService> captureExecutors = new EnumMap<>(PaymentGatewayName.class);
+        for (PaymentGatewayName gatewayName : PaymentGatewayName.values()) {
+            captureExecutors.put(gatewayName, environment.lifecycle()
+                    .executorService(String.format(CAPTURE_EXECUTOR_NAME, gatewayName.getName()))
+                    .minThreads(threadsPerGateway)
+                    .maxThreads(threadsPerGateway)
+                    .build());
+        }
+        return captureExecutors;
+    }
+
     public void runCapture() {
+        runCapture(captureConfig.getBatchSize());
+    }
+
+    /**
+     * Drains the charges awaiting capture of each gateway in batches, each gateway on its own, so that
+     * one gateway being slow does not hold up claiming and capturing the charges of the others.
+     *
+     * @return the number of charges a capture was attempted for
+     */
+    public int runCapture(int batchSize) {
         Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
+        int attempted = 0;
+        List<Future<Integer>> drains = new ArrayList<>();
         try {
             queueSize = chargeDao.countChargesForCapture();
 
             updateQueueSizeMetric(queueSize);
 
-            List<ChargeEntity> chargesToCapture = chargeDao.findChargesForCapture(captureConfig.getBatchSize(), captureConfig.getRetryFailuresEveryAsJavaDuration());
-
-            if (chargesToCapture.size() > 0) {
-                logger.info("Capturing : " + chargesToCapture.size() + " of " + queueSize + " charges");
+            for (PaymentGatewayName gatewayName : PaymentGatewayName.values()) {
+                drains.add(drainExecutor.submit(() -> drain(gatewayName, batchSize)));
             }
-
-            chargesToCapture.forEach((charge) -> {
-                if (shouldRetry(charge)) {
-                    try {
-                        captureService.doCapture(charge.getExternalId());
-                    } catch (Exception e) {
-                        logger.error("Exception when running capture for [" + charge.getExternalId() + "]", e);
-                        throw e;
-                    }
-                } else {
-                    captureService.markChargeAsCaptureError(charge.getExternalId());
-                }
-            });
+            for (Future<Integer> drain : drains) {
+                attempted += drain.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Capture interrupted, stopping the capture of the remaining charges");
+            drains.forEach(drain -> drain.cancel(true));
         } catch (Exception e) {
             logger.error("Exception when running capture", e);
         } finally {
             responseTimeStopwatch.stop();
             metricRegistry.histogram("gateway-operations.capture-process.running_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
         }
+        return attempted;
     }
 
-    private boolean shouldRetry(ChargeEntity charge) {
-        return chargeDao.countCaptureRetriesForCharge(charge.getId()) < captureConfig.getMaximumRetries();
+    private int drain(PaymentGatewayName gatewayName, int batchSize) {
+        // charges that failed with an exception keep their status and would be fetched again,
+        // so each charge is attempted at most once per run
+        Set<Long> attemptedChargeIds = new HashSet<>();
+        int maximumBatches = Math.max(1, captureConfig.getMaximumBatchesPerRun());
+
+        try {
+            for (int batch = 0; batch < maximumBatches; batch++) {
+                List<ChargeEntity> chargesToCapture = chargeDao.claimChargesForCapture(gatewayName, batchSize,
+                        captureConfig.getRetryFailuresEveryAsJavaDuration(), captureConfig.getClaimChargesForAsJavaDuration())
+                        .stream()
+                        .filter(charge -> attemptedChargeIds.add(charge.getId()))
+                        .collect(toList());
+
+                // the claim makes up for charges other nodes claimed at the same time, so a short or empty
+                // claim means there are no more charges of this gateway to capture for now
+                if (chargesToCapture.isEmpty()) {
+                    break;
+                }
+
+                logger.info("Capturing : " + chargesToCapture.size() + " of " + queueSize + " charges - gateway=" + gatewayName.getName());
+                captureBatch(gatewayName, chargesToCapture);
+
+                if (chargesToCapture.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Capture interrupted, stopping the capture of the remaining charges - gateway={}", gatewayName.getName());
+        } catch (Exception e) {
+            logger.error("Exception when running capture - gateway=" + gatewayName.getName(), e);
+        }
+        return attemptedChargeIds.size();
+    }
+
+    private void captureBatch(PaymentGatewayName gatewayName, List<ChargeEntity> chargesToCapture) throws InterruptedException {
+        Map<Long, Integer> retriesPerCharge = chargeDao.countCaptureRetriesForCharges(
+                chargesToCapture.stream().map(ChargeEntity::getId).collect(toList()));
+
+        List<Future<?>> captures = new ArrayList<>();
+        for (ChargeEntity charge : chargesToCapture) {
+            boolean shouldRetry = retriesPerCharge.getOrDefault(charge.getId(), 0) < captureConfig.getMaximumRetries();
+            String externalId = charge.getExternalId();
+            captures.add(captureExecutors.get(gatewayName).submit(() -> capture(externalId, shouldRetry)));
+        }
+
+        // only this gateway waits for its batch before claiming the next one
+        for (Future<?> capture : captures) {
+            try {
+                capture.get();
+            } catch (ExecutionException e) {
+                // capture failures are handled per charge in capture(), nothing else can reach here
+                logger.error("Unexpected error when running capture", e.getCause());
+            }
+        }
+    }
+
+    private void capture(String externalId, boolean shouldRetry) {
+        // each capture reads the charge afresh rather than from what the pooled thread loaded before
+        unitOfWork.begin();
+        try {
+            if (shouldRetry) {
+                captureService.doCapture(externalId);
+            } else {
+                captureService.markChargeAsCaptureError(externalId);
+            }
+        } catch (Exception e) {
+            logger.error("Exception when running capture for [" + externalId + "]", e);
+            metricRegistry.counter("gateway-operations.capture-process.failures").inc();
+        } finally {
+            unitOfWork.end();
+        }
     }
 
     private void updateQueueSizeMetric(long newQueueSize) {
@@ -81,4 +209,9 @@ public class CardCaptureProcess {
     public long getQueueSize() {
         return queueSize;
     }
+
+    public void shutdown() {
+        drainExecutor.shutdown();
+        captureExecutors.values().forEach(ExecutorService::shutdown);
+    }
 }
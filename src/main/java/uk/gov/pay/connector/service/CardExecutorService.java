@@ -1,7 +1,6 @@
 package uk.gov.pay.connector.service;
 
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.tuple.Pair;
@@ -11,10 +10,13 @@ import uk.gov.pay.connector.app.ExecutorServiceConfig;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 
 import javax.ws.rs.WebApplicationException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
-import static java.lang.Runtime.getRuntime;
 import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.*;
 
 // this service runs the supplied function in a new Thread
@@ -26,22 +28,29 @@ public class CardExecutorService<T> {
 
     private ExecutorServiceConfig config;
     private ExecutorService executor;
+    private ExecutorService completionFallbackExecutor;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final Map<PaymentGatewayName, Semaphore> inFlightPermits = new EnumMap<>(PaymentGatewayName.class);
 
     public enum ExecutionStatus {
         COMPLETED,
         FAILED,
-        IN_PROGRESS
+        IN_PROGRESS,
+        REJECTED
     }
 
     @Inject
     public CardExecutorService(ConnectorConfiguration configuration, Environment environment) {
-        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat("CardExecutorService-%d")
-                .build();
         this.metricRegistry = environment.metrics();
         this.config = configuration.getExecutorServiceConfig();
-        int numberOfThreads = config.getThreadsPerCpu() * getRuntime().availableProcessors();
-        this.executor = Executors.newFixedThreadPool(numberOfThreads, threadFactory);
+        this.executor = ExecutorServiceFactory.newExecutorService(config, "CardExecutorService-", config.getMaximumQueueSize());
+        // not bounded by a queue limit, as there are never more completions than operations admitted in flight
+        this.completionFallbackExecutor = ExecutorServiceFactory.newExecutorService(config, "CardExecutorService-completion-");
+        if (config.getMaximumInFlightPerGateway() > 0) {
+            for (PaymentGatewayName gatewayName : PaymentGatewayName.values()) {
+                inFlightPermits.put(gatewayName, new Semaphore(config.getMaximumInFlightPerGateway()));
+            }
+        }
         addShutdownHook();
     }
 
@@ -55,13 +64,16 @@ public class CardExecutorService<T> {
                 String className = CardExecutorService.class.getSimpleName();
                 logger.info("Shutting down " + className);
                 executor.shutdown();
+                completionFallbackExecutor.shutdown();
                 logger.info("Awaiting for " + className + " threads to terminate");
                 try {
                     executor.awaitTermination(1, TimeUnit.SECONDS);
+                    completionFallbackExecutor.awaitTermination(1, TimeUnit.SECONDS);
                 } catch (InterruptedException e) {
                     logger.error("Error while waiting for " + className + " threads to terminate");
                 }
                 executor.shutdownNow();
+                completionFallbackExecutor.shutdownNow();
             }
         });
     }
@@ -70,22 +82,124 @@ public class CardExecutorService<T> {
         return executor;
     }
 
+    // number of tasks currently running, whatever the thread mode of the executor
+    public int getActiveTaskCount() {
+        return activeTasks.get();
+    }
+
     // accepts a supplier function and executed that in a separate Thread of its own.
+    // operations for a gateway that already has maximumInFlightPerGateway of them in flight, or that do not fit
+    // in the queue, are not started and come back REJECTED straight away.
     // returns a Pair of the execution status and the return type
-    public Pair<ExecutionStatus, T> execute(Supplier<T> callable) {
-        Callable<T> task = callable::get;
+    public Pair<ExecutionStatus, T> execute(PaymentGatewayName gatewayName, Supplier<T> callable) {
         final long startTime = System.currentTimeMillis();
 
-        Future<T> futureObject = executor.submit(() -> {
-            long totalWaitTime = System.currentTimeMillis() - startTime;
-            logger.debug("Card operation task spent {} ms in queue", totalWaitTime);
-            if (totalWaitTime > QUEUE_WAIT_WARN_THRESHOLD_MILLIS) {
-                logger.warn("CardExecutor Service delay - queue_wait_time={}", totalWaitTime);
+        Semaphore permits = gatewayName == null ? null : inFlightPermits.get(gatewayName);
+        if (permits != null && !permits.tryAcquire()) {
+            logger.warn("CardExecutor Service rejected operation - {} operations already in flight for gateway {}",
+                    config.getMaximumInFlightPerGateway(), gatewayName.getName());
+            metricRegistry.counter("card-executor." + gatewayName.getName() + ".rejected").inc();
+            return Pair.of(REJECTED, null);
+        }
+
+        Future<T> futureObject;
+        try {
+            futureObject = executor.submit(() -> {
+                recordQueueWaitTime(startTime);
+                if (gatewayName != null) {
+                    metricRegistry.histogram("card-executor." + gatewayName.getName() + ".delay").update(System.currentTimeMillis() - startTime);
+                }
+                activeTasks.incrementAndGet();
+                try {
+                    return callable.get();
+                } finally {
+                    activeTasks.decrementAndGet();
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("CardExecutor Service rejected operation - queue is full");
+            metricRegistry.counter("card-executor.queue-full").inc();
+            if (permits != null) {
+                permits.release();
             }
-            metricRegistry.histogram("card-executor.delay").update(totalWaitTime);
-            return task.call();
-        });
+            return Pair.of(REJECTED, null);
+        }
+
+        return awaitResult(futureObject);
+    }
+
+    // as execute, but the operation only starts the gateway call and returns a stage that completes with its result,
+    // so that no executor thread is held while the gateway responds. the completion then runs on the executor
+    // again. the operation counts towards maximumInFlightPerGateway until its completion has run.
+    // returns a Pair of the execution status and the return type
+    public <R> Pair<ExecutionStatus, T> executeAsync(PaymentGatewayName gatewayName, Supplier<CompletionStage<R>> operation, Function<R, T> completion) {
+        final long startTime = System.currentTimeMillis();
+
+        Semaphore permits = gatewayName == null ? null : inFlightPermits.get(gatewayName);
+        if (permits != null && !permits.tryAcquire()) {
+            logger.warn("CardExecutor Service rejected operation - {} operations already in flight for gateway {}",
+                    config.getMaximumInFlightPerGateway(), gatewayName.getName());
+            metricRegistry.counter("card-executor." + gatewayName.getName() + ".rejected").inc();
+            return Pair.of(REJECTED, null);
+        }
+
+        CompletableFuture<T> futureObject;
+        try {
+            futureObject = CompletableFuture.supplyAsync(() -> {
+                recordQueueWaitTime(startTime);
+                if (gatewayName != null) {
+                    metricRegistry.histogram("card-executor." + gatewayName.getName() + ".delay").update(System.currentTimeMillis() - startTime);
+                }
+                activeTasks.incrementAndGet();
+                try {
+                    return operation.get();
+                } finally {
+                    activeTasks.decrementAndGet();
+                }
+            }, executor)
+                    .thenCompose(stage -> stage)
+                    .thenApplyAsync(completion, this::executeCompletion);
+        } catch (RejectedExecutionException e) {
+            logger.warn("CardExecutor Service rejected operation - queue is full");
+            metricRegistry.counter("card-executor.queue-full").inc();
+            if (permits != null) {
+                permits.release();
+            }
+            return Pair.of(REJECTED, null);
+        }
+        if (permits != null) {
+            futureObject.whenComplete((result, failure) -> permits.release());
+        }
+
+        return awaitResult(futureObject);
+    }
+
+    // the gateway has already been called by the time a completion runs, so its result must not be dropped:
+    // when the queue is full the completion goes to a separate executor. it never runs on the thread that
+    // completed the gateway call, as that is an I/O reactor thread shared by every gateway response in flight
+    private void executeCompletion(Runnable completion) {
+        try {
+            executor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            logger.warn("CardExecutor Service queue is full - completing operation on the completion fallback executor");
+            metricRegistry.counter("card-executor.completion-queue-full").inc();
+            completionFallbackExecutor.execute(completion);
+        }
+    }
+
+    private void recordQueueWaitTime(long startTime) {
+        long totalWaitTime = System.currentTimeMillis() - startTime;
+        logger.debug("Card operation task spent {} ms in queue", totalWaitTime);
+        if (totalWaitTime > QUEUE_WAIT_WARN_THRESHOLD_MILLIS) {
+            logger.warn("CardExecutor Service delay - queue_wait_time={}", totalWaitTime);
+        }
+        metricRegistry.histogram("card-executor.delay").update(totalWaitTime);
+    }
 
+    private Pair<ExecutionStatus, T> awaitResult(Future<T> futureObject) {
         try {
             return Pair.of(COMPLETED, futureObject.get(config.getTimeoutInSeconds(), TimeUnit.SECONDS));
         } catch (ExecutionException | InterruptedException exception) {
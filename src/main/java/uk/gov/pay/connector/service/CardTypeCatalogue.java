@@ -0,0 +1,89 @@
+package uk.gov.pay.connector.service;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import uk.gov.pay.connector.dao.CardTypeDao;
+import uk.gov.pay.connector.model.domain.CardTypeEntity;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * In-memory view of the card types, which only change through seed data, so that charge responses and
+ * authorisations do not query the <code>card_types</code> table. Loaded on first use and again after
+ * {@link #invalidate()}.
+ */
+public class CardTypeCatalogue {
+
+    private final CardTypeDao cardTypeDao;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @Inject
+    public CardTypeCatalogue(CardTypeDao cardTypeDao) {
+        this.cardTypeDao = cardTypeDao;
+    }
+
+    /**
+     * @return the label of each brand; where a brand has both a credit and a debit card type, the label of the first
+     */
+    public Map<String, String> getLabelsByBrand() {
+        return snapshot().labelsByBrand;
+    }
+
+    public Optional<String> findLabel(String brand) {
+        if (brand == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot().labelsByBrand.get(brand));
+    }
+
+    public boolean requires3ds(String brand) {
+        return snapshot().brandsRequiring3ds.contains(brand);
+    }
+
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadingGeneration = generation.get();
+        Snapshot loaded = new Snapshot(cardTypeDao.findAll());
+        synchronized (this) {
+            // a snapshot loaded while being invalidated is used for this call only
+            if (generation.get() == loadingGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private static class Snapshot {
+        private final Map<String, String> labelsByBrand;
+        private final Set<String> brandsRequiring3ds;
+
+        private Snapshot(List<CardTypeEntity> cardTypes) {
+            Map<String, String> labels = new HashMap<>();
+            cardTypes.stream()
+                    .filter(cardType -> cardType.getLabel() != null)
+                    .forEach(cardType -> labels.putIfAbsent(cardType.getBrand(), cardType.getLabel()));
+            this.labelsByBrand = ImmutableMap.copyOf(labels);
+            this.brandsRequiring3ds = ImmutableSet.copyOf(cardTypes.stream()
+                    .filter(CardTypeEntity::isRequires3ds)
+                    .map(CardTypeEntity::getBrand)
+                    .collect(toSet()));
+        }
+    }
+}
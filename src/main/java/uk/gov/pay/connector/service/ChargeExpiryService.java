@@ -1,13 +1,23 @@
 package uk.gov.pay.connector.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Provider;
+import com.google.inject.persist.UnitOfWork;
+import io.dropwizard.setup.Environment;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ChargeSweepConfig;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeEventDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
 import uk.gov.pay.connector.exception.ChargeNotFoundRuntimeException;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
@@ -17,9 +27,14 @@ import uk.gov.pay.connector.service.transaction.TransactionFlow;
 import uk.gov.pay.connector.service.transaction.TransactionalOperation;
 
 import javax.inject.Inject;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -40,6 +55,9 @@ public class ChargeExpiryService {
 
     private static final String EXPIRY_SUCCESS = "expiry-success";
     private static final String EXPIRY_FAILED = "expiry-failed";
+    private static final String CANCEL_EXECUTOR_NAME = "charge-expiry-cancel-%d";
+    private static final String CHARGE_EXPIRY_WINDOW = "CHARGE_EXPIRY_WINDOW_SECONDS";
+    private static final int ONE_HOUR = 3600;
 
     public static final List<ChargeStatus> EXPIRABLE_STATUSES = ImmutableList.of(
             CREATED,
@@ -52,18 +70,180 @@ public class ChargeExpiryService {
     private final PaymentProviders providers;
     private final Provider<TransactionFlow> transactionFlowProvider;
     private final ChargeStatusUpdater chargeStatusUpdater;
+    private final PaymentStatisticsDao paymentStatisticsDao;
+    private final ChargeSweepConfig sweepConfig;
+    private final ExecutorService cancelExecutor;
+    private final UnitOfWork unitOfWork;
+    private final Meter sweptChargesMeter;
+    private final Counter expiredChargesCounter;
+    private final Counter failedChargesCounter;
+    private final Timer sweepTimer;
 
     @Inject
     public ChargeExpiryService(ChargeDao chargeDao,
                                ChargeEventDao chargeEventDao,
                                PaymentProviders providers,
                                Provider<TransactionFlow> transactionFlowProvider,
-                               ChargeStatusUpdater chargeStatusUpdater) {
+                               ChargeStatusUpdater chargeStatusUpdater,
+                               PaymentStatisticsDao paymentStatisticsDao,
+                               ConnectorConfiguration configuration,
+                               Environment environment,
+                               UnitOfWork unitOfWork) {
+        this(chargeDao, chargeEventDao, providers, transactionFlowProvider, chargeStatusUpdater, paymentStatisticsDao,
+                configuration.getChargeSweepConfig(),
+                environment.lifecycle()
+                        .executorService(CANCEL_EXECUTOR_NAME)
+                        .minThreads(configuration.getChargeSweepConfig().getExpiryCancelConcurrency())
+                        .maxThreads(configuration.getChargeSweepConfig().getExpiryCancelConcurrency())
+                        .build(),
+                unitOfWork, environment.metrics());
+    }
+
+    ChargeExpiryService(ChargeDao chargeDao,
+                        ChargeEventDao chargeEventDao,
+                        PaymentProviders providers,
+                        Provider<TransactionFlow> transactionFlowProvider,
+                        ChargeStatusUpdater chargeStatusUpdater,
+                        PaymentStatisticsDao paymentStatisticsDao,
+                        ChargeSweepConfig sweepConfig,
+                        ExecutorService cancelExecutor,
+                        UnitOfWork unitOfWork,
+                        MetricRegistry metricRegistry) {
         this.chargeDao = chargeDao;
         this.chargeEventDao = chargeEventDao;
         this.providers = providers;
         this.transactionFlowProvider = transactionFlowProvider;
         this.chargeStatusUpdater = chargeStatusUpdater;
+        this.paymentStatisticsDao = paymentStatisticsDao;
+        this.sweepConfig = sweepConfig;
+        this.cancelExecutor = cancelExecutor;
+        this.unitOfWork = unitOfWork;
+        this.sweptChargesMeter = metricRegistry.meter("expiry-sweep.charges.swept");
+        this.expiredChargesCounter = metricRegistry.counter("expiry-sweep.charges.expired");
+        this.failedChargesCounter = metricRegistry.counter("expiry-sweep.charges.failed");
+        this.sweepTimer = metricRegistry.timer("expiry-sweep.duration");
+    }
+
+    /**
+     * Expires every expirable charge created before {@code expiredBefore}, walking the candidates in id order
+     * one chunk at a time so that neither memory nor any single database transaction grows with the backlog.
+     * Progress and throughput are published as the <code>expiry-sweep.*</code> metrics.
+     */
+    public Map<String, Integer> sweep(ZonedDateTime expiredBefore) {
+        return sweep(expiredBefore, Integer.MAX_VALUE, () -> true);
+    }
+
+    /**
+     * Like {@link #sweep(ZonedDateTime)}, but stops once {@code maximumCharges} charges have been swept, or
+     * before the next chunk once {@code keepSweeping} turns false.
+     */
+    public Map<String, Integer> sweep(ZonedDateTime expiredBefore, int maximumCharges, BooleanSupplier keepSweeping) {
+        SweepResult result = sweepAfter(expiredBefore, 0, maximumCharges, keepSweeping);
+        return ImmutableMap.of(EXPIRY_SUCCESS, result.getExpired(), EXPIRY_FAILED, result.getFailed());
+    }
+
+    /**
+     * Like {@link #sweep(ZonedDateTime, int, BooleanSupplier)}, but only sweeps charges with an id above
+     * {@code afterId}, so that a sweep cut short can carry on where it stopped rather than walk the charges
+     * that could not be expired again.
+     */
+    public SweepResult sweepAfter(ZonedDateTime expiredBefore, long afterId, int maximumCharges, BooleanSupplier keepSweeping) {
+        int chunkSize = Math.max(1, sweepConfig.getExpiryChunkSize());
+        int expired = 0;
+        int failed = 0;
+        int swept = 0;
+        boolean finished = false;
+
+        try (Timer.Context ignored = sweepTimer.time()) {
+            while (swept < maximumCharges) {
+                if (!keepSweeping.getAsBoolean()) {
+                    logger.warn("Expiry sweep stopped before it finished - number_of_charges_swept={}, up_to_charge_id={}", swept, afterId);
+                    break;
+                }
+                int limit = Math.min(chunkSize, maximumCharges - swept);
+                List<ChargeEntity> chunk = chargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, afterId, limit);
+                if (chunk.isEmpty()) {
+                    finished = true;
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+
+                Map<String, Integer> result = expire(chunk);
+                expired += result.get(EXPIRY_SUCCESS);
+                failed += result.get(EXPIRY_FAILED);
+                swept += chunk.size();
+                sweptChargesMeter.mark(chunk.size());
+                logger.info("Expiry sweep progress - number_of_charges_swept={}, expired={}, failed={}, up_to_charge_id={}",
+                        swept, expired, failed, afterId);
+
+                // the charges of a finished chunk are not needed any more, don't keep them in the persistence context
+                restartUnitOfWork();
+
+                if (chunk.size() < limit) {
+                    finished = true;
+                    break;
+                }
+            }
+        }
+
+        logger.info("Expiry sweep finished - number_of_charges={}, since_date={}, expired={}, failed={}", swept, expiredBefore, expired, failed);
+        return new SweepResult(expired, failed, swept, afterId, finished);
+    }
+
+    public static class SweepResult {
+        private final int expired;
+        private final int failed;
+        private final int swept;
+        private final long lastSweptId;
+        private final boolean finished;
+
+        SweepResult(int expired, int failed, int swept, long lastSweptId, boolean finished) {
+            this.expired = expired;
+            this.failed = failed;
+            this.swept = swept;
+            this.lastSweptId = lastSweptId;
+            this.finished = finished;
+        }
+
+        public int getExpired() {
+            return expired;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getSwept() {
+            return swept;
+        }
+
+        /**
+         * @return the id of the last charge swept, or the id the sweep started after if it swept none
+         */
+        public long getLastSweptId() {
+            return lastSweptId;
+        }
+
+        /**
+         * @return whether the sweep reached the last expirable charge, rather than stopping at its maximum or
+         * when told to
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+
+    /**
+     * Charges created before this date are expired. The window defaults to one hour and can be changed
+     * with the <code>CHARGE_EXPIRY_WINDOW_SECONDS</code> environment variable.
+     */
+    public ZonedDateTime getExpiryDate() {
+        int chargeExpiryWindowSeconds = ONE_HOUR;
+        if (StringUtils.isNotBlank(System.getenv(CHARGE_EXPIRY_WINDOW))) {
+            chargeExpiryWindowSeconds = Integer.parseInt(System.getenv(CHARGE_EXPIRY_WINDOW));
+        }
+        logger.debug("Charge expiry window size in seconds: " + chargeExpiryWindowSeconds);
+        return ZonedDateTime.now().minusSeconds(chargeExpiryWindowSeconds);
     }
 
     public Map<String, Integer> expire(List<ChargeEntity> charges) {
@@ -75,19 +255,61 @@ public class ChargeExpiryService {
         int expiredSuccess = expireChargesWithCancellationNotRequired(chargesToProcessExpiry.get(Boolean.FALSE));
         Pair<Integer, Integer> expireWithCancellationResult = expireChargesWithGatewayCancellation(chargesToProcessExpiry.get(Boolean.TRUE));
 
+        int expiredFailed = expireWithCancellationResult.getRight() + (chargesToProcessExpiry.get(Boolean.FALSE).size() - expiredSuccess);
+        expiredChargesCounter.inc(expiredSuccess + expireWithCancellationResult.getLeft());
+        failedChargesCounter.inc(expiredFailed);
+
         return ImmutableMap.of(EXPIRY_SUCCESS, expiredSuccess + expireWithCancellationResult.getLeft(),
-                EXPIRY_FAILED, expireWithCancellationResult.getRight());
+                EXPIRY_FAILED, expiredFailed);
     }
 
+    /**
+     * Expires the charges in one database transaction. If that fails, e.g. because one of them changed status
+     * in the meantime, the transaction is rolled back and the charges are expired one transaction at a time.
+     * <p>
+     * The payment statistics rows of the charges are adjusted once each at the end of the transaction, in
+     * lock order, rather than once per charge as it expires. The rows stay locked only for the moment before
+     * the commit, so charges being created for the same accounts meanwhile are not held up by the chunk.
+     */
     private int expireChargesWithCancellationNotRequired(List<ChargeEntity> nonAuthSuccessCharges) {
-        List<ChargeEntity> processedEntities = nonAuthSuccessCharges
-                .stream().map(chargeEntity -> transactionFlowProvider.get()
+        if (nonAuthSuccessCharges.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionFlowProvider.get()
+                    .executeNext(expireAll(nonAuthSuccessCharges))
+                    .complete();
+            return nonAuthSuccessCharges.size();
+        } catch (RuntimeException e) {
+            logger.warn("Expiring {} charges in one transaction failed, expiring them one at a time: {}", nonAuthSuccessCharges.size(), e.getMessage());
+        }
+
+        // the rolled back transaction leaves its changes on the cached entities, so read them again
+        restartUnitOfWork();
+
+        int expired = 0;
+        for (ChargeEntity chargeEntity : nonAuthSuccessCharges) {
+            try {
+                transactionFlowProvider.get()
                         .executeNext(changeStatusTo(chargeDao, chargeEventDao, chargeEntity.getExternalId(), EXPIRED, Optional.empty(), chargeStatusUpdater))
-                        .complete()
-                        .get(ChargeEntity.class))
-                .collect(Collectors.toList());
+                        .complete();
+                expired++;
+            } catch (RuntimeException e) {
+                logger.error("Failed to expire charge - charge_external_id={}: {}", chargeEntity.getExternalId(), e.getMessage());
+            }
+        }
+        return expired;
+    }
 
-        return processedEntities.size();
+    private TransactionalOperation<TransactionContext, Integer> expireAll(List<ChargeEntity> charges) {
+        return context -> paymentStatisticsDao.batchAdjustments(() -> {
+            for (ChargeEntity chargeEntity : charges) {
+                changeStatusTo(chargeDao, chargeEventDao, chargeEntity.getExternalId(), EXPIRED, Optional.empty(), chargeStatusUpdater)
+                        .execute(context);
+            }
+            return charges.size();
+        });
     }
 
     private Pair<Integer, Integer> expireChargesWithGatewayCancellation(List<ChargeEntity> gatewayAuthorizedCharges) {
@@ -96,12 +318,25 @@ public class ChargeExpiryService {
         final List<ChargeEntity> expireCancelFailed = newArrayList();
         final List<ChargeEntity> unexpectedStatuses = newArrayList();
 
-        gatewayAuthorizedCharges.forEach(chargeEntity -> {
-            ChargeEntity processedEntity = transactionFlowProvider.get()
-                    .executeNext(prepareForTerminate(chargeDao, chargeEventDao, chargeEntity.getExternalId(), EXPIRE_FLOW, chargeStatusUpdater))
-                    .executeNext(doGatewayCancel(providers))
-                    .executeNext(finishExpireCancel())
-                    .complete().get(ChargeEntity.class);
+        // gateway cancels are the slow part of a sweep, so up to expiryCancelConcurrency of them run at a time
+        List<Future<ChargeEntity>> cancellations = gatewayAuthorizedCharges.stream()
+                .map(chargeEntity -> cancelExecutor.submit(() -> expireWithGatewayCancellation(chargeEntity)))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < cancellations.size(); i++) {
+            ChargeEntity chargeEntity = gatewayAuthorizedCharges.get(i);
+            ChargeEntity processedEntity;
+            try {
+                processedEntity = cancellations.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while expiring charges", e);
+            } catch (ExecutionException e) {
+                logger.error("Failed to expire charge with gateway cancellation - charge_external_id={}: {}",
+                        chargeEntity.getExternalId(), e.getCause().getMessage());
+                expireCancelFailed.add(chargeEntity);
+                continue;
+            }
 
             if (processedEntity == null) {
                 //this shouldn't happen, but don't break the expiry job
@@ -116,7 +351,7 @@ public class ChargeExpiryService {
                     unexpectedStatuses.add(processedEntity); //this shouldn't happen, but still don't break the expiry job
                 }
             }
-        });
+        }
 
         unexpectedStatuses.forEach(chargeEntity ->
                 logger.error("ChargeEntity returned with unexpected status during expiry - charge_external_id={}, status={}",
@@ -129,6 +364,25 @@ public class ChargeExpiryService {
         );
     }
 
+    private ChargeEntity expireWithGatewayCancellation(ChargeEntity chargeEntity) {
+        // each cancellation reads the charge afresh rather than from what the worker thread loaded before
+        unitOfWork.begin();
+        try {
+            return transactionFlowProvider.get()
+                    .executeNext(prepareForTerminate(chargeDao, chargeEventDao, chargeEntity.getExternalId(), EXPIRE_FLOW, chargeStatusUpdater))
+                    .executeNext(doGatewayCancel(providers))
+                    .executeNext(finishExpireCancel())
+                    .complete().get(ChargeEntity.class);
+        } finally {
+            unitOfWork.end();
+        }
+    }
+
+    private void restartUnitOfWork() {
+        unitOfWork.end();
+        unitOfWork.begin();
+    }
+
     private ChargeStatus determineTerminalState(ChargeEntity chargeEntity, GatewayResponse<BaseCancelResponse> cancelResponse, StatusFlow statusFlow) {
         if (!cancelResponse.isSuccessful()) {
             logUnsuccessfulResponseReasons(chargeEntity, cancelResponse);
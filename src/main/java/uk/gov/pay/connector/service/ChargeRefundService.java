@@ -169,7 +169,11 @@ public class ChargeRefundService {
         refundDao.persist(refundEntity);
 
         Optional<PaymentRequestEntity> paymentRequestOptional = paymentRequestDao.findByExternalId(charge.getExternalId());
-        paymentRequestOptional.ifPresent(paymentRequest -> paymentRequest.addTransaction(RefundTransactionEntity.from(refundEntity)));
+        paymentRequestOptional.ifPresent(paymentRequest -> {
+            RefundTransactionEntity refundTransaction = RefundTransactionEntity.from(refundEntity);
+            paymentRequest.addTransaction(refundTransaction);
+            refundStatusUpdater.recordNewRefundTransaction(refundTransaction);
+        });
 
         return refundEntity;
     }
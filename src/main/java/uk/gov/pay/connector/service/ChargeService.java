@@ -3,7 +3,6 @@ package uk.gov.pay.connector.service;
 import com.google.inject.persist.Transactional;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.LinksConfig;
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeEventDao;
 import uk.gov.pay.connector.dao.GatewayAccountDao;
@@ -14,7 +13,6 @@ import uk.gov.pay.connector.model.api.ExternalChargeState;
 import uk.gov.pay.connector.model.api.ExternalTransactionState;
 import uk.gov.pay.connector.model.builder.AbstractChargeResponseBuilder;
 import uk.gov.pay.connector.model.builder.PatchRequestBuilder;
-import uk.gov.pay.connector.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.PaymentRequestEntity;
@@ -32,6 +30,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static javax.ws.rs.HttpMethod.GET;
@@ -48,7 +47,7 @@ public class ChargeService {
 
     private final ChargeDao chargeDao;
     private final ChargeEventDao chargeEventDao;
-    private final CardTypeDao cardTypeDao;
+    private final CardTypeCatalogue cardTypeCatalogue;
     private final TokenDao tokenDao;
     private final GatewayAccountDao gatewayAccountDao;
     private final LinksConfig linksConfig;
@@ -58,14 +57,14 @@ public class ChargeService {
 
     @Inject
     public ChargeService(TokenDao tokenDao, ChargeDao chargeDao, ChargeEventDao chargeEventDao,
-                         CardTypeDao cardTypeDao, GatewayAccountDao gatewayAccountDao,
+                         CardTypeCatalogue cardTypeCatalogue, GatewayAccountDao gatewayAccountDao,
                          ConnectorConfiguration config, PaymentProviders providers,
                          PaymentRequestDao paymentRequestDao,
                          ChargeStatusUpdater chargeStatusUpdater) {
         this.tokenDao = tokenDao;
         this.chargeDao = chargeDao;
         this.chargeEventDao = chargeEventDao;
-        this.cardTypeDao = cardTypeDao;
+        this.cardTypeCatalogue = cardTypeCatalogue;
         this.gatewayAccountDao = gatewayAccountDao;
         this.linksConfig = config.getLinks();
         this.providers = providers;
@@ -88,6 +87,7 @@ public class ChargeService {
             PaymentRequestEntity paymentRequestEntity =
                     PaymentRequestEntity.from(chargeEntity, ChargeTransactionEntity.from(chargeEntity));
             paymentRequestDao.persist(paymentRequestEntity);
+            chargeStatusUpdater.recordNewChargeTransaction(paymentRequestEntity.getChargeTransaction());
 
             //todo: create a TransactionEventEntity here in future stories
 
@@ -136,6 +136,26 @@ public class ChargeService {
     }
 
     public <T extends AbstractChargeResponseBuilder<T, R>, R> AbstractChargeResponseBuilder<T, R> populateResponseBuilderWith(AbstractChargeResponseBuilder<T, R> responseBuilder, UriInfo uriInfo, ChargeEntity chargeEntity) {
+        Optional<TokenEntity> unusedToken = isFinished(chargeEntity) ? Optional.empty() : tokenDao.findByChargeId(chargeEntity.getId());
+        return populateResponseBuilderWith(responseBuilder, uriInfo, chargeEntity, unusedToken);
+    }
+
+    /**
+     * The unused tokens of the unfinished charges among the given ones, by charge id, looked up in one query
+     * so that building the responses of a page of charges does not cost a query per charge.
+     */
+    public Map<Long, TokenEntity> findUnusedTokensFor(List<ChargeEntity> chargeEntities) {
+        return tokenDao.findByChargeIds(chargeEntities.stream()
+                .filter(chargeEntity -> !isFinished(chargeEntity))
+                .map(ChargeEntity::getId)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @param unusedToken the unused token of the charge, if it has one; a new one is issued if an unfinished charge has none
+     */
+    public <T extends AbstractChargeResponseBuilder<T, R>, R> AbstractChargeResponseBuilder<T, R> populateResponseBuilderWith(AbstractChargeResponseBuilder<T, R> responseBuilder, UriInfo uriInfo, ChargeEntity chargeEntity,
+                                                                                                                             Optional<TokenEntity> unusedToken) {
         String chargeId = chargeEntity.getExternalId();
         PersistedCard persistedCard = null;
         if (chargeEntity.getCardDetails() != null) {
@@ -169,8 +189,9 @@ public class ChargeService {
                 .withLink("self", GET, selfUriFor(uriInfo, chargeEntity.getGatewayAccount().getId(), chargeId))
                 .withLink("refunds", GET, refundsUriFor(uriInfo, chargeEntity.getGatewayAccount().getId(), chargeEntity.getExternalId()));
 
-        if (!ChargeStatus.fromString(chargeEntity.getStatus()).toExternal().isFinished()) {
-            TokenEntity token = createNewChargeEntityToken(chargeEntity);
+        if (!isFinished(chargeEntity)) {
+            // a token is deleted once used, so one that is still there can be handed out again
+            TokenEntity token = unusedToken.orElseGet(() -> createChargeEntityToken(chargeEntity));
             return reponseBuilder
                     .withLink("next_url", GET, nextUrl(token.getToken()))
                     .withLink("next_url_post", POST, nextUrl(), APPLICATION_FORM_URLENCODED, new HashMap<String, Object>() {{
@@ -181,21 +202,18 @@ public class ChargeService {
         return reponseBuilder;
     }
 
-    private TokenEntity createNewChargeEntityToken(ChargeEntity chargeEntity) {
+    private TokenEntity createChargeEntityToken(ChargeEntity chargeEntity) {
         TokenEntity token = TokenEntity.generateNewTokenFor(chargeEntity);
         tokenDao.persist(token);
         return token;
     }
 
-    private Optional<String> findCardBrandLabel(String cardBrand) {
-        if (cardBrand == null) {
-            return Optional.empty();
-        }
+    private boolean isFinished(ChargeEntity chargeEntity) {
+        return ChargeStatus.fromString(chargeEntity.getStatus()).toExternal().isFinished();
+    }
 
-        return cardTypeDao.findByBrand(cardBrand)
-                .stream()
-                .findFirst()
-                .map(CardTypeEntity::getLabel);
+    private Optional<String> findCardBrandLabel(String cardBrand) {
+        return cardTypeCatalogue.findLabel(cardBrand);
     }
 
     private ChargeResponse.RefundSummary buildRefundSummary(ChargeEntity charge) {
@@ -4,7 +4,10 @@ import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.dao.PaymentRequestDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
+import uk.gov.pay.connector.model.domain.CardEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
+import uk.gov.pay.connector.model.domain.PaymentStatisticsKey;
 import uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEntity;
 
 import javax.inject.Inject;
@@ -16,10 +19,22 @@ public class ChargeStatusUpdater {
     private static final Logger logger = LoggerFactory.getLogger(ChargeStatusUpdater.class);
 
     private final PaymentRequestDao paymentRequestDao;
+    private final PaymentStatisticsDao paymentStatisticsDao;
 
     @Inject
-    public ChargeStatusUpdater(PaymentRequestDao paymentRequestDao) {
+    public ChargeStatusUpdater(PaymentRequestDao paymentRequestDao, PaymentStatisticsDao paymentStatisticsDao) {
         this.paymentRequestDao = paymentRequestDao;
+        this.paymentStatisticsDao = paymentStatisticsDao;
+    }
+
+    public void recordNewChargeTransaction(ChargeTransactionEntity chargeTransaction) {
+        paymentStatisticsDao.add(PaymentStatisticsKey.of(chargeTransaction), chargeTransaction.getAmount());
+    }
+
+    public void updateCard(ChargeTransactionEntity chargeTransaction, CardEntity card) {
+        PaymentStatisticsKey previousKey = PaymentStatisticsKey.of(chargeTransaction);
+        chargeTransaction.setCard(card);
+        paymentStatisticsDao.move(previousKey, PaymentStatisticsKey.of(chargeTransaction), chargeTransaction.getAmount());
     }
 
     public void updateChargeTransactionStatus(String externalId, ChargeStatus newChargeStatus, ZonedDateTime gatewayEventTime) {
@@ -46,7 +61,9 @@ public class ChargeStatusUpdater {
                         chargeTransaction.getStatus().getValue(),
                         newChargeStatus.getValue()
                 );
+                PaymentStatisticsKey previousKey = PaymentStatisticsKey.of(chargeTransaction);
                 updateStatusFunction.accept(chargeTransaction);
+                paymentStatisticsDao.move(previousKey, PaymentStatisticsKey.of(chargeTransaction), chargeTransaction.getAmount());
             } else {
                 logger.info("Not updating transaction status for externalId [{}] to [{}] charge transaction not found",
                         externalId,
@@ -2,18 +2,28 @@ package uk.gov.pay.connector.service;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.httpclient.InstrumentedHttpClientConnectionManager;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.dropwizard.client.JerseyClientBuilder;
 import io.dropwizard.client.JerseyClientConfiguration;
 import io.dropwizard.client.proxy.ProxyConfiguration;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.NoConnectionReuseStrategy;
 import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.glassfish.jersey.SslConfigurator;
 import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
@@ -59,6 +69,62 @@ public class ClientFactory {
         return client;
     }
 
+    /**
+     * Builds a non-blocking client for the gateway operation, with the same timeouts, TLS settings and proxy as
+     * {@link #createWithDropwizardClient(PaymentGatewayName, GatewayOperation, MetricRegistry)}.
+     * Requests are multiplexed over a small, fixed number of I/O reactor threads, so a request waiting on a slow
+     * gateway holds no thread. The client is started here and closed when the application stops.
+     */
+    public CloseableHttpAsyncClient createAsyncClient(PaymentGatewayName gateway, GatewayOperation operation) {
+        JerseyClientConfiguration clientConfiguration = conf.getClientConfiguration();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) clientConfiguration.getConnectionTimeout().toMilliseconds())
+                .setConnectionRequestTimeout((int) clientConfiguration.getConnectionRequestTimeout().toMilliseconds())
+                .setSocketTimeout(getReadTimeoutInMillis(operation, gateway))
+                .setCookieSpec(CookieSpecs.IGNORE_COOKIES)
+                .build();
+
+        HttpAsyncClientBuilder asyncClientBuilder = HttpAsyncClients.custom()
+                .setDefaultRequestConfig(requestConfig)
+                .setSSLStrategy(new SSLIOSessionStrategy(
+                        SslConfigurator
+                                .newInstance()
+                                .trustStore(TrustStoreLoader.getTrustStore())
+                                .createSSLContext(),
+                        new String[] { "TLSv1.2" },
+                        null,
+                        (HostnameVerifier) null
+                ))
+                .setMaxConnTotal(clientConfiguration.getMaxConnections())
+                .setMaxConnPerRoute(clientConfiguration.getMaxConnectionsPerRoute())
+                .setThreadFactory(new ThreadFactoryBuilder()
+                        .setNameFormat(format("%s-%s-io-%%d", gateway.getName(), operation.getConfigKey()))
+                        .build());
+
+        if (clientConfiguration.getKeepAlive().toMilliseconds() == 0) {
+            asyncClientBuilder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+
+        if (conf.getCustomJerseyClient().isProxyEnabled()) {
+            ProxyConfiguration proxyConfig = clientConfiguration.getProxyConfiguration();
+            asyncClientBuilder.setProxy(new HttpHost(proxyConfig.getHost(), proxyConfig.getPort(), proxyConfig.getScheme()));
+        }
+
+        CloseableHttpAsyncClient asyncClient = asyncClientBuilder.build();
+        asyncClient.start();
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() throws Exception {
+                asyncClient.close();
+            }
+        });
+        return asyncClient;
+    }
+
     private int getReadTimeoutInMillis(GatewayOperation operation, PaymentGatewayName gateway) {
         OperationOverrides overrides = getOverridesFor(operation, gateway);
         if (overrides != null && overrides.getReadTimeout() != null) {
@@ -0,0 +1,72 @@
+package uk.gov.pay.connector.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ExecutorServiceConfig;
+import uk.gov.pay.connector.app.ExecutorServiceConfig.ThreadMode;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Runtime.getRuntime;
+
+/**
+ * Builds the executors for work that mostly blocks on I/O (gateway and Notify calls) in the thread mode
+ * set in {@link ExecutorServiceConfig}.
+ * <p>
+ * Virtual threads are looked up reflectively, as the connector is still built for Java 8; when they are not
+ * available the fixed platform thread pool is used instead.
+ */
+public class ExecutorServiceFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorServiceFactory.class);
+
+    private ExecutorServiceFactory() {
+    }
+
+    /**
+     * @param namePrefix prefix of the names of the threads, followed by a sequence number
+     */
+    public static ExecutorService newExecutorService(ExecutorServiceConfig config, String namePrefix) {
+        return newExecutorService(config, namePrefix, 0);
+    }
+
+    /**
+     * @param namePrefix       prefix of the names of the threads, followed by a sequence number
+     * @param maximumQueueSize number of tasks a fixed thread pool queues before rejecting new ones with a
+     *                         {@link java.util.concurrent.RejectedExecutionException}, or 0 for no limit.
+     *                         Virtual threads are never queued.
+     */
+    public static ExecutorService newExecutorService(ExecutorServiceConfig config, String namePrefix, int maximumQueueSize) {
+        if (config.getThreadMode() == ThreadMode.VIRTUAL) {
+            try {
+                return newVirtualThreadPerTaskExecutor(namePrefix);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads are not available on Java {}, using a fixed thread pool for {}",
+                        System.getProperty("java.version"), namePrefix);
+            }
+        }
+        int numberOfThreads = config.getThreadsPerCpu() * getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue = maximumQueueSize > 0 ? new ArrayBlockingQueue<>(maximumQueueSize) : new LinkedBlockingQueue<>();
+        return new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS, queue, new ThreadFactoryBuilder()
+                .setNameFormat(namePrefix + "%d")
+                .build());
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) throws ReflectiveOperationException {
+        Class<?> threadBuilderClass = Class.forName("java.lang.Thread$Builder");
+        Object virtualThreadBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+        virtualThreadBuilder = threadBuilderClass.getMethod("name", String.class, long.class).invoke(virtualThreadBuilder, namePrefix, 0L);
+        ThreadFactory threadFactory = (ThreadFactory) threadBuilderClass.getMethod("factory").invoke(virtualThreadBuilder);
+        Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+    }
+}
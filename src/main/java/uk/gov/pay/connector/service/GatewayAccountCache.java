@@ -0,0 +1,153 @@
+package uk.gov.pay.connector.service;
+
+import com.google.inject.Provider;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.GatewayAccountCacheConfig;
+import uk.gov.pay.connector.dao.GatewayAccountDao;
+import uk.gov.pay.connector.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.model.domain.NotificationCredentials;
+import uk.gov.pay.connector.service.transaction.TransactionContext;
+import uk.gov.pay.connector.service.transaction.TransactionFlow;
+import uk.gov.pay.connector.service.transaction.TransactionalOperation;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Gateway accounts, with their accepted card types, email notification and notify settings, for requests that only
+ * read them. Every call returns a detached copy, so callers may change it freely but changes to it are not saved:
+ * anything that modifies an account must load it through {@link GatewayAccountDao} inside {@link #update(Long, Supplier)},
+ * which invalidates the account once the change has been committed. Invalidating it any earlier would let a request
+ * reading the account before the commit cache the old one again.
+ * <p>
+ * Entries expire after {@link GatewayAccountCacheConfig#getExpireAfterAsJavaDuration()}, which bounds how long
+ * changes made through another connector node, or committed while an entry was being reloaded, go unseen here.
+ */
+public class GatewayAccountCache {
+
+    private final GatewayAccountDao gatewayAccountDao;
+    private final Provider<TransactionFlow> transactionFlowProvider;
+    private final Duration expireAfter;
+    private final Clock clock;
+    private final ConcurrentMap<Long, Entry> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Inject
+    public GatewayAccountCache(GatewayAccountDao gatewayAccountDao, Provider<TransactionFlow> transactionFlowProvider,
+                               ConnectorConfiguration configuration) {
+        this(gatewayAccountDao, transactionFlowProvider, configuration.getGatewayAccountCacheConfig(), Clock.systemUTC());
+    }
+
+    GatewayAccountCache(GatewayAccountDao gatewayAccountDao, Provider<TransactionFlow> transactionFlowProvider,
+                        GatewayAccountCacheConfig config, Clock clock) {
+        this.gatewayAccountDao = gatewayAccountDao;
+        this.transactionFlowProvider = transactionFlowProvider;
+        this.expireAfter = config.getExpireAfterAsJavaDuration();
+        this.clock = clock;
+    }
+
+    public Optional<GatewayAccountEntity> findById(Long accountId) {
+        Entry entry = accounts.get(accountId);
+        if (entry != null && clock.instant().isBefore(entry.expiresAt)) {
+            return Optional.of(copyOf(entry.account));
+        }
+
+        long loadingGeneration = generation.get();
+        Optional<GatewayAccountEntity> loaded = gatewayAccountDao.findById(accountId).map(GatewayAccountCache::copyOf);
+        // unknown accounts are not cached, so an account is found as soon as it has been created
+        if (loaded.isPresent() && !expireAfter.isZero()) {
+            synchronized (this) {
+                // an account loaded while being invalidated is used for this call only
+                if (generation.get() == loadingGeneration) {
+                    accounts.put(accountId, new Entry(loaded.get(), clock.instant().plus(expireAfter)));
+                }
+            }
+        }
+        return loaded.map(GatewayAccountCache::copyOf);
+    }
+
+    public boolean exists(Long accountId) {
+        return findById(accountId).isPresent();
+    }
+
+    /**
+     * Runs {@code change} to the account in a transaction of its own, then invalidates the account.
+     *
+     * @return what {@code change} returned
+     */
+    public <T> T update(Long accountId, Supplier<T> change) {
+        AtomicReference<T> result = new AtomicReference<>();
+        transactionFlowProvider.get()
+                .executeNext((TransactionalOperation<TransactionContext, Void>) context -> {
+                    result.set(change.get());
+                    return null;
+                });
+        invalidate(accountId);
+        return result.get();
+    }
+
+    public synchronized void invalidate(Long accountId) {
+        generation.incrementAndGet();
+        accounts.remove(accountId);
+    }
+
+    static GatewayAccountEntity copyOf(GatewayAccountEntity account) {
+        GatewayAccountEntity copy = new GatewayAccountEntity(account.getGatewayName(), copyOf(account.getCredentials()),
+                GatewayAccountEntity.Type.fromString(account.getType()));
+        copy.setId(account.getId());
+        copy.setVersion(account.getVersion());
+        copy.setServiceName(account.getServiceName());
+        copy.setDescription(account.getDescription());
+        copy.setAnalyticsId(account.getAnalyticsId());
+        copy.setRequires3ds(account.isRequires3ds());
+        copy.setNotifySettings(copyOf(account.getNotifySettings()));
+        // card types are reference data and never changed through an account
+        copy.setCardTypes(new ArrayList<>(account.getCardTypes()));
+
+        EmailNotificationEntity emailNotification = account.getEmailNotification();
+        if (emailNotification != null) {
+            EmailNotificationEntity emailNotificationCopy = new EmailNotificationEntity(copy, emailNotification.getTemplateBody());
+            emailNotificationCopy.setId(emailNotification.getId());
+            emailNotificationCopy.setVersion(emailNotification.getVersion());
+            emailNotificationCopy.setEnabled(emailNotification.isEnabled());
+            copy.setEmailNotification(emailNotificationCopy);
+        }
+
+        NotificationCredentials notificationCredentials = account.getNotificationCredentials();
+        if (notificationCredentials != null) {
+            NotificationCredentials notificationCredentialsCopy = new NotificationCredentials(copy);
+            notificationCredentialsCopy.setId(notificationCredentials.getId());
+            notificationCredentialsCopy.setVersion(notificationCredentials.getVersion());
+            notificationCredentialsCopy.setUserName(notificationCredentials.getUserName());
+            notificationCredentialsCopy.setPassword(notificationCredentials.getPassword());
+            copy.setNotificationCredentials(notificationCredentialsCopy);
+        }
+        return copy;
+    }
+
+    private static Map<String, String> copyOf(Map<String, String> map) {
+        return map == null ? null : new HashMap<>(map);
+    }
+
+    private static class Entry {
+        private final GatewayAccountEntity account;
+        private final Instant expiresAt;
+
+        private Entry(GatewayAccountEntity account, Instant expiresAt) {
+            this.account = account;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
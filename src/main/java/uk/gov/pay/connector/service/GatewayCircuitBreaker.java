@@ -0,0 +1,177 @@
+package uk.gov.pay.connector.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import fj.data.Either;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.CircuitBreakerConfig;
+import uk.gov.pay.connector.model.GatewayError;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Semaphore;
+
+import static fj.data.Either.left;
+import static fj.data.Either.right;
+import static uk.gov.pay.connector.model.GatewayError.gatewayUnavailable;
+
+/**
+ * Circuit breaker and bulkhead for the requests to one gateway, account type and operation.
+ * <p>
+ * After {@link CircuitBreakerConfig#getFailureThreshold()} consecutive failures the circuit opens and requests
+ * are failed without calling the gateway. Once it has been open for {@link CircuitBreakerConfig#getOpenForAsJavaDuration()}
+ * a few probe requests are let through: the circuit closes on the first that succeeds and opens again on the
+ * first that fails.
+ * <p>
+ * Each change of state starts a new generation. A request that completes after the state it was let through in
+ * has changed, such as a slow probe from an earlier half-open period, is ignored.
+ */
+public class GatewayCircuitBreaker {
+
+    public enum State {
+        CLOSED(0), OPEN(1), HALF_OPEN(2);
+
+        private final int metricValue;
+
+        State(int metricValue) {
+            this.metricValue = metricValue;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayCircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openFor;
+    private final int halfOpenRequests;
+    private final Semaphore bulkhead;
+    private final Clock clock;
+    private final Counter circuitRejections;
+    private final Counter bulkheadRejections;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private int probesInFlight;
+    private long generation;
+
+    public GatewayCircuitBreaker(String name, CircuitBreakerConfig config, MetricRegistry metricRegistry, Clock clock) {
+        this.name = name;
+        this.failureThreshold = config.getFailureThreshold();
+        this.openFor = config.getOpenForAsJavaDuration();
+        this.halfOpenRequests = Math.max(1, config.getHalfOpenRequests());
+        this.bulkhead = config.getMaximumConcurrentRequests() > 0 ? new Semaphore(config.getMaximumConcurrentRequests()) : null;
+        this.clock = clock;
+
+        this.circuitRejections = metricRegistry.counter(name + ".circuit-breaker.rejected");
+        this.bulkheadRejections = metricRegistry.counter(name + ".bulkhead.rejected");
+        register(metricRegistry, name + ".circuit-breaker.state", () -> getState().metricValue);
+        if (bulkhead != null) {
+            int maximumConcurrentRequests = config.getMaximumConcurrentRequests();
+            register(metricRegistry, name + ".bulkhead.in-flight", () -> maximumConcurrentRequests - bulkhead.availablePermits());
+        }
+    }
+
+    /**
+     * @return a permit that must be released once the gateway has responded, or the error to fail the request
+     * with straight away
+     */
+    public Either<GatewayError, Permit> tryAcquire() {
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            bulkheadRejections.inc();
+            return left(gatewayUnavailable("Too many requests in progress to gateway"));
+        }
+
+        boolean probe;
+        long admittedIn;
+        synchronized (this) {
+            if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openFor))) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && probesInFlight >= halfOpenRequests)) {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+                circuitRejections.inc();
+                return left(gatewayUnavailable("Gateway unavailable, circuit breaker open"));
+            }
+            probe = state == State.HALF_OPEN;
+            if (probe) {
+                probesInFlight++;
+            }
+            admittedIn = generation;
+        }
+        return right(new Permit(probe, admittedIn));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized void onCompletion(boolean probe, long admittedIn, boolean gatewayFailed) {
+        if (admittedIn != generation) {
+            return;
+        }
+        if (probe) {
+            probesInFlight--;
+        }
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (!gatewayFailed) {
+            consecutiveFailures = 0;
+            if (probe && state == State.HALF_OPEN) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (probe && state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("Circuit breaker {} changing from {} to {}", name, state, newState);
+        state = newState;
+        generation++;
+        if (newState == State.OPEN) {
+            openedAt = clock.instant();
+        }
+        probesInFlight = 0;
+        consecutiveFailures = 0;
+    }
+
+    private static void register(MetricRegistry metricRegistry, String gaugeName, Gauge<Integer> gauge) {
+        // a breaker replaces any earlier one of the same name, e.g. when providers are rebuilt in tests
+        metricRegistry.remove(gaugeName);
+        metricRegistry.register(gaugeName, gauge);
+    }
+
+    public class Permit {
+        private final boolean probe;
+        private final long generation;
+        private boolean released;
+
+        private Permit(boolean probe, long generation) {
+            this.probe = probe;
+            this.generation = generation;
+        }
+
+        /**
+         * @param gatewayFailed whether the gateway could not be reached or failed to handle the request
+         */
+        public void release(boolean gatewayFailed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            onCompletion(probe, generation, gatewayFailed);
+        }
+    }
+}
@@ -2,11 +2,21 @@ package uk.gov.pay.connector.service;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
 import fj.data.Either;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import uk.gov.pay.connector.app.CircuitBreakerConfig;
 import uk.gov.pay.connector.model.GatewayError;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.util.CapturingInputStream;
 import uk.gov.pay.connector.util.XMLUnmarshaller;
 import uk.gov.pay.connector.util.XMLUnmarshallerException;
 
@@ -15,19 +25,32 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpCookie;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 import static fj.data.Either.left;
 import static fj.data.Either.right;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.HttpHeaders.SET_COOKIE;
 import static javax.ws.rs.core.Response.Status.OK;
+import static uk.gov.pay.connector.filters.LoggingFilter.HEADER_REQUEST_ID;
 import static uk.gov.pay.connector.model.GatewayError.*;
 import static uk.gov.pay.connector.model.domain.GatewayAccount.CREDENTIALS_PASSWORD;
 import static uk.gov.pay.connector.model.domain.GatewayAccount.CREDENTIALS_USERNAME;
@@ -37,89 +60,247 @@ public class GatewayClient {
     private final Logger logger = LoggerFactory.getLogger(GatewayClient.class);
 
     private final Client client;
+    private final HttpAsyncClient asyncClient;
     private final Map<String, String> gatewayUrlMap;
     private final MetricRegistry metricRegistry;
     private final BiFunction<GatewayOrder, Builder, Builder> sessionIdentifier;
+    private final GatewayOperation operation;
+    private final CircuitBreakerConfig circuitBreakerConfig;
+    private final Clock clock;
+    private final ConcurrentMap<String, GatewayCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
 
     public GatewayClient(Client client, Map<String, String> gatewayUrlMap,
-        BiFunction<GatewayOrder, Builder, Builder> sessionIdentifier, MetricRegistry metricRegistry) {
+        BiFunction<GatewayOrder, Builder, Builder> sessionIdentifier, MetricRegistry metricRegistry,
+        GatewayOperation operation, CircuitBreakerConfig circuitBreakerConfig) {
+        this(client, null, gatewayUrlMap, sessionIdentifier, metricRegistry, operation, circuitBreakerConfig, Clock.systemUTC());
+    }
+
+    /**
+     * @param asyncClient non-blocking client used by {@link #postRequestForAsync(String, GatewayAccountEntity, GatewayOrder, Class)},
+     *                    or null to make those requests through the blocking client
+     */
+    public GatewayClient(Client client, HttpAsyncClient asyncClient, Map<String, String> gatewayUrlMap,
+        BiFunction<GatewayOrder, Builder, Builder> sessionIdentifier, MetricRegistry metricRegistry,
+        GatewayOperation operation, CircuitBreakerConfig circuitBreakerConfig) {
+        this(client, asyncClient, gatewayUrlMap, sessionIdentifier, metricRegistry, operation, circuitBreakerConfig, Clock.systemUTC());
+    }
+
+    GatewayClient(Client client, HttpAsyncClient asyncClient, Map<String, String> gatewayUrlMap,
+        BiFunction<GatewayOrder, Builder, Builder> sessionIdentifier, MetricRegistry metricRegistry,
+        GatewayOperation operation, CircuitBreakerConfig circuitBreakerConfig, Clock clock) {
         this.gatewayUrlMap = gatewayUrlMap;
         this.client = client;
+        this.asyncClient = asyncClient;
         this.metricRegistry = metricRegistry;
         this.sessionIdentifier = sessionIdentifier;
+        this.operation = operation;
+        this.circuitBreakerConfig = circuitBreakerConfig;
+        this.clock = clock;
     }
 
-    public Either<GatewayError, GatewayClient.Response> postRequestFor(String route, GatewayAccountEntity account, GatewayOrder request) {
-        String metricsPrefix = String.format("gateway-operations.%s.%s.%s", account.getGatewayName(), account.getType(), request.getOrderRequestType());
-        javax.ws.rs.core.Response response = null;
-
-        String gatewayUrl = gatewayUrlMap.get(account.getType());
-        if (route != null) {
-            gatewayUrl = String.format("%s/%s", gatewayUrl, route);
+    public Either<GatewayError, GatewayClient.Response> postRequestFor(String route, GatewayAccountEntity account, GatewayOrder request,
+                                                                       Class<?> responseClass) {
+        String metricsPrefix = metricsPrefixFor(account, request);
+        String gatewayUrl = gatewayUrlFor(route, account);
+        Either<GatewayError, GatewayCircuitBreaker.Permit> admission = circuitBreakerFor(account).tryAcquire();
+        if (admission.isLeft()) {
+            return rejected(admission.left().value(), gatewayUrl);
         }
+        GatewayCircuitBreaker.Permit permit = admission.right().value();
+        javax.ws.rs.core.Response response = null;
+        boolean gatewayFailed = true;
 
         Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
         try {
             logger.info("POSTing request for account '{}' with type '{}'", account.getGatewayName(), account.getType());
-            Builder requestBuilder = client.target(gatewayUrl)
-                    .request()
-                    .header(AUTHORIZATION, encode(
-                            account.getCredentials().get(CREDENTIALS_USERNAME),
-                            account.getCredentials().get(CREDENTIALS_PASSWORD)));
-
-            response = sessionIdentifier.apply(request, requestBuilder)
+            response = requestBuilderFor(gatewayUrl, account, request)
                     .post(Entity.entity(request.getPayload(), request.getMediaType()));
-
-            int statusCode = response.getStatus();
-            Response gatewayResponse = new Response(response);
-            if (statusCode == OK.getStatusCode()) {
-                return right(gatewayResponse);
-            } else {
-                logger.error("Gateway returned unexpected status code: {}, for gateway url={} with type {}", statusCode, gatewayUrl, account.getType());
-                incrementFailureCounter(metricRegistry, metricsPrefix);
-                return left(unexpectedStatusCodeFromGateway("Unexpected Response Code From Gateway"));
+            // the body is read while handling the response, so a read that fails part way is still a gateway failure
+            Either<GatewayError, GatewayClient.Response> result = handleResponse(response, gatewayUrl, account, metricsPrefix, responseClass);
+            gatewayFailed = isGatewayFailure(response.getStatus());
+            return result;
+        } catch (Exception e) {
+            return handleFailure(e, gatewayUrl, metricsPrefix);
+        } finally {
+            permit.release(gatewayFailed);
+            recordResponseTime(metricsPrefix, responseTimeStopwatch);
+            if (response != null) {
+                response.close();
             }
-        } catch (ProcessingException pe) {
-            incrementFailureCounter(metricRegistry, metricsPrefix);
-            if (pe.getCause() != null) {
-                if (pe.getCause() instanceof UnknownHostException) {
-                    logger.error(format("DNS resolution error for gateway url=%s", gatewayUrl), pe);
-                    return left(unknownHostException("Gateway Url DNS resolution error"));
+        }
+    }
+
+    /**
+     * As {@link #postRequestFor(String, GatewayAccountEntity, GatewayOrder, Class)}, but returns as soon as the
+     * request has been handed to the non-blocking client, without holding the calling thread while the gateway
+     * responds. The returned stage completes on an I/O reactor thread of the client, with the unmarshalled response
+     * or with the gateway error; it never completes exceptionally. Work that blocks must not run on that thread.
+     * <p>
+     * A provider session is attached through the JAX-RS request builder, so orders that carry one are made
+     * through the blocking client. Authorisation orders never do.
+     */
+    public CompletionStage<Either<GatewayError, GatewayClient.Response>> postRequestForAsync(String route, GatewayAccountEntity account, GatewayOrder request,
+                                                                                              Class<?> responseClass) {
+        if (asyncClient == null || request.getProviderSessionId().isPresent()) {
+            return CompletableFuture.completedFuture(postRequestFor(route, account, request, responseClass));
+        }
+
+        String metricsPrefix = metricsPrefixFor(account, request);
+        String gatewayUrl = gatewayUrlFor(route, account);
+        Either<GatewayError, GatewayCircuitBreaker.Permit> admission = circuitBreakerFor(account).tryAcquire();
+        if (admission.isLeft()) {
+            return CompletableFuture.completedFuture(rejected(admission.left().value(), gatewayUrl));
+        }
+        GatewayCircuitBreaker.Permit permit = admission.right().value();
+        CompletableFuture<Either<GatewayError, GatewayClient.Response>> result = new CompletableFuture<>();
+
+        Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
+        try {
+            logger.info("POSTing async request for account '{}' with type '{}'", account.getGatewayName(), account.getType());
+            asyncClient.execute(asyncRequestFor(gatewayUrl, account, request), new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    boolean gatewayFailed = true;
+                    try {
+                        Either<GatewayError, GatewayClient.Response> handled = handleAsyncResponse(response, gatewayUrl, account, metricsPrefix, responseClass);
+                        gatewayFailed = isGatewayFailure(response.getStatusLine().getStatusCode());
+                        result.complete(handled);
+                    } catch (Exception e) {
+                        result.complete(handleFailure(e, gatewayUrl, metricsPrefix));
+                    } finally {
+                        permit.release(gatewayFailed);
+                        recordResponseTime(metricsPrefix, responseTimeStopwatch);
+                    }
                 }
-                if (pe.getCause() instanceof SocketTimeoutException) {
-                    logger.error(format("Connection timed out error for gateway url=%s", gatewayUrl), pe);
-                    return left(gatewayConnectionTimeoutException("Gateway connection timeout error"));
+
+                @Override
+                public void failed(Exception e) {
+                    permit.release(true);
+                    recordResponseTime(metricsPrefix, responseTimeStopwatch);
+                    result.complete(handleFailure(new ProcessingException(e), gatewayUrl, metricsPrefix));
                 }
-                if (pe.getCause() instanceof SocketException) {
-                    logger.error(format("Socket Exception for gateway url=%s", gatewayUrl), pe);
-                    return left(gatewayConnectionSocketException("Gateway connection socket error"));
+
+                @Override
+                public void cancelled() {
+                    permit.release(true);
+                    recordResponseTime(metricsPrefix, responseTimeStopwatch);
+                    result.complete(handleFailure(new ProcessingException("Gateway request cancelled"), gatewayUrl, metricsPrefix));
                 }
-            }
-            logger.error(format("Exception for gateway url=%s", gatewayUrl), pe);
-            return left(baseError(pe.getMessage()));
+            });
         } catch (Exception e) {
+            permit.release(true);
+            recordResponseTime(metricsPrefix, responseTimeStopwatch);
+            result.complete(handleFailure(e, gatewayUrl, metricsPrefix));
+        }
+        return result;
+    }
+
+    private HttpPost asyncRequestFor(String gatewayUrl, GatewayAccountEntity account, GatewayOrder request) {
+        HttpPost httpPost = new HttpPost(gatewayUrl);
+        httpPost.setHeader(AUTHORIZATION, encode(
+                account.getCredentials().get(CREDENTIALS_USERNAME),
+                account.getCredentials().get(CREDENTIALS_PASSWORD)));
+        httpPost.setHeader(HEADER_REQUEST_ID, Optional.ofNullable(MDC.get(HEADER_REQUEST_ID)).orElse(""));
+        // as sent by the blocking client: the media type as given, and the payload encoded as UTF-8
+        httpPost.setHeader(CONTENT_TYPE, request.getMediaType().toString());
+        httpPost.setEntity(new ByteArrayEntity(request.getPayload().getBytes(UTF_8)));
+        return httpPost;
+    }
+
+    private Either<GatewayError, GatewayClient.Response> handleAsyncResponse(HttpResponse response, String gatewayUrl, GatewayAccountEntity account,
+                                                                             String metricsPrefix, Class<?> responseClass) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == OK.getStatusCode()) {
+            return right(new Response(response, responseClass));
+        } else {
+            logger.error("Gateway returned unexpected status code: {}, for gateway url={} with type {}", statusCode, gatewayUrl, account.getType());
             incrementFailureCounter(metricRegistry, metricsPrefix);
-            logger.error(format("Exception for gateway url=%s", gatewayUrl), e);
-            return left(baseError(e.getMessage()));
-        } finally {
-            responseTimeStopwatch.stop();
-            metricRegistry.histogram(metricsPrefix + ".response_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
-            if (response != null) {
-                response.close();
+            return left(unexpectedStatusCodeFromGateway("Unexpected Response Code From Gateway"));
+        }
+    }
+
+    private String metricsPrefixFor(GatewayAccountEntity account, GatewayOrder request) {
+        return String.format("gateway-operations.%s.%s.%s", account.getGatewayName(), account.getType(), request.getOrderRequestType());
+    }
+
+    private GatewayCircuitBreaker circuitBreakerFor(GatewayAccountEntity account) {
+        String name = String.format("gateway-operations.%s.%s.%s", account.getGatewayName(), account.getType(), operation.getConfigKey());
+        return circuitBreakers.computeIfAbsent(name, key -> new GatewayCircuitBreaker(key, circuitBreakerConfig, metricRegistry, clock));
+    }
+
+    private boolean isGatewayFailure(int statusCode) {
+        // a 4xx is down to the request, not to the health of the gateway
+        return statusCode >= 500;
+    }
+
+    private Either<GatewayError, GatewayClient.Response> rejected(GatewayError error, String gatewayUrl) {
+        // counted by the circuit breaker under its own .rejected metrics, not as failures of the gateway
+        logger.error("Not sending request to gateway url={}: {}", gatewayUrl, error.getMessage());
+        return left(error);
+    }
+
+    private String gatewayUrlFor(String route, GatewayAccountEntity account) {
+        String gatewayUrl = gatewayUrlMap.get(account.getType());
+        if (route != null) {
+            gatewayUrl = String.format("%s/%s", gatewayUrl, route);
+        }
+        return gatewayUrl;
+    }
+
+    private Builder requestBuilderFor(String gatewayUrl, GatewayAccountEntity account, GatewayOrder request) {
+        Builder requestBuilder = client.target(gatewayUrl)
+                .request()
+                .header(AUTHORIZATION, encode(
+                        account.getCredentials().get(CREDENTIALS_USERNAME),
+                        account.getCredentials().get(CREDENTIALS_PASSWORD)));
+        return sessionIdentifier.apply(request, requestBuilder);
+    }
+
+    private Either<GatewayError, GatewayClient.Response> handleResponse(javax.ws.rs.core.Response response, String gatewayUrl,
+                                                                        GatewayAccountEntity account, String metricsPrefix, Class<?> responseClass) {
+        int statusCode = response.getStatus();
+        if (statusCode == OK.getStatusCode()) {
+            return right(new Response(response, responseClass));
+        } else {
+            logger.error("Gateway returned unexpected status code: {}, for gateway url={} with type {}", statusCode, gatewayUrl, account.getType());
+            incrementFailureCounter(metricRegistry, metricsPrefix);
+            return left(unexpectedStatusCodeFromGateway("Unexpected Response Code From Gateway"));
+        }
+    }
+
+    private Either<GatewayError, GatewayClient.Response> handleFailure(Throwable throwable, String gatewayUrl, String metricsPrefix) {
+        incrementFailureCounter(metricRegistry, metricsPrefix);
+        if (throwable instanceof ProcessingException && throwable.getCause() != null) {
+            if (throwable.getCause() instanceof UnknownHostException) {
+                logger.error(format("DNS resolution error for gateway url=%s", gatewayUrl), throwable);
+                return left(unknownHostException("Gateway Url DNS resolution error"));
+            }
+            if (throwable.getCause() instanceof SocketTimeoutException) {
+                logger.error(format("Connection timed out error for gateway url=%s", gatewayUrl), throwable);
+                return left(gatewayConnectionTimeoutException("Gateway connection timeout error"));
+            }
+            if (throwable.getCause() instanceof SocketException) {
+                logger.error(format("Socket Exception for gateway url=%s", gatewayUrl), throwable);
+                return left(gatewayConnectionSocketException("Gateway connection socket error"));
             }
         }
+        logger.error(format("Exception for gateway url=%s", gatewayUrl), throwable);
+        return left(baseError(throwable.getMessage()));
+    }
+
+    private void recordResponseTime(String metricsPrefix, Stopwatch responseTimeStopwatch) {
+        responseTimeStopwatch.stop();
+        metricRegistry.histogram(metricsPrefix + ".response_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
     }
 
     public <T> Either<GatewayError, T> unmarshallResponse(GatewayClient.Response response, Class<T> clazz) {
-        String payload = response.getEntity();
-        logger.debug("response payload=" + payload);
-        try {
-            return right(XMLUnmarshaller.unmarshall(payload, clazz));
-        } catch (XMLUnmarshallerException e) {
-            String error = format("Could not unmarshall response %s.", payload);
-            logger.error(error, e);
+        logger.debug("response payload=" + response.capturedEntity);
+        if (response.unmarshallingError != null) {
+            String error = format("Could not unmarshall response %s.", response.capturedEntity);
+            logger.error(error, response.unmarshallingError);
             return left(malformedResponseReceivedFromGateway("Invalid Response Received From Gateway"));
         }
+        return right(clazz.cast(response.entity));
     }
 
     private void incrementFailureCounter(MetricRegistry metricRegistry, String metricsPrefix) {
@@ -127,24 +308,71 @@ public class GatewayClient {
     }
 
     static public class Response {
+        private static final int MAX_CAPTURED_ENTITY_BYTES = 8 * 1024;
+
         private final int status;
-        private final String entity;
+        private final Object entity;
+        private final XMLUnmarshallerException unmarshallingError;
+        private final String capturedEntity;
         private final Map<String, String> responseCookies = new HashMap<>();
 
-        protected Response(final javax.ws.rs.core.Response delegate) {
-            this.status = delegate.getStatus();
-            this.entity = delegate.readEntity(String.class);
+        /**
+         * Unmarshalls the body straight from the entity stream. Only the start of the body is kept,
+         * for logging.
+         *
+         * @throws ProcessingException if the body could not be read from the gateway, for example because the
+         *                             read timed out part way through it. That is not a malformed response.
+         */
+        protected Response(final javax.ws.rs.core.Response delegate, Class<?> entityClass) {
+            this(delegate.getStatus(), delegate.readEntity(InputStream.class), entityClass);
             delegate.getCookies().forEach((name, cookie) -> {
                 responseCookies.put(name, cookie.getValue());
             });
         }
 
-        public int getStatus() {
-            return status;
+        /**
+         * From a response of the non-blocking client, which has already buffered the body.
+         */
+        protected Response(final HttpResponse delegate, Class<?> entityClass) throws IOException {
+            this(delegate.getStatusLine().getStatusCode(), delegate.getEntity().getContent(), entityClass);
+            for (Header setCookie : delegate.getHeaders(SET_COOKIE)) {
+                try {
+                    HttpCookie.parse(setCookie.getValue()).forEach(cookie -> responseCookies.put(cookie.getName(), cookie.getValue()));
+                } catch (IllegalArgumentException e) {
+                    // as with the blocking client, a cookie that cannot be parsed is left out
+                }
+            }
+        }
+
+        private Response(int status, InputStream body, Class<?> entityClass) {
+            this.status = status;
+            CapturingInputStream entityStream = new CapturingInputStream(body, MAX_CAPTURED_ENTITY_BYTES);
+            Object unmarshalledEntity = null;
+            XMLUnmarshallerException error = null;
+            try {
+                unmarshalledEntity = XMLUnmarshaller.unmarshall(entityStream, entityClass);
+            } catch (XMLUnmarshallerException e) {
+                Optional<IOException> readFailure = readFailureOf(e);
+                if (readFailure.isPresent()) {
+                    throw new ProcessingException(readFailure.get());
+                }
+                error = e;
+            }
+            this.entity = unmarshalledEntity;
+            this.unmarshallingError = error;
+            this.capturedEntity = entityStream.getCaptured();
         }
 
-        public String getEntity() {
-            return entity;
+        // JAXB wraps an IOException from the entity stream in an UnmarshalException
+        private static Optional<IOException> readFailureOf(XMLUnmarshallerException e) {
+            return Throwables.getCausalChain(e).stream()
+                    .filter(IOException.class::isInstance)
+                    .map(IOException.class::cast)
+                    .findFirst();
+        }
+
+        public int getStatus() {
+            return status;
         }
 
         public Map<String, String> getResponseCookies() {
@@ -1,6 +1,8 @@
 package uk.gov.pay.connector.service;
 
 import com.codahale.metrics.MetricRegistry;
+import org.apache.http.nio.client.HttpAsyncClient;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 
 import javax.inject.Inject;
 import javax.ws.rs.client.Client;
@@ -11,10 +13,12 @@ import java.util.function.BiFunction;
 public class GatewayClientFactory {
 
     final ClientFactory clientFactory;
+    final ConnectorConfiguration configuration;
 
     @Inject
-    public GatewayClientFactory(ClientFactory clientFactory) {
+    public GatewayClientFactory(ClientFactory clientFactory, ConnectorConfiguration configuration) {
         this.clientFactory = clientFactory;
+        this.configuration = configuration;
     }
 
     public GatewayClient createGatewayClient(PaymentGatewayName gateway, GatewayOperation operation,
@@ -22,7 +26,9 @@ public class GatewayClientFactory {
         MetricRegistry metricRegistry)
     {
         Client client = clientFactory.createWithDropwizardClient(gateway, operation, metricRegistry);
-        return new GatewayClient(client, gatewayUrlMap, sessionIdentier, metricRegistry);
+        // only authorisations are made without blocking a thread on the gateway
+        HttpAsyncClient asyncClient = operation == GatewayOperation.AUTHORISE ? clientFactory.createAsyncClient(gateway, operation) : null;
+        return new GatewayClient(client, asyncClient, gatewayUrlMap, sessionIdentier, metricRegistry, operation, configuration.getCircuitBreakerConfig());
     }
 
 }
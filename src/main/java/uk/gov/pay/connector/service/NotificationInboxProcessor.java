@@ -0,0 +1,159 @@
+package uk.gov.pay.connector.service;
+
+import com.google.inject.persist.UnitOfWork;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.NotificationInboxConfig;
+import uk.gov.pay.connector.dao.NotificationInboxDao;
+import uk.gov.pay.connector.model.domain.NotificationInboxEntity;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Drains the notification inbox: each worker claims a batch of the oldest unprocessed notifications and
+ * applies them gateway by gateway. When a gateway's notifications fail together they are applied again one
+ * at a time, and an attempt is counted only against the ones that fail on their own, which are released to be
+ * retried by the next poll on any node. Notifications about the same charge as one that failed are released
+ * along with it, without an attempt, so they are still applied after it.
+ */
+public class NotificationInboxProcessor implements Managed {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final String NOTIFICATION_INBOX_SCHEDULER_NAME = "notification-inbox";
+
+    private final NotificationInboxDao notificationInboxDao;
+    private final NotificationService notificationService;
+    private final UnitOfWork unitOfWork;
+    private final NotificationInboxConfig config;
+    private final Environment environment;
+
+    ScheduledExecutorService scheduledExecutorService;
+
+    public NotificationInboxProcessor(ConnectorConfiguration configuration, Environment environment, NotificationInboxDao notificationInboxDao,
+                                      NotificationService notificationService, UnitOfWork unitOfWork) {
+        this.notificationInboxDao = notificationInboxDao;
+        this.notificationService = notificationService;
+        this.unitOfWork = unitOfWork;
+        this.config = configuration.getNotificationInboxConfig();
+        this.environment = environment;
+
+        scheduledExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService(NOTIFICATION_INBOX_SCHEDULER_NAME)
+                .threads(config.getWorkerThreads())
+                .build();
+    }
+
+    public void start() {
+        long pollIntervalInMillis = config.getPollIntervalAsJavaDuration().toMillis();
+        logger.info("Scheduling {} notification inbox workers to poll every {} ms", config.getWorkerThreads(), pollIntervalInMillis);
+
+        for (int worker = 0; worker < config.getWorkerThreads(); worker++) {
+            scheduledExecutorService.scheduleWithFixedDelay(() -> {
+                try {
+                    drain();
+                } catch (Exception e) {
+                    logger.error("Unexpected error processing the notification inbox", e);
+                }
+            }, pollIntervalInMillis, pollIntervalInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Processes batches until the inbox has nothing left to claim.
+     */
+    void drain() {
+        int processed;
+        do {
+            processed = processBatch();
+        } while (processed == config.getBatchSize());
+    }
+
+    /**
+     * @return the number of notifications claimed
+     */
+    int processBatch() {
+        // each batch gets an entity manager of its own, so charges are never read from a stale persistence context
+        unitOfWork.begin();
+        try {
+            List<NotificationInboxEntity> batch = notificationInboxDao.claimBatch(config.getBatchSize(),
+                    config.getClaimForAsJavaDuration(), config.getMaximumAttempts());
+
+            Map<PaymentGatewayName, List<NotificationInboxEntity>> batchByGateway = batch.stream()
+                    .collect(groupingBy(NotificationInboxEntity::getPaymentGatewayName, LinkedHashMap::new, toList()));
+
+            batchByGateway.forEach(this::process);
+            return batch.size();
+        } finally {
+            unitOfWork.end();
+        }
+    }
+
+    private void process(PaymentGatewayName paymentGatewayName, List<NotificationInboxEntity> notifications) {
+        try {
+            notificationService.processInboxedNotifications(paymentGatewayName, notifications);
+            environment.metrics().counter("notification-inbox.processed").inc(notifications.size());
+        } catch (Exception e) {
+            // a rolled back transaction leaves its changes on the cached entities, so read them again
+            restartUnitOfWork();
+            if (notifications.size() == 1) {
+                recordFailedAttempt(paymentGatewayName, notifications.get(0), e);
+                return;
+            }
+            logger.warn("Failed to process {} {} notifications together, processing them one at a time: {}",
+                    notifications.size(), paymentGatewayName.getName(), e.getMessage());
+            processOneAtATime(paymentGatewayName, notifications);
+        }
+    }
+
+    private void processOneAtATime(PaymentGatewayName paymentGatewayName, List<NotificationInboxEntity> notifications) {
+        Set<String> transactionIdsHeldBack = new HashSet<>();
+        for (NotificationInboxEntity notification : notifications) {
+            if (!Collections.disjoint(transactionIdsHeldBack, notification.getTransactionIds())) {
+                notificationInboxDao.releaseClaim(singletonList(notification.getId()));
+                transactionIdsHeldBack.addAll(notification.getTransactionIds());
+                continue;
+            }
+
+            try {
+                notificationService.processInboxedNotifications(paymentGatewayName, singletonList(notification));
+                environment.metrics().counter("notification-inbox.processed").inc();
+            } catch (Exception e) {
+                restartUnitOfWork();
+                recordFailedAttempt(paymentGatewayName, notification, e);
+                transactionIdsHeldBack.addAll(notification.getTransactionIds());
+            }
+        }
+    }
+
+    private void recordFailedAttempt(PaymentGatewayName paymentGatewayName, NotificationInboxEntity notification, Exception e) {
+        logger.error("Failed to process {} notification - notification_inbox_id={}, attempts={}",
+                paymentGatewayName.getName(), notification.getId(), notification.getAttempts() + 1, e);
+        notificationInboxDao.recordFailedAttempt(singletonList(notification.getId()));
+        environment.metrics().counter("notification-inbox.failed").inc();
+    }
+
+    private void restartUnitOfWork() {
+        unitOfWork.end();
+        unitOfWork.begin();
+    }
+
+    public void stop() {
+        scheduledExecutorService.shutdown();
+    }
+}
@@ -6,6 +6,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeEventDao;
+import uk.gov.pay.connector.dao.NotificationInboxDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
 import uk.gov.pay.connector.dao.RefundDao;
 import uk.gov.pay.connector.exception.InvalidStateTransitionException;
 import uk.gov.pay.connector.model.EvaluatedChargeStatusNotification;
@@ -16,16 +18,28 @@ import uk.gov.pay.connector.model.Notifications;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.model.domain.NotificationInboxEntity;
 import uk.gov.pay.connector.model.domain.RefundEntity;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.util.DnsUtils;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class NotificationService {
 
@@ -38,9 +52,12 @@ public class NotificationService {
     private final DnsUtils dnsUtils;
     private final ChargeStatusUpdater chargeStatusUpdater;
     private final RefundStatusUpdater refundStatusUpdater;
+    private final NotificationInboxDao notificationInboxDao;
+    private final PaymentStatisticsDao paymentStatisticsDao;
 
     @Inject
-    public NotificationService(ChargeDao chargeDao, ChargeEventDao chargeEventDao, RefundDao refundDao, PaymentProviders paymentProviders, DnsUtils dnsUtils, ChargeStatusUpdater chargeStatusUpdater, RefundStatusUpdater refundStatusUpdater) {
+    public NotificationService(ChargeDao chargeDao, ChargeEventDao chargeEventDao, RefundDao refundDao, PaymentProviders paymentProviders, DnsUtils dnsUtils, ChargeStatusUpdater chargeStatusUpdater, RefundStatusUpdater refundStatusUpdater,
+                               NotificationInboxDao notificationInboxDao, PaymentStatisticsDao paymentStatisticsDao) {
         this.chargeDao = chargeDao;
         this.chargeEventDao = chargeEventDao;
         this.refundDao = refundDao;
@@ -48,20 +65,56 @@ public class NotificationService {
         this.dnsUtils = dnsUtils;
         this.chargeStatusUpdater = chargeStatusUpdater;
         this.refundStatusUpdater = refundStatusUpdater;
+        this.notificationInboxDao = notificationInboxDao;
+        this.paymentStatisticsDao = paymentStatisticsDao;
     }
 
     @Transactional
     public boolean handleNotificationFor(String ipAddress, PaymentGatewayName paymentGatewayName, String payload) {
-        PaymentProvider paymentProvider = paymentProviders.byName(paymentGatewayName);
-        Handler handler = new Handler(paymentProvider);
-        if (handler.hasSecuredEndpoint() && !handler.matchesIpWithDomain(ipAddress)) {
-            logger.error("{} notification received from domain not {}", paymentProvider.getPaymentGatewayName().getName(), paymentProvider.getNotificationDomain());
+        Handler handler = new Handler(paymentProviders.byName(paymentGatewayName));
+        if (!handler.isAuthentic(ipAddress)) {
             return false;
         }
-        handler.execute(payload);
+        paymentStatisticsDao.batchAdjustments(() -> {
+            handler.execute(Collections.singletonList(payload));
+            return null;
+        });
         return true;
     }
 
+    /**
+     * Checks that a notification comes from its gateway and stores it in the notification inbox, without
+     * applying it, so the gateway can be acknowledged as soon as the payload is durable. The payload is
+     * parsed only for the transaction ids it is about, which keep the notifications of a charge in order.
+     */
+    public boolean acceptNotificationFor(String ipAddress, PaymentGatewayName paymentGatewayName, String payload) {
+        Handler handler = new Handler(paymentProviders.byName(paymentGatewayName));
+        if (!handler.isAuthentic(ipAddress)) {
+            return false;
+        }
+        notificationInboxDao.append(paymentGatewayName, payload, handler.transactionIdsOf(payload));
+        return true;
+    }
+
+    /**
+     * Applies a batch of inboxed notifications from one gateway and marks them processed in the same
+     * database transaction. Notifications repeated across the batch, as gateways do when they resend,
+     * are applied once. The payment statistics of the batch are adjusted together at its end.
+     */
+    @Transactional
+    public void processInboxedNotifications(PaymentGatewayName paymentGatewayName, List<NotificationInboxEntity> inboxedNotifications) {
+        Handler handler = new Handler(paymentProviders.byName(paymentGatewayName));
+        paymentStatisticsDao.batchAdjustments(() -> {
+            handler.execute(inboxedNotifications.stream()
+                    .map(NotificationInboxEntity::getPayload)
+                    .collect(toList()));
+            return null;
+        });
+        notificationInboxDao.markProcessed(inboxedNotifications.stream()
+                .map(NotificationInboxEntity::getId)
+                .collect(toList()));
+    }
+
     private class Handler {
         private PaymentProvider paymentProvider;
 
@@ -69,21 +122,87 @@ public class NotificationService {
             this.paymentProvider = paymentProvider;
         }
 
-        public boolean hasSecuredEndpoint() {
+        public boolean isAuthentic(String ipAddress) {
+            if (hasSecuredEndpoint() && !matchesIpWithDomain(ipAddress)) {
+                logger.error("{} notification received from domain not {}", paymentProvider.getPaymentGatewayName().getName(), paymentProvider.getNotificationDomain());
+                return false;
+            }
+            return true;
+        }
+
+        private boolean hasSecuredEndpoint() {
             return paymentProvider.isNotificationEndpointSecured();
         }
 
-        public boolean matchesIpWithDomain(String ipAddress) {
+        private boolean matchesIpWithDomain(String ipAddress) {
             return (dnsUtils.ipMatchesDomain(ipAddress, paymentProvider.getNotificationDomain()));
         }
 
-        public <T> void execute(String payload) {
-            List<Notification<T>> notifications = parse(payload);
-            notifications.forEach(notification -> Optional.of(notification)
+        public <T> Set<String> transactionIdsOf(String payload) {
+            return this.<T>parse(payload).stream()
+                    .map(Notification::getTransactionId)
+                    .filter(transactionId -> isNotBlank(transactionId))
+                    .collect(toCollection(LinkedHashSet::new));
+        }
+
+        public <T> void execute(List<String> payloads) {
+            List<Notification<T>> parsedNotifications = new ArrayList<>();
+            payloads.forEach(payload -> parsedNotifications.addAll(this.<T>parse(payload)));
+
+            List<Notification<T>> notifications = deduplicate(parsedNotifications.stream()
                     .filter(this::ignoreEarly)
-                    .filter(this::verify)
-                    .flatMap(this::evaluate)
-                    .ifPresent(this::update));
+                    .filter(this::hasTransactionId)
+                    .collect(toList()));
+
+            Map<String, ChargeEntity> chargesByTransactionId = findCharges(notifications);
+
+            notifications.forEach(notification -> findCharge(chargesByTransactionId, notification)
+                    .ifPresent(charge -> Optional.of(notification)
+                            .filter(n -> verify(n, charge))
+                            .flatMap(n -> evaluate(n, charge))
+                            .ifPresent(n -> update(n, charge))));
+        }
+
+        /**
+         * Keeps the first of the notifications with the same transaction id, reference and status. The
+         * reference is part of the key so that notifications for different refunds of a charge are all kept.
+         */
+        private <T> List<Notification<T>> deduplicate(List<Notification<T>> notifications) {
+            Map<List<Object>, Notification<T>> uniqueNotifications = new LinkedHashMap<>();
+            notifications.forEach(notification -> {
+                List<Object> key = Arrays.asList(notification.getTransactionId(), notification.getReference(), notification.getStatus());
+                if (uniqueNotifications.putIfAbsent(key, notification) != null) {
+                    logger.info("{} notification {} is a duplicate and was skipped", paymentProvider.getPaymentGatewayName().getName(), notification);
+                }
+            });
+            return new ArrayList<>(uniqueNotifications.values());
+        }
+
+        /**
+         * Resolves the charges of all the notifications in a payload with one query, so a payload
+         * holding many notifications does not cost a lookup per notification.
+         */
+        private <T> Map<String, ChargeEntity> findCharges(List<Notification<T>> notifications) {
+            Set<String> transactionIds = notifications.stream()
+                    .map(Notification::getTransactionId)
+                    .collect(toSet());
+
+            if (transactionIds.isEmpty()) {
+                return Collections.emptyMap();
+            }
+
+            return chargeDao.findByProviderAndTransactionIds(paymentProvider.getPaymentGatewayName().getName(), transactionIds)
+                    .stream()
+                    .collect(toMap(ChargeEntity::getGatewayTransactionId, charge -> charge, (first, second) -> first));
+        }
+
+        private <T> Optional<ChargeEntity> findCharge(Map<String, ChargeEntity> chargesByTransactionId, Notification<T> notification) {
+            Optional<ChargeEntity> charge = Optional.ofNullable(chargesByTransactionId.get(notification.getTransactionId()));
+            if (!charge.isPresent()) {
+                logger.error("{} notification {} could not be verified (associated charge entity not found)",
+                        paymentProvider.getPaymentGatewayName().getName(), notification);
+            }
+            return charge;
         }
 
         private <T> List<Notification<T>> parse(String payload) {
@@ -116,43 +235,30 @@ public class NotificationService {
             return true;
         }
 
-        private <T> boolean verify(Notification<T> notification) {
-            logger.info("Verifying {} notification {}", paymentProvider.getPaymentGatewayName().getName(), notification);
-
+        private <T> boolean hasTransactionId(Notification<T> notification) {
             if (isBlank(notification.getTransactionId())) {
                 logger.error("{} notification {} failed verification because it has no transaction ID", paymentProvider.getPaymentGatewayName().getName(), notification);
                 return false;
             }
 
-            return chargeDao.findByProviderAndTransactionId(paymentProvider.getPaymentGatewayName().getName(), notification.getTransactionId())
-                    .map(charge -> {
-                        if (paymentProvider.verifyNotification(notification, charge.getGatewayAccount())) {
-                            return true;
-                        }
-                        logger.error("{} notification {} failed verification", paymentProvider.getPaymentGatewayName().getName(), notification);
-                        return false;
-                    })
-                    .orElseGet(() -> {
-                        logger.error("{} notification {} could not be verified (associated charge entity not found)",
-                                paymentProvider.getPaymentGatewayName().getName(), notification);
-                        return false;
-                    });
+            return true;
         }
 
-        private <T> Optional<EvaluatedNotification<T>> evaluate(Notification<T> notification) {
-            logger.info("Evaluating {} notification {}", paymentProvider.getPaymentGatewayName().getName(), notification);
-
-            Optional<ChargeEntity> optionalChargeEntity = chargeDao.findByProviderAndTransactionId(paymentProvider.getPaymentGatewayName().getName(),
-                    notification.getTransactionId());
+        private <T> boolean verify(Notification<T> notification, ChargeEntity charge) {
+            logger.info("Verifying {} notification {}", paymentProvider.getPaymentGatewayName().getName(), notification);
 
-            if (!optionalChargeEntity.isPresent()) {
-                logger.error("{} notification {} could not be evaluated (associated charge entity not found)",
-                        paymentProvider.getPaymentGatewayName().getName(), notification);
-                return Optional.empty();
+            if (paymentProvider.verifyNotification(notification, charge.getGatewayAccount())) {
+                return true;
             }
+            logger.error("{} notification {} failed verification", paymentProvider.getPaymentGatewayName().getName(), notification);
+            return false;
+        }
+
+        private <T> Optional<EvaluatedNotification<T>> evaluate(Notification<T> notification, ChargeEntity charge) {
+            logger.info("Evaluating {} notification {}", paymentProvider.getPaymentGatewayName().getName(), notification);
 
-            return optionalChargeEntity.map(charge -> {
-                InterpretedStatus status = paymentProvider.getStatusMapper().from(notification.getStatus(), ChargeStatus.fromString(charge.getStatus()));
+            return Optional.of(charge).map(chargeEntity -> {
+                InterpretedStatus status = paymentProvider.getStatusMapper().from(notification.getStatus(), ChargeStatus.fromString(chargeEntity.getStatus()));
                 switch (status.getType()) {
                     case CHARGE_STATUS:
                         return new EvaluatedChargeStatusNotification<>(notification, status.getChargeStatus());
@@ -169,11 +275,11 @@ public class NotificationService {
             });
         }
 
-        private <T> void update(EvaluatedNotification<T> notification) {
+        private <T> void update(EvaluatedNotification<T> notification, ChargeEntity charge) {
             logger.info("Updating charge per {} notification {}", paymentProvider.getPaymentGatewayName().getName(), notification);
 
             if (notification.isOfChargeType()) {
-                updateChargeStatus((EvaluatedChargeStatusNotification) notification);
+                updateChargeStatus((EvaluatedChargeStatusNotification) notification, charge);
                 return;
             }
 
@@ -186,16 +292,7 @@ public class NotificationService {
                     paymentProvider.getPaymentGatewayName().getName(), notification);
         }
 
-        private <T> void updateChargeStatus(EvaluatedChargeStatusNotification<T> notification) {
-            Optional<ChargeEntity> optionalChargeEntity = chargeDao.findByProviderAndTransactionId(paymentProvider.getPaymentGatewayName().getName(), notification.getTransactionId());
-
-            if (!optionalChargeEntity.isPresent()) {
-                logger.error("{} notification {} could not be used to update charge (associated charge entity not found)",
-                        paymentProvider.getPaymentGatewayName().getName(), notification);
-                return;
-            }
-
-            ChargeEntity chargeEntity = optionalChargeEntity.get();
+        private <T> void updateChargeStatus(EvaluatedChargeStatusNotification<T> notification, ChargeEntity chargeEntity) {
             String oldStatus = chargeEntity.getStatus();
             ChargeStatus newStatus = notification.getChargeStatus();
 
@@ -14,6 +14,8 @@ import uk.gov.pay.connector.model.gateway.AuthorisationGatewayRequest;
 import uk.gov.pay.connector.model.gateway.GatewayResponse;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public interface PaymentProvider<T extends BaseResponse, R> {
 
@@ -25,6 +27,14 @@ public interface PaymentProvider<T extends BaseResponse, R> {
 
     GatewayResponse<T> authorise(AuthorisationGatewayRequest request);
 
+    /**
+     * Authorises without holding the calling thread for the gateway round trip, where the provider supports it.
+     * The returned stage may complete on a thread of the gateway client, which must not be blocked.
+     */
+    default CompletionStage<GatewayResponse<T>> authoriseAsync(AuthorisationGatewayRequest request) {
+        return CompletableFuture.completedFuture(authorise(request));
+    }
+
     GatewayResponse<T> authorise3dsResponse(Auth3dsResponseGatewayRequest request);
 
     GatewayResponse<T> capture(CaptureGatewayRequest request);
@@ -0,0 +1,47 @@
+package uk.gov.pay.connector.service;
+
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+public class PaymentStatisticsRebuildService {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PaymentStatisticsDao paymentStatisticsDao;
+    private final Environment environment;
+
+    @Inject
+    public PaymentStatisticsRebuildService(PaymentStatisticsDao paymentStatisticsDao, Environment environment) {
+        this.paymentStatisticsDao = paymentStatisticsDao;
+        this.environment = environment;
+    }
+
+    /**
+     * Recomputes the daily payment statistics of the given gateway account, or of every account with
+     * payments when none is given, from the transactions table. Each account is rebuilt in its own
+     * database transaction so a backfill does not hold locks on the whole rollup at once.
+     *
+     * @return the number of rollup rows written
+     */
+    public int rebuild(Optional<Long> gatewayAccountId) {
+        List<Long> gatewayAccountIds = gatewayAccountId
+                .map(Collections::singletonList)
+                .orElseGet(paymentStatisticsDao::findGatewayAccountIdsWithTransactions);
+
+        int rows = 0;
+        for (Long accountId : gatewayAccountIds) {
+            rows += paymentStatisticsDao.rebuildForAccount(accountId);
+        }
+
+        logger.info("Payment statistics rebuilt - number_of_accounts={}, number_of_rows={}", gatewayAccountIds.size(), rows);
+        environment.metrics().counter("payment-statistics.rebuilt.rows").inc(rows);
+        return rows;
+    }
+}
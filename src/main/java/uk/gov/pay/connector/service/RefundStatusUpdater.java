@@ -3,7 +3,9 @@ package uk.gov.pay.connector.service;
 import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
 import uk.gov.pay.connector.dao.RefundTransactionDao;
+import uk.gov.pay.connector.model.domain.PaymentStatisticsKey;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.transaction.RefundTransactionEntity;
 
@@ -17,10 +19,16 @@ public class RefundStatusUpdater {
     private static final Logger logger = LoggerFactory.getLogger(RefundStatusUpdater.class);
 
     private final RefundTransactionDao refundTransactionDao;
+    private final PaymentStatisticsDao paymentStatisticsDao;
 
     @Inject
-    public RefundStatusUpdater(RefundTransactionDao refundTransactionDao) {
+    public RefundStatusUpdater(RefundTransactionDao refundTransactionDao, PaymentStatisticsDao paymentStatisticsDao) {
         this.refundTransactionDao = refundTransactionDao;
+        this.paymentStatisticsDao = paymentStatisticsDao;
+    }
+
+    public void recordNewRefundTransaction(RefundTransactionEntity refundTransaction) {
+        paymentStatisticsDao.add(PaymentStatisticsKey.of(refundTransaction), refundTransaction.getAmount());
     }
 
     public void updateRefundTransactionStatus(PaymentGatewayName provider, String refundReference, RefundStatus newRefundStatus) {
@@ -57,6 +65,8 @@ public class RefundStatusUpdater {
                 newRefundStatus.getValue()
         );
 
+        PaymentStatisticsKey previousKey = PaymentStatisticsKey.of(refundTransaction);
         refundTransaction.updateStatus(newRefundStatus);
+        paymentStatisticsDao.move(previousKey, PaymentStatisticsKey.of(refundTransaction), refundTransaction.getAmount());
     }
 }
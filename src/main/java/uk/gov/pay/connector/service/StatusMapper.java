@@ -9,10 +9,12 @@ import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.Status;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class StatusMapper<T> {
 
@@ -70,10 +72,30 @@ public class StatusMapper<T> {
         }
     }
 
-    private final List<StatusMap<T>> validStatuses;
+    private static final InterpretedStatus UNKNOWN_STATUS = new UnknownStatus();
+    private static final InterpretedStatus IGNORED_STATUS = new IgnoredStatus();
+
+    // the mappings are compiled into lookup tables once, so that interpreting a gateway status is a couple of
+    // hash lookups returning a shared result. Where several mappings apply, the first one added wins
+    private final Map<T, InterpretedStatus> byGatewayStatus = new HashMap<>();
+    private final Map<T, Map<ChargeStatus, InterpretedStatus>> byGatewayAndCurrentStatus = new HashMap<>();
 
     private StatusMapper(List<StatusMap<T>> validStatuses) {
-        this.validStatuses = validStatuses;
+        for (StatusMap<T> validStatus : validStatuses) {
+            StatusMapFromStatus<T> fromStatus = validStatus.getFromStatus();
+            InterpretedStatus interpretedStatus = interpret(validStatus);
+            Map<ChargeStatus, InterpretedStatus> byCurrentStatus = byGatewayAndCurrentStatus
+                    .computeIfAbsent(fromStatus.getGatewayStatus(), gatewayStatus -> new EnumMap<>(ChargeStatus.class));
+
+            if (fromStatus instanceof GatewayStatusWithCurrentStatus) {
+                byCurrentStatus.putIfAbsent(((GatewayStatusWithCurrentStatus<T>) fromStatus).getCurrentStatus(), interpretedStatus);
+            } else {
+                byGatewayStatus.putIfAbsent(fromStatus.getGatewayStatus(), interpretedStatus);
+                for (ChargeStatus currentStatus : ChargeStatus.values()) {
+                    byCurrentStatus.putIfAbsent(currentStatus, interpretedStatus);
+                }
+            }
+        }
     }
 
     public static <T> Builder<T> builder() {
@@ -81,32 +103,22 @@ public class StatusMapper<T> {
     }
 
     public InterpretedStatus from(T gatewayStatus, ChargeStatus currentStatus) {
-        return from(GatewayStatusWithCurrentStatus.of(gatewayStatus, currentStatus), validStatuses);
+        Map<ChargeStatus, InterpretedStatus> byCurrentStatus = byGatewayAndCurrentStatus.get(Objects.requireNonNull(gatewayStatus));
+        if (byCurrentStatus == null) {
+            return UNKNOWN_STATUS;
+        }
+        return byCurrentStatus.getOrDefault(Objects.requireNonNull(currentStatus), UNKNOWN_STATUS);
     }
 
     public InterpretedStatus from(T gatewayStatus) {
-        List<StatusMap<T>> gatewayStatusesOnly = this.validStatuses
-                .stream()
-                .filter(validStatus -> validStatus.getFromStatus() instanceof GatewayStatusOnly)
-                .collect(Collectors.toList());
-        return from(GatewayStatusOnly.of(gatewayStatus), gatewayStatusesOnly);
+        return byGatewayStatus.getOrDefault(Objects.requireNonNull(gatewayStatus), UNKNOWN_STATUS);
     }
 
-    private InterpretedStatus from(StatusMapFromStatus<T> gatewayStatus, List<StatusMap<T>> wantedValidStatuses) {
-
-        Optional<StatusMap<T>> statusMap = wantedValidStatuses
-                .stream()
-                .filter(validStatus -> validStatus.getFromStatus().equals(gatewayStatus))
-                .findFirst();
-
-        if (!statusMap.isPresent()) {
-            return new UnknownStatus();
-        }
-
-        Optional<Status> statusMaybe = statusMap.flatMap(StatusMap::getToStatus);
+    private static InterpretedStatus interpret(StatusMap<?> statusMap) {
+        Optional<Status> statusMaybe = statusMap.getToStatus();
 
         if (!statusMaybe.isPresent()) {
-            return new IgnoredStatus();
+            return IGNORED_STATUS;
         }
 
         Status status = statusMaybe.get();
@@ -119,6 +131,6 @@ public class StatusMapper<T> {
             return new MappedRefundStatus((RefundStatus) status);
         }
 
-        return new UnknownStatus();
+        return UNKNOWN_STATUS;
     }
 }
@@ -0,0 +1,49 @@
+package uk.gov.pay.connector.service;
+
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.TokensConfig;
+import uk.gov.pay.connector.dao.TokenDao;
+
+import javax.inject.Inject;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+public class TokenPurgeService {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final TokenDao tokenDao;
+    private final TokensConfig tokensConfig;
+    private final Environment environment;
+
+    @Inject
+    public TokenPurgeService(TokenDao tokenDao, ConnectorConfiguration configuration, Environment environment) {
+        this.tokenDao = tokenDao;
+        this.tokensConfig = configuration.getTokensConfig();
+        this.environment = environment;
+    }
+
+    /**
+     * Deletes the tokens that were issued before the expiry window and never used, in batches of
+     * {@link TokensConfig#getPurgeBatchSize()}.
+     *
+     * @return the number of tokens deleted
+     */
+    public int purgeExpiredTokens() {
+        ZonedDateTime createdBefore = ZonedDateTime.now(ZoneId.of("UTC")).minus(tokensConfig.getExpireAfterAsJavaDuration());
+        int batchSize = Math.max(1, tokensConfig.getPurgeBatchSize());
+        int deleted = 0;
+        int deletedInBatch;
+        do {
+            deletedInBatch = tokenDao.deleteTokensCreatedBefore(createdBefore, batchSize);
+            deleted += deletedInBatch;
+        } while (deletedInBatch == batchSize);
+
+        logger.info("Expired tokens deleted - number_of_tokens={}, created_before={}", deleted, createdBefore);
+        environment.metrics().counter("tokens.expired.deleted").inc(deleted);
+        return deleted;
+    }
+}
@@ -26,7 +26,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.*;
 
-import static java.lang.Runtime.getRuntime;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 
@@ -44,8 +43,7 @@ public class UserNotificationService {
         readEmailConfig(configuration);
         if (emailNotifyGloballyEnabled) {
             this.notifyClientFactoryProvider = notifyClientFactoryProvider;
-            int numberOfThreads = configuration.getExecutorServiceConfig().getThreadsPerCpu() * getRuntime().availableProcessors();
-            executorService = Executors.newFixedThreadPool(numberOfThreads);
+            executorService = ExecutorServiceFactory.newExecutorService(configuration.getExecutorServiceConfig(), "UserNotificationService-");
         }
         this.metricRegistry = environment.metrics();
     }
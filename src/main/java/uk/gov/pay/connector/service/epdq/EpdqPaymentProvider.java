@@ -27,6 +27,7 @@ import javax.ws.rs.client.Invocation;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -74,6 +75,11 @@ public class EpdqPaymentProvider extends BasePaymentProvider<BaseResponse, Strin
         return sendReceive(ROUTE_FOR_NEW_ORDER, request, buildAuthoriseOrderFor(), EpdqAuthorisationResponse.class, extractResponseIdentifier());
     }
 
+    @Override
+    public CompletionStage<GatewayResponse<BaseResponse>> authoriseAsync(AuthorisationGatewayRequest request) {
+        return sendReceiveAsync(ROUTE_FOR_NEW_ORDER, request, buildAuthoriseOrderFor(), EpdqAuthorisationResponse.class, extractResponseIdentifier());
+    }
+
     @Override
     public GatewayResponse<BaseResponse> authorise3dsResponse(Auth3dsResponseGatewayRequest request) {
         return GatewayResponse.with(new GatewayError("3D Secure not implemented for Epdq", GENERIC_GATEWAY_ERROR));
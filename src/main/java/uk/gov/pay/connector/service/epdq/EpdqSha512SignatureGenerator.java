@@ -1,34 +1,80 @@
 package uk.gov.pay.connector.service.epdq;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.NameValuePair;
-import org.apache.http.message.BasicNameValuePair;
 
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Locale;
-import java.util.StringJoiner;
 
-import static java.util.Comparator.comparing;
-import static java.util.stream.Collectors.toList;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Signs the parameters with a value as the SHA-512 hash of NAME=value followed by the passphrase for
+ * each of them, in order of upper-cased name. The pieces go into the digest one after another rather
+ * than into one string first, and parameters that are already in order, as the payload definitions
+ * add them, are not sorted again.
+ */
 public class EpdqSha512SignatureGenerator implements SignatureGenerator {
 
+    private static final byte[] EQUALS = {'='};
+    private static final ThreadLocal<MessageDigest> SHA_512 = ThreadLocal.withInitial(DigestUtils::getSha512Digest);
+
     @Override
     public String sign(List<NameValuePair> params, String passphrase) {
         if (StringUtils.isBlank(passphrase)) {
             throw new IllegalArgumentException("Passphrase must not be blank.");
         }
 
-        List<NameValuePair> normalisedParams = params.stream()
-                .filter(param -> StringUtils.isNotEmpty(param.getValue()))
-                .map(param -> new BasicNameValuePair(param.getName().toUpperCase(Locale.ENGLISH), param.getValue()))
-                .sorted(comparing(BasicNameValuePair::getName))
-                .collect(toList());
+        String[] names = new String[params.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = params.get(i).getName().toUpperCase(Locale.ENGLISH);
+        }
+
+        byte[] passphraseBytes = passphrase.getBytes(UTF_8);
+        // a pooled thread keeps its digest across signatures. A virtual thread runs one task, so it gets one
+        // digest, the same lookup a signature without the cache makes, which goes when the thread does
+        MessageDigest digest = SHA_512.get();
+        digest.reset();
+
+        boolean signedAny = false;
+        for (int index : inNameOrder(names)) {
+            String value = params.get(index).getValue();
+            if (StringUtils.isEmpty(value)) {
+                continue;
+            }
+            digest.update(names[index].getBytes(UTF_8));
+            digest.update(EQUALS);
+            digest.update(value.getBytes(UTF_8));
+            digest.update(passphraseBytes);
+            signedAny = true;
+        }
 
-        StringJoiner input = new StringJoiner(passphrase, "", passphrase);
-        normalisedParams.forEach(param -> input.add(param.getName() + "=" + param.getValue()));
-        return DigestUtils.sha512Hex(input.toString());
+        // parameters without any values sign the passphrase on its own, as joining them into a string did
+        if (!signedAny) {
+            digest.update(passphraseBytes);
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Returns the indices of the names in sorted order, keeping equal names in the order they came in.
+     * An insertion sort is used because there are only a few dozen parameters at most and it takes a
+     * single pass when they are sorted already.
+     */
+    private static int[] inNameOrder(String[] names) {
+        int[] order = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            int j = i;
+            while (j > 0 && names[order[j - 1]].compareTo(names[i]) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+        return order;
     }
 
 }
@@ -0,0 +1,26 @@
+package uk.gov.pay.connector.service.jobs;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A unit of background work run periodically on every connector node by the {@link BackgroundJobScheduler}.
+ */
+public interface BackgroundJob {
+
+    String getName();
+
+    /**
+     * Whether the job must not run on two nodes at the same time. Exclusive jobs run under a database lease
+     * named after the job; jobs that claim their own work items, like capture, run on every node at once.
+     */
+    boolean isExclusive();
+
+    /**
+     * Processes up to {@code batchSize} items of work. An exclusive job should stop between items once
+     * {@code leaseHeld} turns false, as another node may then take the lease and start on the same work.
+     */
+    BackgroundJobResult run(int batchSize, BooleanSupplier leaseHeld);
+
+    default void stop() {
+    }
+}
@@ -0,0 +1,101 @@
+package uk.gov.pay.connector.service.jobs;
+
+import com.google.inject.persist.UnitOfWork;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.dao.BackgroundJobLeaseDao;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Runs work under the lease of a background job, renewing the lease every third of its length for as long
+ * as the work runs, however long that is. The work is told whether the lease is still held, so that work
+ * which outlives it, e.g. because renewing failed or is late, can stop before another node takes over.
+ * <p>
+ * Each run holds the lease under a holder of its own, so two runs on the same node exclude each other too.
+ */
+public class BackgroundJobLeases {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final String LEASE_RENEWAL_SCHEDULER_NAME = "background-job-lease-renewal";
+
+    private final BackgroundJobLeaseDao leaseDao;
+    private final UnitOfWork unitOfWork;
+    private final Duration leaseFor;
+    private final ScheduledExecutorService renewalExecutor;
+
+    @Inject
+    public BackgroundJobLeases(BackgroundJobLeaseDao leaseDao, UnitOfWork unitOfWork, ConnectorConfiguration configuration,
+                               Environment environment) {
+        this(leaseDao, unitOfWork, configuration.getBackgroundJobsConfig().getLeaseForAsJavaDuration(),
+                environment.lifecycle().scheduledExecutorService(LEASE_RENEWAL_SCHEDULER_NAME).threads(1).build());
+    }
+
+    BackgroundJobLeases(BackgroundJobLeaseDao leaseDao, UnitOfWork unitOfWork, Duration leaseFor, ScheduledExecutorService renewalExecutor) {
+        this.leaseDao = leaseDao;
+        this.unitOfWork = unitOfWork;
+        this.leaseFor = leaseFor;
+        this.renewalExecutor = renewalExecutor;
+    }
+
+    /**
+     * Runs {@code work} if the lease of {@code jobName} can be taken, passing it whether the lease is still held.
+     *
+     * @return the result of the work, or nothing when another run holds the lease
+     */
+    public <T> Optional<T> runHolding(String jobName, Function<BooleanSupplier, T> work) {
+        String leaseHolder = UUID.randomUUID().toString();
+        long acquiringAt = System.nanoTime();
+        if (!leaseDao.tryAcquire(jobName, leaseHolder, leaseFor)) {
+            return Optional.empty();
+        }
+
+        // counted from before each acquire or renewal, so it never outlasts the lease as the database sees it
+        AtomicLong heldUntil = new AtomicLong(acquiringAt + leaseFor.toNanos());
+        AtomicBoolean lost = new AtomicBoolean();
+        long renewEveryMillis = Math.max(1, leaseFor.toMillis() / 3);
+        ScheduledFuture<?> renewal = renewalExecutor.scheduleAtFixedRate(
+                () -> renew(jobName, leaseHolder, heldUntil, lost), renewEveryMillis, renewEveryMillis, TimeUnit.MILLISECONDS);
+        try {
+            return Optional.ofNullable(work.apply(() -> !lost.get() && System.nanoTime() - heldUntil.get() < 0));
+        } finally {
+            renewal.cancel(false);
+            leaseDao.release(jobName, leaseHolder);
+        }
+    }
+
+    private void renew(String jobName, String leaseHolder, AtomicLong heldUntil, AtomicBoolean lost) {
+        if (lost.get()) {
+            return;
+        }
+        long renewingAt = System.nanoTime();
+        unitOfWork.begin();
+        try {
+            if (leaseDao.tryAcquire(jobName, leaseHolder, leaseFor)) {
+                heldUntil.set(renewingAt + leaseFor.toNanos());
+            } else {
+                logger.error("Lost the lease of background job {}, it will stop at its next chance", jobName);
+                lost.set(true);
+            }
+        } catch (RuntimeException e) {
+            // the lease may run out before the next renewal, so play safe and stop
+            logger.error("Failed to renew the lease of background job {}, it will stop at its next chance", jobName, e);
+            lost.set(true);
+        } finally {
+            unitOfWork.end();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.pay.connector.service.jobs;
+
+public class BackgroundJobResult {
+
+    private final long processed;
+    private final long backlog;
+
+    public BackgroundJobResult(long processed, long backlog) {
+        this.processed = processed;
+        this.backlog = backlog;
+    }
+
+    /**
+     * @return the number of items processed by the run
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return the number of items still waiting after the run
+     */
+    public long getBacklog() {
+        return backlog;
+    }
+}
@@ -0,0 +1,151 @@
+package uk.gov.pay.connector.service.jobs;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.persist.UnitOfWork;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.BackgroundJobConfig;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs background jobs on every connector node. After each run a job is scheduled again sooner when it
+ * still has a backlog it is making progress on, and later, up to its maximum interval, when it has none.
+ * The delays are jittered so the nodes drift apart and take turns rather than all polling at once.
+ * <p>
+ * Exclusive jobs only run on the node that holds their lease, which is renewed for as long as the run takes;
+ * the other nodes skip the run and try again at their next one, so the work moves to whichever node gets
+ * there first.
+ * <p>
+ * Each job publishes <code>background-jobs.&lt;job&gt;.*</code> metrics: the run time, the number of items
+ * processed, the backlog left by the last run on this node, and the runs skipped or failed.
+ */
+public class BackgroundJobScheduler implements Managed {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final String BACKGROUND_JOBS_SCHEDULER_NAME = "background-jobs";
+    private static final double JITTER = 0.1;
+
+    private final Map<BackgroundJob, BackgroundJobConfig> jobs;
+    private final BackgroundJobLeases leases;
+    private final UnitOfWork unitOfWork;
+    private final MetricRegistry metricRegistry;
+    private volatile boolean stopped;
+
+    ScheduledExecutorService scheduledExecutorService;
+
+    public BackgroundJobScheduler(Environment environment, BackgroundJobLeases leases, UnitOfWork unitOfWork,
+                                  Map<BackgroundJob, BackgroundJobConfig> jobs) {
+        this.jobs = jobs;
+        this.leases = leases;
+        this.unitOfWork = unitOfWork;
+        this.metricRegistry = environment.metrics();
+
+        scheduledExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService(BACKGROUND_JOBS_SCHEDULER_NAME)
+                .threads(Math.max(1, jobs.size()))
+                .build();
+    }
+
+    public void start() {
+        jobs.forEach((job, jobConfig) -> {
+            AtomicLong backlog = new AtomicLong();
+            metricRegistry.register(name("background-jobs", job.getName(), "backlog"), (Gauge<Long>) backlog::get);
+
+            logger.info("Scheduling background job {} to run every {} to {} (will start in {})", job.getName(),
+                    jobConfig.getMinimumIntervalAsJavaDuration(), jobConfig.getMaximumIntervalAsJavaDuration(),
+                    jobConfig.getInitialDelayAsJavaDuration());
+            schedule(job, jobConfig, backlog, jobConfig.getInitialDelayAsJavaDuration());
+        });
+    }
+
+    private void schedule(BackgroundJob job, BackgroundJobConfig jobConfig, AtomicLong backlog, Duration delay) {
+        if (stopped) {
+            return;
+        }
+        scheduledExecutorService.schedule(() -> {
+            Duration nextDelay = jobConfig.getMaximumIntervalAsJavaDuration();
+            try {
+                nextDelay = runOnce(job, jobConfig, backlog, delay);
+            } catch (Exception e) {
+                logger.error("Unexpected error running background job {}", job.getName(), e);
+            } finally {
+                schedule(job, jobConfig, backlog, jittered(nextDelay));
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the job once, if it can take its lease when it needs one.
+     *
+     * @return how long to wait before the next run
+     */
+    Duration runOnce(BackgroundJob job, BackgroundJobConfig jobConfig, AtomicLong backlog, Duration previousDelay) {
+        // each run gets an entity manager of its own, so it never reads from a stale persistence context
+        unitOfWork.begin();
+        try {
+            Optional<BackgroundJobResult> maybeResult = job.isExclusive()
+                    ? leases.runHolding(job.getName(), leaseHeld -> run(job, jobConfig, leaseHeld))
+                    : Optional.of(run(job, jobConfig, () -> true));
+            if (!maybeResult.isPresent()) {
+                metricRegistry.counter(name("background-jobs", job.getName(), "lease-taken")).inc();
+                return nextIdleDelay(jobConfig, previousDelay);
+            }
+            BackgroundJobResult result = maybeResult.get();
+
+            metricRegistry.meter(name("background-jobs", job.getName(), "processed")).mark(result.getProcessed());
+            backlog.set(result.getBacklog());
+            logger.info("Background job {} finished - processed={}, backlog={}", job.getName(), result.getProcessed(), result.getBacklog());
+
+            // a backlog nothing could be taken from, e.g. captures waiting to be retried, is no reason to hurry back
+            if (result.getProcessed() > 0 && result.getBacklog() > 0) {
+                return jobConfig.getMinimumIntervalAsJavaDuration();
+            }
+            return nextIdleDelay(jobConfig, previousDelay);
+        } finally {
+            unitOfWork.end();
+        }
+    }
+
+    private BackgroundJobResult run(BackgroundJob job, BackgroundJobConfig jobConfig, BooleanSupplier leaseHeld) {
+        try (Timer.Context ignored = metricRegistry.timer(name("background-jobs", job.getName(), "run-time")).time()) {
+            return job.run(jobConfig.getBatchSize(), leaseHeld);
+        } catch (RuntimeException e) {
+            metricRegistry.counter(name("background-jobs", job.getName(), "failures")).inc();
+            throw e;
+        }
+    }
+
+    private Duration nextIdleDelay(BackgroundJobConfig jobConfig, Duration previousDelay) {
+        Duration minimumInterval = jobConfig.getMinimumIntervalAsJavaDuration();
+        Duration maximumInterval = jobConfig.getMaximumIntervalAsJavaDuration();
+        Duration doubled = previousDelay.compareTo(minimumInterval) < 0 ? minimumInterval : previousDelay.multipliedBy(2);
+        return doubled.compareTo(maximumInterval) > 0 ? maximumInterval : doubled;
+    }
+
+    private Duration jittered(Duration delay) {
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return Duration.ofMillis((long) (delay.toMillis() * factor));
+    }
+
+    public void stop() {
+        stopped = true;
+        scheduledExecutorService.shutdown();
+        jobs.keySet().forEach(BackgroundJob::stop);
+    }
+}
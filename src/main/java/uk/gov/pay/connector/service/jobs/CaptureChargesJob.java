@@ -0,0 +1,40 @@
+package uk.gov.pay.connector.service.jobs;
+
+import uk.gov.pay.connector.service.CardCaptureProcess;
+
+import javax.inject.Inject;
+import java.util.function.BooleanSupplier;
+
+public class CaptureChargesJob implements BackgroundJob {
+
+    public static final String NAME = "capture-charges";
+
+    private final CardCaptureProcess cardCaptureProcess;
+
+    @Inject
+    public CaptureChargesJob(CardCaptureProcess cardCaptureProcess) {
+        this.cardCaptureProcess = cardCaptureProcess;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isExclusive() {
+        // charges are claimed for capture one batch at a time, so nodes capturing at once never take the same charge
+        return false;
+    }
+
+    @Override
+    public BackgroundJobResult run(int batchSize, BooleanSupplier leaseHeld) {
+        int attempted = cardCaptureProcess.runCapture(batchSize);
+        return new BackgroundJobResult(attempted, Math.max(0, cardCaptureProcess.getQueueSize() - attempted));
+    }
+
+    @Override
+    public void stop() {
+        cardCaptureProcess.shutdown();
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.pay.connector.service.jobs;
+
+import uk.gov.pay.connector.dao.ChargeDao;
+import uk.gov.pay.connector.service.ChargeExpiryService;
+import uk.gov.pay.connector.service.ChargeExpiryService.SweepResult;
+
+import javax.inject.Inject;
+import java.time.ZonedDateTime;
+import java.util.function.BooleanSupplier;
+
+import static uk.gov.pay.connector.service.ChargeExpiryService.EXPIRABLE_STATUSES;
+
+public class ExpireChargesJob implements BackgroundJob {
+
+    public static final String NAME = "expire-charges";
+
+    private final ChargeDao chargeDao;
+    private final ChargeExpiryService chargeExpiryService;
+
+    // where the last run stopped. Charges up to it were expired or could not be, so the next run carries on
+    // after it rather than sweeping charges that keep failing to expire over again, and wraps around to the
+    // start once it gets to the end
+    private volatile long resumeAfterId = 0;
+
+    @Inject
+    public ExpireChargesJob(ChargeDao chargeDao, ChargeExpiryService chargeExpiryService) {
+        this.chargeDao = chargeDao;
+        this.chargeExpiryService = chargeExpiryService;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isExclusive() {
+        // two sweeps would walk the same charges and fight over them
+        return true;
+    }
+
+    @Override
+    public BackgroundJobResult run(int batchSize, BooleanSupplier leaseHeld) {
+        ZonedDateTime expiryDate = chargeExpiryService.getExpiryDate();
+        long expirable = chargeDao.countBeforeDateWithStatusIn(expiryDate, EXPIRABLE_STATUSES);
+
+        SweepResult result = chargeExpiryService.sweepAfter(expiryDate, resumeAfterId, batchSize, leaseHeld);
+        resumeAfterId = result.isFinished() ? 0 : result.getLastSweptId();
+
+        return new BackgroundJobResult(result.getSwept(), Math.max(0, expirable - result.getSwept()));
+    }
+}
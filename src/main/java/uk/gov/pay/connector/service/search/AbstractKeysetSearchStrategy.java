@@ -0,0 +1,45 @@
+package uk.gov.pay.connector.service.search;
+
+import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.SearchCursor;
+import uk.gov.pay.connector.resources.ChargesPaginationResponseBuilder;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.List;
+
+/**
+ * A search that, given a cursor, returns the rows after it rather than a numbered page, along with the cursor
+ * of the next page when there may be one.
+ */
+public abstract class AbstractKeysetSearchStrategy<T> extends AbstractSearchStrategy<T> {
+
+    protected AbstractKeysetSearchStrategy(CardTypeCatalogue cardTypeCatalogue) {
+        super(cardTypeCatalogue);
+    }
+
+    @Override
+    public Response search(ChargeSearchParams searchParams, UriInfo uriInfo) {
+        if (searchParams.getCursor() == null) {
+            return super.search(searchParams, uriInfo);
+        }
+        List<T> transactions = findAllBy(searchParams);
+
+        ChargesPaginationResponseBuilder responseBuilder = new ChargesPaginationResponseBuilder(searchParams, uriInfo)
+                .withChargeResponses(buildResponses(uriInfo, transactions));
+
+        if (transactions.size() == searchParams.getDisplaySize()) {
+            responseBuilder.withNextCursor(cursorFor(transactions.get(transactions.size() - 1)));
+        }
+        if (searchParams.isWithTotal()) {
+            responseBuilder.withTotalCount(getTotalFor(searchParams));
+        }
+        return responseBuilder.buildResponse();
+    }
+
+    /**
+     * Position of the given row for keyset pagination, i.e. its <code>created_date</code> and primary key
+     */
+    abstract protected SearchCursor cursorFor(T transaction);
+}
@@ -1,10 +1,9 @@
 package uk.gov.pay.connector.service.search;
 
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
 import uk.gov.pay.connector.model.ChargeResponse;
-import uk.gov.pay.connector.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.resources.ChargesPaginationResponseBuilder;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -16,10 +15,10 @@ import static uk.gov.pay.connector.util.ResponseUtil.notFoundResponse;
 
 public abstract class AbstractSearchStrategy<T> implements SearchStrategy {
 
-    private final CardTypeDao cardTypeDao;
+    private final CardTypeCatalogue cardTypeCatalogue;
 
-    protected AbstractSearchStrategy(CardTypeDao cardTypeDao) {
-        this.cardTypeDao = cardTypeDao;
+    protected AbstractSearchStrategy(CardTypeCatalogue cardTypeCatalogue) {
+        this.cardTypeCatalogue = cardTypeCatalogue;
     }
 
     @Override
@@ -32,21 +31,22 @@ public abstract class AbstractSearchStrategy<T> implements SearchStrategy {
                 return notFoundResponse("the requested page not found");
             }
         }
-        Map<String, String> cardBrandToLabel = cardTypeDao.findAll().stream().collect(
-                Collectors.toMap(CardTypeEntity::getBrand, CardTypeEntity::getLabel, (label1, label2) -> label1));
-
         List<T> transactions = findAllBy(searchParams);
-        List<ChargeResponse> chargesResponse =
-                transactions.stream()
-                        .map(transaction -> buildResponse(uriInfo, transaction, cardBrandToLabel)
-                        ).collect(Collectors.toList());
 
         return new ChargesPaginationResponseBuilder(searchParams, uriInfo)
-                .withChargeResponses(chargesResponse)
+                .withChargeResponses(buildResponses(uriInfo, transactions))
                 .withTotalCount(totalCount)
                 .buildResponse();
     }
 
+    List<ChargeResponse> buildResponses(UriInfo uriInfo, List<T> transactions) {
+        Map<String, String> cardBrandToLabel = cardTypeCatalogue.getLabelsByBrand();
+
+        return transactions.stream()
+                .map(transaction -> buildResponse(uriInfo, transaction, cardBrandToLabel))
+                .collect(Collectors.toList());
+    }
+
     abstract protected long getTotalFor(ChargeSearchParams params);
 
     abstract protected List<T> findAllBy(ChargeSearchParams params);
@@ -1,25 +1,29 @@
 package uk.gov.pay.connector.service.search;
 
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.model.ChargeResponse;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
+import uk.gov.pay.connector.model.domain.TokenEntity;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
 import uk.gov.pay.connector.service.ChargeService;
 
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static uk.gov.pay.connector.model.ChargeResponse.aChargeResponseBuilder;
 
-public class ChargeSearchStrategy extends AbstractSearchStrategy<ChargeEntity> implements SearchStrategy {
+public class ChargeSearchStrategy extends AbstractKeysetSearchStrategy<ChargeEntity> implements SearchStrategy {
 
     private ChargeService chargeService;
     private ChargeDao chargeDao;
 
-    public ChargeSearchStrategy(ChargeService chargeService, ChargeDao chargeDao, CardTypeDao cardTypeDao) {
-        super(cardTypeDao);
+    public ChargeSearchStrategy(ChargeService chargeService, ChargeDao chargeDao, CardTypeCatalogue cardTypeCatalogue) {
+        super(cardTypeCatalogue);
         this.chargeService = chargeService;
         this.chargeDao = chargeDao;
     }
@@ -34,6 +38,22 @@ public class ChargeSearchStrategy extends AbstractSearchStrategy<ChargeEntity> i
         return chargeDao.findAllBy(params);
     }
 
+    @Override
+    protected SearchCursor cursorFor(ChargeEntity chargeEntity) {
+        return SearchCursor.after(chargeEntity.getCreatedDate(), chargeEntity.getId());
+    }
+
+    @Override
+    List<ChargeResponse> buildResponses(UriInfo uriInfo, List<ChargeEntity> chargeEntities) {
+        // the tokens of the whole page in one query, rather than one per unfinished charge
+        Map<Long, TokenEntity> unusedTokens = chargeService.findUnusedTokensFor(chargeEntities);
+
+        return chargeEntities.stream()
+                .map(chargeEntity -> chargeService.populateResponseBuilderWith(aChargeResponseBuilder(), uriInfo, chargeEntity,
+                        Optional.ofNullable(unusedTokens.get(chargeEntity.getId()))).build())
+                .collect(Collectors.toList());
+    }
+
     @Override
     protected ChargeResponse buildResponse(UriInfo uriInfo, ChargeEntity chargeEntity, Map<String, String> cardBrandToLabel) {
         return chargeService.populateResponseBuilderWith(aChargeResponseBuilder(), uriInfo, chargeEntity).build();
@@ -1,6 +1,5 @@
 package uk.gov.pay.connector.service.search;
 
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
 import uk.gov.pay.connector.dao.OldTransactionDao;
 import uk.gov.pay.connector.model.ChargeResponse;
@@ -12,6 +11,7 @@ import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.PersistedCard;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.Transaction;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
 import uk.gov.pay.connector.util.DateTimeUtils;
 
 import javax.ws.rs.core.UriInfo;
@@ -26,8 +26,8 @@ public class OldTransactionSearchStrategy extends AbstractSearchStrategy<Transac
 
     private OldTransactionDao oldTransactionDao;
 
-    public OldTransactionSearchStrategy(OldTransactionDao oldTransactionDao, CardTypeDao cardTypeDao) {
-        super(cardTypeDao);
+    public OldTransactionSearchStrategy(OldTransactionDao oldTransactionDao, CardTypeCatalogue cardTypeCatalogue) {
+        super(cardTypeCatalogue);
         this.oldTransactionDao = oldTransactionDao;
     }
 
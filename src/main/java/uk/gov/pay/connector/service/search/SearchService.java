@@ -1,8 +1,8 @@
 package uk.gov.pay.connector.service.search;
 
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.OldTransactionDao;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
 import uk.gov.pay.connector.service.ChargeService;
 
 import javax.inject.Inject;
@@ -14,22 +14,22 @@ public class SearchService {
     private ChargeDao chargeDao;
     private OldTransactionDao oldTransactionDao;
     private ChargeService chargeService;
-    private final CardTypeDao cardTypeDao;
+    private final CardTypeCatalogue cardTypeCatalogue;
 
     @Inject
-    public SearchService(ChargeDao chargeDao, OldTransactionDao oldTransactionDao, ChargeService chargeService, CardTypeDao cardTypeDao) {
+    public SearchService(ChargeDao chargeDao, OldTransactionDao oldTransactionDao, ChargeService chargeService, CardTypeCatalogue cardTypeCatalogue) {
         this.chargeDao = chargeDao;
         this.oldTransactionDao = oldTransactionDao;
         this.chargeService = chargeService;
-        this.cardTypeDao = cardTypeDao;
+        this.cardTypeCatalogue = cardTypeCatalogue;
     }
 
     public SearchStrategy ofType(TYPE type) {
         switch (type) {
             case TRANSACTION:
-                return new OldTransactionSearchStrategy(oldTransactionDao, cardTypeDao);
+                return new OldTransactionSearchStrategy(oldTransactionDao, cardTypeCatalogue);
             default:
-                return new ChargeSearchStrategy(chargeService, chargeDao, cardTypeDao);
+                return new ChargeSearchStrategy(chargeService, chargeDao, cardTypeCatalogue);
         }
     }
 }
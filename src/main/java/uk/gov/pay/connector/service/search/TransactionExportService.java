@@ -0,0 +1,160 @@
+package uk.gov.pay.connector.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.TransactionsPaginationServiceConfig;
+import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.TransactionDao;
+import uk.gov.pay.connector.model.api.ExternalTransactionState;
+import uk.gov.pay.connector.model.domain.Transaction;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
+import uk.gov.pay.connector.util.DateTimeUtils;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Writes every transaction matching a search to the response as it is read from the database, either
+ * as newline delimited JSON, one transaction per line in the shape of the transactions search results,
+ * or as CSV. Memory use does not grow with the number of transactions exported.
+ * <p>
+ * Only a few exports run at once, as each holds a database connection for as long as it runs.
+ * CSV cells that a spreadsheet would read as a formula are prefixed with a single quote.
+ */
+public class TransactionExportService {
+
+    public static final MediaType NDJSON_TYPE = new MediaType("application", "x-ndjson");
+    public static final MediaType CSV_TYPE = new MediaType("text", "csv");
+
+    static final List<String> CSV_HEADER = ImmutableList.of(
+            "transaction_type", "charge_id", "reference", "description", "email", "amount", "state", "finished",
+            "code", "gateway_transaction_id", "card_brand", "cardholder_name", "last_digits_card_number",
+            "expiry_date", "created_date");
+
+    // what a spreadsheet takes a cell to be a formula by, according to OWASP
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final TransactionDao transactionDao;
+    private final TransactionSearchStrategy transactionSearchStrategy;
+    private final CardTypeCatalogue cardTypeCatalogue;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final Duration statementTimeout;
+    private final Semaphore exportPermits;
+
+    @Inject
+    public TransactionExportService(TransactionDao transactionDao, TransactionSearchStrategy transactionSearchStrategy,
+                                    CardTypeCatalogue cardTypeCatalogue, ObjectMapper objectMapper,
+                                    ConnectorConfiguration configuration) {
+        this.transactionDao = transactionDao;
+        this.transactionSearchStrategy = transactionSearchStrategy;
+        this.cardTypeCatalogue = cardTypeCatalogue;
+        this.objectMapper = objectMapper;
+        TransactionsPaginationServiceConfig config = configuration.getTransactionsPaginationConfig();
+        this.fetchSize = config.getExportFetchSize();
+        this.statementTimeout = config.getExportStatementTimeoutAsJavaDuration();
+        this.exportPermits = new Semaphore(Math.max(1, config.getMaximumConcurrentExports()));
+    }
+
+    /**
+     * @return the export, to be written to the response, or nothing when too many exports are running
+     * already. The export gives its place up once it has been written, so it must be written.
+     */
+    public Optional<StreamingOutput> export(ChargeSearchParams params, MediaType mediaType, UriInfo uriInfo) {
+        if (!exportPermits.tryAcquire()) {
+            return Optional.empty();
+        }
+        Map<String, String> cardBrandToLabel = cardTypeCatalogue.getLabelsByBrand();
+        boolean csv = CSV_TYPE.isCompatible(mediaType);
+
+        return Optional.of(output -> {
+            try {
+                write(params, csv, cardBrandToLabel, uriInfo, output);
+            } finally {
+                exportPermits.release();
+            }
+        });
+    }
+
+    private void write(ChargeSearchParams params, boolean csv, Map<String, String> cardBrandToLabel, UriInfo uriInfo,
+                       OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8));
+        if (csv) {
+            writer.write(toCsvLine(CSV_HEADER));
+        }
+        try {
+            transactionDao.stream(params, fetchSize, statementTimeout, transaction -> {
+                try {
+                    writer.write(csv
+                            ? toCsvLine(csvValues(transaction, cardBrandToLabel))
+                            : objectMapper.writeValueAsString(transactionSearchStrategy.buildResponse(uriInfo, transaction, cardBrandToLabel)) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // most likely the client went away, which ends the query as well
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private List<Object> csvValues(Transaction transaction, Map<String, String> cardBrandToLabel) {
+        ExternalTransactionState state = TransactionSearchStrategy.externalStateOf(transaction);
+        return ImmutableList.<Object>of(
+                TransactionSearchStrategy.transactionTypeOf(transaction).getValue(),
+                transaction.getExternalId(),
+                Objects.toString(transaction.getReference(), ""),
+                Objects.toString(transaction.getDescription(), ""),
+                Objects.toString(transaction.getEmail(), ""),
+                transaction.getAmount(),
+                state.getStatus(),
+                state.isFinished(),
+                Objects.toString(state.getCode(), ""),
+                Objects.toString(transaction.getGatewayTransactionId(), ""),
+                Objects.toString(cardBrandToLabel.get(transaction.getCardBrand()), ""),
+                Objects.toString(transaction.getCardHolderName(), ""),
+                Objects.toString(transaction.getLastDigitsCardNumber(), ""),
+                Objects.toString(transaction.getExpiryDate(), ""),
+                DateTimeUtils.toUTCDateTimeString(transaction.getCreatedDate()));
+    }
+
+    static String toCsvLine(List<?> values) {
+        return values.stream()
+                .map(value -> toCsvField(value instanceof String ? withoutFormula((String) value) : value.toString()))
+                .collect(joining(",", "", "\r\n"));
+    }
+
+    private static String withoutFormula(String text) {
+        // keeps a spreadsheet from evaluating text such as a reference of =HYPERLINK(...)
+        if (!text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            return "'" + text;
+        }
+        return text;
+    }
+
+    private static String toCsvField(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\r") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
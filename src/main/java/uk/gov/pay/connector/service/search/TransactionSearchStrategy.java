@@ -1,7 +1,7 @@
 package uk.gov.pay.connector.service.search;
 
-import uk.gov.pay.connector.dao.CardTypeDao;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.dao.TransactionDao;
 import uk.gov.pay.connector.model.ChargeResponse;
 import uk.gov.pay.connector.model.TransactionResponse;
@@ -14,6 +14,7 @@ import uk.gov.pay.connector.model.domain.PersistedCard;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.Transaction;
 import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
 import uk.gov.pay.connector.util.DateTimeUtils;
 
 import javax.inject.Inject;
@@ -23,13 +24,13 @@ import java.util.Map;
 
 import static javax.ws.rs.HttpMethod.GET;
 
-public class TransactionSearchStrategy extends AbstractSearchStrategy<Transaction> {
+public class TransactionSearchStrategy extends AbstractKeysetSearchStrategy<Transaction> {
 
     private final TransactionDao transactionDao;
 
     @Inject
-    public TransactionSearchStrategy(TransactionDao transactionDao, CardTypeDao cardTypeDao) {
-        super(cardTypeDao);
+    public TransactionSearchStrategy(TransactionDao transactionDao, CardTypeCatalogue cardTypeCatalogue) {
+        super(cardTypeCatalogue);
         this.transactionDao = transactionDao;
     }
 
@@ -43,19 +44,15 @@ public class TransactionSearchStrategy extends AbstractSearchStrategy<Transactio
         return transactionDao.search(params);
     }
 
+    @Override
+    protected SearchCursor cursorFor(Transaction transaction) {
+        return SearchCursor.after(transaction.getCreatedDate(), transaction.getChargeId());
+    }
+
     @Override
     protected ChargeResponse buildResponse(UriInfo uriInfo, Transaction transaction, Map<String, String> cardBrandToLabel) {
-        ExternalTransactionState externalTransactionState;
-        TransactionType transactionType;
-        if (transaction.getTransactionType().equals(TransactionOperation.CHARGE.name())) {
-            ExternalChargeState externalChargeState = ChargeStatus.valueOf(ChargeStatus.class, transaction.getStatus()).toExternal();
-            externalTransactionState = new ExternalTransactionState(externalChargeState.getStatus(), externalChargeState.isFinished(), externalChargeState.getCode(), externalChargeState.getMessage());
-            transactionType = TransactionType.PAYMENT;
-        } else {
-            ExternalRefundStatus externalRefundStatus = RefundStatus.valueOf(RefundStatus.class, transaction.getStatus()).toExternal();
-            externalTransactionState = new ExternalTransactionState(externalRefundStatus.getStatus(), externalRefundStatus.isFinished());
-            transactionType = TransactionType.REFUND;
-        }
+        ExternalTransactionState externalTransactionState = externalStateOf(transaction);
+        TransactionType transactionType = transactionTypeOf(transaction);
 
         PersistedCard cardDetails = new PersistedCard();
         cardDetails.setCardBrand(cardBrandToLabel.get(transaction.getCardBrand()));
@@ -82,4 +79,17 @@ public class TransactionSearchStrategy extends AbstractSearchStrategy<Transactio
                         .build(transaction.getGatewayAccountId(), transaction.getExternalId()))
                 .build();
     }
+
+    static TransactionType transactionTypeOf(Transaction transaction) {
+        return transaction.getTransactionType().equals(TransactionOperation.CHARGE.name()) ? TransactionType.PAYMENT : TransactionType.REFUND;
+    }
+
+    static ExternalTransactionState externalStateOf(Transaction transaction) {
+        if (transactionTypeOf(transaction) == TransactionType.PAYMENT) {
+            ExternalChargeState externalChargeState = ChargeStatus.valueOf(ChargeStatus.class, transaction.getStatus()).toExternal();
+            return new ExternalTransactionState(externalChargeState.getStatus(), externalChargeState.isFinished(), externalChargeState.getCode(), externalChargeState.getMessage());
+        }
+        ExternalRefundStatus externalRefundStatus = RefundStatus.valueOf(RefundStatus.class, transaction.getStatus()).toExternal();
+        return new ExternalTransactionState(externalRefundStatus.getStatus(), externalRefundStatus.isFinished());
+    }
 }
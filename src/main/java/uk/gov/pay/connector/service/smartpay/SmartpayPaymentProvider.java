@@ -29,6 +29,7 @@ import uk.gov.pay.connector.service.StatusMapper;
 import javax.ws.rs.client.Invocation;
 import java.util.EnumMap;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -66,6 +67,11 @@ public class SmartpayPaymentProvider extends BasePaymentProvider<BaseResponse, P
         return sendReceive(request, buildAuthoriseOrderFor(), SmartpayAuthorisationResponse.class, extractResponseIdentifier());
     }
 
+    @Override
+    public CompletionStage<GatewayResponse<BaseResponse>> authoriseAsync(AuthorisationGatewayRequest request) {
+        return sendReceiveAsync(request, buildAuthoriseOrderFor(), SmartpayAuthorisationResponse.class, extractResponseIdentifier());
+    }
+
     @Override
     public GatewayResponse<BaseResponse> authorise3dsResponse(Auth3dsResponseGatewayRequest request) {
         return GatewayResponse.with(new GatewayError("3D Secure not implemented for SmartPay", GENERIC_GATEWAY_ERROR));
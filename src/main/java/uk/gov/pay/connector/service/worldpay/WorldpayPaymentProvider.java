@@ -27,6 +27,7 @@ import javax.ws.rs.client.Invocation.Builder;
 import java.time.ZoneOffset;
 import java.util.EnumMap;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -65,6 +66,11 @@ public class WorldpayPaymentProvider extends BasePaymentProvider<BaseResponse, S
         return sendReceive(request, buildAuthoriseOrderFor(), WorldpayOrderStatusResponse.class, extractResponseIdentifier());
     }
 
+    @Override
+    public CompletionStage<GatewayResponse<BaseResponse>> authoriseAsync(AuthorisationGatewayRequest request) {
+        return sendReceiveAsync(request, buildAuthoriseOrderFor(), WorldpayOrderStatusResponse.class, extractResponseIdentifier());
+    }
+
     @Override
     public GatewayResponse<BaseResponse> authorise3dsResponse(Auth3dsResponseGatewayRequest request) {
         return sendReceive(request, build3dsResponseAuthOrderFor(), WorldpayOrderStatusResponse.class, extractResponseIdentifier());
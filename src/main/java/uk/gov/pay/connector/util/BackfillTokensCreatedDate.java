@@ -0,0 +1,58 @@
+package uk.gov.pay.connector.util;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Gives existing tokens the created date of their charge, a batch at a time with a commit after each batch,
+ * so that the backfill never holds row locks on more than one batch of tokens.
+ * tokens.charge_id has no foreign key, so tokens whose charge no longer exists are given the current time.
+ */
+public class BackfillTokensCreatedDate implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 10000;
+
+    private static final String BACKFILL_BATCH = "UPDATE tokens SET created_date = COALESCE(" +
+            "(SELECT c.created_date FROM charges c WHERE c.id = tokens.charge_id), now() at time zone 'utc') " +
+            "WHERE tokens.id IN (SELECT id FROM tokens WHERE created_date IS NULL LIMIT ?)";
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        JdbcConnection connection = (JdbcConnection) database.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(BACKFILL_BATCH)) {
+            statement.setInt(1, BATCH_SIZE);
+            int updated;
+            do {
+                updated = statement.executeUpdate();
+                connection.commit();
+            } while (updated > 0);
+        } catch (Exception e) {
+            throw new CustomChangeException("Could not backfill tokens.created_date", e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "tokens.created_date backfilled";
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
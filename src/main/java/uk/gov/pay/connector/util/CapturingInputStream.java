@@ -0,0 +1,65 @@
+package uk.gov.pay.connector.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Passes a stream through while keeping a copy of at most {@code limit} of the bytes read from it,
+ * so that a body consumed as a stream can still be logged.
+ */
+public class CapturingInputStream extends FilterInputStream {
+
+    private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    private final int limit;
+    private boolean truncated = false;
+
+    public CapturingInputStream(InputStream in, int limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            capture(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        int remaining = limit - captured.size();
+        if (len > remaining) {
+            truncated = true;
+        }
+        if (remaining > 0) {
+            captured.write(b, off, Math.min(len, remaining));
+        }
+    }
+
+    /**
+     * @return the captured bytes decoded as UTF-8, followed by an ellipsis if there were more
+     */
+    public String getCaptured() {
+        String capturedText = new String(captured.toByteArray(), UTF_8);
+        return truncated ? capturedText + "..." : capturedText;
+    }
+}
@@ -0,0 +1,77 @@
+package uk.gov.pay.connector.util;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static java.lang.String.format;
+
+/**
+ * An IPv4 or IPv6 address range in CIDR notation, e.g. <code>195.35.90.0/23</code>. A single address is a range
+ * of one address.
+ */
+public class CidrRange {
+
+    private final byte[] network;
+    private final int prefixLength;
+
+    private CidrRange(byte[] network, int prefixLength) {
+        this.network = network;
+        this.prefixLength = prefixLength;
+    }
+
+    public static boolean isCidrRange(String range) {
+        return InetAddresses.isInetAddress(range.split("/")[0]);
+    }
+
+    public static CidrRange parse(String range) {
+        String[] addressAndPrefixLength = range.trim().split("/");
+        byte[] network = InetAddresses.forString(addressAndPrefixLength[0]).getAddress();
+        int prefixLength = addressAndPrefixLength.length > 1 ? Integer.parseInt(addressAndPrefixLength[1]) : network.length * 8;
+        if (addressAndPrefixLength.length > 2 || prefixLength < 0 || prefixLength > network.length * 8) {
+            throw new IllegalArgumentException(format("'%s' is not a valid address range", range));
+        }
+        return new CidrRange(network, prefixLength);
+    }
+
+    public static CidrRange of(InetAddress address) {
+        byte[] network = address.getAddress();
+        return new CidrRange(network, network.length * 8);
+    }
+
+    /**
+     * Never resolves host names: anything but an address literal is outside every range.
+     */
+    public boolean contains(String ipAddress) {
+        if (!InetAddresses.isInetAddress(ipAddress)) {
+            return false;
+        }
+        byte[] address = InetAddresses.forString(ipAddress).getAddress();
+        if (address.length != network.length) {
+            return false;
+        }
+        int wholeBytes = prefixLength / 8;
+        for (int i = 0; i < wholeBytes; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+        int remainingBits = prefixLength % 8;
+        if (remainingBits == 0) {
+            return true;
+        }
+        int mask = 0xff << (8 - remainingBits);
+        return (address[wholeBytes] & mask) == (network[wholeBytes] & mask);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return InetAddresses.toAddrString(InetAddress.getByAddress(network)) + "/" + prefixLength;
+        } catch (UnknownHostException e) {
+            // only thrown for arrays of the wrong length, which parse and of never create
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,30 +1,94 @@
 package uk.gov.pay.connector.util;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.NotificationSourceConfig;
 
+import javax.inject.Inject;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.InitialDirContext;
 import java.net.InetAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.*;
 import static java.lang.String.join;
+import static java.util.stream.Collectors.toList;
 
+/**
+ * Checks where notifications come from. Reverse DNS lookups are cached per address, for
+ * {@link NotificationSourceConfig#getVerifiedExpireAfterAsJavaDuration()} when a host was found and for
+ * {@link NotificationSourceConfig#getRejectedExpireAfterAsJavaDuration()} when none was, so a burst of notifications
+ * costs one lookup per address. Addresses sending notifications for a domain that has an allow-list entry are instead
+ * checked against the ranges of that entry and the addresses its host names resolved to when last refreshed, without
+ * any lookup on the request path.
+ */
 public class DnsUtils {
     private static final Logger logger = LoggerFactory.getLogger(DnsUtils.class);
 
+    private static final String ALLOW_LIST_REFRESH_NAME = "notification-source-allow-list";
+
+    private final NotificationSourceConfig config;
+    private final Clock clock;
+    private final Cache<String, CachedLookup> reverseDnsLookups;
+    private final Map<String, List<CidrRange>> allowListRangesByHost = new ConcurrentHashMap<>();
+    private volatile Map<String, List<CidrRange>> allowListRangesByDomain = Collections.emptyMap();
+
+    public DnsUtils() {
+        this(new NotificationSourceConfig(), Clock.systemUTC());
+    }
+
+    @Inject
+    public DnsUtils(ConnectorConfiguration configuration, Environment environment) {
+        this(configuration.getNotificationSourceConfig(), Clock.systemUTC());
+        if (isAllowListEnabled()) {
+            long refreshIntervalInMillis = config.getAllowListRefreshIntervalAsJavaDuration().toMillis();
+            environment.lifecycle()
+                    .scheduledExecutorService(ALLOW_LIST_REFRESH_NAME)
+                    .threads(1)
+                    .build()
+                    .scheduleWithFixedDelay(this::refreshAllowListQuietly, refreshIntervalInMillis, refreshIntervalInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    DnsUtils(NotificationSourceConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        Duration longestExpiry = Collections.max(Arrays.asList(
+                config.getVerifiedExpireAfterAsJavaDuration(), config.getRejectedExpireAfterAsJavaDuration()));
+        this.reverseDnsLookups = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaximumCachedAddresses())
+                .expireAfterWrite(longestExpiry.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        if (isAllowListEnabled()) {
+            refreshAllowList();
+        }
+    }
+
     private String extractForwardedIp(String forwardedAddress) {
-        String extractedIp = forwardedAddress.split(",")[0];
+        String extractedIp = forwardedAddress.split(",")[0].trim();
         logger.debug("Extracted ip {} from X-Forwarded-For '{}'", extractedIp, forwardedAddress);
         return extractedIp;
     }
+
     public boolean ipMatchesDomain(String forwardedAddress, String domain) {
         try {
             String ipAddress = extractForwardedIp(forwardedAddress);
-            Optional<String> host = reverseDnsLookup(ipAddress);
+            List<CidrRange> allowListRanges = allowListRangesByDomain.get(domain);
+            if (allowListRanges != null) {
+                return ipIsAllowListed(ipAddress, domain, allowListRanges);
+            }
+            Optional<String> host = cachedReverseDnsLookup(ipAddress);
             if (!host.isPresent()) {
                 throw new Exception(format("Host not found for ip address '%s'", ipAddress));
             }
@@ -39,6 +103,69 @@ public class DnsUtils {
         }
     }
 
+    private boolean isAllowListEnabled() {
+        return !config.getAllowList().isEmpty();
+    }
+
+    private boolean ipIsAllowListed(String ipAddress, String domain, List<CidrRange> allowListRanges) {
+        if (allowListRanges.stream().anyMatch(range -> range.contains(ipAddress))) {
+            return true;
+        }
+        logger.error("Ip '{}' is not in the notification source allow-list of '{}'", ipAddress, domain);
+        return false;
+    }
+
+    private Optional<String> cachedReverseDnsLookup(String ipAddress) throws Exception {
+        Instant now = clock.instant();
+        CachedLookup cached = reverseDnsLookups.getIfPresent(ipAddress);
+        if (cached != null && now.isBefore(cached.expiresAt)) {
+            return cached.host;
+        }
+
+        Optional<String> host = reverseDnsLookup(ipAddress);
+        Duration expireAfter = host.isPresent() ? config.getVerifiedExpireAfterAsJavaDuration() : config.getRejectedExpireAfterAsJavaDuration();
+        if (!expireAfter.isZero()) {
+            reverseDnsLookups.put(ipAddress, new CachedLookup(host, now.plus(expireAfter)));
+        }
+        return host;
+    }
+
+    /**
+     * Resolves the host names of the allow-list again. A host name that cannot be resolved keeps the addresses it
+     * last resolved to, so a DNS outage does not start rejecting notifications.
+     */
+    void refreshAllowList() {
+        Map<String, List<CidrRange>> rangesByDomain = new HashMap<>();
+        config.getAllowList().forEach((domain, entries) -> {
+            List<CidrRange> ranges = new ArrayList<>();
+            for (String entry : entries) {
+                if (CidrRange.isCidrRange(entry)) {
+                    ranges.add(CidrRange.parse(entry));
+                    continue;
+                }
+                try {
+                    allowListRangesByHost.put(entry, Arrays.stream(InetAddress.getAllByName(entry))
+                            .map(CidrRange::of)
+                            .collect(toList()));
+                } catch (Exception e) {
+                    logger.error("Resolving notification source allow-list host '{}' failed: {}", entry, e.getLocalizedMessage());
+                }
+                ranges.addAll(allowListRangesByHost.getOrDefault(entry, Collections.emptyList()));
+            }
+            rangesByDomain.put(domain, Collections.unmodifiableList(ranges));
+        });
+        logger.info("Notification source allow-list refreshed: {}", rangesByDomain);
+        allowListRangesByDomain = Collections.unmodifiableMap(rangesByDomain);
+    }
+
+    private void refreshAllowListQuietly() {
+        try {
+            refreshAllowList();
+        } catch (Exception e) {
+            logger.error("Unexpected error refreshing the notification source allow-list", e);
+        }
+    }
+
     public Optional<String> dnsLookup(String hostName) throws Exception {
         try {
             InetAddress inetAddress = InetAddress.getByName(hostName);
@@ -63,4 +190,14 @@ public class DnsUtils {
             return Optional.empty();
         }
     }
+
+    private static class CachedLookup {
+        private final Optional<String> host;
+        private final Instant expiresAt;
+
+        private CachedLookup(Optional<String> host, Instant expiresAt) {
+            this.host = host;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -76,6 +76,11 @@ public class ResponseUtil {
         return responseWithMessageMap(INTERNAL_SERVER_ERROR, message);
     }
 
+    public static Response serviceUnavailableResponse(String message) {
+        logger.warn(message);
+        return responseWithMessageMap(SERVICE_UNAVAILABLE, message);
+    }
+
     public static Response conflictErrorResponse(String message) {
         logger.error(message);
         return responseWithMessageMap(CONFLICT, message);
@@ -9,7 +9,12 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.sax.SAXSource;
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.sun.org.apache.xerces.internal.impl.Constants.JDK_ENTITY_EXPANSION_LIMIT;
 import static javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING;
@@ -17,6 +22,10 @@ import static javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING;
 public class XMLUnmarshaller {
 
     private static final String JDK_ENTITY_EXPANSION_LIMIT_MIN_VALUE = "1";
+    private static final int MAXIMUM_IDLE_XML_READERS = 32;
+
+    private static final ConcurrentMap<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+    private static final BlockingQueue<XMLReader> IDLE_XML_READERS = new ArrayBlockingQueue<>(MAXIMUM_IDLE_XML_READERS);
 
     /**
      * Unmarshall XML payloads to Java instance
@@ -30,29 +39,67 @@ public class XMLUnmarshaller {
      * NamespaceAware must be set to true (soap envelopes are being unmarshalled using same method)
      */
     public static <T> T unmarshall(String payload, Class<T> clazz) throws XMLUnmarshallerException {
+        return unmarshall(new InputSource(new StringReader(payload)), clazz);
+    }
+
+    /**
+     * Unmarshall XML payloads to Java instance, decoding the payload from the given stream
+     * according to its XML declaration (UTF-8 if there is none)
+     *
+     * @see #unmarshall(String, Class)
+     */
+    public static <T> T unmarshall(InputStream payload, Class<T> clazz) throws XMLUnmarshallerException {
+        return unmarshall(new InputSource(payload), clazz);
+    }
+
+    private static <T> T unmarshall(InputSource inputSource, Class<T> clazz) throws XMLUnmarshallerException {
+        XMLReader xmlReader = IDLE_XML_READERS.poll();
+        if (xmlReader == null) {
+            xmlReader = buildXmlReader();
+        }
         try {
-            XMLReader xmlReader = buildXmlReader();
-            return unmarshall(payload, clazz, xmlReader);
-        } catch (ParserConfigurationException | SAXException | JAXBException e) {
+            Unmarshaller unmarshaller = jaxbContextFor(clazz).createUnmarshaller();
+            return unmarshaller.unmarshal(new SAXSource(xmlReader, inputSource), clazz).getValue();
+        } catch (JAXBException e) {
             throw new XMLUnmarshallerException(e);
+        } finally {
+            IDLE_XML_READERS.offer(xmlReader);
         }
     }
 
-    private static <T> T unmarshall(String payload, Class<T> clazz, XMLReader xmlReader) throws JAXBException {
-        InputSource inputSource = new InputSource(new ByteArrayInputStream(payload.getBytes()));
-        JAXBContext jaxbContext = JAXBContext.newInstance(clazz);
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-        return unmarshaller.unmarshal(new SAXSource(xmlReader, inputSource), clazz).getValue();
+    /**
+     * JAXBContexts are thread safe and expensive to build, so one is kept per target class.
+     */
+    private static JAXBContext jaxbContextFor(Class<?> clazz) throws JAXBException {
+        JAXBContext jaxbContext = JAXB_CONTEXTS.get(clazz);
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(clazz);
+            JAXBContext existing = JAXB_CONTEXTS.putIfAbsent(clazz, jaxbContext);
+            if (existing != null) {
+                jaxbContext = existing;
+            }
+        }
+        return jaxbContext;
     }
 
-    private static XMLReader buildXmlReader() throws ParserConfigurationException, SAXException {
-        SAXParserFactory spf = SAXParserFactory.newInstance();
-        spf.setFeature(FEATURE_SECURE_PROCESSING, true); // Explicitly set. Do not remove
-        disableExternalDTDs(spf);
-        disableExternalEntities(spf);
-        SAXParser saxParser = spf.newSAXParser();
-        saxParser.setProperty(JDK_ENTITY_EXPANSION_LIMIT, JDK_ENTITY_EXPANSION_LIMIT_MIN_VALUE);
-        return saxParser.getXMLReader();
+    /**
+     * XMLReaders are not thread safe but can be reused for consecutive parses, so each parse borrows one from
+     * a small pool and hands it back afterwards. The pool does not depend on which thread parses, and readers
+     * built while it is empty are dropped once it is full again.
+     * Each is built from a hardened SAXParserFactory, so it keeps the XXE protections below.
+     */
+    private static XMLReader buildXmlReader() {
+        try {
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+            spf.setFeature(FEATURE_SECURE_PROCESSING, true); // Explicitly set. Do not remove
+            disableExternalDTDs(spf);
+            disableExternalEntities(spf);
+            SAXParser saxParser = spf.newSAXParser();
+            saxParser.setProperty(JDK_ENTITY_EXPANSION_LIMIT, JDK_ENTITY_EXPANSION_LIMIT_MIN_VALUE);
+            return saxParser.getXMLReader();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Could not build a secure XML reader", e);
+        }
     }
 
     private static void disableExternalEntities(SAXParserFactory saxParserFactory) throws ParserConfigurationException, SAXNotRecognizedException, SAXNotSupportedException {
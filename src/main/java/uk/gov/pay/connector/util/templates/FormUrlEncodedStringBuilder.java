@@ -1,12 +1,22 @@
 package uk.gov.pay.connector.util.templates;
 
-import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.NameValuePair;
 import uk.gov.pay.connector.service.OrderRequestBuilder.TemplateData;
 
 import java.nio.charset.Charset;
+import java.util.List;
 
+/**
+ * Encodes the parameters as application/x-www-form-urlencoded in the given charset, straight into the
+ * body rather than through a string per name and value. The encoding is the one of
+ * {@link org.apache.http.client.utils.URLEncodedUtils#format(Iterable, Charset)}: letters, digits and
+ * <code>-_.*</code> are kept, spaces become <code>+</code> and every other byte is percent-encoded.
+ */
 public class FormUrlEncodedStringBuilder implements PayloadBuilder {
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int EXPECTED_PARAMETER_LENGTH = 32;
+
     private final PayloadDefinition payloadDefinition;
     private final Charset charset;
 
@@ -16,7 +26,37 @@ public class FormUrlEncodedStringBuilder implements PayloadBuilder {
     }
 
     public String buildWith(TemplateData templateData) {
-        return URLEncodedUtils.format(payloadDefinition.extract(templateData), charset);
+        List<NameValuePair> params = payloadDefinition.extract(templateData);
+        StringBuilder body = new StringBuilder(params.size() * EXPECTED_PARAMETER_LENGTH);
+        for (NameValuePair param : params) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            appendEncoded(body, param.getName());
+            if (param.getValue() != null) {
+                body.append('=');
+                appendEncoded(body, param.getValue());
+            }
+        }
+        return body.toString();
+    }
+
+    private void appendEncoded(StringBuilder body, String content) {
+        for (byte encoded : content.getBytes(charset)) {
+            int b = encoded & 0xff;
+            if (isUnreserved(b)) {
+                body.append((char) b);
+            } else if (b == ' ') {
+                body.append('+');
+            } else {
+                body.append('%').append(HEX_DIGITS[b >> 4]).append(HEX_DIGITS[b & 0xf]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '-' || b == '_' || b == '.' || b == '*';
     }
 
 }
@@ -17,7 +17,10 @@ import java.util.Optional;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -32,6 +35,9 @@ public class SmartpayAccountSpecificAuthenticatorTest {
     @Mock
     HashUtil hashUtil;
 
+    @Mock
+    VerifiedCredentialsCache verifiedCredentialsCache;
+
     @InjectMocks
     private SmartpayAccountSpecificAuthenticator smartpayAccountSpecificAuthenticator;
 
@@ -79,4 +85,33 @@ public class SmartpayAccountSpecificAuthenticatorTest {
 
         assertFalse(authenticate.isPresent());
     }
+
+    @Test
+    public void whenAccountMatchesCredentials_shouldRememberTheVerification() throws AuthenticationException {
+
+        smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password));
+
+        verify(verifiedCredentialsCache).verified(username, password, hashedPassword);
+    }
+
+    @Test
+    public void whenCredentialsWereRecentlyVerified_shouldNotCheckThePasswordHashAgain() throws AuthenticationException {
+
+        when(verifiedCredentialsCache.isVerified(username, password, hashedPassword)).thenReturn(true);
+
+        Optional<BasicAuthUser> authenticate = smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password));
+
+        assertTrue(authenticate.isPresent());
+        verify(hashUtil, never()).check(anyString(), anyString());
+    }
+
+    @Test
+    public void whenAccountExistsButCredentialsDontMatch_shouldNotRememberTheFailure() throws AuthenticationException {
+
+        when(hashUtil.check(password, hashedPassword)).thenReturn(false);
+
+        smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password));
+
+        verify(verifiedCredentialsCache, never()).verified(anyString(), anyString(), anyString());
+    }
 }
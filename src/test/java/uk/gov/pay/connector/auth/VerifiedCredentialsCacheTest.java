@@ -0,0 +1,63 @@
+package uk.gov.pay.connector.auth;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.NotificationCredentialsCacheConfig;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VerifiedCredentialsCacheTest {
+
+    private static final String USERNAME = "MyService";
+    private static final String PASSWORD = "password";
+    private static final String HASHED_PASSWORD = "hashed";
+
+    @Mock
+    private NotificationCredentialsCacheConfig mockConfig;
+
+    private VerifiedCredentialsCache verifiedCredentialsCache;
+
+    @Before
+    public void setUp() {
+        when(mockConfig.getExpireAfterAsJavaDuration()).thenReturn(Duration.ofMinutes(5));
+        when(mockConfig.getMaximumSize()).thenReturn(10);
+        verifiedCredentialsCache = new VerifiedCredentialsCache(mockConfig);
+    }
+
+    @Test
+    public void shouldOnlyMatchTheVerifiedPasswordAgainstTheSameStoredHash() {
+        verifiedCredentialsCache.verified(USERNAME, PASSWORD, HASHED_PASSWORD);
+
+        assertThat(verifiedCredentialsCache.isVerified(USERNAME, PASSWORD, HASHED_PASSWORD), is(true));
+        assertThat(verifiedCredentialsCache.isVerified(USERNAME, "other-password", HASHED_PASSWORD), is(false));
+        assertThat(verifiedCredentialsCache.isVerified(USERNAME, PASSWORD, "rotated-hash"), is(false));
+        assertThat(verifiedCredentialsCache.isVerified("OtherService", PASSWORD, HASHED_PASSWORD), is(false));
+    }
+
+    @Test
+    public void shouldForgetVerificationsOfAnInvalidatedUsername() {
+        verifiedCredentialsCache.verified(USERNAME, PASSWORD, HASHED_PASSWORD);
+
+        verifiedCredentialsCache.invalidate(USERNAME);
+
+        assertThat(verifiedCredentialsCache.isVerified(USERNAME, PASSWORD, HASHED_PASSWORD), is(false));
+    }
+
+    @Test
+    public void shouldNotRememberVerificationsWhenDisabled() {
+        when(mockConfig.getExpireAfterAsJavaDuration()).thenReturn(Duration.ZERO);
+        VerifiedCredentialsCache disabledCache = new VerifiedCredentialsCache(mockConfig);
+
+        disabledCache.verified(USERNAME, PASSWORD, HASHED_PASSWORD);
+
+        assertThat(disabledCache.isVerified(USERNAME, PASSWORD, HASHED_PASSWORD), is(false));
+    }
+}
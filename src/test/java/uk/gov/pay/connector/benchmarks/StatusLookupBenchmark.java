@@ -0,0 +1,196 @@
+package uk.gov.pay.connector.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.gov.pay.connector.model.GatewayStatusOnly;
+import uk.gov.pay.connector.model.GatewayStatusWithCurrentStatus;
+import uk.gov.pay.connector.model.StatusMapFromStatus;
+import uk.gov.pay.connector.model.domain.ChargeStatus;
+import uk.gov.pay.connector.model.domain.PaymentGatewayStateTransitions;
+import uk.gov.pay.connector.model.domain.RefundStatus;
+import uk.gov.pay.connector.model.domain.Status;
+import uk.gov.pay.connector.service.IgnoredStatus;
+import uk.gov.pay.connector.service.InterpretedStatus;
+import uk.gov.pay.connector.service.MappedChargeStatus;
+import uk.gov.pay.connector.service.MappedRefundStatus;
+import uk.gov.pay.connector.service.StatusMapper.StatusMap;
+import uk.gov.pay.connector.service.UnknownStatus;
+import uk.gov.pay.connector.service.epdq.EpdqStatusMapper;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static uk.gov.pay.connector.model.domain.ChargeStatus.AUTHORISATION_READY;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.AUTHORISATION_REJECTED;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.AUTHORISATION_SUCCESS;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.CAPTURED;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.CAPTURE_READY;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.CREATED;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.ENTERING_CARD_DETAILS;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.EXPIRE_CANCEL_SUBMITTED;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.SYSTEM_CANCEL_SUBMITTED;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.USER_CANCELLED;
+import static uk.gov.pay.connector.model.domain.ChargeStatus.USER_CANCEL_SUBMITTED;
+import static uk.gov.pay.connector.model.domain.RefundStatus.REFUNDED;
+import static uk.gov.pay.connector.model.domain.RefundStatus.REFUND_ERROR;
+import static uk.gov.pay.connector.service.StatusFlow.EXPIRE_FLOW;
+import static uk.gov.pay.connector.service.StatusFlow.SYSTEM_CANCELLATION_FLOW;
+import static uk.gov.pay.connector.service.StatusFlow.USER_CANCELLATION_FLOW;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_AUTHORISATION_REFUSED;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_AUTHORISED;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_AUTHORISED_CANCELLED;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_DELETION_REFUSED;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_PAYMENT_DELETED;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_PAYMENT_REQUESTED;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_REFUND;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_REFUND_DECLINED_BY_ACQUIRER;
+import static uk.gov.pay.connector.service.epdq.EpdqStatusMapper.EPDQ_REFUND_REFUSED;
+
+/**
+ * Compares the status lookups done for every notification and status change with the way they were done
+ * before they were compiled into tables:
+ * <ul>
+ * <li>{@link uk.gov.pay.connector.service.StatusMapper#from} against scanning the ePDQ mappings in order</li>
+ * <li>{@link PaymentGatewayStateTransitions#isValidTransition} against asking the described graph for the edge</li>
+ * <li>{@link ChargeStatus#fromString} against looping over the values</li>
+ * </ul>
+ * Run {@link #main} on the test classpath, for example from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusLookupBenchmark {
+
+    private List<StatusMap<String>> epdqMappings;
+    private ImmutableValueGraph<ChargeStatus, String> transitionGraph;
+
+    @Setup
+    public void setUp() {
+        epdqMappings = ImmutableList.of(
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_AUTHORISATION_REFUSED), AUTHORISATION_REJECTED),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_AUTHORISED), AUTHORISATION_SUCCESS),
+                StatusMap.of(GatewayStatusWithCurrentStatus.of(EPDQ_AUTHORISED_CANCELLED, USER_CANCEL_SUBMITTED), USER_CANCELLATION_FLOW.getSuccessTerminalState()),
+                StatusMap.of(GatewayStatusWithCurrentStatus.of(EPDQ_AUTHORISED_CANCELLED, SYSTEM_CANCEL_SUBMITTED), SYSTEM_CANCELLATION_FLOW.getSuccessTerminalState()),
+                StatusMap.of(GatewayStatusWithCurrentStatus.of(EPDQ_AUTHORISED_CANCELLED, EXPIRE_CANCEL_SUBMITTED), EXPIRE_FLOW.getSuccessTerminalState()),
+                StatusMap.of(GatewayStatusWithCurrentStatus.of(EPDQ_AUTHORISED_CANCELLED, CREATED), SYSTEM_CANCELLATION_FLOW.getSuccessTerminalState()),
+                StatusMap.of(GatewayStatusWithCurrentStatus.of(EPDQ_AUTHORISED_CANCELLED, ENTERING_CARD_DETAILS), SYSTEM_CANCELLATION_FLOW.getSuccessTerminalState()),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_PAYMENT_REQUESTED), CAPTURED),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_REFUND), REFUNDED),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_REFUND_REFUSED), REFUND_ERROR),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_PAYMENT_DELETED), REFUNDED),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_DELETION_REFUSED), REFUND_ERROR),
+                StatusMap.of(GatewayStatusOnly.of(EPDQ_REFUND_DECLINED_BY_ACQUIRER), REFUND_ERROR));
+
+        MutableValueGraph<ChargeStatus, String> graph = ValueGraphBuilder.directed().build();
+        PaymentGatewayStateTransitions.getInstance().allTransitions()
+                .forEach(transition -> graph.putEdgeValue(transition.getLeft(), transition.getMiddle(), transition.getRight()));
+        transitionGraph = ImmutableValueGraph.copyOf(graph);
+    }
+
+    @Benchmark
+    public InterpretedStatus statusMapperScan() {
+        return scan(GatewayStatusWithCurrentStatus.of(EPDQ_AUTHORISED_CANCELLED, ENTERING_CARD_DETAILS), epdqMappings);
+    }
+
+    @Benchmark
+    public InterpretedStatus statusMapperLookup() {
+        return EpdqStatusMapper.get().from(EPDQ_AUTHORISED_CANCELLED, ENTERING_CARD_DETAILS);
+    }
+
+    @Benchmark
+    public InterpretedStatus statusMapperGatewayStatusOnlyScan() {
+        List<StatusMap<String>> gatewayStatusesOnly = epdqMappings
+                .stream()
+                .filter(mapping -> mapping.getFromStatus() instanceof GatewayStatusOnly)
+                .collect(Collectors.toList());
+        return scan(GatewayStatusOnly.of(EPDQ_REFUND_DECLINED_BY_ACQUIRER), gatewayStatusesOnly);
+    }
+
+    @Benchmark
+    public InterpretedStatus statusMapperGatewayStatusOnlyLookup() {
+        return EpdqStatusMapper.get().from(EPDQ_REFUND_DECLINED_BY_ACQUIRER);
+    }
+
+    @Benchmark
+    public boolean isValidTransitionOnGraph() {
+        return transitionGraph.edgeValueOrDefault(AUTHORISATION_READY, AUTHORISATION_SUCCESS, null) != null
+                && transitionGraph.edgeValueOrDefault(CAPTURE_READY, USER_CANCELLED, null) == null;
+    }
+
+    @Benchmark
+    public boolean isValidTransitionOnTable() {
+        return PaymentGatewayStateTransitions.isValidTransition(AUTHORISATION_READY, AUTHORISATION_SUCCESS)
+                && !PaymentGatewayStateTransitions.isValidTransition(CAPTURE_READY, USER_CANCELLED);
+    }
+
+    @Benchmark
+    public ChargeStatus chargeStatusFromStringLoop() {
+        for (ChargeStatus status : ChargeStatus.values()) {
+            if (StringUtils.equals(status.getValue(), "USER CANCELLED")) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("charge status not recognized: USER CANCELLED");
+    }
+
+    @Benchmark
+    public ChargeStatus chargeStatusFromStringLookup() {
+        return ChargeStatus.fromString("USER CANCELLED");
+    }
+
+    private static InterpretedStatus scan(StatusMapFromStatus<String> gatewayStatus, List<StatusMap<String>> mappings) {
+        Optional<StatusMap<String>> statusMap = mappings
+                .stream()
+                .filter(mapping -> mapping.getFromStatus().equals(gatewayStatus))
+                .findFirst();
+
+        if (!statusMap.isPresent()) {
+            return new UnknownStatus();
+        }
+
+        Optional<Status> statusMaybe = statusMap.flatMap(StatusMap::getToStatus);
+
+        if (!statusMaybe.isPresent()) {
+            return new IgnoredStatus();
+        }
+
+        Status status = statusMaybe.get();
+
+        if (status instanceof ChargeStatus) {
+            return new MappedChargeStatus((ChargeStatus) status);
+        }
+
+        if (status instanceof RefundStatus) {
+            return new MappedRefundStatus((RefundStatus) status);
+        }
+
+        return new UnknownStatus();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StatusLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
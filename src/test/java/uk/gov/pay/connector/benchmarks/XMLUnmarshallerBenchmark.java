@@ -0,0 +1,86 @@
+package uk.gov.pay.connector.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import uk.gov.pay.connector.service.worldpay.WorldpayOrderStatusResponse;
+import uk.gov.pay.connector.util.TestTemplateResourceLoader;
+import uk.gov.pay.connector.util.XMLUnmarshaller;
+import uk.gov.pay.connector.util.XMLUnmarshallerException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.sax.SAXSource;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import static com.sun.org.apache.xerces.internal.impl.Constants.JDK_ENTITY_EXPANSION_LIMIT;
+import static javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.WORLDPAY_AUTHORISATION_SUCCESS_RESPONSE;
+
+/**
+ * Compares unmarshalling a Worldpay authorisation response with {@link XMLUnmarshaller}, which keeps a
+ * JAXBContext per class and a pool of hardened XML readers, against building both for every payload as
+ * it used to. Run {@link #main} on the test classpath, for example from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class XMLUnmarshallerBenchmark {
+
+    private String payload;
+
+    @Setup
+    public void loadPayload() {
+        payload = TestTemplateResourceLoader.load(WORLDPAY_AUTHORISATION_SUCCESS_RESPONSE);
+    }
+
+    @Benchmark
+    public WorldpayOrderStatusResponse contextAndReaderPerPayload() throws Exception {
+        SAXParserFactory spf = SAXParserFactory.newInstance();
+        spf.setFeature(FEATURE_SECURE_PROCESSING, true);
+        spf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        spf.setFeature("http://xml.org/sax/features/validation", false);
+        spf.setNamespaceAware(true);
+        spf.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        spf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        spf.setXIncludeAware(false);
+        SAXParser saxParser = spf.newSAXParser();
+        saxParser.setProperty(JDK_ENTITY_EXPANSION_LIMIT, "1");
+        XMLReader xmlReader = saxParser.getXMLReader();
+
+        InputSource inputSource = new InputSource(new ByteArrayInputStream(payload.getBytes()));
+        Unmarshaller unmarshaller = JAXBContext.newInstance(WorldpayOrderStatusResponse.class).createUnmarshaller();
+        return unmarshaller.unmarshal(new SAXSource(xmlReader, inputSource), WorldpayOrderStatusResponse.class).getValue();
+    }
+
+    @Benchmark
+    public WorldpayOrderStatusResponse cachedContextAndPooledReader() throws XMLUnmarshallerException {
+        return XMLUnmarshaller.unmarshall(payload, WorldpayOrderStatusResponse.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(XMLUnmarshallerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
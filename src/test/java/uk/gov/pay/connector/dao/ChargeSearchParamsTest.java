@@ -118,6 +118,17 @@ public class ChargeSearchParamsTest {
         assertThat(params.buildQueryParams(), is(expectedQueryString));
     }
 
+    @Test
+    public void buildQueryParams_shouldKeepTheExactMatchOfReferenceAndEmail() {
+
+        ChargeSearchParams params = new ChargeSearchParams()
+                .withReferenceLike("ref")
+                .withEmailLike("user@example.com")
+                .withExactMatch(true);
+
+        assertThat(params.buildQueryParams(), is("reference=ref&email=user@example.com&exact_match=true"));
+    }
+
     @Test
     public void buildQueryParams_transactionsSearch_withNonTransactionType_andStateForChargeAndRefund() throws Exception {
 
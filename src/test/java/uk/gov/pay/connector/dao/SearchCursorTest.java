@@ -0,0 +1,43 @@
+package uk.gov.pay.connector.dao;
+
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SearchCursorTest {
+
+    @Test
+    public void shouldDecodeAnEncodedCursor() {
+        SearchCursor cursor = SearchCursor.after(ZonedDateTime.parse("2018-03-12T16:25:01.123456Z[UTC]"), 1234L);
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+
+        assertThat(decoded, is(cursor));
+        assertThat(decoded.getCreatedDate(), is(ZonedDateTime.parse("2018-03-12T16:25:01.123456Z[UTC]")));
+        assertThat(decoded.getId(), is(1234L));
+    }
+
+    @Test
+    public void shouldDecodeAnEmptyCursorAsTheFirstPage() {
+        SearchCursor decoded = SearchCursor.decode("");
+
+        assertThat(decoded.isFirst(), is(true));
+        assertThat(decoded.encode(), is(""));
+    }
+
+    @Test
+    public void shouldOnlyConsiderEncodedCursorsValid() {
+        assertThat(SearchCursor.isValid(SearchCursor.after(ZonedDateTime.now(), 1L).encode()), is(true));
+        assertThat(SearchCursor.isValid(""), is(true));
+        assertThat(SearchCursor.isValid("not-a-cursor"), is(false));
+        assertThat(SearchCursor.isValid("MjAxOC0wMy0xMlQxNjoyNTowMVp8YWJj"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAMalformedCursor() {
+        SearchCursor.decode("%%%");
+    }
+}
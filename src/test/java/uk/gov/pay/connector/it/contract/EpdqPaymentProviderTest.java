@@ -10,6 +10,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.CircuitBreakerConfig;
 import uk.gov.pay.connector.model.CancelGatewayRequest;
 import uk.gov.pay.connector.model.CaptureGatewayRequest;
 import uk.gov.pay.connector.model.RefundGatewayRequest;
@@ -168,7 +169,7 @@ public class EpdqPaymentProviderTest {
     private PaymentProvider getEpdqPaymentProvider() throws Exception {
         Client client = TestClientFactory.createJerseyClient();
         GatewayClient gatewayClient = new GatewayClient(client, ImmutableMap.of(TEST.toString(), url),
-            EpdqPaymentProvider.includeSessionIdentifier(), mockMetricRegistry);
+            EpdqPaymentProvider.includeSessionIdentifier(), mockMetricRegistry, GatewayOperation.AUTHORISE, new CircuitBreakerConfig());
         EnumMap<GatewayOperation, GatewayClient> gatewayClients = GatewayOperationClientBuilder.builder()
                 .authClient(gatewayClient)
                 .captureClient(gatewayClient)
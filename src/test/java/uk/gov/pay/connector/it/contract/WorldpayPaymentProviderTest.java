@@ -8,6 +8,7 @@ import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import uk.gov.pay.connector.app.CircuitBreakerConfig;
 import uk.gov.pay.connector.app.GatewayConfig;
 import uk.gov.pay.connector.model.CancelGatewayRequest;
 import uk.gov.pay.connector.model.CaptureGatewayRequest;
@@ -248,7 +249,9 @@ public class WorldpayPaymentProviderTest {
                 ClientBuilder.newClient(),
                 getWorldpayConfig().getUrls(),
             WorldpayPaymentProvider.includeSessionIdentifier(),
-                mockMetricRegistry
+                mockMetricRegistry,
+                GatewayOperation.AUTHORISE,
+                new CircuitBreakerConfig()
         );
         EnumMap<GatewayOperation, GatewayClient> gatewayClientEnumMap = GatewayOperationClientBuilder.builder()
                 .authClient(gatewayClient)
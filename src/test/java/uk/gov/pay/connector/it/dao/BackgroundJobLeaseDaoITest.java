@@ -0,0 +1,53 @@
+package uk.gov.pay.connector.it.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.dao.BackgroundJobLeaseDao;
+
+import java.time.Duration;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.connector.service.jobs.ExpireChargesJob.NAME;
+
+public class BackgroundJobLeaseDaoITest extends DaoITestBase {
+
+    private static final Duration LEASE_FOR = Duration.ofMinutes(10);
+
+    private BackgroundJobLeaseDao backgroundJobLeaseDao;
+
+    @Before
+    public void setUp() throws Exception {
+        backgroundJobLeaseDao = env.getInstance(BackgroundJobLeaseDao.class);
+    }
+
+    @Test
+    public void tryAcquire_shouldGiveTheLeaseToOneNodeAtATime() {
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-a", LEASE_FOR), is(true));
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-b", LEASE_FOR), is(false));
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-a", LEASE_FOR), is(true));
+    }
+
+    @Test
+    public void tryAcquire_shouldTakeOverAnExpiredLease() {
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-a", Duration.ofMillis(-1)), is(true));
+
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-b", LEASE_FOR), is(true));
+    }
+
+    @Test
+    public void release_shouldLetAnotherNodeTakeTheLease() {
+        backgroundJobLeaseDao.tryAcquire(NAME, "node-a", LEASE_FOR);
+
+        backgroundJobLeaseDao.release(NAME, "node-b");
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-b", LEASE_FOR), is(false));
+
+        backgroundJobLeaseDao.release(NAME, "node-a");
+        assertThat(backgroundJobLeaseDao.tryAcquire(NAME, "node-b", LEASE_FOR), is(true));
+    }
+
+    @Test
+    public void tryAcquire_shouldNotGiveALeaseForAJobWithoutALeaseRow() {
+        assertThat(backgroundJobLeaseDao.tryAcquire("unknown-job", "node-a", LEASE_FOR), is(false));
+    }
+}
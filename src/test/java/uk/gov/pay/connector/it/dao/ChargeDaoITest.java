@@ -7,13 +7,19 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import uk.gov.pay.connector.dao.ChargeDao;
+import uk.gov.pay.connector.dao.GatewayAccountDao;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.SearchCursor;
+import uk.gov.pay.connector.model.domain.AmountSummary;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
 import uk.gov.pay.connector.model.domain.RefundEntity;
+import uk.gov.pay.connector.service.PaymentGatewayName;
 import uk.gov.pay.connector.util.DateTimeUtils;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -23,12 +29,18 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.time.ZonedDateTime.now;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toSet;
 import static junit.framework.TestCase.assertTrue;
 import static org.exparity.hamcrest.date.ZonedDateTimeMatchers.within;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -74,6 +86,48 @@ public class ChargeDaoITest extends DaoITestBase {
         insertTestAccount();
     }
 
+    @Test
+    public void searchChargesWithPagination_shouldLoadTheRefundsAndEventsOfEachChargeOfThePage() throws Exception {
+        for (long chargeId = 100L; chargeId < 104L; chargeId++) {
+            DatabaseFixtures.TestCharge testCharge = DatabaseFixtures
+                    .withDatabaseTestHelper(databaseTestHelper)
+                    .aTestCharge()
+                    .withTestAccount(defaultTestAccount)
+                    .withChargeId(chargeId)
+                    .withExternalChargeId("ext-id-" + chargeId)
+                    .withCreatedDate(now().minusMinutes(chargeId))
+                    .insert();
+            DatabaseFixtures
+                    .withDatabaseTestHelper(databaseTestHelper)
+                    .aTestRefund()
+                    .withTestCharge(testCharge)
+                    .withAmount(chargeId)
+                    .insert();
+            databaseTestHelper.addEvent(chargeId, CREATED.getValue());
+            databaseTestHelper.addEvent(chargeId, CAPTURED.getValue());
+        }
+
+        // the gateway account is read up front so that only the statements for the page itself are counted
+        env.getInstance(GatewayAccountDao.class).findById(defaultTestAccount.getAccountId());
+        ChargeSearchParams params = new ChargeSearchParams()
+                .withGatewayAccountId(defaultTestAccount.getAccountId())
+                .withPage(1L)
+                .withDisplaySize(3L);
+
+        SqlStatementCounter.reset();
+        List<ChargeEntity> charges = chargeDao.findAllBy(params);
+        for (ChargeEntity charge : charges) {
+            assertThat(charge.getRefunds().size(), is(1));
+            assertThat(charge.getRefunds().get(0).getAmount(), is(charge.getId()));
+            assertThat(charge.getEvents().size(), is(2));
+            assertThat(charge.getEvents().stream().allMatch(event -> event.getChargeEntity() == charge), is(true));
+        }
+
+        assertThat(charges.size(), is(3));
+        // one statement for the page of charges, one for all their refunds and one for all their events
+        assertThat(SqlStatementCounter.count(), is(3));
+    }
+
     @Test
     public void searchChargesByGatewayAccountIdOnly() throws Exception {
         // given
@@ -237,6 +291,43 @@ public class ChargeDaoITest extends DaoITestBase {
         assertThat(charges.get(1).getId(), is(900L));
     }
 
+    @Test
+    public void searchChargesAfterCursor_shouldGetNextChargesInCreationDateOrder() throws Exception {
+        // given
+        ZonedDateTime sameCreatedDate = now().plusHours(3);
+        insertNewChargeWithId(900L, now().plusHours(1));
+        insertNewChargeWithId(800L, now().plusHours(2));
+        insertNewChargeWithId(700L, sameCreatedDate);
+        insertNewChargeWithId(600L, sameCreatedDate);
+        insertNewChargeWithId(500L, now().plusHours(4));
+
+        // when
+        ChargeSearchParams params = new ChargeSearchParams()
+                .withGatewayAccountId(defaultTestAccount.getAccountId())
+                .withCursor(SearchCursor.first())
+                .withDisplaySize(2L);
+        List<ChargeEntity> charges = chargeDao.findAllBy(params);
+        // then
+        assertThat(charges.size(), is(2));
+        assertThat(charges.get(0).getId(), is(500L));
+        assertThat(charges.get(1).getId(), is(700L));
+
+        // when
+        params.withCursor(SearchCursor.after(charges.get(1).getCreatedDate(), charges.get(1).getId()));
+        charges = chargeDao.findAllBy(params);
+        // then
+        assertThat(charges.size(), is(2));
+        assertThat(charges.get(0).getId(), is(600L));
+        assertThat(charges.get(1).getId(), is(800L));
+
+        // when
+        params.withCursor(SearchCursor.after(charges.get(1).getCreatedDate(), charges.get(1).getId()));
+        charges = chargeDao.findAllBy(params);
+        // then
+        assertThat(charges.size(), is(1));
+        assertThat(charges.get(0).getId(), is(900L));
+    }
+
     @Test
     public void shouldGetTotalCount_5_when_displaySizeIs_2() {
         // given
@@ -428,6 +519,39 @@ public class ChargeDaoITest extends DaoITestBase {
         assertThat(charge.getEmail(), is("email-id@mail.com"));
     }
 
+    @Test
+    public void searchChargesByReferenceAndEmail_withExactMatch_shouldOnlyMatchWholeValuesIgnoringCase() throws Exception {
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withEmail("exact@mail.com")
+                .withReference("Exact_Ref")
+                .insert();
+
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withEmail("not-exact@mail.com")
+                .withReference("Exact_Ref-2")
+                .insert();
+
+        ChargeSearchParams params = new ChargeSearchParams()
+                .withGatewayAccountId(defaultTestAccount.getAccountId())
+                .withReferenceLike("exact_ref")
+                .withEmailLike("EXACT@mail.com")
+                .withExactMatch(true);
+
+        // when
+        List<ChargeEntity> charges = chargeDao.findAllBy(params);
+
+        // then
+        assertThat(charges.size(), is(1));
+        assertThat(charges.get(0).getReference(), is("Exact_Ref"));
+        assertThat(charges.get(0).getEmail(), is("exact@mail.com"));
+    }
+
     @Test
     public void aBasicTestAgainstSqlInjection() throws Exception {
         // given
@@ -869,6 +993,56 @@ public class ChargeDaoITest extends DaoITestBase {
         assertThat(gatewayAccount.getCredentials(), is(Collections.EMPTY_MAP));
     }
 
+    @Test
+    public void shouldFindChargesByProviderAndAnyOfTheTransactionIds() {
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(7771L)
+                .withExternalChargeId("charge7771")
+                .withTransactionId("transaction-7771")
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(7772L)
+                .withExternalChargeId("charge7772")
+                .withTransactionId("transaction-7772")
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(7773L)
+                .withExternalChargeId("charge7773")
+                .withTransactionId("transaction-7773")
+                .insert();
+
+        List<ChargeEntity> charges = chargeDao.findByProviderAndTransactionIds(defaultTestAccount.getPaymentProvider(),
+                asList("transaction-7771", "transaction-7773", "transaction-unknown"));
+
+        assertThat(charges.size(), is(2));
+        assertThat(charges.stream().map(ChargeEntity::getId).collect(toSet()), containsInAnyOrder(7771L, 7773L));
+    }
+
+    @Test
+    public void shouldNotFindChargesByTransactionIdsOfAnotherProvider() {
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(7774L)
+                .withExternalChargeId("charge7774")
+                .withTransactionId("transaction-7774")
+                .insert();
+
+        List<ChargeEntity> charges = chargeDao.findByProviderAndTransactionIds("not-the-provider", asList("transaction-7774"));
+
+        assertThat(charges.isEmpty(), is(true));
+    }
+
     @Test
     public void shouldGetChargeByChargeIdWithCorrectAssociatedAccountId() {
         String transactionId = "7826782163";
@@ -1011,52 +1185,138 @@ public class ChargeDaoITest extends DaoITestBase {
     }
 
     @Test
-    public void findByAccountBetweenDatesWithStatusIn_findsChargeWithMatchingAccountAndStatusInsideRange() {
+    public void findBeforeDateWithStatusInAfterId_returnsChargesAfterTheGivenIdInIdOrderUpToTheLimit() throws Exception {
+        for (long chargeId = 100L; chargeId < 104L; chargeId++) {
+            DatabaseFixtures
+                    .withDatabaseTestHelper(databaseTestHelper)
+                    .aTestCharge()
+                    .withTestAccount(defaultTestAccount)
+                    .withChargeId(chargeId)
+                    .withExternalChargeId("ext-id-" + chargeId)
+                    .withCreatedDate(now().minusHours(2))
+                    .insert();
+        }
+
+        ArrayList<ChargeStatus> chargeStatuses = Lists.newArrayList(CREATED, ENTERING_CARD_DETAILS, AUTHORISATION_SUCCESS);
+
+        List<ChargeEntity> charges = chargeDao.findBeforeDateWithStatusInAfterId(now().minusHours(1), chargeStatuses, 100L, 2);
+
+        assertThat(charges.size(), is(2));
+        assertEquals(charges.get(0).getId(), new Long(101));
+        assertEquals(charges.get(1).getId(), new Long(102));
+    }
+
+    @Test
+    public void summariseByAccountBetweenDatesWithStatusIn_countsAndTotalsChargesWithMatchingAccountAndStatusInsideRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
                 .withTestAccount(defaultTestAccount)
                 .withChargeId(100L)
-                .withChargeStatus(CAPTURE_APPROVED_RETRY)
+                .withAmount(2500L)
+                .withChargeStatus(CAPTURED)
                 .withCreatedDate(now().minusMinutes(30))
                 .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(101L)
+                .withAmount(1000L)
+                .withChargeStatus(CAPTURE_SUBMITTED)
+                .withCreatedDate(now().minusMinutes(20))
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(102L)
+                .withAmount(500L)
+                .withChargeStatus(AUTHORISATION_REJECTED)
+                .withCreatedDate(now().minusMinutes(20))
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(103L)
+                .withAmount(700L)
+                .withChargeStatus(CAPTURED)
+                .withCreatedDate(now().minusMinutes(60))
+                .insert();
 
-        ArrayList<ChargeStatus> statuses = Lists.newArrayList(CAPTURE_APPROVED, CAPTURE_APPROVED_RETRY, CAPTURE_READY);
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
+                defaultTestAccount.getAccountId(),
+                now().minusMinutes(45),
+                now().minusMinutes(15),
+                Lists.newArrayList(CAPTURE_SUBMITTED, CAPTURED));
+
+        assertThat(summary.getCount(), is(2L));
+        assertThat(summary.getTotalAmount(), is(3500L));
+    }
 
-        List<ChargeEntity> charges = chargeDao.findByAccountBetweenDatesWithStatusIn(
+    @Test
+    public void summariseByAccountBetweenDatesWithStatusIn_returnsZeroWhenNoChargesMatch() {
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
                 defaultTestAccount.getAccountId(),
                 now().minusMinutes(45),
                 now().minusMinutes(15),
-                statuses);
+                Lists.newArrayList(CAPTURED));
 
-        assertThat(charges.size(), is(1));
-        assertThat(charges.get(0).getId(), is(100L));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findByAccountBetweenDatesWithStatusIn_findsNoneWithNonMatchingAccountButMatchingStatusInsideRange() {
+    public void summariseByAccountBetweenDatesWithStatusIn_countsChargeWithMatchingAccountAndStatusInsideRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
                 .withTestAccount(defaultTestAccount)
                 .withChargeId(100L)
-                .withChargeStatus(AUTHORISATION_SUCCESS)
+                .withAmount(1200L)
+                .withChargeStatus(CAPTURE_APPROVED_RETRY)
                 .withCreatedDate(now().minusMinutes(30))
                 .insert();
 
-        ArrayList<ChargeStatus> statuses = Lists.newArrayList(AUTHORISATION_SUCCESS, AUTHORISATION_REJECTED);
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
+                defaultTestAccount.getAccountId(),
+                now().minusMinutes(45),
+                now().minusMinutes(15),
+                Lists.newArrayList(CAPTURE_APPROVED, CAPTURE_APPROVED_RETRY, CAPTURE_READY));
+
+        assertThat(summary.getCount(), is(1L));
+        assertThat(summary.getTotalAmount(), is(1200L));
+    }
 
-        List<ChargeEntity> charges = chargeDao.findByAccountBetweenDatesWithStatusIn(
-                100_000L,
+    @Test
+    public void summariseByAccountBetweenDatesWithStatusIn_excludesChargeOfAnotherAccountWithMatchingStatusInsideRange() {
+        DatabaseFixtures.TestAccount anotherTestAccount = DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestAccount()
+                .withAccountId(100_000L)
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(anotherTestAccount)
+                .withChargeId(100L)
+                .withChargeStatus(AUTHORISATION_SUCCESS)
+                .withCreatedDate(now().minusMinutes(30))
+                .insert();
+
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
+                defaultTestAccount.getAccountId(),
                 now().minusMinutes(45),
                 now().minusMinutes(15),
-                statuses);
+                Lists.newArrayList(AUTHORISATION_SUCCESS, AUTHORISATION_REJECTED));
 
-        assertThat(charges.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findByAccountBetweenDatesWithStatusIn_findsNoneWithMatchingAccountButNonMatchingStatusInsideRange() {
+    public void summariseByAccountBetweenDatesWithStatusIn_excludesChargeWithMatchingAccountButNonMatchingStatusInsideRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
@@ -1066,19 +1326,18 @@ public class ChargeDaoITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(30))
                 .insert();
 
-        ArrayList<ChargeStatus> statuses = Lists.newArrayList(CREATED, ENTERING_CARD_DETAILS);
-
-        List<ChargeEntity> charges = chargeDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
                 defaultTestAccount.getAccountId(),
                 now().minusMinutes(45),
                 now().minusMinutes(15),
-                statuses);
+                Lists.newArrayList(CREATED, ENTERING_CARD_DETAILS));
 
-        assertThat(charges.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findByAccountBetweenDatesWithStatusIn_findsNoneWithMatchingAccountAndStatusBeforeRange() {
+    public void summariseByAccountBetweenDatesWithStatusIn_excludesChargeWithMatchingAccountAndStatusBeforeRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
@@ -1088,19 +1347,18 @@ public class ChargeDaoITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(40))
                 .insert();
 
-        ArrayList<ChargeStatus> statuses = Lists.newArrayList(CAPTURE_SUBMITTED, CAPTURED);
-
-        List<ChargeEntity> charges = chargeDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
                 defaultTestAccount.getAccountId(),
                 now().minusMinutes(30),
                 now().minusMinutes(5),
-                statuses);
+                Lists.newArrayList(CAPTURE_SUBMITTED, CAPTURED));
 
-        assertThat(charges.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findByAccountBetweenDatesWithStatusIn_findsNoneWithMatchingAccountAndStatusAfterRange() {
+    public void summariseByAccountBetweenDatesWithStatusIn_excludesChargeWithMatchingAccountAndStatusAfterRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
@@ -1110,15 +1368,14 @@ public class ChargeDaoITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(5))
                 .insert();
 
-        ArrayList<ChargeStatus> statuses = Lists.newArrayList(AUTHORISATION_SUCCESS, AUTHORISATION_3DS_REQUIRED);
-
-        List<ChargeEntity> charges = chargeDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = chargeDao.summariseByAccountBetweenDatesWithStatusIn(
                 defaultTestAccount.getAccountId(),
                 now().minusMinutes(60),
                 now().minusMinutes(30),
-                statuses);
+                Lists.newArrayList(AUTHORISATION_SUCCESS, AUTHORISATION_3DS_REQUIRED));
 
-        assertThat(charges.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
@@ -1144,7 +1401,7 @@ public class ChargeDaoITest extends DaoITestBase {
     }
 
     @Test
-    public void findChargesForCapture_shouldReturnChargesInCaptureApprovedState() throws Exception {
+    public void claimChargesForCapture_shouldReturnChargesInCaptureApprovedState() throws Exception {
         final long chargeId1 = 101L;
 
         DatabaseFixtures
@@ -1195,14 +1452,14 @@ public class ChargeDaoITest extends DaoITestBase {
                 .withChargeStatus(CAPTURED)
                 .insert();
 
-        List<ChargeEntity> charges = chargeDao.findChargesForCapture(10, Duration.of(60, ChronoUnit.MINUTES));
+        List<ChargeEntity> charges = chargeDao.claimChargesForCapture(10, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
 
         assertThat(charges.size(), is(1));
         assertEquals(charges.get(0).getId(), new Long(101));
     }
 
     @Test
-    public void findChargesForCapture_shouldNotReturnAChargeForWhichCaptureHasBeenAttemptedRecently() throws Exception {
+    public void claimChargesForCapture_shouldNotReturnAChargeForWhichCaptureHasBeenAttemptedRecently() throws Exception {
         final long chargeId1 = 101L;
         final long chargeId2 = 102L;
 
@@ -1269,12 +1526,107 @@ public class ChargeDaoITest extends DaoITestBase {
                 .insert();
 
 
-        List<ChargeEntity> charges = chargeDao.findChargesForCapture(10, Duration.of(60, ChronoUnit.MINUTES));
+        List<ChargeEntity> charges = chargeDao.claimChargesForCapture(10, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
 
         assertThat(charges.size(), is(1));
         assertEquals(charges.get(0).getId(), new Long(chargeId1));
     }
 
+    @Test
+    public void claimChargesForCapture_shouldNotReturnChargesAlreadyClaimed() throws Exception {
+        insertCaptureApprovedCharge(101L, "ext-id1", now().minusHours(3));
+        insertCaptureApprovedCharge(102L, "ext-id2", now().minusHours(2));
+        insertCaptureApprovedCharge(103L, "ext-id3", now().minusHours(1));
+
+        List<ChargeEntity> firstClaim = chargeDao.claimChargesForCapture(2, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
+        List<ChargeEntity> secondClaim = chargeDao.claimChargesForCapture(2, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
+        List<ChargeEntity> thirdClaim = chargeDao.claimChargesForCapture(2, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
+
+        assertThat(firstClaim.size(), is(2));
+        assertThat(firstClaim.get(0).getId(), is(101L));
+        assertThat(firstClaim.get(1).getId(), is(102L));
+        assertThat(secondClaim.size(), is(1));
+        assertThat(secondClaim.get(0).getId(), is(103L));
+        assertThat(thirdClaim.size(), is(0));
+    }
+
+    @Test
+    public void claimChargesForCapture_shouldReturnChargesWhoseClaimHasExpired() throws Exception {
+        insertCaptureApprovedCharge(101L, "ext-id1", now().minusHours(2));
+
+        List<ChargeEntity> expiredClaim = chargeDao.claimChargesForCapture(10, Duration.of(60, ChronoUnit.MINUTES), Duration.of(-1, ChronoUnit.MINUTES));
+        List<ChargeEntity> nextClaim = chargeDao.claimChargesForCapture(10, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
+
+        assertThat(expiredClaim.size(), is(1));
+        assertThat(nextClaim.size(), is(1));
+        assertThat(nextClaim.get(0).getId(), is(101L));
+    }
+
+    @Test
+    public void claimChargesForCapture_shouldOnlyClaimChargesOfTheGivenGateway() throws Exception {
+        DatabaseFixtures.TestAccount worldpayTestAccount = DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestAccount()
+                .withAccountId(100_000L)
+                .withPaymentProvider(PaymentGatewayName.WORLDPAY.getName())
+                .insert();
+        insertCaptureApprovedCharge(101L, "ext-id1", now().minusHours(2));
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(worldpayTestAccount)
+                .withChargeId(102L)
+                .withExternalChargeId("ext-id2")
+                .withCreatedDate(now().minusHours(3))
+                .withChargeStatus(CAPTURE_APPROVED)
+                .insert();
+
+        List<ChargeEntity> worldpayClaim = chargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 10, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
+        List<ChargeEntity> sandboxClaim = chargeDao.claimChargesForCapture(PaymentGatewayName.SANDBOX, 10, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES));
+
+        assertThat(worldpayClaim.size(), is(1));
+        assertThat(worldpayClaim.get(0).getId(), is(102L));
+        assertThat(sandboxClaim.size(), is(1));
+        assertThat(sandboxClaim.get(0).getId(), is(101L));
+    }
+
+    @Test
+    public void claimChargesForCapture_shouldClaimTheNextChargesWhenAnotherNodeWinsTheRaceForTheOldest() throws Exception {
+        insertCaptureApprovedCharge(101L, "ext-id1", now().minusHours(3));
+        insertCaptureApprovedCharge(102L, "ext-id2", now().minusHours(2));
+        insertCaptureApprovedCharge(103L, "ext-id3", now().minusHours(1));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection otherNode = DriverManager.getConnection(postgres.getConnectionUrl(), postgres.getUsername(), postgres.getPassword())) {
+            otherNode.setAutoCommit(false);
+            otherNode.createStatement().executeUpdate("UPDATE charges SET capture_claimed_until = (now() at time zone 'utc') + interval '10 minutes' WHERE id = 101");
+
+            // blocks on the row the other node is claiming until that node commits
+            Future<List<ChargeEntity>> claim = executor.submit(() -> chargeDao.claimChargesForCapture(2, Duration.of(60, ChronoUnit.MINUTES), Duration.of(10, ChronoUnit.MINUTES)));
+            Thread.sleep(500);
+            otherNode.commit();
+
+            List<ChargeEntity> charges = claim.get(10, TimeUnit.SECONDS);
+            assertThat(charges.size(), is(2));
+            assertThat(charges.get(0).getId(), is(102L));
+            assertThat(charges.get(1).getId(), is(103L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void insertCaptureApprovedCharge(long chargeId, String externalChargeId, ZonedDateTime createdDate) {
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .withChargeId(chargeId)
+                .withExternalChargeId(externalChargeId)
+                .withCreatedDate(createdDate)
+                .withChargeStatus(CAPTURE_APPROVED)
+                .insert();
+    }
+
     @Test
     public void countChargesForCapture_shouldReturnNumberOfChargesInCaptureApprovedState() throws Exception {
         DatabaseFixtures
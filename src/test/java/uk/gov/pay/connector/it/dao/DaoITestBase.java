@@ -39,6 +39,7 @@ public class DaoITestBase {
         properties.put("javax.persistence.jdbc.url", postgres.getConnectionUrl());
         properties.put("javax.persistence.jdbc.user", postgres.getUsername());
         properties.put("javax.persistence.jdbc.password", postgres.getPassword());
+        properties.put("eclipselink.session-event-listener", SqlStatementCounter.class.getName());
 
         jpaModule = new JpaPersistModule("ConnectorUnit");
         jpaModule.properties(properties);
@@ -0,0 +1,104 @@
+package uk.gov.pay.connector.it.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.dao.NotificationInboxDao;
+import uk.gov.pay.connector.model.domain.NotificationInboxEntity;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.connector.service.PaymentGatewayName.SMARTPAY;
+import static uk.gov.pay.connector.service.PaymentGatewayName.WORLDPAY;
+
+public class NotificationInboxDaoITest extends DaoITestBase {
+
+    private static final Duration CLAIM_FOR = Duration.ofMinutes(5);
+    private static final int MAXIMUM_ATTEMPTS = 2;
+
+    private NotificationInboxDao notificationInboxDao;
+
+    @Before
+    public void setUp() throws Exception {
+        notificationInboxDao = env.getInstance(NotificationInboxDao.class);
+    }
+
+    @Test
+    public void claimBatch_shouldClaimTheOldestNotificationsOnlyOnce() {
+        NotificationInboxEntity first = notificationInboxDao.append(WORLDPAY, "first", emptyList());
+        NotificationInboxEntity second = notificationInboxDao.append(SMARTPAY, "second", emptyList());
+        NotificationInboxEntity third = notificationInboxDao.append(WORLDPAY, "third", emptyList());
+
+        List<NotificationInboxEntity> firstBatch = notificationInboxDao.claimBatch(2, CLAIM_FOR, MAXIMUM_ATTEMPTS);
+        List<NotificationInboxEntity> secondBatch = notificationInboxDao.claimBatch(2, CLAIM_FOR, MAXIMUM_ATTEMPTS);
+
+        assertThat(idsOf(firstBatch), contains(first.getId(), second.getId()));
+        assertThat(firstBatch.get(1).getPaymentGatewayName(), is(SMARTPAY));
+        assertThat(firstBatch.get(1).getPayload(), is("second"));
+        assertThat(idsOf(secondBatch), contains(third.getId()));
+    }
+
+    @Test
+    public void claimBatch_shouldNotClaimProcessedNotifications() {
+        NotificationInboxEntity notification = notificationInboxDao.append(WORLDPAY, "payload", emptyList());
+
+        assertThat(notificationInboxDao.markProcessed(singletonList(notification.getId())), is(1));
+
+        assertThat(notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS), is(empty()));
+    }
+
+    @Test
+    public void recordFailedAttempt_shouldReleaseTheClaimUntilTheMaximumAttemptsAreReached() {
+        NotificationInboxEntity notification = notificationInboxDao.append(WORLDPAY, "payload", emptyList());
+        List<Long> ids = singletonList(notification.getId());
+
+        assertThat(idsOf(notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS)), contains(notification.getId()));
+        notificationInboxDao.recordFailedAttempt(ids);
+
+        assertThat(idsOf(notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS)), contains(notification.getId()));
+        notificationInboxDao.recordFailedAttempt(ids);
+
+        assertThat(notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS), is(empty()));
+    }
+
+    @Test
+    public void claimBatch_shouldNotClaimANotificationWhileAnOlderOneAboutTheSameChargeIsClaimed() {
+        NotificationInboxEntity authorised = notificationInboxDao.append(WORLDPAY, "authorised", singletonList("transaction-1"));
+        NotificationInboxEntity captured = notificationInboxDao.append(WORLDPAY, "captured", singletonList("transaction-1"));
+        NotificationInboxEntity otherCharge = notificationInboxDao.append(WORLDPAY, "other", singletonList("transaction-2"));
+
+        assertThat(idsOf(notificationInboxDao.claimBatch(1, CLAIM_FOR, MAXIMUM_ATTEMPTS)), contains(authorised.getId()));
+        assertThat(idsOf(notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS)), contains(otherCharge.getId()));
+
+        notificationInboxDao.markProcessed(singletonList(authorised.getId()));
+
+        List<NotificationInboxEntity> batch = notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS);
+        assertThat(idsOf(batch), contains(captured.getId()));
+        assertThat(batch.get(0).getTransactionIds(), contains("transaction-1"));
+    }
+
+    @Test
+    public void releaseClaim_shouldLetTheNextPollClaimTheNotificationWithoutCountingAnAttempt() {
+        NotificationInboxEntity notification = notificationInboxDao.append(WORLDPAY, "payload", singletonList("transaction \"1\", {a}"));
+        List<Long> ids = singletonList(notification.getId());
+
+        assertThat(idsOf(notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS)), contains(notification.getId()));
+        notificationInboxDao.releaseClaim(ids);
+
+        List<NotificationInboxEntity> batch = notificationInboxDao.claimBatch(10, CLAIM_FOR, MAXIMUM_ATTEMPTS);
+        assertThat(idsOf(batch), contains(notification.getId()));
+        assertThat(batch.get(0).getAttempts(), is(0));
+        assertThat(batch.get(0).getTransactionIds(), contains("transaction \"1\", {a}"));
+    }
+
+    private List<Long> idsOf(List<NotificationInboxEntity> notifications) {
+        return notifications.stream().map(NotificationInboxEntity::getId).collect(toList());
+    }
+}
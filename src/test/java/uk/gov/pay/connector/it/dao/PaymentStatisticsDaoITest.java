@@ -0,0 +1,164 @@
+package uk.gov.pay.connector.it.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.dao.PaymentRequestDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
+import uk.gov.pay.connector.model.domain.ChargeStatus;
+import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.model.domain.PaymentRequestEntity;
+import uk.gov.pay.connector.model.domain.PaymentStatistic;
+import uk.gov.pay.connector.model.domain.PaymentStatisticsKey;
+import uk.gov.pay.connector.model.domain.RefundStatus;
+import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.connector.model.domain.GatewayAccountEntity.Type.TEST;
+import static uk.gov.pay.connector.model.domain.PaymentRequestEntityFixture.aValidPaymentRequestEntity;
+import static uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEntityBuilder.aChargeTransactionEntity;
+import static uk.gov.pay.connector.model.domain.transaction.RefundTransactionEntityBuilder.aRefundTransactionEntity;
+import static uk.gov.pay.connector.model.domain.transaction.TransactionOperation.CHARGE;
+import static uk.gov.pay.connector.model.domain.transaction.TransactionOperation.REFUND;
+
+public class PaymentStatisticsDaoITest extends DaoITestBase {
+
+    private static final LocalDate FIRST_OF_NOVEMBER = LocalDate.of(2017, 11, 1);
+    private static final LocalDate SECOND_OF_NOVEMBER = LocalDate.of(2017, 11, 2);
+
+    private PaymentStatisticsDao paymentStatisticsDao;
+    private PaymentRequestDao paymentRequestDao;
+    private GatewayAccountEntity gatewayAccount;
+
+    @Before
+    public void setUp() throws Exception {
+        paymentStatisticsDao = env.getInstance(PaymentStatisticsDao.class);
+        paymentRequestDao = env.getInstance(PaymentRequestDao.class);
+
+        DatabaseFixtures.TestAccount testAccount = DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestAccount()
+                .insert();
+
+        gatewayAccount = new GatewayAccountEntity(testAccount.getPaymentProvider(), new HashMap<>(), TEST);
+        gatewayAccount.setId(testAccount.getAccountId());
+    }
+
+    @Test
+    public void summariseByAccountBetweenDays_shouldSumRowsByStatusAndCardBrand() {
+        paymentStatisticsDao.add(aKey(FIRST_OF_NOVEMBER, CHARGE, "CAPTURED", "visa"), 1000L);
+        paymentStatisticsDao.add(aKey(SECOND_OF_NOVEMBER, CHARGE, "CAPTURED", "visa"), 500L);
+        paymentStatisticsDao.add(aKey(SECOND_OF_NOVEMBER, CHARGE, "CAPTURED", "master-card"), 200L);
+        paymentStatisticsDao.add(aKey(SECOND_OF_NOVEMBER.plusDays(1), CHARGE, "CAPTURED", "visa"), 300L);
+
+        List<PaymentStatistic> statistics = paymentStatisticsDao.summariseByAccountBetweenDays(
+                gatewayAccount.getId(), FIRST_OF_NOVEMBER, SECOND_OF_NOVEMBER, false);
+
+        assertThat(statistics, hasSize(2));
+        assertThat(statistics.get(0).getCardBrand(), is(Optional.of("master-card")));
+        assertThat(statistics.get(0).getCount(), is(1L));
+        assertThat(statistics.get(0).getTotalAmount(), is(200L));
+        assertThat(statistics.get(1).getCardBrand(), is(Optional.of("visa")));
+        assertThat(statistics.get(1).getDay(), is(Optional.empty()));
+        assertThat(statistics.get(1).getCount(), is(2L));
+        assertThat(statistics.get(1).getTotalAmount(), is(1500L));
+    }
+
+    @Test
+    public void summariseByAccountBetweenDays_shouldBreakDownByDayWhenAskedTo() {
+        paymentStatisticsDao.add(aKey(FIRST_OF_NOVEMBER, CHARGE, "CAPTURED", "visa"), 1000L);
+        paymentStatisticsDao.add(aKey(SECOND_OF_NOVEMBER, CHARGE, "CAPTURED", "visa"), 500L);
+
+        List<PaymentStatistic> statistics = paymentStatisticsDao.summariseByAccountBetweenDays(
+                gatewayAccount.getId(), FIRST_OF_NOVEMBER, SECOND_OF_NOVEMBER, true);
+
+        assertThat(statistics, hasSize(2));
+        assertThat(statistics.get(0).getDay(), is(Optional.of(FIRST_OF_NOVEMBER)));
+        assertThat(statistics.get(0).getTotalAmount(), is(1000L));
+        assertThat(statistics.get(1).getDay(), is(Optional.of(SECOND_OF_NOVEMBER)));
+        assertThat(statistics.get(1).getTotalAmount(), is(500L));
+    }
+
+    @Test
+    public void move_shouldLeaveNoCountBehindInThePreviousStatus() {
+        PaymentStatisticsKey created = aKey(FIRST_OF_NOVEMBER, CHARGE, "CREATED", null);
+        PaymentStatisticsKey captured = aKey(FIRST_OF_NOVEMBER, CHARGE, "CAPTURED", null);
+        paymentStatisticsDao.add(created, 1000L);
+
+        paymentStatisticsDao.move(created, captured, 1000L);
+
+        List<PaymentStatistic> statistics = paymentStatisticsDao.summariseByAccountBetweenDays(
+                gatewayAccount.getId(), FIRST_OF_NOVEMBER, FIRST_OF_NOVEMBER, false);
+
+        assertThat(statistics, hasSize(1));
+        assertThat(statistics.get(0).getStatus(), is("CAPTURED"));
+        assertThat(statistics.get(0).getCardBrand(), is(Optional.empty()));
+        assertThat(statistics.get(0).getCount(), is(1L));
+        assertThat(statistics.get(0).getTotalAmount(), is(1000L));
+    }
+
+    @Test
+    public void batchAdjustments_shouldApplyTheAdjustmentsSummedPerRow() {
+        PaymentStatisticsKey created = aKey(FIRST_OF_NOVEMBER, CHARGE, "CREATED", null);
+        PaymentStatisticsKey expired = aKey(FIRST_OF_NOVEMBER, CHARGE, "EXPIRED", null);
+        paymentStatisticsDao.add(created, 1000L);
+        paymentStatisticsDao.add(created, 500L);
+
+        paymentStatisticsDao.batchAdjustments(() -> {
+            paymentStatisticsDao.move(created, expired, 1000L);
+            paymentStatisticsDao.move(created, expired, 500L);
+            return null;
+        });
+
+        List<PaymentStatistic> statistics = paymentStatisticsDao.summariseByAccountBetweenDays(
+                gatewayAccount.getId(), FIRST_OF_NOVEMBER, FIRST_OF_NOVEMBER, false);
+
+        assertThat(statistics, hasSize(1));
+        assertThat(statistics.get(0).getStatus(), is("EXPIRED"));
+        assertThat(statistics.get(0).getCount(), is(2L));
+        assertThat(statistics.get(0).getTotalAmount(), is(1500L));
+    }
+
+    @Test
+    public void rebuildForAccount_shouldCountTransactionsByDayStatusAndCardBrandOfTheCharge() {
+        ZonedDateTime createdDate = FIRST_OF_NOVEMBER.atTime(10, 0).atZone(ZoneOffset.UTC);
+        PaymentRequestEntity paymentRequest = aValidPaymentRequestEntity()
+                .withGatewayAccountEntity(gatewayAccount)
+                .withTransactions(
+                        aChargeTransactionEntity().withStatus(ChargeStatus.CAPTURED).withAmount(1000L).withCreatedDate(createdDate).build(),
+                        aRefundTransactionEntity().withStatus(RefundStatus.REFUNDED).withAmount(400L).withCreatedDate(createdDate).build())
+                .build();
+        paymentRequestDao.persist(paymentRequest);
+        databaseTestHelper.addCard(1L, "visa", paymentRequest.getChargeTransaction().getId());
+        paymentStatisticsDao.add(aKey(FIRST_OF_NOVEMBER, CHARGE, "CREATED", null), 999L);
+
+        int rows = paymentStatisticsDao.rebuildForAccount(gatewayAccount.getId());
+
+        List<PaymentStatistic> statistics = paymentStatisticsDao.summariseByAccountBetweenDays(
+                gatewayAccount.getId(), FIRST_OF_NOVEMBER, FIRST_OF_NOVEMBER, false);
+
+        assertThat(rows, is(2));
+        assertThat(statistics, hasSize(2));
+        assertThat(statistics.get(0).getOperation(), is(CHARGE));
+        assertThat(statistics.get(0).getStatus(), is("CAPTURED"));
+        assertThat(statistics.get(0).getCardBrand(), is(Optional.of("visa")));
+        assertThat(statistics.get(0).getTotalAmount(), is(1000L));
+        assertThat(statistics.get(1).getOperation(), is(REFUND));
+        assertThat(statistics.get(1).getStatus(), is("REFUNDED"));
+        assertThat(statistics.get(1).getCardBrand(), is(Optional.of("visa")));
+        assertThat(statistics.get(1).getTotalAmount(), is(400L));
+    }
+
+    private PaymentStatisticsKey aKey(LocalDate day, TransactionOperation operation,
+                                      String status, String cardBrand) {
+        return new PaymentStatisticsKey(gatewayAccount.getId(), day, operation, status, cardBrand);
+    }
+}
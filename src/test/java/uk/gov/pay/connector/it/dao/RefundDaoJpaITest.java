@@ -4,13 +4,12 @@ import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import uk.gov.pay.connector.dao.RefundDao;
+import uk.gov.pay.connector.model.domain.AmountSummary;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.RefundEntity;
 import uk.gov.pay.connector.model.domain.RefundHistory;
-import uk.gov.pay.connector.model.domain.RefundStatus;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -123,30 +122,81 @@ public class RefundDaoJpaITest extends DaoITestBase {
     }
 
     @Test
-    public void findBetweenDatesWithStatusIn_shouldFindRefundWithMatchingStatusInsideRange() {
+    public void summariseBetweenDatesWithStatusIn_shouldCountAndTotalRefundsWithMatchingStatusInsideRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestRefund()
                 .withTestCharge(chargeTestRecord)
-                .withReference("reference")
+                .withReference("reference-1")
+                .withAmount(300L)
                 .withRefundStatus(REFUNDED)
                 .withCreatedDate(now().minusMinutes(30))
                 .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestRefund()
+                .withTestCharge(chargeTestRecord)
+                .withReference("reference-2")
+                .withAmount(200L)
+                .withRefundStatus(REFUNDED)
+                .withCreatedDate(now().minusMinutes(20))
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestRefund()
+                .withTestCharge(chargeTestRecord)
+                .withReference("reference-3")
+                .withAmount(100L)
+                .withRefundStatus(REFUND_ERROR)
+                .withCreatedDate(now().minusMinutes(20))
+                .insert();
+
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
+                sandboxAccount.getAccountId(),
+                now().minusMinutes(45),
+                now().minusMinutes(15),
+                Lists.newArrayList(REFUNDED));
+
+        assertThat(summary.getCount(), is(2L));
+        assertThat(summary.getTotalAmount(), is(500L));
+    }
 
-        ArrayList<RefundStatus> statuses = Lists.newArrayList(REFUND_SUBMITTED, REFUNDED);
+    @Test
+    public void summariseBetweenDatesWithStatusIn_shouldReturnZeroWhenNoRefundsMatch() {
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
+                100_000L,
+                now().minusMinutes(45),
+                now().minusMinutes(15),
+                Lists.newArrayList(REFUNDED));
+
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
+    }
+
+    @Test
+    public void summariseBetweenDatesWithStatusIn_shouldCountRefundWithMatchingStatusInsideRange() {
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestRefund()
+                .withTestCharge(chargeTestRecord)
+                .withReference("reference")
+                .withAmount(450L)
+                .withRefundStatus(REFUNDED)
+                .withCreatedDate(now().minusMinutes(30))
+                .insert();
 
-        List<RefundEntity> refunds = refundDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
                 sandboxAccount.getAccountId(),
                 now().minusMinutes(45),
                 now().minusMinutes(15),
-                statuses);
+                Lists.newArrayList(REFUND_SUBMITTED, REFUNDED));
 
-        assertThat(refunds.size(), is(1));
-        assertThat(refunds.get(0).getReference(), is("reference"));
+        assertThat(summary.getCount(), is(1L));
+        assertThat(summary.getTotalAmount(), is(450L));
     }
 
     @Test
-    public void findBetweenDatesWithStatusIn_shouldFindNoneWithNonMatchingAccountButMatchingStatusInsideRange() {
+    public void summariseBetweenDatesWithStatusIn_shouldExcludeRefundsOfAnotherAccountWithMatchingStatusInsideRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestRefund()
@@ -156,19 +206,18 @@ public class RefundDaoJpaITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(30))
                 .insert();
 
-        ArrayList<RefundStatus> statuses = Lists.newArrayList(REFUND_SUBMITTED);
-
-        List<RefundEntity> refunds = refundDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
                 100_000L,
                 now().minusMinutes(45),
                 now().minusMinutes(15),
-                statuses);
+                Lists.newArrayList(REFUND_SUBMITTED));
 
-        assertThat(refunds.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findBetweenDatesWithStatusIn_shouldFindNoneWithMatchingAccountButNonMatchingStatusInsideRange() {
+    public void summariseBetweenDatesWithStatusIn_shouldExcludeRefundWithMatchingAccountButNonMatchingStatusInsideRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestRefund()
@@ -178,19 +227,18 @@ public class RefundDaoJpaITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(20))
                 .insert();
 
-        ArrayList<RefundStatus> statuses = Lists.newArrayList(CREATED, REFUND_SUBMITTED, REFUND_ERROR);
-
-        List<RefundEntity> refunds = refundDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
                 sandboxAccount.getAccountId(),
                 now().minusMinutes(30),
                 now().minusMinutes(10),
-                statuses);
+                Lists.newArrayList(CREATED, REFUND_SUBMITTED, REFUND_ERROR));
 
-        assertThat(refunds.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findBetweenDatesWithStatusIn_shouldFindNoneWithMatchingAccountAndMatchingStatusBeforeRange() {
+    public void summariseBetweenDatesWithStatusIn_shouldExcludeRefundWithMatchingAccountAndMatchingStatusBeforeRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestRefund()
@@ -200,19 +248,18 @@ public class RefundDaoJpaITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(90))
                 .insert();
 
-        ArrayList<RefundStatus> statuses = Lists.newArrayList(REFUND_SUBMITTED, REFUNDED, REFUND_ERROR);
-
-        List<RefundEntity> refunds = refundDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
                 sandboxAccount.getAccountId(),
                 now().minusMinutes(60),
                 now().minusMinutes(30),
-                statuses);
+                Lists.newArrayList(REFUND_SUBMITTED, REFUNDED, REFUND_ERROR));
 
-        assertThat(refunds.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
-    public void findBetweenDatesWithStatusIn_shouldFindNoneWithMatchingAccountAndMatchingStatusAfterRange() {
+    public void summariseBetweenDatesWithStatusIn_shouldExcludeRefundWithMatchingAccountAndMatchingStatusAfterRange() {
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestRefund()
@@ -222,15 +269,14 @@ public class RefundDaoJpaITest extends DaoITestBase {
                 .withCreatedDate(now().minusMinutes(15))
                 .insert();
 
-        ArrayList<RefundStatus> statuses = Lists.newArrayList(REFUND_SUBMITTED, REFUNDED, REFUND_ERROR);
-
-        List<RefundEntity> refunds = refundDao.findByAccountBetweenDatesWithStatusIn(
+        AmountSummary summary = refundDao.summariseByAccountBetweenDatesWithStatusIn(
                 sandboxAccount.getAccountId(),
                 now().minusMinutes(60),
                 now().minusMinutes(30),
-                statuses);
+                Lists.newArrayList(REFUND_SUBMITTED, REFUNDED, REFUND_ERROR));
 
-        assertThat(refunds.size(), is(0));
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getTotalAmount(), is(0L));
     }
 
     @Test
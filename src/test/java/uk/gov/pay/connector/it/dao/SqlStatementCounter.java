@@ -0,0 +1,29 @@
+package uk.gov.pay.connector.it.dao;
+
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements EclipseLink sends to the database, so that tests can assert how many
+ * statements a DAO call costs. EclipseLink creates the listener itself from the persistence unit
+ * properties, hence the static counter.
+ */
+public class SqlStatementCounter extends SessionEventAdapter {
+
+    private static final AtomicInteger statements = new AtomicInteger();
+
+    @Override
+    public void postExecuteCall(SessionEvent event) {
+        statements.incrementAndGet();
+    }
+
+    public static void reset() {
+        statements.set(0);
+    }
+
+    public static int count() {
+        return statements.get();
+    }
+}
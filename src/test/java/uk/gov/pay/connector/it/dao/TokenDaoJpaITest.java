@@ -9,8 +9,12 @@ import uk.gov.pay.connector.dao.TokenDao;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.TokenEntity;
 
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -72,12 +76,41 @@ public class TokenDaoJpaITest extends DaoITestBase {
         assertThat(token.getChargeEntity().getId(), is(defaultTestCharge.getChargeId()));
     }
 
+    @Test
+    public void findByChargeId_shouldFindTheLatestToken() {
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "older-token");
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "latest-token");
+
+        assertThat(tokenDao.findByChargeId(defaultTestCharge.getChargeId()).get().getToken(), is("latest-token"));
+    }
+
     @Test
     public void findByChargeId_shouldNotFindToken() {
         Long noExistingChargeId = 9876512L;
         assertThat(tokenDao.findByChargeId(noExistingChargeId).isPresent(), is(false));
     }
 
+    @Test
+    public void findByChargeIds_shouldFindTheLatestTokenOfEachChargeInOneStatement() {
+        DatabaseFixtures.TestCharge otherTestCharge = DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(defaultTestAccount)
+                .insert();
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "older-token");
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "latest-token");
+        databaseTestHelper.addToken(otherTestCharge.getChargeId(), "other-token");
+        Long chargeWithoutToken = 9876512L;
+
+        SqlStatementCounter.reset();
+        Map<Long, TokenEntity> tokens = tokenDao.findByChargeIds(asList(defaultTestCharge.getChargeId(), otherTestCharge.getChargeId(), chargeWithoutToken));
+
+        assertThat(SqlStatementCounter.count(), is(1));
+        assertThat(tokens.size(), is(2));
+        assertThat(tokens.get(defaultTestCharge.getChargeId()).getToken(), is("latest-token"));
+        assertThat(tokens.get(otherTestCharge.getChargeId()).getToken(), is("other-token"));
+    }
+
     @Test
     public void findByTokenId_shouldFindToken() {
 
@@ -98,4 +131,20 @@ public class TokenDaoJpaITest extends DaoITestBase {
 
         assertThat(tokenDao.findByTokenId(tokenId), is(Optional.empty()));
     }
+
+    @Test
+    public void deleteTokensCreatedBefore_shouldOnlyDeleteOlderTokensUpToTheLimit() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "expired-token-1", now.minusDays(3));
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "expired-token-2", now.minusDays(2));
+        databaseTestHelper.addToken(defaultTestCharge.getChargeId(), "live-token", now.minusMinutes(5));
+
+        assertThat(tokenDao.deleteTokensCreatedBefore(now.minusDays(1), 1), is(1));
+        assertThat(tokenDao.findByTokenId("expired-token-1").isPresent(), is(false));
+        assertThat(tokenDao.findByTokenId("expired-token-2").isPresent(), is(true));
+
+        assertThat(tokenDao.deleteTokensCreatedBefore(now.minusDays(1), 10), is(1));
+        assertThat(tokenDao.findByTokenId("expired-token-2").isPresent(), is(false));
+        assertThat(tokenDao.findByTokenId("live-token").isPresent(), is(true));
+    }
 }
@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
 import uk.gov.pay.connector.dao.PaymentRequestDao;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.dao.TransactionDao;
 import uk.gov.pay.connector.model.TransactionType;
 import uk.gov.pay.connector.model.domain.CardEntity;
@@ -14,7 +15,9 @@ import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.Transaction;
 import uk.gov.pay.connector.model.domain.transaction.TransactionOperation;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
@@ -278,6 +281,31 @@ public class TransactionDaoITest extends DaoITestBase {
         assertTransactionByExternalId(paymentRequestEntity.getExternalId(), transactionDao.search(searchParams));
     }
 
+    @Test
+    public void shouldReturnTransactions_byReferenceAndEmail_withExactMatch() {
+        PaymentRequestEntity paymentRequestEntity = aValidPaymentRequestEntity()
+                .withGatewayAccountEntity(gatewayAccount)
+                .withReference("Invoice 42")
+                .build();
+        paymentRequestEntity.getChargeTransaction().setEmail("abc@example.com");
+        paymentRequestDao.persist(paymentRequestEntity);
+
+        PaymentRequestEntity longerReference = aValidPaymentRequestEntity()
+                .withGatewayAccountEntity(gatewayAccount)
+                .withReference("Invoice 420")
+                .build();
+        longerReference.getChargeTransaction().setEmail("abc@example.com");
+        paymentRequestDao.persist(longerReference);
+
+        ChargeSearchParams searchParams = createSearchParams();
+        searchParams.withReferenceLike("invoice 42");
+        searchParams.withEmailLike("ABC@example.com");
+        searchParams.withExactMatch(true);
+
+        assertTransactionByExternalId(paymentRequestEntity.getExternalId(), transactionDao.search(searchParams));
+        assertThat(transactionDao.getTotal(searchParams), is(1L));
+    }
+
     @Test
     public void shouldReturnTransactions_byReferenceWithUnderscore() {
         final String expectedReference = "a_cedkdkwd";
@@ -570,6 +598,35 @@ public class TransactionDaoITest extends DaoITestBase {
         assertThat(searchResult.get(1).getChargeId(), is(chargeId));
     }
 
+    @Test
+    public void shouldReturnTransactions_afterCursor() {
+        final PaymentRequestEntity paymentRequestEntity = aValidPaymentRequestEntityWithRefund()
+                .withGatewayAccountEntity(gatewayAccount).build();
+        paymentRequestDao.persist(paymentRequestEntity);
+        paymentRequestDao.persist(aValidPaymentRequestEntityWithRefund()
+                .withGatewayAccountEntity(gatewayAccount).build());
+        paymentRequestDao.persist(aValidPaymentRequestEntityWithRefund()
+                .withGatewayAccountEntity(gatewayAccount).build());
+
+        ChargeSearchParams searchParams = new ChargeSearchParams()
+                .withGatewayAccountId(gatewayAccount.getId())
+                .withCursor(SearchCursor.first())
+                .withDisplaySize(4L);
+
+        final List<Transaction> firstPage = transactionDao.search(searchParams);
+        assertThat(firstPage.size(), is(4));
+
+        Transaction lastOfFirstPage = firstPage.get(3);
+        searchParams.withCursor(SearchCursor.after(lastOfFirstPage.getCreatedDate(), lastOfFirstPage.getChargeId()));
+
+        final List<Transaction> searchResult = transactionDao.search(searchParams);
+        assertThat(searchResult.size(), is(2));
+        final Long refundId = paymentRequestEntity.getRefundTransactions().get(0).getId();
+        assertThat(searchResult.get(0).getChargeId(), is(refundId));
+        final Long chargeId = paymentRequestEntity.getChargeTransaction().getId();
+        assertThat(searchResult.get(1).getChargeId(), is(chargeId));
+    }
+
     @Test
     public void shouldReturnTransactions_AllParametersSet() throws Exception {
         String ref = "ref1";
@@ -608,6 +665,74 @@ public class TransactionDaoITest extends DaoITestBase {
         assertThat(searchResult.get(0).getChargeId(), is(refundId));
     }
 
+    @Test
+    public void shouldStreamTransactions_newestFirst_acrossFetches() {
+        final PaymentRequestEntity paymentRequestEntity = aValidPaymentRequestEntityWithRefund()
+                .withGatewayAccountEntity(gatewayAccount).build();
+        paymentRequestDao.persist(paymentRequestEntity);
+        paymentRequestDao.persist(aValidPaymentRequestEntityWithRefund()
+                .withGatewayAccountEntity(gatewayAccount).build());
+        paymentRequestDao.persist(aValidPaymentRequestEntityWithRefund()
+                .withGatewayAccountEntity(gatewayAccount).build());
+
+        List<Transaction> streamed = new ArrayList<>();
+        transactionDao.stream(new ChargeSearchParams().withGatewayAccountId(gatewayAccount.getId()), 1, Duration.ofMinutes(1), streamed::add);
+
+        List<Transaction> searched = transactionDao.search(new ChargeSearchParams()
+                .withGatewayAccountId(gatewayAccount.getId())
+                .withCursor(SearchCursor.first())
+                .withDisplaySize(500L));
+        assertThat(streamed.size(), is(6));
+        for (int i = 0; i < streamed.size(); i++) {
+            assertThat(streamed.get(i).getChargeId(), is(searched.get(i).getChargeId()));
+            assertThat(streamed.get(i).getTransactionType(), is(searched.get(i).getTransactionType()));
+        }
+        final Long chargeId = paymentRequestEntity.getChargeTransaction().getId();
+        assertThat(streamed.get(5).getChargeId(), is(chargeId));
+        assertThat(streamed.get(5).getExternalId(), is(paymentRequestEntity.getExternalId()));
+        assertThat(streamed.get(5).getAmount(), is(paymentRequestEntity.getAmount()));
+    }
+
+    @Test
+    public void shouldStreamTransactions_AllParametersSet() throws Exception {
+        String ref = "ref1";
+        String email = "foo@foo.com";
+        String cardBrand = "visa";
+
+        ZonedDateTime createdTime = ZonedDateTime.now();
+        PaymentRequestEntity paymentRequestEntity = aValidPaymentRequestEntity()
+                .withReference(ref)
+                .withTransactions(aChargeTransactionEntity()
+                        .withEmail(email)
+                        .withCard(aCardEntity()
+                                .withCardBrand(cardBrand)
+                                .build())
+                        .withCreatedDate(createdTime)
+                        .withStatus(ChargeStatus.CREATED)
+                        .build())
+                .withGatewayAccountEntity(gatewayAccount).build();
+        paymentRequestDao.persist(paymentRequestEntity);
+        paymentRequestDao.persist(aValidPaymentRequestEntity()
+                .withGatewayAccountEntity(gatewayAccount).build());
+
+        ChargeSearchParams searchParams = createSearchParams();
+        searchParams.withReferenceLike(ref);
+        searchParams.withEmailLike(email);
+        searchParams.withCardBrand(cardBrand);
+        searchParams.withFromDate(createdTime.minusSeconds(5));
+        searchParams.withToDate(createdTime.plusSeconds(5));
+        searchParams.withTransactionType(TransactionType.PAYMENT);
+        searchParams.addExternalChargeStates(singletonList(ChargeStatus.CREATED.toExternal().getStatus()));
+        searchParams.addExternalRefundStates(singletonList(RefundStatus.CREATED.toExternal().getStatus()));
+
+        List<Transaction> streamed = new ArrayList<>();
+        transactionDao.stream(searchParams, 100, Duration.ofMinutes(1), streamed::add);
+        assertThat(streamed.size(), is(1));
+        assertThat(streamed.get(0).getChargeId(), is(paymentRequestEntity.getChargeTransaction().getId()));
+        assertThat(streamed.get(0).getEmail(), is(email));
+        assertThat(streamed.get(0).getCardBrand(), is(cardBrand));
+    }
+
     @Test
     public void shouldCountTransactions_AllParametersSet() throws Exception {
         String ref = "ref1";
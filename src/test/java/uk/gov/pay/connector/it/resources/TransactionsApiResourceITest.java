@@ -2,6 +2,7 @@ package uk.gov.pay.connector.it.resources;
 
 import org.apache.commons.lang.math.RandomUtils;
 import org.junit.Test;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.it.base.ChargingITestBase;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.RefundStatus;
@@ -14,6 +15,7 @@ import static com.jayway.restassured.http.ContentType.JSON;
 import static java.time.ZonedDateTime.now;
 import static java.time.temporal.ChronoUnit.HOURS;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.apache.commons.lang.math.RandomUtils.nextLong;
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
@@ -211,6 +213,19 @@ public class TransactionsApiResourceITest extends ChargingITestBase {
                 .body("results[0].gateway_transaction_id", is(transactionIdCharge2))
                 .body("results[0].charge_id", is(externalChargeId2));
     }
+    @Test
+    public void shouldRejectACursor_asKeysetPaginationIsNotSupportedForTransactions() {
+        getChargeApi
+                .withAccountId(accountId)
+                .withQueryParam("cursor", SearchCursor.first().encode())
+                .withHeader(HttpHeaders.ACCEPT, APPLICATION_JSON)
+                .withHeader("features", "REFUNDS_IN_TX_LIST")
+                .getTransactions()
+                .statusCode(BAD_REQUEST.getStatusCode())
+                .contentType(JSON)
+                .body("message", is("Parameter [cursor] is not supported with the REFUNDS_IN_TX_LIST feature"));
+    }
+
     private String addChargeAndCardDetails(Long chargeId, ChargeStatus status, String reference, String transactionId, ZonedDateTime fromDate, String cardBrand, String returnUrl, String email) {
         String externalChargeId = "charge" + chargeId;
         ChargeStatus chargeStatus = status != null ? status : AUTHORISATION_SUCCESS;
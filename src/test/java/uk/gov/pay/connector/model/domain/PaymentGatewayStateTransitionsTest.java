@@ -32,4 +32,16 @@ public class PaymentGatewayStateTransitionsTest {
         assertThat(transitions.isValidTransition(CAPTURE_READY, CAPTURE_SUBMITTED), is(true));
         assertThat(transitions.isValidTransition(CREATED, AUTHORISATION_READY), is(false));
     }
+
+    @Test
+    public void isValidTransition_isTrueForExactlyTheTransitionsOfTheGraph() throws Exception {
+        Set<Triple<ChargeStatus, ChargeStatus, String>> allTransitions = transitions.allTransitions();
+        for (ChargeStatus state : ChargeStatus.values()) {
+            for (ChargeStatus targetState : ChargeStatus.values()) {
+                boolean inGraph = allTransitions.stream()
+                        .anyMatch(transition -> transition.getLeft() == state && transition.getMiddle() == targetState);
+                assertThat(state + " -> " + targetState, transitions.isValidTransition(state, targetState), is(inGraph));
+            }
+        }
+    }
 }
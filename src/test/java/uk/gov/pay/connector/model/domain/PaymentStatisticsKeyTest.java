@@ -0,0 +1,43 @@
+package uk.gov.pay.connector.model.domain;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.connector.model.domain.PaymentStatisticsKey.LOCK_ORDER;
+import static uk.gov.pay.connector.model.domain.transaction.TransactionOperation.CHARGE;
+
+public class PaymentStatisticsKeyTest {
+
+    private static final LocalDate FIRST_OF_NOVEMBER = LocalDate.of(2017, 11, 1);
+
+    @Test
+    public void shouldNameTheLockFromTheDayOperationStatusAndCardBrand() {
+        PaymentStatisticsKey key = new PaymentStatisticsKey(1L, FIRST_OF_NOVEMBER, CHARGE, "CAPTURED", "visa");
+
+        assertThat(key.lockName(), is("17471|CHARGE|CAPTURED|visa"));
+    }
+
+    @Test
+    public void shouldHaveTheSameLockIdOnEveryNode() {
+        // the hash code of the lock name as String#hashCode defines it, which does not vary between JVMs
+        assertThat(new PaymentStatisticsKey(1L, FIRST_OF_NOVEMBER, CHARGE, "CAPTURED", "visa").lockId(), is(1867777451));
+        assertThat(new PaymentStatisticsKey(1L, FIRST_OF_NOVEMBER, CHARGE, "CREATED", null).lockId(), is(-2102806232));
+    }
+
+    @Test
+    public void shouldLockByGatewayAccountFirstThenByLockId() {
+        PaymentStatisticsKey captured = new PaymentStatisticsKey(1L, FIRST_OF_NOVEMBER, CHARGE, "CAPTURED", "visa");
+        PaymentStatisticsKey created = new PaymentStatisticsKey(1L, FIRST_OF_NOVEMBER, CHARGE, "CREATED", null);
+        PaymentStatisticsKey createdInAnotherAccount = new PaymentStatisticsKey(2L, FIRST_OF_NOVEMBER, CHARGE, "CREATED", null);
+
+        assertThat(LOCK_ORDER.compare(created, captured), lessThan(0));
+        assertThat(LOCK_ORDER.compare(captured, createdInAnotherAccount), lessThan(0));
+        assertThat(LOCK_ORDER.compare(createdInAnotherAccount, created), greaterThan(0));
+        assertThat(LOCK_ORDER.compare(created, new PaymentStatisticsKey(1L, FIRST_OF_NOVEMBER, CHARGE, "CREATED", "")), is(0));
+    }
+}
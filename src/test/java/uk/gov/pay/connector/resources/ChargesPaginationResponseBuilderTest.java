@@ -6,12 +6,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.SearchCursor;
 import uk.gov.pay.connector.model.api.ExternalChargeState;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
+import java.time.ZonedDateTime;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
@@ -59,4 +61,35 @@ public class ChargesPaginationResponseBuilderTest {
                 .assertThat("$._links.self.href", is("http://app.com/v1/api/accounts/1/charges?page=2&display_size=100&state=started"))
                 .assertThat("$.results.*", hasSize(0));
     }
+
+    @Test
+    public void shouldBuildCursorPaginationWithNextPageLinkAndWithoutTotal() throws Exception {
+
+        // given
+        SearchCursor nextCursor = SearchCursor.after(ZonedDateTime.parse("2018-03-12T16:25:01Z[UTC]"), 42L);
+        ChargeSearchParams searchParams = new ChargeSearchParams()
+                .withGatewayAccountId(1L)
+                .withDisplaySize(100L)
+                .withCursor(SearchCursor.first());
+
+        when(mockUriInfo.getBaseUriBuilder()).thenReturn(UriBuilder.fromUri("http://app.com"),
+                UriBuilder.fromUri("http://app.com"), UriBuilder.fromUri("http://app.com"));
+
+        // when
+        Response response = new ChargesPaginationResponseBuilder(searchParams, mockUriInfo)
+                .withChargeResponses(newArrayList())
+                .withNextCursor(nextCursor)
+                .buildResponse();
+
+        // then
+        JsonAssert.with((String) response.getEntity())
+                .assertNotDefined("$.total")
+                .assertNotDefined("$.page")
+                .assertNotDefined("$._links.last_page")
+                .assertNotDefined("$._links.prev_page")
+                .assertThat("$.count", is(0))
+                .assertThat("$._links.self.href", is("http://app.com/v1/api/accounts/1/charges?display_size=100&cursor="))
+                .assertThat("$._links.first_page.href", is("http://app.com/v1/api/accounts/1/charges?display_size=100&cursor="))
+                .assertThat("$._links.next_page.href", is("http://app.com/v1/api/accounts/1/charges?display_size=100&cursor=" + nextCursor.encode()));
+    }
 }
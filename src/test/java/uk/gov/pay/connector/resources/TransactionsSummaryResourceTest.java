@@ -10,15 +10,13 @@ import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.GatewayAccountDao;
 import uk.gov.pay.connector.dao.RefundDao;
 import uk.gov.pay.connector.model.TransactionsSummaryResponse;
-import uk.gov.pay.connector.model.domain.ChargeEntity;
+import uk.gov.pay.connector.model.domain.AmountSummary;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
-import uk.gov.pay.connector.model.domain.RefundEntity;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 
 import javax.ws.rs.core.Response;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -66,23 +64,10 @@ public class TransactionsSummaryResourceTest {
     @Mock
     private RefundDao mockRefundDao;
 
-    @Mock
-    private ChargeEntity mock25PoundsChargeEntity, mock50PoundsChargeEntity, mock100PoundsChargeEntity;
-
-    @Mock
-    private RefundEntity mock10PoundsRefundEntity, mock2Pounds50RefundEntity;
-
     private TransactionsSummaryResource resource;
 
     @Before
     public void setUp() {
-        given(mock25PoundsChargeEntity.getAmount()).willReturn(GBP_25_00);
-        given(mock50PoundsChargeEntity.getAmount()).willReturn(GBP_50_00);
-        given(mock100PoundsChargeEntity.getAmount()).willReturn(GBP_100_00);
-
-        given(mock10PoundsRefundEntity.getAmount()).willReturn(GBP_10_00);
-        given(mock2Pounds50RefundEntity.getAmount()).willReturn(GBP_2_50);
-
         given(mockGatewayAccountDao.findById(any(Long.class))).willReturn(Optional.empty());
         given(mockGatewayAccountDao.findById(GATEWAY_ACCOUNT_ID)).willReturn(Optional.of(mock(GatewayAccountEntity.class)));
 
@@ -92,13 +77,13 @@ public class TransactionsSummaryResourceTest {
 
     @Test
     public void validGatewayAccountIdFromDateAndToDateProducesCorrectSummary() {
-        given(mockChargeDao.findByAccountBetweenDatesWithStatusIn(GATEWAY_ACCOUNT_ID,
+        given(mockChargeDao.summariseByAccountBetweenDatesWithStatusIn(GATEWAY_ACCOUNT_ID,
                 ZonedDateTime.parse(MIDNIGHT_THURSDAY), ZonedDateTime.parse(MIDNIGHT_FRIDAY), CHARGE_SUCCESS_STATUSES))
-                .willReturn(Arrays.asList(mock25PoundsChargeEntity, mock50PoundsChargeEntity, mock100PoundsChargeEntity));
+                .willReturn(new AmountSummary(3L, GBP_25_00 + GBP_50_00 + GBP_100_00));
 
-        given(mockRefundDao.findByAccountBetweenDatesWithStatusIn(GATEWAY_ACCOUNT_ID,
+        given(mockRefundDao.summariseByAccountBetweenDatesWithStatusIn(GATEWAY_ACCOUNT_ID,
                 ZonedDateTime.parse(MIDNIGHT_THURSDAY), ZonedDateTime.parse(MIDNIGHT_FRIDAY), REFUND_SUCCESS_STATUSES))
-                .willReturn(Arrays.asList(mock10PoundsRefundEntity, mock2Pounds50RefundEntity));
+                .willReturn(new AmountSummary(2L, GBP_10_00 + GBP_2_50));
 
         Response result = resource.getPaymentsSummary(GATEWAY_ACCOUNT_ID, MIDNIGHT_THURSDAY, MIDNIGHT_FRIDAY);
 
@@ -119,6 +119,7 @@ public class CaptureProcessSchedulerTest {
         captureProcessScheduler.stop();
 
         verify(scheduledExecutorService).shutdown();
+        verify(cardCaptureProcess).shutdown();
     }
 
     private ConnectorConfiguration mockConnectorConfigurationWith(long initialDelayInSeconds, long randomIntervalMinimumInSeconds, long randomIntervalMaximumInSeconds) {
@@ -33,6 +33,8 @@ import uk.gov.pay.connector.util.AuthUtils;
 import javax.persistence.OptimisticLockException;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.lang.String.format;
@@ -73,14 +75,16 @@ public class Card3dsResponseAuthServiceTest extends CardServiceTest {
         Counter mockCounter = mock(Counter.class);
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
+        when(mockedChargeDao.findGatewayNameByExternalId(anyString())).thenReturn(Optional.of("worldpay"));
 
         card3dsResponseAuthService = new Card3dsResponseAuthService(mockedChargeDao, mockedChargeEventDao, mockedProviders, mockExecutorService, mockEnvironment, mockPaymentRequestDao, mockChargeStatusUpdater);
         aValidPaymentRequestEntity = PaymentRequestEntityFixture.aValidPaymentRequestEntity().build();
     }
 
     public void setupMockExecutorServiceMock() {
-        doAnswer(invocation -> Pair.of(COMPLETED, ((Supplier) invocation.getArguments()[0]).get()))
-                .when(mockExecutorService).execute(any(Supplier.class));
+        doAnswer(invocation -> Pair.of(COMPLETED, ((Function) invocation.getArguments()[2]).apply(
+                ((CompletionStage) ((Supplier) invocation.getArguments()[1]).get()).toCompletableFuture().join())))
+                .when(mockExecutorService).executeAsync(any(PaymentGatewayName.class), any(Supplier.class), any(Function.class));
     }
 
     private void setupPaymentProviderMock(String transactionId, AuthoriseStatus authoriseStatus, String errorCode, ArgumentCaptor<Auth3dsResponseGatewayRequest> argumentCaptor) {
@@ -218,7 +222,7 @@ public class Card3dsResponseAuthServiceTest extends CardServiceTest {
     @Test
     public void authoriseShouldThrowAnOperationAlreadyInProgressRuntimeExceptionWhenTimeout() throws Exception {
         when(mockedChargeDao.findByExternalId(charge.getExternalId())).thenReturn(Optional.of(charge));
-        when(mockExecutorService.execute(any())).thenReturn(Pair.of(IN_PROGRESS, null));
+        when(mockExecutorService.executeAsync(any(), any(), any())).thenReturn(Pair.of(IN_PROGRESS, null));
 
         try {
             card3dsResponseAuthService.doAuthorise(charge.getExternalId(), AuthUtils.buildAuth3dsDetails());
@@ -17,6 +17,7 @@ import uk.gov.pay.connector.exception.ChargeNotFoundRuntimeException;
 import uk.gov.pay.connector.exception.ConflictRuntimeException;
 import uk.gov.pay.connector.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.exception.OperationRejectedRuntimeException;
 import uk.gov.pay.connector.model.GatewayError;
 import uk.gov.pay.connector.model.domain.AuthCardDetails;
 import uk.gov.pay.connector.model.domain.Card3dsEntity;
@@ -38,6 +39,8 @@ import uk.gov.pay.connector.util.AuthUtils;
 import javax.persistence.OptimisticLockException;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -53,6 +56,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -71,6 +75,7 @@ import static uk.gov.pay.connector.model.domain.ChargeStatus.ENTERING_CARD_DETAI
 import static uk.gov.pay.connector.model.gateway.GatewayResponse.GatewayResponseBuilder.responseBuilder;
 import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.COMPLETED;
 import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.IN_PROGRESS;
+import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.REJECTED;
 import static uk.gov.pay.connector.util.AuthUtils.aValidAuthorisationDetails;
 import static uk.gov.pay.connector.util.AuthUtils.addressFor;
 import static uk.gov.pay.connector.util.AuthUtils.buildAuthCardDetails;
@@ -107,12 +112,14 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
         cardAuthorisationService = new CardAuthoriseService(mockedChargeDao, mockedChargeEventDao,
-                mockedCardTypeDao, mockCardDao, mockedProviders, mockExecutorService,
+                new CardTypeCatalogue(mockedCardTypeDao), mockCardDao, mockedProviders, mockExecutorService,
                 auth3dsDetailsFactory, mockEnvironment, mockPaymentRequestDao, mockChargeStatusUpdater);
     }
 
     @Before
     public void configureChargeDaoMock() {
+        when(mockedChargeDao.findGatewayNameByExternalId(anyString())).thenReturn(Optional.of("worldpay"));
+        when(mockedPaymentProvider.authoriseAsync(any())).thenCallRealMethod();
         when(mockedChargeDao.findByExternalId(charge.getExternalId())).thenReturn(Optional.of(charge));
         paymentRequest = PaymentRequestEntity.from(charge, ChargeTransactionEntity.from(charge));
         when(mockPaymentRequestDao.findByExternalId(charge.getExternalId())).thenReturn(Optional.of(paymentRequest));
@@ -120,8 +127,9 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
     }
 
     public void mockExecutorServiceWillReturnCompletedResultWithSupplierReturnValue() {
-        doAnswer(invocation -> Pair.of(COMPLETED, ((Supplier) invocation.getArguments()[0]).get()))
-                .when(mockExecutorService).execute(any(Supplier.class));
+        doAnswer(invocation -> Pair.of(COMPLETED, ((Function) invocation.getArguments()[2]).apply(
+                ((CompletionStage) ((Supplier) invocation.getArguments()[1]).get()).toCompletableFuture().join())))
+                .when(mockExecutorService).executeAsync(any(PaymentGatewayName.class), any(Supplier.class), any(Function.class));
     }
 
     private GatewayResponse mockAuthResponse(String TRANSACTION_ID, AuthoriseStatus authoriseStatus, String errorCode) {
@@ -264,7 +272,7 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
                 .withStatus(ENTERING_CARD_DETAILS)
                 .build();
 
-        when(mockedCardTypeDao.findByBrand(authCardDetails.getCardBrand())).thenReturn(newArrayList(cardTypeEntity));
+        when(mockedCardTypeDao.findAll()).thenReturn(newArrayList(cardTypeEntity));
         when(mockedChargeDao.findByExternalId(charge.getExternalId())).thenReturn(Optional.of(charge));
 
         mockExecutorServiceWillReturnCompletedResultWithSupplierReturnValue();
@@ -418,7 +426,7 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
     @Test
     public void doAuthorise_shouldThrowAnOperationAlreadyInProgressRuntimeException_whenTimeout() throws Exception {
 
-        when(mockExecutorService.execute(any())).thenReturn(Pair.of(IN_PROGRESS, null));
+        when(mockExecutorService.executeAsync(any(), any(), any())).thenReturn(Pair.of(IN_PROGRESS, null));
 
         try {
             cardAuthorisationService.doAuthorise(charge.getExternalId(), aValidAuthorisationDetails());
@@ -429,6 +437,20 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
         }
     }
 
+    @Test
+    public void doAuthorise_shouldThrowAnOperationRejectedRuntimeException_whenRejectedByTheExecutor() throws Exception {
+
+        when(mockExecutorService.executeAsync(any(), any(), any())).thenReturn(Pair.of(REJECTED, null));
+
+        try {
+            cardAuthorisationService.doAuthorise(charge.getExternalId(), aValidAuthorisationDetails());
+            fail("Exception not thrown.");
+        } catch (OperationRejectedRuntimeException e) {
+            assertThat(e.getResponse().getStatus(), is(503));
+        }
+        verify(mockExecutorService).executeAsync(eq(PaymentGatewayName.WORLDPAY), any(), any());
+    }
+
     @Test(expected = ChargeNotFoundRuntimeException.class)
     public void doAuthorise_shouldThrowAChargeNotFoundRuntimeException_whenChargeDoesNotExist() {
 
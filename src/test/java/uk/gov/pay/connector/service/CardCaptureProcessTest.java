@@ -3,22 +3,34 @@ package uk.gov.pay.connector.service;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
-import io.dropwizard.setup.Environment;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.persist.UnitOfWork;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import uk.gov.pay.connector.app.CaptureProcessConfig;
-import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.dao.ChargeDao;
+import uk.gov.pay.connector.exception.ConflictRuntimeException;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -35,33 +47,49 @@ public class CardCaptureProcessTest {
     CardCaptureService mockCardCaptureService;
 
     @Mock
-    Environment mockEnvironment;
+    UnitOfWork mockUnitOfWork;
 
-    @Mock
-    private ConnectorConfiguration mockConnectorConfiguration;
+    private CaptureProcessConfig mockCaptureConfiguration;
+
+    private final Map<PaymentGatewayName, ExecutorService> captureExecutors = new EnumMap<>(PaymentGatewayName.class);
+
+    private ExecutorService drainExecutor;
 
     @Before
     public void setup() {
         MetricRegistry mockMetricRegistry = mock(MetricRegistry.class);
         Histogram mockHistogram = mock(Histogram.class);
-        CaptureProcessConfig mockCaptureConfiguration = mock(CaptureProcessConfig.class);
+        mockCaptureConfiguration = mock(CaptureProcessConfig.class);
 
         when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
         Counter mockCounter = mock(Counter.class);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
-        when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
         when(mockCaptureConfiguration.getBatchSize()).thenReturn(10);
         when(mockCaptureConfiguration.getRetryFailuresEveryAsJavaDuration()).thenReturn(Duration.ofMinutes(60));
+        when(mockCaptureConfiguration.getClaimChargesForAsJavaDuration()).thenReturn(Duration.ofMinutes(10));
         when(mockCaptureConfiguration.getMaximumRetries()).thenReturn(MAXIMUM_RETRIES);
-        when(mockConnectorConfiguration.getCaptureProcessConfig()).thenReturn(mockCaptureConfiguration);
-        cardCaptureProcess = new CardCaptureProcess(mockEnvironment, mockChargeDao, mockCardCaptureService, mockConnectorConfiguration);
+        when(mockCaptureConfiguration.getThreadsPerGateway()).thenReturn(2);
+        when(mockCaptureConfiguration.getMaximumBatchesPerRun()).thenReturn(3);
+        for (PaymentGatewayName gatewayName : PaymentGatewayName.values()) {
+            captureExecutors.put(gatewayName, Executors.newFixedThreadPool(2));
+        }
+        drainExecutor = Executors.newFixedThreadPool(PaymentGatewayName.values().length);
+        cardCaptureProcess = new CardCaptureProcess(mockChargeDao, mockCardCaptureService, mockCaptureConfiguration,
+                captureExecutors, drainExecutor, mockUnitOfWork, mockMetricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        cardCaptureProcess.shutdown();
     }
 
     @Test
-    public void shouldRetrieveASpecifiedNumberOfChargesApprovedForCapture() {
+    public void shouldRetrieveASpecifiedNumberOfChargesApprovedForCaptureForEachGateway() {
         cardCaptureProcess.runCapture();
 
-        verify(mockChargeDao).findChargesForCapture(10, Duration.ofMinutes(60));
+        for (PaymentGatewayName gatewayName : PaymentGatewayName.values()) {
+            verify(mockChargeDao).claimChargesForCapture(gatewayName, 10, Duration.ofMinutes(60), Duration.ofMinutes(10));
+        }
     }
 
     @Test
@@ -78,9 +106,12 @@ public class CardCaptureProcessTest {
         ChargeEntity mockCharge1 = mock(ChargeEntity.class);
         ChargeEntity mockCharge2 = mock(ChargeEntity.class);
 
-        when(mockChargeDao.findChargesForCapture(10, Duration.ofMinutes(60))).thenReturn(asList(mockCharge1, mockCharge2));
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 10, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(singletonList(mockCharge1));
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.SMARTPAY, 10, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(singletonList(mockCharge2));
         when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
         when(mockCharge2.getExternalId()).thenReturn("my-charge-2");
+        when(mockCharge1.getId()).thenReturn(1L);
+        when(mockCharge2.getId()).thenReturn(2L);
 
         cardCaptureProcess.runCapture();
 
@@ -93,15 +124,13 @@ public class CardCaptureProcessTest {
         ChargeEntity mockCharge1 = mock(ChargeEntity.class);
         ChargeEntity mockCharge2 = mock(ChargeEntity.class);
 
-        when(mockChargeDao.findChargesForCapture(10, Duration.ofMinutes(60))).thenReturn(asList(mockCharge1, mockCharge2));
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 10, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(asList(mockCharge1, mockCharge2));
         when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
         when(mockCharge2.getExternalId()).thenReturn("my-charge-2");
         when(mockCharge1.getId()).thenReturn(1L);
         when(mockCharge2.getId()).thenReturn(2L);
 
-
-        when(mockChargeDao.countCaptureRetriesForCharge(1L)).thenReturn(MAXIMUM_RETRIES);
-        when(mockChargeDao.countCaptureRetriesForCharge(2L)).thenReturn(2);
+        when(mockChargeDao.countCaptureRetriesForCharges(asList(1L, 2L))).thenReturn(ImmutableMap.of(1L, MAXIMUM_RETRIES, 2L, 2));
 
         cardCaptureProcess.runCapture();
 
@@ -115,15 +144,127 @@ public class CardCaptureProcessTest {
         String chargeId = "my-charge-1";
         ChargeEntity mockCharge1 = mock(ChargeEntity.class);
 
-        when(mockChargeDao.findChargesForCapture(10, Duration.ofMinutes(60))).thenReturn(singletonList(mockCharge1));
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 10, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(singletonList(mockCharge1));
         when(mockCharge1.getExternalId()).thenReturn(chargeId);
         when(mockCharge1.getId()).thenReturn(1L);
 
-
-        when(mockChargeDao.countCaptureRetriesForCharge(1L)).thenReturn(MAXIMUM_RETRIES);
+        when(mockChargeDao.countCaptureRetriesForCharges(singletonList(1L))).thenReturn(ImmutableMap.of(1L, MAXIMUM_RETRIES));
 
         cardCaptureProcess.runCapture();
 
         verify(mockCardCaptureService).markChargeAsCaptureError(chargeId);
     }
+
+    @Test
+    public void shouldCaptureRemainingChargesWhenCaptureOfOneChargeFails() {
+        ChargeEntity mockCharge1 = mock(ChargeEntity.class);
+        ChargeEntity mockCharge2 = mock(ChargeEntity.class);
+
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 10, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(asList(mockCharge1, mockCharge2));
+        when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
+        when(mockCharge2.getExternalId()).thenReturn("my-charge-2");
+        when(mockCharge1.getId()).thenReturn(1L);
+        when(mockCharge2.getId()).thenReturn(2L);
+        when(mockCardCaptureService.doCapture("my-charge-1")).thenThrow(new ConflictRuntimeException("my-charge-1"));
+
+        cardCaptureProcess.runCapture();
+
+        verify(mockCardCaptureService).doCapture("my-charge-1");
+        verify(mockCardCaptureService).doCapture("my-charge-2");
+    }
+
+    @Test
+    public void shouldKeepFetchingBatchesWhileTheQueueIsNotDrained() {
+        when(mockCaptureConfiguration.getBatchSize()).thenReturn(1);
+        ChargeEntity mockCharge1 = mock(ChargeEntity.class);
+        ChargeEntity mockCharge2 = mock(ChargeEntity.class);
+
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10)))
+                .thenReturn(singletonList(mockCharge1), singletonList(mockCharge2), emptyList());
+        when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
+        when(mockCharge2.getExternalId()).thenReturn("my-charge-2");
+        when(mockCharge1.getId()).thenReturn(1L);
+        when(mockCharge2.getId()).thenReturn(2L);
+
+        cardCaptureProcess.runCapture();
+
+        verify(mockChargeDao, times(3)).claimChargesForCapture(PaymentGatewayName.WORLDPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10));
+        verify(mockCardCaptureService).doCapture("my-charge-1");
+        verify(mockCardCaptureService).doCapture("my-charge-2");
+    }
+
+    @Test
+    public void shouldNotAttemptTheSameChargeTwiceInOneRun() {
+        when(mockCaptureConfiguration.getBatchSize()).thenReturn(1);
+        ChargeEntity mockCharge1 = mock(ChargeEntity.class);
+
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(singletonList(mockCharge1));
+        when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
+        when(mockCharge1.getId()).thenReturn(1L);
+        when(mockCardCaptureService.doCapture("my-charge-1")).thenThrow(new ConflictRuntimeException("my-charge-1"));
+
+        cardCaptureProcess.runCapture();
+
+        verify(mockChargeDao, times(2)).claimChargesForCapture(PaymentGatewayName.WORLDPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10));
+        verify(mockCardCaptureService).doCapture("my-charge-1");
+    }
+
+    @Test
+    public void shouldCaptureEachChargeInItsOwnUnitOfWork() {
+        ChargeEntity mockCharge1 = mock(ChargeEntity.class);
+
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 10, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(singletonList(mockCharge1));
+        when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
+        when(mockCharge1.getId()).thenReturn(1L);
+
+        cardCaptureProcess.runCapture();
+
+        InOrder inOrder = inOrder(mockUnitOfWork, mockCardCaptureService);
+        inOrder.verify(mockUnitOfWork).begin();
+        inOrder.verify(mockCardCaptureService).doCapture("my-charge-1");
+        inOrder.verify(mockUnitOfWork).end();
+    }
+
+    @Test
+    public void shouldKeepClaimingChargesOfOtherGatewaysWhileAGatewayIsSlow() throws Exception {
+        when(mockCaptureConfiguration.getBatchSize()).thenReturn(1);
+        ChargeEntity slowCharge = mock(ChargeEntity.class);
+        ChargeEntity mockCharge1 = mock(ChargeEntity.class);
+        ChargeEntity mockCharge2 = mock(ChargeEntity.class);
+
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.WORLDPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10))).thenReturn(singletonList(slowCharge), emptyList());
+        when(mockChargeDao.claimChargesForCapture(PaymentGatewayName.SMARTPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10)))
+                .thenReturn(singletonList(mockCharge1), singletonList(mockCharge2), emptyList());
+        when(slowCharge.getExternalId()).thenReturn("slow-charge");
+        when(mockCharge1.getExternalId()).thenReturn("my-charge-1");
+        when(mockCharge2.getExternalId()).thenReturn("my-charge-2");
+        when(slowCharge.getId()).thenReturn(1L);
+        when(mockCharge1.getId()).thenReturn(2L);
+        when(mockCharge2.getId()).thenReturn(3L);
+
+        CountDownLatch gatewayResponded = new CountDownLatch(1);
+        when(mockCardCaptureService.doCapture("slow-charge")).thenAnswer(invocation -> {
+            gatewayResponded.await();
+            return null;
+        });
+
+        ExecutorService runner = Executors.newSingleThreadExecutor();
+        Future<Integer> run = runner.submit(() -> cardCaptureProcess.runCapture());
+
+        verify(mockCardCaptureService, timeout(5000)).doCapture("my-charge-2");
+        verify(mockChargeDao, timeout(5000).times(3)).claimChargesForCapture(PaymentGatewayName.SMARTPAY, 1, Duration.ofMinutes(60), Duration.ofMinutes(10));
+        gatewayResponded.countDown();
+
+        assertEquals(3, (int) run.get(5, TimeUnit.SECONDS));
+        runner.shutdown();
+    }
+
+    @Test
+    public void shouldStopAndKeepTheInterruptWhenInterrupted() {
+        Thread.currentThread().interrupt();
+
+        cardCaptureProcess.runCapture();
+
+        assertTrue(Thread.interrupted());
+    }
 }
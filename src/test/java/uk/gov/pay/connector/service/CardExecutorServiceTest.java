@@ -0,0 +1,97 @@
+package uk.gov.pay.connector.service;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.ExecutorServiceConfig;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus;
+import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.COMPLETED;
+import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.IN_PROGRESS;
+import static uk.gov.pay.connector.service.CardExecutorService.ExecutionStatus.REJECTED;
+
+public class CardExecutorServiceTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final CountDownLatch slowOperationsMayFinish = new CountDownLatch(1);
+    private CardExecutorService<String> cardExecutorService;
+
+    @Before
+    public void setUp() {
+        ConnectorConfiguration configuration = mock(ConnectorConfiguration.class);
+        ExecutorServiceConfig executorServiceConfig = mock(ExecutorServiceConfig.class);
+        Environment environment = mock(Environment.class);
+        when(configuration.getExecutorServiceConfig()).thenReturn(executorServiceConfig);
+        when(executorServiceConfig.getThreadsPerCpu()).thenReturn(2);
+        when(executorServiceConfig.getTimeoutInSeconds()).thenReturn(1);
+        when(executorServiceConfig.getMaximumInFlightPerGateway()).thenReturn(1);
+        when(environment.metrics()).thenReturn(metricRegistry);
+
+        cardExecutorService = new CardExecutorService<>(configuration, environment);
+    }
+
+    @After
+    public void tearDown() {
+        slowOperationsMayFinish.countDown();
+    }
+
+    @Test
+    public void shouldRejectOperationsForAGatewayWithNoInFlightBudgetLeft() {
+        assertThat(cardExecutorService.execute(PaymentGatewayName.WORLDPAY, this::slowOperation).getLeft(), is(IN_PROGRESS));
+        assertThat(cardExecutorService.execute(PaymentGatewayName.WORLDPAY, () -> "done").getLeft(), is(REJECTED));
+        assertThat(metricRegistry.counter("card-executor.worldpay.rejected").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotRejectOperationsForOtherGateways() {
+        cardExecutorService.execute(PaymentGatewayName.WORLDPAY, this::slowOperation);
+
+        assertThat(cardExecutorService.execute(PaymentGatewayName.SMARTPAY, () -> "done").getRight(), is("done"));
+    }
+
+    @Test
+    public void shouldAdmitOperationsForAGatewayAgainOnceInFlightOnesComplete() {
+        assertThat(cardExecutorService.execute(PaymentGatewayName.WORLDPAY, () -> "done").getLeft(), is(COMPLETED));
+
+        assertThat(cardExecutorService.execute(PaymentGatewayName.WORLDPAY, () -> "done").getLeft(), is(COMPLETED));
+        assertThat(metricRegistry.histogram("card-executor.worldpay.delay").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldRunTheCompletionOfAnAsyncOperationOnceItsStageCompletes() {
+        Pair<ExecutionStatus, String> result = cardExecutorService.executeAsync(PaymentGatewayName.WORLDPAY,
+                () -> CompletableFuture.completedFuture("authorised"), response -> response + " and stored");
+
+        assertThat(result.getLeft(), is(COMPLETED));
+        assertThat(result.getRight(), is("authorised and stored"));
+    }
+
+    @Test
+    public void shouldNotHoldAThreadButKeepTheInFlightBudgetWhileAnAsyncOperationWaitsOnTheGateway() {
+        CompletableFuture<String> gatewayResponse = new CompletableFuture<>();
+
+        assertThat(cardExecutorService.executeAsync(PaymentGatewayName.WORLDPAY, () -> gatewayResponse, response -> response).getLeft(), is(IN_PROGRESS));
+        assertThat(cardExecutorService.getActiveTaskCount(), is(0));
+        assertThat(cardExecutorService.execute(PaymentGatewayName.WORLDPAY, () -> "done").getLeft(), is(REJECTED));
+    }
+
+    private String slowOperation() {
+        try {
+            slowOperationsMayFinish.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slow";
+    }
+}
@@ -0,0 +1,70 @@
+package uk.gov.pay.connector.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.dao.CardTypeDao;
+import uk.gov.pay.connector.model.domain.CardTypeEntity;
+
+import java.util.Optional;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CardTypeCatalogueTest {
+
+    @Mock
+    private CardTypeDao mockCardTypeDao;
+
+    private CardTypeCatalogue cardTypeCatalogue;
+
+    @Before
+    public void setUp() {
+        when(mockCardTypeDao.findAll()).thenReturn(newArrayList(
+                cardType("visa", "Visa", CardTypeEntity.Type.CREDIT, false),
+                cardType("visa", "Visa debit", CardTypeEntity.Type.DEBIT, false),
+                cardType("maestro", "Maestro", CardTypeEntity.Type.DEBIT, true)));
+
+        cardTypeCatalogue = new CardTypeCatalogue(mockCardTypeDao);
+    }
+
+    @Test
+    public void shouldFindLabelsAndWhetherBrandsRequire3ds() {
+        assertThat(cardTypeCatalogue.findLabel("visa"), is(Optional.of("Visa")));
+        assertThat(cardTypeCatalogue.findLabel("unknown"), is(Optional.empty()));
+        assertThat(cardTypeCatalogue.findLabel(null), is(Optional.empty()));
+        assertThat(cardTypeCatalogue.requires3ds("maestro"), is(true));
+        assertThat(cardTypeCatalogue.requires3ds("visa"), is(false));
+        assertThat(cardTypeCatalogue.getLabelsByBrand().size(), is(2));
+    }
+
+    @Test
+    public void shouldLoadCardTypesOnceUntilInvalidated() {
+        cardTypeCatalogue.findLabel("visa");
+        cardTypeCatalogue.requires3ds("visa");
+        cardTypeCatalogue.getLabelsByBrand();
+        verify(mockCardTypeDao, times(1)).findAll();
+
+        when(mockCardTypeDao.findAll()).thenReturn(newArrayList(cardType("visa", "New Visa", CardTypeEntity.Type.CREDIT, false)));
+        cardTypeCatalogue.invalidate();
+
+        assertThat(cardTypeCatalogue.findLabel("visa"), is(Optional.of("New Visa")));
+        verify(mockCardTypeDao, times(2)).findAll();
+    }
+
+    private static CardTypeEntity cardType(String brand, String label, CardTypeEntity.Type type, boolean requires3ds) {
+        CardTypeEntity cardType = new CardTypeEntity();
+        cardType.setBrand(brand);
+        cardType.setLabel(label);
+        cardType.setType(type);
+        cardType.setRequires3ds(requires3ds);
+        return cardType;
+    }
+}
@@ -1,13 +1,18 @@
 package uk.gov.pay.connector.service;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.persist.UnitOfWork;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ChargeSweepConfig;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeEventDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
 import uk.gov.pay.connector.model.CancelGatewayRequest;
 import uk.gov.pay.connector.model.GatewayError;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
@@ -21,16 +26,25 @@ import uk.gov.pay.connector.service.transaction.TransactionFlow;
 import uk.gov.pay.connector.service.worldpay.WorldpayBaseResponse;
 import uk.gov.pay.connector.service.worldpay.WorldpayCancelResponse;
 
+import javax.persistence.EntityManager;
 import java.time.ZonedDateTime;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.model.gateway.GatewayResponse.GatewayResponseBuilder.responseBuilder;
@@ -59,9 +73,17 @@ public class ChargeExpiryServiceTest {
     @Mock
     private ChargeStatusUpdater mockChargeStatusUpdater;
 
+    @Mock
+    private ChargeSweepConfig mockChargeSweepConfig;
+
+    @Mock
+    private UnitOfWork mockUnitOfWork;
+
     @Before
     public void setup() {
-        chargeExpiryService = new ChargeExpiryService(mockChargeDao, mockChargeEventDao, mockPaymentProviders, TransactionFlow::new, mockChargeStatusUpdater);
+        when(mockChargeSweepConfig.getExpiryChunkSize()).thenReturn(2);
+        chargeExpiryService = new ChargeExpiryService(mockChargeDao, mockChargeEventDao, mockPaymentProviders, TransactionFlow::new, mockChargeStatusUpdater,
+                new PaymentStatisticsDao(() -> mock(EntityManager.class)), mockChargeSweepConfig, MoreExecutors.newDirectExecutorService(), mockUnitOfWork, new MetricRegistry());
     }
 
     @Test
@@ -156,4 +178,104 @@ public class ChargeExpiryServiceTest {
         assertThat(chargeEntity.getStatus(), is(ChargeStatus.EXPIRE_CANCEL_FAILED.getValue()));
         verify(mockChargeStatusUpdater).updateChargeTransactionStatus(chargeEntity.getExternalId(), ChargeStatus.EXPIRE_CANCEL_FAILED);
     }
+
+    @Test
+    public void sweep_shouldExpireChargesOneChunkAtATimeStartingAfterTheLastChargeOfThePreviousChunk() {
+        ZonedDateTime expiredBefore = ZonedDateTime.now().minusHours(1);
+        ChargeEntity firstCharge = aCreatedChargeWithId(1L);
+        ChargeEntity secondCharge = aCreatedChargeWithId(2L);
+        ChargeEntity thirdCharge = aCreatedChargeWithId(3L);
+
+        when(mockChargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, 0L, 2))
+                .thenReturn(asList(firstCharge, secondCharge));
+        when(mockChargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, 2L, 2))
+                .thenReturn(singletonList(thirdCharge));
+
+        Map<String, Integer> result = chargeExpiryService.sweep(expiredBefore);
+
+        assertThat(result.get("expiry-success"), is(3));
+        assertThat(result.get("expiry-failed"), is(0));
+        assertThat(thirdCharge.getStatus(), is(ChargeStatus.EXPIRED.getValue()));
+        verify(mockChargeDao, times(2)).findBeforeDateWithStatusInAfterId(eq(expiredBefore), eq(EXPIRABLE_STATUSES), anyLong(), anyInt());
+    }
+
+    @Test
+    public void sweep_shouldStopBeforeTheNextChunkOnceItIsToldToStop() {
+        ZonedDateTime expiredBefore = ZonedDateTime.now().minusHours(1);
+        when(mockChargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, 0L, 2))
+                .thenReturn(asList(aCreatedChargeWithId(1L), aCreatedChargeWithId(2L)));
+        AtomicInteger chunksAllowed = new AtomicInteger(1);
+
+        Map<String, Integer> result = chargeExpiryService.sweep(expiredBefore, Integer.MAX_VALUE,
+                () -> chunksAllowed.getAndDecrement() > 0);
+
+        assertThat(result.get("expiry-success"), is(2));
+        verify(mockChargeDao, times(1)).findBeforeDateWithStatusInAfterId(eq(expiredBefore), eq(EXPIRABLE_STATUSES), anyLong(), anyInt());
+    }
+
+    @Test
+    public void sweepAfter_shouldStartAfterTheGivenChargeAndReportWhereItStopped() {
+        ZonedDateTime expiredBefore = ZonedDateTime.now().minusHours(1);
+        when(mockChargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, 5L, 2))
+                .thenReturn(asList(aCreatedChargeWithId(6L), aCreatedChargeWithId(7L)));
+
+        ChargeExpiryService.SweepResult result = chargeExpiryService.sweepAfter(expiredBefore, 5L, 2, () -> true);
+
+        assertThat(result.getSwept(), is(2));
+        assertThat(result.getLastSweptId(), is(7L));
+        assertThat(result.isFinished(), is(false));
+    }
+
+    @Test
+    public void sweepAfter_shouldReportThatItFinishedWhenThereAreNoMoreChargesToExpire() {
+        ZonedDateTime expiredBefore = ZonedDateTime.now().minusHours(1);
+        when(mockChargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, 5L, 2))
+                .thenReturn(singletonList(aCreatedChargeWithId(6L)));
+
+        ChargeExpiryService.SweepResult result = chargeExpiryService.sweepAfter(expiredBefore, 5L, 10, () -> true);
+
+        assertThat(result.getSwept(), is(1));
+        assertThat(result.getLastSweptId(), is(6L));
+        assertThat(result.isFinished(), is(true));
+    }
+
+    @Test
+    public void sweep_shouldStopWhenThereAreNoChargesToExpire() {
+        ZonedDateTime expiredBefore = ZonedDateTime.now().minusHours(1);
+        when(mockChargeDao.findBeforeDateWithStatusInAfterId(expiredBefore, EXPIRABLE_STATUSES, 0L, 2)).thenReturn(emptyList());
+
+        Map<String, Integer> result = chargeExpiryService.sweep(expiredBefore);
+
+        assertThat(result.get("expiry-success"), is(0));
+        assertThat(result.get("expiry-failed"), is(0));
+        verify(mockChargeEventDao, never()).persistChargeEventOf(any(), any());
+    }
+
+    @Test
+    public void shouldExpireTheOtherChargesOfAChunkOneAtATimeWhenOneOfThemCannotBeExpired() {
+        ChargeEntity expirableCharge = aCreatedChargeWithId(1L);
+        ChargeEntity expirableChargeReadAgain = aCreatedChargeWithId(1L);
+        when(mockChargeDao.findByExternalId(expirableCharge.getExternalId()))
+                .thenReturn(Optional.of(expirableCharge), Optional.of(expirableChargeReadAgain));
+        ChargeEntity alreadyExpiredCharge = aCreatedChargeWithId(2L);
+        alreadyExpiredCharge.setStatus(ChargeStatus.EXPIRED);
+
+        Map<String, Integer> result = chargeExpiryService.expire(asList(expirableCharge, alreadyExpiredCharge));
+
+        assertThat(result.get("expiry-success"), is(1));
+        assertThat(result.get("expiry-failed"), is(1));
+        assertThat(expirableChargeReadAgain.getStatus(), is(ChargeStatus.EXPIRED.getValue()));
+        verify(mockUnitOfWork).begin();
+    }
+
+    private ChargeEntity aCreatedChargeWithId(Long chargeId) {
+        ChargeEntity chargeEntity = ChargeEntityFixture.aValidChargeEntity()
+                .withId(chargeId)
+                .withExternalId("charge-" + chargeId)
+                .withCreatedDate(ZonedDateTime.now().minusHours(2))
+                .withStatus(ChargeStatus.CREATED)
+                .build();
+        when(mockChargeDao.findByExternalId(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
+        return chargeEntity;
+    }
 }
@@ -41,8 +41,10 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static javax.ws.rs.HttpMethod.GET;
 import static javax.ws.rs.HttpMethod.POST;
 import static javax.ws.rs.core.UriBuilder.fromUri;
@@ -132,11 +134,12 @@ public class ChargeServiceTest {
                 .when(this.mockedUriInfo)
                 .getBaseUriBuilder();
 
+        when(mockedTokenDao.findByChargeId(any())).thenReturn(Optional.empty());
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(ChargeEntity.class))).thenReturn(EXTERNAL_AVAILABLE);
 
         service = new ChargeService(mockedTokenDao, mockedChargeDao, mockedChargeEventDao,
-                mockedCardTypeDao, mockedGatewayAccountDao, mockedConfig, mockedProviders,
+                new CardTypeCatalogue(mockedCardTypeDao), mockedGatewayAccountDao, mockedConfig, mockedProviders,
                 mockedPaymentRequestDao, mockedChargeStatusUpdater);
     }
 
@@ -291,6 +294,41 @@ public class ChargeServiceTest {
         assertThat(chargeResponseForAccount.get(), is(expectedChargeResponse.build()));
     }
 
+    @Test
+    public void shouldReuseTheUnusedTokenOfAChargeInsteadOfCreatingANewOne() throws Exception {
+        Long chargeId = 101L;
+        Long accountId = 10L;
+
+        GatewayAccountEntity gatewayAccount = new GatewayAccountEntity("sandbox", new HashMap<>(), TEST);
+        gatewayAccount.setId(1L);
+
+        ChargeEntity charge = aValidChargeEntity()
+                .withId(chargeId)
+                .withGatewayAccountEntity(gatewayAccount)
+                .withStatus(ENTERING_CARD_DETAILS)
+                .build();
+        TokenEntity existingToken = TokenEntity.generateNewTokenFor(charge);
+
+        when(mockedChargeDao.findByExternalIdAndGatewayAccount(charge.getExternalId(), accountId)).thenReturn(Optional.of(charge));
+        when(mockedTokenDao.findByChargeId(chargeId)).thenReturn(Optional.of(existingToken));
+
+        ChargeResponse chargeResponse = service.findChargeForAccount(charge.getExternalId(), accountId, mockedUriInfo).get();
+
+        verify(mockedTokenDao, never()).persist(any());
+        assertThat(chargeResponse.getLink("next_url"), is(new URI("http://payments.com/secure/" + existingToken.getToken())));
+    }
+
+    @Test
+    public void shouldLookUpTheUnusedTokensOfOnlyTheUnfinishedChargesOfAPageInOneCall() {
+        ChargeEntity unfinishedCharge = aValidChargeEntity().withId(101L).withStatus(ENTERING_CARD_DETAILS).build();
+        ChargeEntity finishedCharge = aValidChargeEntity().withId(102L).withStatus(CAPTURED).build();
+        Map<Long, TokenEntity> unusedTokens = singletonMap(101L, TokenEntity.generateNewTokenFor(unfinishedCharge));
+        when(mockedTokenDao.findByChargeIds(singletonList(101L))).thenReturn(unusedTokens);
+
+        assertThat(service.findUnusedTokensFor(asList(unfinishedCharge, finishedCharge)), is(unusedTokens));
+        verify(mockedTokenDao, never()).findByChargeId(any());
+    }
+
     @Test
     public void shouldFindChargeForChargeIdAndAccountIdWithNextUrlWhenChargeStatusIsInProgress() throws Exception {
 
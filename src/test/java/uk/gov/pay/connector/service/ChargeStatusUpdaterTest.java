@@ -5,13 +5,17 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import uk.gov.pay.connector.dao.PaymentRequestDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
+import uk.gov.pay.connector.model.domain.CardEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.PaymentRequestEntity;
 import uk.gov.pay.connector.model.domain.PaymentRequestEntityFixture;
+import uk.gov.pay.connector.model.domain.PaymentStatisticsKey;
 import uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEntity;
 import uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEventEntity;
 import uk.gov.pay.connector.model.domain.transaction.TransactionEventEntity;
 
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -20,12 +24,16 @@ import java.util.function.Predicate;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.model.domain.ChargeStatus.CREATED;
 import static uk.gov.pay.connector.model.domain.ChargeStatus.ENTERING_CARD_DETAILS;
+import static uk.gov.pay.connector.model.domain.transaction.TransactionOperation.CHARGE;
 import static uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEntityBuilder.aChargeTransactionEntity;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -33,6 +41,8 @@ public class ChargeStatusUpdaterTest {
     private static final String SOME_EXTERNAL_ID = "someExternalId";
     @Mock
     private PaymentRequestDao mockPaymentRequestDao;
+    @Mock
+    private PaymentStatisticsDao mockPaymentStatisticsDao;
 
     @Test
     public void updatesChangeTransactionStatus() throws Exception {
@@ -42,7 +52,7 @@ public class ChargeStatusUpdaterTest {
         when(mockPaymentRequestDao.findByExternalId(SOME_EXTERNAL_ID)).thenReturn(Optional.of(paymentRequest));
 
         ChargeStatus newChargeStatus = ENTERING_CARD_DETAILS;
-        new ChargeStatusUpdater(mockPaymentRequestDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, newChargeStatus);
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, newChargeStatus);
 
         assertThat(paymentRequest.getChargeTransaction().getStatus(), is(newChargeStatus));
     }
@@ -53,7 +63,7 @@ public class ChargeStatusUpdaterTest {
         when(mockPaymentRequestDao.findByExternalId(SOME_EXTERNAL_ID)).thenReturn(Optional.of(paymentRequest));
         when(paymentRequest.hasChargeTransaction()).thenReturn(false);
 
-        new ChargeStatusUpdater(mockPaymentRequestDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, ENTERING_CARD_DETAILS);
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, ENTERING_CARD_DETAILS);
 
         verify(paymentRequest).hasChargeTransaction();
         verifyNoMoreInteractions(paymentRequest);
@@ -67,10 +77,11 @@ public class ChargeStatusUpdaterTest {
         when(paymentRequest.hasChargeTransaction()).thenReturn(true);
         when(paymentRequest.getChargeTransaction()).thenReturn(chargeTransaction);
         when(chargeTransaction.getStatus()).thenReturn(CREATED);
+        when(chargeTransaction.getPaymentRequest()).thenReturn(PaymentRequestEntityFixture.aValidPaymentRequestEntity().build());
 
         ChargeStatus newChargeStatus = ENTERING_CARD_DETAILS;
         ZonedDateTime gatewayEventTime = ZonedDateTime.now();
-        new ChargeStatusUpdater(mockPaymentRequestDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, newChargeStatus, gatewayEventTime);
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, newChargeStatus, gatewayEventTime);
 
         verify(chargeTransaction).updateStatus(newChargeStatus, gatewayEventTime);
     }
@@ -82,7 +93,7 @@ public class ChargeStatusUpdaterTest {
                 .build();
         when(mockPaymentRequestDao.findByExternalId(SOME_EXTERNAL_ID)).thenReturn(Optional.of(paymentRequest));
 
-        new ChargeStatusUpdater(mockPaymentRequestDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, ENTERING_CARD_DETAILS, null);
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, ENTERING_CARD_DETAILS, null);
 
         List<ChargeTransactionEventEntity> transactionEvents = paymentRequest.getChargeTransaction().getTransactionEvents();
 
@@ -94,6 +105,58 @@ public class ChargeStatusUpdaterTest {
         assertThat(enteringCardDetailsEvent.getGatewayEventDate(), is(nullValue()));
     }
 
+    @Test
+    public void movesChargeTransactionBetweenStatusesInPaymentStatistics() {
+        ZonedDateTime createdDate = ZonedDateTime.of(2017, 10, 4, 23, 30, 0, 0, ZoneOffset.UTC);
+        PaymentRequestEntity paymentRequest = PaymentRequestEntityFixture.aValidPaymentRequestEntity()
+                .withTransactions(aChargeTransactionEntity()
+                        .withStatus(ChargeStatus.CREATED)
+                        .withAmount(500L)
+                        .withCreatedDate(createdDate)
+                        .build())
+                .build();
+        when(mockPaymentRequestDao.findByExternalId(SOME_EXTERNAL_ID)).thenReturn(Optional.of(paymentRequest));
+
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, ENTERING_CARD_DETAILS);
+
+        Long accountId = paymentRequest.getGatewayAccount().getId();
+        verify(mockPaymentStatisticsDao).move(
+                new PaymentStatisticsKey(accountId, createdDate.toLocalDate(), CHARGE, "CREATED", null),
+                new PaymentStatisticsKey(accountId, createdDate.toLocalDate(), CHARGE, "ENTERING_CARD_DETAILS", null),
+                500L);
+    }
+
+    @Test
+    public void movesChargeTransactionToItsCardBrandInPaymentStatisticsWhenCardIsSet() {
+        PaymentRequestEntity paymentRequest = PaymentRequestEntityFixture.aValidPaymentRequestEntity()
+                .withTransactions(aChargeTransactionEntity().withStatus(ChargeStatus.AUTHORISATION_SUCCESS).withAmount(500L).build())
+                .build();
+        ChargeTransactionEntity chargeTransaction = paymentRequest.getChargeTransaction();
+        CardEntity card = new CardEntity();
+        card.setCardBrand("visa");
+
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateCard(chargeTransaction, card);
+
+        PaymentStatisticsKey withCardBrand = PaymentStatisticsKey.of(chargeTransaction);
+        assertThat(chargeTransaction.getCard(), is(card));
+        assertThat(withCardBrand.getCardBrand(), is("visa"));
+        verify(mockPaymentStatisticsDao).move(
+                new PaymentStatisticsKey(withCardBrand.getGatewayAccountId(), withCardBrand.getDay(), CHARGE, "AUTHORISATION_SUCCESS", null),
+                withCardBrand,
+                500L);
+    }
+
+    @Test
+    public void doesNotTouchPaymentStatisticsIfChargeTransactionDoesNotExist() {
+        PaymentRequestEntity paymentRequest = mock(PaymentRequestEntity.class);
+        when(mockPaymentRequestDao.findByExternalId(SOME_EXTERNAL_ID)).thenReturn(Optional.of(paymentRequest));
+        when(paymentRequest.hasChargeTransaction()).thenReturn(false);
+
+        new ChargeStatusUpdater(mockPaymentRequestDao, mockPaymentStatisticsDao).updateChargeTransactionStatus(SOME_EXTERNAL_ID, ENTERING_CARD_DETAILS);
+
+        verify(mockPaymentStatisticsDao, never()).move(any(), any(), anyLong());
+    }
+
     private Predicate<TransactionEventEntity> hasEventOfType(ChargeStatus status) {
         return event -> event.getStatus().equals(status);
     }
@@ -0,0 +1,61 @@
+package uk.gov.pay.connector.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.ExecutorServiceConfig;
+import uk.gov.pay.connector.app.ExecutorServiceConfig.ThreadMode;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExecutorServiceFactoryTest {
+
+    private ExecutorServiceConfig config = mock(ExecutorServiceConfig.class);
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        when(config.getThreadsPerCpu()).thenReturn(2);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldCreateAFixedThreadPoolInPlatformMode() throws Exception {
+        when(config.getThreadMode()).thenReturn(ThreadMode.PLATFORM);
+
+        executorService = ExecutorServiceFactory.newExecutorService(config, "test-executor-");
+
+        assertThat(executorService, is(instanceOf(ThreadPoolExecutor.class)));
+        assertThat(((ThreadPoolExecutor) executorService).getCorePoolSize(), is(2 * Runtime.getRuntime().availableProcessors()));
+        assertThat(executorService.submit(() -> Thread.currentThread().getName()).get(1, TimeUnit.SECONDS), startsWith("test-executor-"));
+    }
+
+    @Test
+    public void shouldCreateAFixedThreadPoolWhenNoThreadModeIsSet() {
+        executorService = ExecutorServiceFactory.newExecutorService(config, "test-executor-");
+
+        assertThat(executorService, is(instanceOf(ThreadPoolExecutor.class)));
+    }
+
+    @Test
+    public void shouldRunTasksOnNamedThreadsInVirtualMode() throws Exception {
+        when(config.getThreadMode()).thenReturn(ThreadMode.VIRTUAL);
+
+        executorService = ExecutorServiceFactory.newExecutorService(config, "test-executor-");
+
+        assertThat(executorService.submit(() -> Thread.currentThread().getName()).get(1, TimeUnit.SECONDS), startsWith("test-executor-"));
+    }
+}
@@ -0,0 +1,134 @@
+package uk.gov.pay.connector.service;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.GatewayAccountCacheConfig;
+import uk.gov.pay.connector.dao.GatewayAccountDao;
+import uk.gov.pay.connector.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.service.transaction.TransactionFlow;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GatewayAccountCacheTest {
+
+    private static final Long ACCOUNT_ID = 12L;
+    private static final Instant NOW = Instant.parse("2018-01-01T10:00:00Z");
+
+    @Mock
+    private GatewayAccountDao mockGatewayAccountDao;
+
+    @Mock
+    private GatewayAccountCacheConfig mockConfig;
+
+    @Mock
+    private Clock mockClock;
+
+    private GatewayAccountEntity account;
+    private GatewayAccountCache gatewayAccountCache;
+
+    @Before
+    public void setUp() {
+        account = new GatewayAccountEntity("worldpay", new HashMap<>(ImmutableMap.of("username", "user", "password", "secret")),
+                GatewayAccountEntity.Type.TEST);
+        account.setId(ACCOUNT_ID);
+        account.setServiceName("A service");
+        account.setEmailNotification(new EmailNotificationEntity(account, "template"));
+
+        when(mockGatewayAccountDao.findById(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        when(mockConfig.getExpireAfterAsJavaDuration()).thenReturn(Duration.ofMinutes(1));
+        when(mockClock.instant()).thenReturn(NOW);
+
+        gatewayAccountCache = new GatewayAccountCache(mockGatewayAccountDao, TransactionFlow::new, mockConfig, mockClock);
+    }
+
+    @Test
+    public void shouldLoadAccountOnceUntilInvalidated() {
+        assertThat(gatewayAccountCache.findById(ACCOUNT_ID).get().getServiceName(), is("A service"));
+        assertThat(gatewayAccountCache.exists(ACCOUNT_ID), is(true));
+        verify(mockGatewayAccountDao, times(1)).findById(ACCOUNT_ID);
+
+        account.setServiceName("Renamed service");
+        gatewayAccountCache.invalidate(ACCOUNT_ID);
+
+        assertThat(gatewayAccountCache.findById(ACCOUNT_ID).get().getServiceName(), is("Renamed service"));
+        verify(mockGatewayAccountDao, times(2)).findById(ACCOUNT_ID);
+    }
+
+    @Test
+    public void update_shouldInvalidateTheAccountOnceTheChangeIsDone_soAnAccountLoadedDuringTheChangeIsNotKept() {
+        String result = gatewayAccountCache.update(ACCOUNT_ID, () -> {
+            // as another request would, before the change is committed
+            gatewayAccountCache.findById(ACCOUNT_ID);
+            account.setServiceName("Renamed service");
+            return "changed";
+        });
+
+        assertThat(result, is("changed"));
+        assertThat(gatewayAccountCache.findById(ACCOUNT_ID).get().getServiceName(), is("Renamed service"));
+    }
+
+    @Test
+    public void shouldReloadAccountOnceExpired() {
+        gatewayAccountCache.findById(ACCOUNT_ID);
+        when(mockClock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+
+        gatewayAccountCache.findById(ACCOUNT_ID);
+
+        verify(mockGatewayAccountDao, times(2)).findById(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldNotCacheUnknownAccounts() {
+        when(mockGatewayAccountDao.findById(99L)).thenReturn(Optional.empty());
+
+        assertThat(gatewayAccountCache.exists(99L), is(false));
+        assertThat(gatewayAccountCache.exists(99L), is(false));
+
+        verify(mockGatewayAccountDao, times(2)).findById(99L);
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        when(mockConfig.getExpireAfterAsJavaDuration()).thenReturn(Duration.ZERO);
+        gatewayAccountCache = new GatewayAccountCache(mockGatewayAccountDao, TransactionFlow::new, mockConfig, mockClock);
+
+        gatewayAccountCache.findById(ACCOUNT_ID);
+        gatewayAccountCache.findById(ACCOUNT_ID);
+
+        verify(mockGatewayAccountDao, times(2)).findById(ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldReturnCopiesThatDoNotChangeTheCachedAccount() {
+        GatewayAccountEntity first = gatewayAccountCache.findById(ACCOUNT_ID).get();
+        first.getCredentials().remove("password");
+        first.getEmailNotification().setEnabled(false);
+
+        GatewayAccountEntity second = gatewayAccountCache.findById(ACCOUNT_ID).get();
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getId(), is(ACCOUNT_ID));
+        assertThat(second.getCredentials().get("password"), is("secret"));
+        assertThat(second.getEmailNotification().getTemplateBody(), is("template"));
+        assertThat(second.getEmailNotification().isEnabled(), is(true));
+        assertThat(second.getEmailNotification().getAccountEntity(), is(sameInstance(second)));
+    }
+}
@@ -0,0 +1,144 @@
+package uk.gov.pay.connector.service;
+
+import com.codahale.metrics.MetricRegistry;
+import fj.data.Either;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.CircuitBreakerConfig;
+import uk.gov.pay.connector.model.GatewayError;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.model.ErrorType.GATEWAY_UNAVAILABLE_ERROR;
+
+public class GatewayCircuitBreakerTest {
+
+    private static final String NAME = "gateway-operations.worldpay.test.auth";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final CircuitBreakerConfig config = mock(CircuitBreakerConfig.class);
+    private final Clock clock = mock(Clock.class);
+    private Instant now = Instant.parse("2017-01-01T10:00:00Z");
+
+    @Before
+    public void setUp() {
+        when(config.getFailureThreshold()).thenReturn(2);
+        when(config.getOpenForAsJavaDuration()).thenReturn(Duration.ofSeconds(30));
+        when(config.getHalfOpenRequests()).thenReturn(1);
+        when(clock.instant()).thenAnswer(invocation -> now);
+    }
+
+    @Test
+    public void shouldOpenAfterConsecutiveFailuresAndFailFast() {
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(NAME, config, metricRegistry, clock);
+
+        circuitBreaker.tryAcquire().right().value().release(true);
+        circuitBreaker.tryAcquire().right().value().release(true);
+
+        Either<GatewayError, GatewayCircuitBreaker.Permit> admission = circuitBreaker.tryAcquire();
+        assertThat(admission.isLeft(), is(true));
+        assertThat(admission.left().value().getErrorType(), is(GATEWAY_UNAVAILABLE_ERROR));
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.OPEN));
+        assertThat(metricRegistry.counter(NAME + ".circuit-breaker.rejected").getCount(), is(1L));
+        assertThat(metricRegistry.getGauges().get(NAME + ".circuit-breaker.state").getValue(), is(1));
+    }
+
+    @Test
+    public void shouldNotOpenWhenFailuresAreNotConsecutive() {
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(NAME, config, metricRegistry, clock);
+
+        circuitBreaker.tryAcquire().right().value().release(true);
+        circuitBreaker.tryAcquire().right().value().release(false);
+        circuitBreaker.tryAcquire().right().value().release(true);
+
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void shouldLetASingleProbeThroughOnceOpenForLongEnoughAndCloseWhenItSucceeds() {
+        GatewayCircuitBreaker circuitBreaker = openCircuitBreaker();
+        now = now.plusSeconds(30);
+
+        GatewayCircuitBreaker.Permit probe = circuitBreaker.tryAcquire().right().value();
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquire().isLeft(), is(true));
+
+        probe.release(false);
+
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.CLOSED));
+        assertThat(circuitBreaker.tryAcquire().isRight(), is(true));
+    }
+
+    @Test
+    public void shouldOpenAgainWhenTheProbeFails() {
+        GatewayCircuitBreaker circuitBreaker = openCircuitBreaker();
+        now = now.plusSeconds(30);
+
+        circuitBreaker.tryAcquire().right().value().release(true);
+
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.OPEN));
+        now = now.plusSeconds(29);
+        assertThat(circuitBreaker.tryAcquire().isLeft(), is(true));
+    }
+
+    @Test
+    public void shouldIgnoreAProbeThatCompletesAfterTheCircuitHasOpenedAgain() {
+        when(config.getHalfOpenRequests()).thenReturn(2);
+        GatewayCircuitBreaker circuitBreaker = openCircuitBreaker();
+        now = now.plusSeconds(30);
+        GatewayCircuitBreaker.Permit slowProbe = circuitBreaker.tryAcquire().right().value();
+        circuitBreaker.tryAcquire().right().value().release(true);
+        now = now.plusSeconds(30);
+        GatewayCircuitBreaker.Permit probe = circuitBreaker.tryAcquire().right().value();
+
+        slowProbe.release(false);
+
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquire().isRight(), is(true));
+        assertThat(circuitBreaker.tryAcquire().isLeft(), is(true));
+        probe.release(false);
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void shouldRejectRequestsOverTheConcurrencyLimit() {
+        when(config.getMaximumConcurrentRequests()).thenReturn(1);
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(NAME, config, metricRegistry, clock);
+
+        GatewayCircuitBreaker.Permit permit = circuitBreaker.tryAcquire().right().value();
+        assertThat(metricRegistry.getGauges().get(NAME + ".bulkhead.in-flight").getValue(), is(1));
+        assertThat(circuitBreaker.tryAcquire().isLeft(), is(true));
+        assertThat(metricRegistry.counter(NAME + ".bulkhead.rejected").getCount(), is(1L));
+
+        permit.release(false);
+        permit.release(false);
+
+        assertThat(metricRegistry.getGauges().get(NAME + ".bulkhead.in-flight").getValue(), is(0));
+        assertThat(circuitBreaker.tryAcquire().isRight(), is(true));
+    }
+
+    @Test
+    public void shouldNeverOpenWhenTheFailureThresholdIsZero() {
+        when(config.getFailureThreshold()).thenReturn(0);
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(NAME, config, metricRegistry, clock);
+
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.tryAcquire().right().value().release(true);
+        }
+
+        assertThat(circuitBreaker.getState(), is(GatewayCircuitBreaker.State.CLOSED));
+    }
+
+    private GatewayCircuitBreaker openCircuitBreaker() {
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(NAME, config, metricRegistry, clock);
+        circuitBreaker.tryAcquire().right().value().release(true);
+        circuitBreaker.tryAcquire().right().value().release(true);
+        return circuitBreaker;
+    }
+}
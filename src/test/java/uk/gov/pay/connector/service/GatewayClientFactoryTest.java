@@ -6,13 +6,16 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 
 import javax.ws.rs.client.Invocation.Builder;
 import java.util.Map;
 import java.util.function.BiFunction;
 
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -25,6 +28,8 @@ public class GatewayClientFactoryTest {
     ClientFactory mockClientFactory;
     @Mock
     MetricRegistry mockMetricRegistry;
+    @Mock
+    ConnectorConfiguration mockConfiguration;
     @Test
     public void shouldBuildGatewayClient() {
         Map<String, String> gatewayUrlMap = mock(Map.class);
@@ -36,5 +41,17 @@ public class GatewayClientFactoryTest {
 
         assertNotNull(gatewayClient);
         verify(mockClientFactory).createWithDropwizardClient(PaymentGatewayName.WORLDPAY, GatewayOperation.AUTHORISE, mockMetricRegistry);
+        verify(mockClientFactory).createAsyncClient(PaymentGatewayName.WORLDPAY, GatewayOperation.AUTHORISE);
+    }
+
+    @Test
+    public void shouldOnlyBuildANonBlockingClientForAuthorisations() {
+        Builder mockBuilder = mock(Builder.class);
+        BiFunction<GatewayOrder, Builder, Builder> sessionIdentifier = (GatewayOrder o, Builder b) -> mockBuilder;
+
+        gatewayClientFactory.createGatewayClient(PaymentGatewayName.WORLDPAY, GatewayOperation.CAPTURE,
+                mock(Map.class), sessionIdentifier, mockMetricRegistry);
+
+        verify(mockClientFactory, never()).createAsyncClient(any(), any());
     }
 }
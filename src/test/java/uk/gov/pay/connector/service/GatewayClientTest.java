@@ -7,13 +7,22 @@ import fj.data.Either;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.CircuitBreakerConfig;
 import uk.gov.pay.connector.model.GatewayError;
 import uk.gov.pay.connector.model.OrderRequestType;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.util.XMLUnmarshallingAttackTest;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
@@ -22,19 +31,31 @@ import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
+import static uk.gov.pay.connector.model.ErrorType.GATEWAY_CONNECTION_TIMEOUT_ERROR;
+import static uk.gov.pay.connector.model.ErrorType.GATEWAY_UNAVAILABLE_ERROR;
+import static uk.gov.pay.connector.model.ErrorType.MALFORMED_RESPONSE_RECEIVED_FROM_GATEWAY;
 import static uk.gov.pay.connector.model.domain.GatewayAccount.CREDENTIALS_PASSWORD;
 import static uk.gov.pay.connector.model.domain.GatewayAccount.CREDENTIALS_USERNAME;
 import static uk.gov.pay.connector.util.AuthUtil.encode;
@@ -72,7 +93,7 @@ public class GatewayClientTest {
         credentialMap.put(CREDENTIALS_PASSWORD, "password");
 
         gatewayClient = new GatewayClient(mockClient, urlMap,
-            mockSessionIdentifier, mockMetricRegistry);
+            mockSessionIdentifier, mockMetricRegistry, GatewayOperation.AUTHORISE, new CircuitBreakerConfig());
         when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         doAnswer(invocationOnMock -> null).when(mockHistogram).update(anyInt());
@@ -99,19 +120,73 @@ public class GatewayClientTest {
     @Test
     public void shouldReturnAGatewayResponseWhenProviderReturnsOk() {
         when(mockResponse.getStatus()).thenReturn(200);
+        when(mockResponse.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream("<foo>bar</foo>".getBytes(UTF_8)));
 
-        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder);
+        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
 
         assertTrue(gatewayResponse.isRight());
         assertFalse(gatewayResponse.isLeft());
         verify(mockResponse).close();
     }
 
+    @Test
+    public void shouldUnmarshallTheResponseEntity() {
+        when(mockResponse.getStatus()).thenReturn(200);
+        when(mockResponse.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream("<foo>bar</foo>".getBytes(UTF_8)));
+
+        GatewayClient.Response gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class).right().value();
+        Either<GatewayError, XMLUnmarshallingAttackTest> unmarshalled = gatewayClient.unmarshallResponse(gatewayResponse, XMLUnmarshallingAttackTest.class);
+
+        assertTrue(unmarshalled.isRight());
+        assertThat(unmarshalled.right().value().getValue(), is("bar"));
+    }
+
+    @Test
+    public void shouldReturnGatewayErrorWhenResponseEntityCannotBeUnmarshalled() {
+        when(mockResponse.getStatus()).thenReturn(200);
+        when(mockResponse.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream("<foo>bar".getBytes(UTF_8)));
+
+        GatewayClient.Response gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class).right().value();
+        Either<GatewayError, XMLUnmarshallingAttackTest> unmarshalled = gatewayClient.unmarshallResponse(gatewayResponse, XMLUnmarshallingAttackTest.class);
+
+        assertTrue(unmarshalled.isLeft());
+        assertThat(unmarshalled.left().value().getErrorType(), is(MALFORMED_RESPONSE_RECEIVED_FROM_GATEWAY));
+    }
+
+    @Test
+    public void shouldReturnATimeoutAndCountAFailureWhenTheResponseEntityTimesOutPartWay() {
+        CircuitBreakerConfig circuitBreakerConfig = mock(CircuitBreakerConfig.class);
+        when(circuitBreakerConfig.getFailureThreshold()).thenReturn(1);
+        when(circuitBreakerConfig.getOpenForAsJavaDuration()).thenReturn(java.time.Duration.ofMinutes(1));
+        gatewayClient = new GatewayClient(mockClient, Collections.singletonMap("worldpay", WORLDPAY_API_ENDPOINT),
+            mockSessionIdentifier, mockMetricRegistry, GatewayOperation.AUTHORISE, circuitBreakerConfig);
+        when(mockResponse.getStatus()).thenReturn(200);
+        when(mockResponse.readEntity(InputStream.class)).thenReturn(new SequenceInputStream(
+                new ByteArrayInputStream("<foo>ba".getBytes(UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                }));
+
+        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
+
+        assertTrue(gatewayResponse.isLeft());
+        assertThat(gatewayResponse.left().value().getErrorType(), is(GATEWAY_CONNECTION_TIMEOUT_ERROR));
+        verify(mockMetricRegistry).counter(endsWith(".failures"));
+        verify(mockResponse).close();
+
+        Either<GatewayError, GatewayClient.Response> nextResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
+
+        assertThat(nextResponse.left().value().getErrorType(), is(GATEWAY_UNAVAILABLE_ERROR));
+    }
+
     @Test
     public void shouldReturnGatewayErrorWhenProviderFails() {
         when(mockResponse.getStatus()).thenReturn(500);
 
-        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder);
+        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
 
         assertTrue(gatewayResponse.isLeft());
         assertFalse(gatewayResponse.isRight());
@@ -122,12 +197,75 @@ public class GatewayClientTest {
     public void shouldReturnGatewayErrorWhenProviderFailsWithAProcessingException() {
         when(mockBuilder.post(Entity.entity(orderPayload, mediaType))).thenThrow(new ProcessingException(new SocketException("socket failed")));
 
-        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder);
+        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
 
         assertTrue(gatewayResponse.isLeft());
         assertFalse(gatewayResponse.isRight());
     }
 
+    @Test
+    public void shouldFailFastWithoutCallingTheGatewayOnceTheCircuitBreakerIsOpen() {
+        CircuitBreakerConfig circuitBreakerConfig = mock(CircuitBreakerConfig.class);
+        when(circuitBreakerConfig.getFailureThreshold()).thenReturn(1);
+        when(circuitBreakerConfig.getOpenForAsJavaDuration()).thenReturn(java.time.Duration.ofMinutes(1));
+        gatewayClient = new GatewayClient(mockClient, Collections.singletonMap("worldpay", WORLDPAY_API_ENDPOINT),
+            mockSessionIdentifier, mockMetricRegistry, GatewayOperation.AUTHORISE, circuitBreakerConfig);
+        when(mockResponse.getStatus()).thenReturn(503);
+
+        gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
+        Either<GatewayError, GatewayClient.Response> gatewayResponse = gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
+
+        assertTrue(gatewayResponse.isLeft());
+        assertThat(gatewayResponse.left().value().getErrorType(), is(GATEWAY_UNAVAILABLE_ERROR));
+        verify(mockBuilder, times(1)).post(Entity.entity(orderPayload, mediaType));
+        verify(mockMetricRegistry, times(1)).counter(endsWith(".failures"));
+    }
+
+    @Test
+    public void shouldReturnTheResponseOfAnAsyncRequestOnceTheGatewayResponds() {
+        HttpAsyncClient mockAsyncClient = mock(HttpAsyncClient.class);
+        gatewayClient = new GatewayClient(mockClient, mockAsyncClient, Collections.singletonMap("worldpay", WORLDPAY_API_ENDPOINT),
+            mockSessionIdentifier, mockMetricRegistry, GatewayOperation.AUTHORISE, new CircuitBreakerConfig());
+        ArgumentCaptor<HttpUriRequest> request = ArgumentCaptor.forClass(HttpUriRequest.class);
+        ArgumentCaptor<FutureCallback> callback = ArgumentCaptor.forClass(FutureCallback.class);
+
+        CompletableFuture<Either<GatewayError, GatewayClient.Response>> gatewayResponse = gatewayClient
+                .postRequestForAsync(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class)
+                .toCompletableFuture();
+
+        assertFalse(gatewayResponse.isDone());
+        verify(mockAsyncClient).execute(request.capture(), callback.capture());
+        assertThat(request.getValue().getURI().toString(), is(WORLDPAY_API_ENDPOINT));
+        assertThat(request.getValue().getFirstHeader(AUTHORIZATION).getValue(), is(encode("user", "password")));
+        verifyZeroInteractions(mockClient);
+
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new StringEntity("<foo>bar</foo>", UTF_8));
+        response.addHeader("Set-Cookie", "machine=0a01");
+        callback.getValue().completed(response);
+
+        GatewayClient.Response value = gatewayResponse.join().right().value();
+        assertThat(gatewayClient.unmarshallResponse(value, XMLUnmarshallingAttackTest.class).right().value().getValue(), is("bar"));
+        assertThat(value.getResponseCookies().get("machine"), is("0a01"));
+    }
+
+    @Test
+    public void shouldReturnATimeoutWhenAnAsyncRequestTimesOut() {
+        HttpAsyncClient mockAsyncClient = mock(HttpAsyncClient.class);
+        gatewayClient = new GatewayClient(mockClient, mockAsyncClient, Collections.singletonMap("worldpay", WORLDPAY_API_ENDPOINT),
+            mockSessionIdentifier, mockMetricRegistry, GatewayOperation.AUTHORISE, new CircuitBreakerConfig());
+        ArgumentCaptor<FutureCallback> callback = ArgumentCaptor.forClass(FutureCallback.class);
+
+        CompletableFuture<Either<GatewayError, GatewayClient.Response>> gatewayResponse = gatewayClient
+                .postRequestForAsync(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class)
+                .toCompletableFuture();
+        verify(mockAsyncClient).execute(any(HttpUriRequest.class), callback.capture());
+        callback.getValue().failed(new SocketTimeoutException("Read timed out"));
+
+        assertThat(gatewayResponse.join().left().value().getErrorType(), is(GATEWAY_CONNECTION_TIMEOUT_ERROR));
+        verify(mockMetricRegistry).counter(endsWith(".failures"));
+    }
+
     @Test
     public void shouldIncludeCookieIfSessionIdentifierAvailableInOrder() {
         String providerSessionid = "provider-session-id";
@@ -135,7 +273,7 @@ public class GatewayClientTest {
         when(mockGatewayOrder.getProviderSessionId()).thenReturn(Optional.of(providerSessionid));
         when(mockResponse.getStatus()).thenReturn(200);
 
-        gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder);
+        gatewayClient.postRequestFor(null, mockGatewayAccountEntity, mockGatewayOrder, XMLUnmarshallingAttackTest.class);
 
         InOrder inOrder = Mockito.inOrder(mockSessionIdentifier, mockBuilder);
         inOrder.verify(mockSessionIdentifier).apply(mockGatewayOrder, mockBuilder);
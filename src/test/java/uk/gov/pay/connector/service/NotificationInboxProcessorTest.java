@@ -0,0 +1,149 @@
+package uk.gov.pay.connector.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.persist.UnitOfWork;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.lifecycle.setup.ScheduledExecutorServiceBuilder;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.NotificationInboxConfig;
+import uk.gov.pay.connector.dao.NotificationInboxDao;
+import uk.gov.pay.connector.model.domain.NotificationInboxEntity;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.service.PaymentGatewayName.SMARTPAY;
+import static uk.gov.pay.connector.service.PaymentGatewayName.WORLDPAY;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationInboxProcessorTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final Duration CLAIM_FOR = Duration.ofMinutes(5);
+    private static final int MAXIMUM_ATTEMPTS = 3;
+
+    @Mock
+    private ConnectorConfiguration configuration;
+
+    @Mock
+    private NotificationInboxConfig notificationInboxConfig;
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private LifecycleEnvironment lifecycleEnvironment;
+
+    @Mock
+    private NotificationInboxDao notificationInboxDao;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private NotificationInboxProcessor processor;
+
+    @Before
+    public void setup() {
+        ScheduledExecutorServiceBuilder scheduledExecutorServiceBuilder = mock(ScheduledExecutorServiceBuilder.class, invocation -> {
+            Object mock = invocation.getMock();
+            if (invocation.getMethod().getReturnType().isInstance(mock)) {
+                return mock;
+            } else {
+                return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+        when(scheduledExecutorServiceBuilder.build()).thenReturn(mock(ScheduledExecutorService.class));
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(environment.metrics()).thenReturn(metricRegistry);
+        when(lifecycleEnvironment.scheduledExecutorService(anyString())).thenReturn(scheduledExecutorServiceBuilder);
+
+        when(configuration.getNotificationInboxConfig()).thenReturn(notificationInboxConfig);
+        when(notificationInboxConfig.getBatchSize()).thenReturn(BATCH_SIZE);
+        when(notificationInboxConfig.getClaimForAsJavaDuration()).thenReturn(CLAIM_FOR);
+        when(notificationInboxConfig.getMaximumAttempts()).thenReturn(MAXIMUM_ATTEMPTS);
+
+        processor = new NotificationInboxProcessor(configuration, environment, notificationInboxDao, notificationService, unitOfWork);
+    }
+
+    @Test
+    public void shouldApplyTheNotificationsOfEachGatewayTogether() {
+        NotificationInboxEntity first = aNotification(1L, WORLDPAY, "transaction-1");
+        NotificationInboxEntity second = aNotification(2L, SMARTPAY, "transaction-2");
+        NotificationInboxEntity third = aNotification(3L, WORLDPAY, "transaction-3");
+        when(notificationInboxDao.claimBatch(BATCH_SIZE, CLAIM_FOR, MAXIMUM_ATTEMPTS)).thenReturn(asList(first, second, third));
+
+        assertThat(processor.processBatch(), is(3));
+
+        verify(notificationService).processInboxedNotifications(WORLDPAY, asList(first, third));
+        verify(notificationService).processInboxedNotifications(SMARTPAY, singletonList(second));
+        verify(notificationInboxDao, never()).recordFailedAttempt(any());
+        assertThat(metricRegistry.counter("notification-inbox.processed").getCount(), is(3L));
+    }
+
+    @Test
+    public void whenTheNotificationsOfAGatewayFailTogether_shouldCountAnAttemptOnlyAgainstTheOneThatFailsOnItsOwn() {
+        NotificationInboxEntity first = aNotification(1L, WORLDPAY, "transaction-1");
+        NotificationInboxEntity failing = aNotification(2L, WORLDPAY, "transaction-2");
+        NotificationInboxEntity third = aNotification(3L, WORLDPAY, "transaction-3");
+        when(notificationInboxDao.claimBatch(BATCH_SIZE, CLAIM_FOR, MAXIMUM_ATTEMPTS)).thenReturn(asList(first, failing, third));
+        doThrow(new RuntimeException("boom")).when(notificationService).processInboxedNotifications(WORLDPAY, asList(first, failing, third));
+        doThrow(new RuntimeException("boom")).when(notificationService).processInboxedNotifications(WORLDPAY, singletonList(failing));
+
+        processor.processBatch();
+
+        verify(notificationService).processInboxedNotifications(WORLDPAY, singletonList(first));
+        verify(notificationService).processInboxedNotifications(WORLDPAY, singletonList(third));
+        verify(notificationInboxDao).recordFailedAttempt(singletonList(2L));
+        verify(notificationInboxDao, never()).recordFailedAttempt(singletonList(1L));
+        verify(notificationInboxDao, never()).recordFailedAttempt(singletonList(3L));
+        assertThat(metricRegistry.counter("notification-inbox.processed").getCount(), is(2L));
+        assertThat(metricRegistry.counter("notification-inbox.failed").getCount(), is(1L));
+    }
+
+    @Test
+    public void whenANotificationFailsOnItsOwn_shouldReleaseTheLaterNotificationsOfItsChargeWithoutAnAttempt() {
+        NotificationInboxEntity failing = aNotification(1L, WORLDPAY, "transaction-1");
+        NotificationInboxEntity sameCharge = aNotification(2L, WORLDPAY, "transaction-1");
+        NotificationInboxEntity otherCharge = aNotification(3L, WORLDPAY, "transaction-2");
+        when(notificationInboxDao.claimBatch(BATCH_SIZE, CLAIM_FOR, MAXIMUM_ATTEMPTS)).thenReturn(asList(failing, sameCharge, otherCharge));
+        doThrow(new RuntimeException("boom")).when(notificationService).processInboxedNotifications(WORLDPAY, asList(failing, sameCharge, otherCharge));
+        doThrow(new RuntimeException("boom")).when(notificationService).processInboxedNotifications(WORLDPAY, singletonList(failing));
+
+        processor.processBatch();
+
+        verify(notificationInboxDao).recordFailedAttempt(singletonList(1L));
+        verify(notificationInboxDao).releaseClaim(singletonList(2L));
+        verify(notificationService, never()).processInboxedNotifications(WORLDPAY, singletonList(sameCharge));
+        verify(notificationService).processInboxedNotifications(WORLDPAY, singletonList(otherCharge));
+    }
+
+    private NotificationInboxEntity aNotification(Long id, PaymentGatewayName paymentGatewayName, String transactionId) {
+        NotificationInboxEntity notification = NotificationInboxEntity.receivedNotificationFor(paymentGatewayName, "payload " + id);
+        notification.setId(id);
+        notification.setTransactionIds(singletonList(transactionId));
+        return notification;
+    }
+}
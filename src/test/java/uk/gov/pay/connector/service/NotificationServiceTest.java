@@ -11,6 +11,8 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import uk.gov.pay.connector.dao.ChargeDao;
 import uk.gov.pay.connector.dao.ChargeEventDao;
+import uk.gov.pay.connector.dao.NotificationInboxDao;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
 import uk.gov.pay.connector.dao.RefundDao;
 import uk.gov.pay.connector.exception.InvalidStateTransitionException;
 import uk.gov.pay.connector.model.Notification;
@@ -18,23 +20,33 @@ import uk.gov.pay.connector.model.Notifications;
 import uk.gov.pay.connector.model.domain.ChargeEntity;
 import uk.gov.pay.connector.model.domain.ChargeStatus;
 import uk.gov.pay.connector.model.domain.GatewayAccountEntity;
+import uk.gov.pay.connector.model.domain.NotificationInboxEntity;
 import uk.gov.pay.connector.model.domain.RefundEntity;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.Status;
 import uk.gov.pay.connector.util.DnsUtils;
 
+import javax.persistence.EntityManager;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.ignoreStubs;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -81,18 +93,23 @@ public class NotificationServiceTest {
     @Mock
     private RefundStatusUpdater mockedRefundUpdater;
 
+    @Mock
+    private NotificationInboxDao mockedNotificationInboxDao;
+
     @Before
     public void setUp() {
         when(mockedPaymentProvider.getPaymentGatewayName()).thenReturn(SANDBOX);
         when(mockedPaymentProviders.byName(SANDBOX)).thenReturn(mockedPaymentProvider);
-        when(mockedChargeDao.findByProviderAndTransactionId(SANDBOX.getName(), TRANSACTION_ID)).thenReturn(Optional.of(mockedChargeEntity));
+        when(mockedChargeDao.findByProviderAndTransactionIds(SANDBOX.getName(), singleton(TRANSACTION_ID))).thenReturn(singletonList(mockedChargeEntity));
+        when(mockedChargeEntity.getGatewayTransactionId()).thenReturn(TRANSACTION_ID);
         when(mockedChargeEntity.getStatus()).thenReturn(ChargeStatus.CAPTURED.toString());
         when(mockedChargeEntity.getGatewayAccount().getCredentials().get(CREDENTIALS_SHA_OUT_PASSPHRASE)).thenReturn("a_passphrase");
         when(mockedChargeEntity.getExternalId()).thenReturn("someExternalId");
 
         when(mockedPaymentProvider.verifyNotification(any(Notification.class), any(GatewayAccountEntity.class))).thenReturn(true);
 
-        notificationService = new NotificationService(mockedChargeDao, mockedChargeEventDao, mockedRefundDao, mockedPaymentProviders, mockDnsUtils, mockedChargeStatusUpdater, mockedRefundUpdater);
+        notificationService = new NotificationService(mockedChargeDao, mockedChargeEventDao, mockedRefundDao, mockedPaymentProviders, mockDnsUtils, mockedChargeStatusUpdater, mockedRefundUpdater, mockedNotificationInboxDao,
+                new PaymentStatisticsDao(() -> mock(EntityManager.class)));
     }
 
     private Notifications<Pair<String, Boolean>> createNotificationFor(String transactionId, String reference, Pair<String, Boolean> status) {
@@ -194,23 +211,7 @@ public class NotificationServiceTest {
         StatusMapper mockedStatusMapper = createMockedStatusMapper(InterpretedStatus.Type.CHARGE_STATUS, CAPTURED);
         when(mockedPaymentProvider.getStatusMapper()).thenReturn(mockedStatusMapper);
 
-        when(mockedChargeDao.findByProviderAndTransactionId(SANDBOX.getName(), TRANSACTION_ID)).thenReturn(Optional.empty());
-
-        notificationService.handleNotificationFor("", SANDBOX, "payload");
-
-        verifyNoMoreInteractions(ignoreStubs(mockedChargeDao));
-    }
-
-    @Test
-    public void shouldIgnoreNotificationWhenEvaluatingFailsBecauseOfWrongTransactionId() {
-        Notifications<Pair<String, Boolean>> notifications = createNotificationFor(TRANSACTION_ID, null, Pair.of("CAPTURE", true));
-        when(mockedPaymentProvider.parseNotification(any())).thenReturn(Either.right(notifications));
-
-        StatusMapper mockedStatusMapper = createMockedStatusMapper(InterpretedStatus.Type.CHARGE_STATUS, CAPTURED);
-        when(mockedPaymentProvider.getStatusMapper()).thenReturn(mockedStatusMapper);
-
-        when(mockedChargeDao.findByProviderAndTransactionId(SANDBOX.getName(), TRANSACTION_ID)).thenReturn(Optional.of(mockedChargeEntity))
-                .thenReturn(Optional.empty());
+        when(mockedChargeDao.findByProviderAndTransactionIds(SANDBOX.getName(), singleton(TRANSACTION_ID))).thenReturn(emptyList());
 
         notificationService.handleNotificationFor("", SANDBOX, "payload");
 
@@ -218,19 +219,30 @@ public class NotificationServiceTest {
     }
 
     @Test
-    public void shouldIgnoreNotificationWhenUpdatingFailsBecauseOfWrongTransactionId() {
-        Notifications<Pair<String, Boolean>> notifications = createNotificationFor(TRANSACTION_ID, null, Pair.of("CAPTURE", true));
+    public void shouldResolveChargesOfAllNotificationsInAPayloadWithOneLookup() {
+        String otherTransactionId = "other-transaction-id";
+        Notifications<Pair<String, Boolean>> notifications = Notifications.<Pair<String, Boolean>>builder()
+                .addNotificationFor(TRANSACTION_ID, null, Pair.of("CAPTURE", true), ZonedDateTime.now(), null)
+                .addNotificationFor(otherTransactionId, null, Pair.of("CAPTURE", true), ZonedDateTime.now(), null)
+                .build();
         when(mockedPaymentProvider.parseNotification(any())).thenReturn(Either.right(notifications));
 
         StatusMapper mockedStatusMapper = createMockedStatusMapper(InterpretedStatus.Type.CHARGE_STATUS, CAPTURED);
         when(mockedPaymentProvider.getStatusMapper()).thenReturn(mockedStatusMapper);
 
-        when(mockedChargeDao.findByProviderAndTransactionId(SANDBOX.getName(), TRANSACTION_ID)).thenReturn(Optional.of(mockedChargeEntity))
-                .thenReturn(Optional.of(mockedChargeEntity)).thenReturn(Optional.empty());
+        ChargeEntity otherChargeEntity = mock(ChargeEntity.class, RETURNS_DEEP_STUBS);
+        when(otherChargeEntity.getGatewayTransactionId()).thenReturn(otherTransactionId);
+        when(otherChargeEntity.getStatus()).thenReturn(ChargeStatus.CAPTURE_SUBMITTED.toString());
+        when(otherChargeEntity.getExternalId()).thenReturn("otherExternalId");
+        when(mockedChargeDao.findByProviderAndTransactionIds(SANDBOX.getName(), newHashSet(TRANSACTION_ID, otherTransactionId)))
+                .thenReturn(asList(mockedChargeEntity, otherChargeEntity));
 
         notificationService.handleNotificationFor("", SANDBOX, "payload");
 
-        verifyNoMoreInteractions(ignoreStubs(mockedChargeDao));
+        verify(mockedChargeDao).findByProviderAndTransactionIds(SANDBOX.getName(), newHashSet(TRANSACTION_ID, otherTransactionId));
+        verify(mockedChargeEntity).setStatus(CAPTURED);
+        verify(otherChargeEntity).setStatus(CAPTURED);
+        verifyNoMoreInteractions(mockedChargeDao);
     }
 
     @Test
@@ -243,8 +255,9 @@ public class NotificationServiceTest {
         StatusMapper mockedStatusMapper = createMockedStatusMapper(InterpretedStatus.Type.CHARGE_STATUS, CAPTURED);
         when(mockedPaymentProvider.getStatusMapper()).thenReturn(mockedStatusMapper);
 
-        when(mockedChargeDao.findByProviderAndTransactionId(SANDBOX.getName(), transactionId))
-                .thenReturn(Optional.of(mockedChargeEntity));
+        when(mockedChargeDao.findByProviderAndTransactionIds(SANDBOX.getName(), singleton(transactionId)))
+                .thenReturn(singletonList(mockedChargeEntity));
+        when(mockedChargeEntity.getGatewayTransactionId()).thenReturn(transactionId);
 
         doThrow(new InvalidStateTransitionException("AUTHORISATION SUCCESS", "CAPTURED"))
                 .when(mockedChargeEntity).setStatus(CAPTURED);
@@ -385,4 +398,47 @@ public class NotificationServiceTest {
 
         assertThat(notificationService.handleNotificationFor(ipAddress, WORLDPAY, "payload"), is(true));
     }
+
+    @Test
+    public void shouldStoreAuthenticNotificationInTheInboxWithItsTransactionIdsWithoutApplyingIt() {
+        Notifications<Pair<String, Boolean>> notifications = createNotificationFor(TRANSACTION_ID, null, Pair.of("CAPTURE", true));
+        when(mockedPaymentProvider.parseNotification("payload")).thenReturn(Either.right(notifications));
+
+        assertThat(notificationService.acceptNotificationFor("", SANDBOX, "payload"), is(true));
+
+        verify(mockedNotificationInboxDao).append(SANDBOX, "payload", newHashSet(TRANSACTION_ID));
+        verifyZeroInteractions(mockedChargeDao);
+        verifyZeroInteractions(mockedChargeStatusUpdater);
+    }
+
+    @Test
+    public void whenSecureNotificationEndpointIsEnabled_shouldNotStoreNotificationInTheInboxIfIpIsNotValid() {
+        when(mockedPaymentProviders.byName(WORLDPAY)).thenReturn(mockedPaymentProvider);
+        when(mockedPaymentProvider.isNotificationEndpointSecured()).thenReturn(true);
+        when(mockedPaymentProvider.getNotificationDomain()).thenReturn("something.com");
+
+        assertThat(notificationService.acceptNotificationFor("", WORLDPAY, "payload"), is(false));
+        verifyZeroInteractions(mockedNotificationInboxDao);
+    }
+
+    @Test
+    public void shouldApplyRepeatedInboxedNotificationsOnceAndMarkThemProcessed() {
+        Notifications<Pair<String, Boolean>> notifications = createNotificationFor(TRANSACTION_ID, null, Pair.of("CAPTURE", true));
+        when(mockedPaymentProvider.parseNotification(any())).thenReturn(Either.right(notifications));
+
+        StatusMapper mockedStatusMapper = createMockedStatusMapper(InterpretedStatus.Type.CHARGE_STATUS, CAPTURED);
+        when(mockedPaymentProvider.getStatusMapper()).thenReturn(mockedStatusMapper);
+
+        NotificationInboxEntity first = NotificationInboxEntity.receivedNotificationFor(SANDBOX, "payload");
+        first.setId(1L);
+        NotificationInboxEntity resent = NotificationInboxEntity.receivedNotificationFor(SANDBOX, "payload");
+        resent.setId(2L);
+
+        notificationService.processInboxedNotifications(SANDBOX, asList(first, resent));
+
+        verify(mockedPaymentProvider, times(2)).parseNotification("payload");
+        verify(mockedChargeDao).findByProviderAndTransactionIds(SANDBOX.getName(), singleton(TRANSACTION_ID));
+        verify(mockedChargeEntity).setStatus(CAPTURED);
+        verify(mockedNotificationInboxDao).markProcessed(asList(1L, 2L));
+    }
 }
@@ -5,7 +5,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.dao.PaymentStatisticsDao;
 import uk.gov.pay.connector.dao.RefundTransactionDao;
+import uk.gov.pay.connector.model.domain.PaymentRequestEntityFixture;
+import uk.gov.pay.connector.model.domain.PaymentStatisticsKey;
 import uk.gov.pay.connector.model.domain.RefundStatus;
 import uk.gov.pay.connector.model.domain.transaction.RefundTransactionEntity;
 
@@ -13,14 +16,18 @@ import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.model.domain.RefundStatus.REFUND_SUBMITTED;
+import static uk.gov.pay.connector.model.domain.transaction.ChargeTransactionEntityBuilder.aChargeTransactionEntity;
 import static uk.gov.pay.connector.model.domain.transaction.RefundTransactionEntityBuilder.aRefundTransactionEntity;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RefundStatusUpdaterTest {
     @Mock
     private RefundTransactionDao mockRefundTransactionDao;
+    @Mock
+    private PaymentStatisticsDao mockPaymentStatisticsDao;
     private String someRefundReference;
     private PaymentGatewayName someProvider;
     private RefundStatus newRefundStatus;
@@ -37,12 +44,15 @@ public class RefundStatusUpdaterTest {
                 .withRefundExternalId(refundExternalId)
                 .withStatus(RefundStatus.CREATED)
                 .build();
+        PaymentRequestEntityFixture.aValidPaymentRequestEntity()
+                .withTransactions(aChargeTransactionEntity().build(), refundTransactionEntity)
+                .build();
     }
 
     @Test
     public void updatesRefundTransactionAndSetsRefundReference() {
         when(mockRefundTransactionDao.findByExternalId(refundExternalId)).thenReturn(Optional.of(refundTransactionEntity));
-        new RefundStatusUpdater(mockRefundTransactionDao).setReferenceAndUpdateTransactionStatus(refundExternalId, someRefundReference, newRefundStatus);
+        new RefundStatusUpdater(mockRefundTransactionDao, mockPaymentStatisticsDao).setReferenceAndUpdateTransactionStatus(refundExternalId, someRefundReference, newRefundStatus);
 
         assertThat(refundTransactionEntity.getRefundReference(), is(someRefundReference));
         assertThat(refundTransactionEntity.getStatus(), is(newRefundStatus));
@@ -54,18 +64,32 @@ public class RefundStatusUpdaterTest {
         when(mockRefundTransactionDao.findByProviderAndReference(someProvider, someRefundReference))
                 .thenReturn(Optional.of(refundTransactionEntity));
 
-        new RefundStatusUpdater(mockRefundTransactionDao)
+        new RefundStatusUpdater(mockRefundTransactionDao, mockPaymentStatisticsDao)
                 .updateRefundTransactionStatus(someProvider, someRefundReference, newRefundStatus);
 
         assertThat(refundTransactionEntity.getStatus(), is(newRefundStatus));
     }
 
+    @Test
+    public void movesRefundTransactionBetweenStatusesInPaymentStatistics() {
+        when(mockRefundTransactionDao.findByExternalId(refundExternalId)).thenReturn(Optional.of(refundTransactionEntity));
+        PaymentStatisticsKey createdKey = PaymentStatisticsKey.of(refundTransactionEntity);
+
+        new RefundStatusUpdater(mockRefundTransactionDao, mockPaymentStatisticsDao)
+                .setReferenceAndUpdateTransactionStatus(refundExternalId, someRefundReference, newRefundStatus);
+
+        PaymentStatisticsKey submittedKey = PaymentStatisticsKey.of(refundTransactionEntity);
+        assertThat(createdKey.getStatus(), is("CREATED"));
+        assertThat(submittedKey.getStatus(), is("REFUND_SUBMITTED"));
+        verify(mockPaymentStatisticsDao).move(createdKey, submittedKey, refundTransactionEntity.getAmount());
+    }
+
     @Test
     public void canHandleNoRefundBeingFoundWithoutException() throws Exception {
         when(mockRefundTransactionDao.findByProviderAndReference(someProvider, someRefundReference))
                 .thenReturn(Optional.empty());
 
-        new RefundStatusUpdater(mockRefundTransactionDao)
+        new RefundStatusUpdater(mockRefundTransactionDao, mockPaymentStatisticsDao)
                 .updateRefundTransactionStatus(someProvider, someRefundReference, REFUND_SUBMITTED);
     }
 }
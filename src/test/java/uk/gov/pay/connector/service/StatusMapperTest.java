@@ -87,6 +87,22 @@ public class StatusMapperTest {
         assertThat(mappedStatus.getType(), is(InterpretedStatus.Type.UNKNOWN));
     }
 
+    @Test
+    public void shouldUseTheFirstMappingThatApplies() {
+        StatusMapper<String> statusMapper =
+                StatusMapper
+                        .<String>builder()
+                        .map("STATUS", SYSTEM_CANCEL_SUBMITTED, SYSTEM_CANCELLED)
+                        .map("STATUS", CAPTURED)
+                        .map("STATUS", USER_CANCEL_SUBMITTED, USER_CANCELLED)
+                        .ignore("STATUS")
+                        .build();
+
+        assertThat(statusMapper.from("STATUS", SYSTEM_CANCEL_SUBMITTED).getChargeStatus(), is(SYSTEM_CANCELLED));
+        assertThat(statusMapper.from("STATUS", USER_CANCEL_SUBMITTED).getChargeStatus(), is(CAPTURED));
+        assertThat(statusMapper.from("STATUS").getChargeStatus(), is(CAPTURED));
+    }
+
     @Test
     public void shouldKnowAboutUnknownUnknowns() {
         StatusMapper<String> statusMapper =
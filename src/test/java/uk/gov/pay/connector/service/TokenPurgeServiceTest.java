@@ -0,0 +1,74 @@
+package uk.gov.pay.connector.service;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.TokensConfig;
+import uk.gov.pay.connector.dao.TokenDao;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenPurgeServiceTest {
+
+    @Mock
+    private TokenDao mockTokenDao;
+    @Mock
+    private ConnectorConfiguration mockConfiguration;
+    @Mock
+    private TokensConfig mockTokensConfig;
+    @Mock
+    private Environment mockEnvironment;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private TokenPurgeService tokenPurgeService;
+
+    @Before
+    public void setUp() {
+        when(mockConfiguration.getTokensConfig()).thenReturn(mockTokensConfig);
+        when(mockTokensConfig.getExpireAfterAsJavaDuration()).thenReturn(Duration.ofDays(1));
+        when(mockTokensConfig.getPurgeBatchSize()).thenReturn(100);
+        when(mockEnvironment.metrics()).thenReturn(metricRegistry);
+
+        tokenPurgeService = new TokenPurgeService(mockTokenDao, mockConfiguration, mockEnvironment);
+    }
+
+    @Test
+    public void shouldKeepDeletingBatchesUntilABatchIsNotFull() {
+        when(mockTokenDao.deleteTokensCreatedBefore(any(ZonedDateTime.class), eq(100))).thenReturn(100, 100, 42);
+
+        int deleted = tokenPurgeService.purgeExpiredTokens();
+
+        assertThat(deleted, is(242));
+        assertThat(metricRegistry.counter("tokens.expired.deleted").getCount(), is(242L));
+        verify(mockTokenDao, times(3)).deleteTokensCreatedBefore(any(ZonedDateTime.class), eq(100));
+    }
+
+    @Test
+    public void shouldOnlyDeleteTokensCreatedBeforeTheExpiryWindow() {
+        ZonedDateTime oneDayAgo = ZonedDateTime.now(ZoneId.of("UTC")).minusDays(1);
+
+        tokenPurgeService.purgeExpiredTokens();
+
+        ArgumentCaptor<ZonedDateTime> createdBefore = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(mockTokenDao).deleteTokensCreatedBefore(createdBefore.capture(), eq(100));
+        assertThat(createdBefore.getValue().isBefore(oneDayAgo), is(false));
+        assertThat(createdBefore.getValue().isAfter(ZonedDateTime.now(ZoneId.of("UTC")).minusDays(1)), is(false));
+    }
+}
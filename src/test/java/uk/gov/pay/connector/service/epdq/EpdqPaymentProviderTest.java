@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.model.CancelGatewayRequest;
 import uk.gov.pay.connector.model.CaptureGatewayRequest;
 import uk.gov.pay.connector.model.GatewayError;
@@ -43,13 +44,16 @@ import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNotNull;
@@ -127,7 +131,7 @@ public class EpdqPaymentProviderTest {
     @Before
     public void setup() throws Exception {
         mockClientInvocationBuilder = mockClientInvocationBuilder();
-        gatewayClientFactory = new GatewayClientFactory(mockClientFactory);
+        gatewayClientFactory = new GatewayClientFactory(mockClientFactory, new ConnectorConfiguration());
 
         when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
@@ -469,7 +473,7 @@ public class EpdqPaymentProviderTest {
         Response response = mock(Response.class);
         when(mockClientInvocationBuilder.post(any())).thenReturn(response);
 
-        when(response.readEntity(String.class)).thenReturn(responsePayload);
+        when(response.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(responsePayload.getBytes(UTF_8)));
         when(response.getStatus()).thenReturn(responseHttpStatus);
     }
 
@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.service.epdq;
 
 import com.google.common.collect.ImmutableList;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.NameValuePair;
 import org.apache.http.message.BasicNameValuePair;
 import org.junit.Test;
@@ -119,6 +120,48 @@ public class EpdqSha512SignatureGeneratorTest {
         assertThat(params, is(originalParams));
     }
 
+    @Test
+    public void shouldKeepTheOrderOfParametersWithTheSameName() {
+        List<NameValuePair> params = ImmutableList.of(
+                new BasicNameValuePair("PARAM", "Value2"),
+                new BasicNameValuePair("AAA", "Value1"),
+                new BasicNameValuePair("param", "Value3"));
+
+        String passphrase = "MySuperSecretPassphrase";
+
+        String expected = DigestUtils.sha512Hex("AAA=Value1MySuperSecretPassphrasePARAM=Value2MySuperSecretPassphrasePARAM=Value3MySuperSecretPassphrase");
+
+        String actual = epdqSha512SignatureGenerator.sign(params, passphrase);
+
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void shouldSignPassphraseOnItsOwnIfNoParameterHasAValue() {
+        List<NameValuePair> params = ImmutableList.of(new BasicNameValuePair("PARAM1", ""));
+
+        String passphrase = "MySuperSecretPassphrase";
+
+        String actual = epdqSha512SignatureGenerator.sign(params, passphrase);
+
+        assertThat(actual, is(DigestUtils.sha512Hex(passphrase)));
+    }
+
+    @Test
+    public void shouldProduceTheSameSignatureWhenSigningAgain() {
+        List<NameValuePair> params = ImmutableList.of(
+                new BasicNameValuePair("PARAM1", "Value1"),
+                new BasicNameValuePair("PARAM2", "Vålue2 €"));
+
+        String passphrase = "MySuperSecretPassphrase";
+
+        String first = epdqSha512SignatureGenerator.sign(params, passphrase);
+        String second = epdqSha512SignatureGenerator.sign(params, passphrase);
+
+        assertThat(first, is(DigestUtils.sha512Hex("PARAM1=Value1MySuperSecretPassphrasePARAM2=Vålue2 €MySuperSecretPassphrase")));
+        assertThat(second, is(first));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldThrowAnIllegalArgumentExceptionIfPassphraseIsBlank() {
         List<NameValuePair> params = ImmutableList.of(
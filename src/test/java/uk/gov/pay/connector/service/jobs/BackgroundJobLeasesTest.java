@@ -0,0 +1,106 @@
+package uk.gov.pay.connector.service.jobs;
+
+import com.google.inject.persist.UnitOfWork;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.dao.BackgroundJobLeaseDao;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BackgroundJobLeasesTest {
+
+    private static final Duration LEASE_FOR = Duration.ofMinutes(3);
+
+    @Mock
+    private BackgroundJobLeaseDao leaseDao;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private ScheduledExecutorService renewalExecutor;
+
+    private final ArgumentCaptor<Runnable> renewal = ArgumentCaptor.forClass(Runnable.class);
+
+    private BackgroundJobLeases leases;
+
+    @Before
+    public void setup() {
+        doReturn(mock(ScheduledFuture.class)).when(renewalExecutor)
+                .scheduleAtFixedRate(renewal.capture(), anyLong(), anyLong(), any(TimeUnit.class));
+        leases = new BackgroundJobLeases(leaseDao, unitOfWork, LEASE_FOR, renewalExecutor);
+    }
+
+    @Test
+    public void shouldNotRunTheWorkWhenTheLeaseIsHeldElsewhere() {
+        when(leaseDao.tryAcquire(eq("a-job"), anyString(), eq(LEASE_FOR))).thenReturn(false);
+
+        Optional<String> result = leases.runHolding("a-job", leaseHeld -> "ran");
+
+        assertThat(result, is(Optional.empty()));
+        verify(leaseDao, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldRenewTheLeaseEveryThirdOfItsLengthWhileTheWorkRunsAndReleaseItAfterwards() {
+        when(leaseDao.tryAcquire(eq("a-job"), anyString(), eq(LEASE_FOR))).thenReturn(true);
+
+        Optional<Boolean> result = leases.runHolding("a-job", leaseHeld -> {
+            renewal.getValue().run();
+            return leaseHeld.getAsBoolean();
+        });
+
+        assertThat(result, is(Optional.of(true)));
+        verify(renewalExecutor).scheduleAtFixedRate(any(Runnable.class), eq(60000L), eq(60000L), eq(TimeUnit.MILLISECONDS));
+        verify(unitOfWork).end();
+        verify(leaseDao).release(eq("a-job"), anyString());
+    }
+
+    @Test
+    public void shouldTellTheWorkOnceTheLeaseCouldNotBeRenewed() {
+        when(leaseDao.tryAcquire(eq("a-job"), anyString(), eq(LEASE_FOR))).thenReturn(true, false);
+
+        Optional<Boolean> result = leases.runHolding("a-job", leaseHeld -> {
+            renewal.getValue().run();
+            return leaseHeld.getAsBoolean();
+        });
+
+        assertThat(result, is(Optional.of(false)));
+    }
+
+    @Test
+    public void shouldTellTheWorkOnceRenewingTheLeaseFailed() {
+        when(leaseDao.tryAcquire(eq("a-job"), anyString(), eq(LEASE_FOR)))
+                .thenReturn(true)
+                .thenThrow(new RuntimeException("database unavailable"));
+
+        Optional<Boolean> result = leases.runHolding("a-job", leaseHeld -> {
+            renewal.getValue().run();
+            return leaseHeld.getAsBoolean();
+        });
+
+        assertThat(result, is(Optional.of(false)));
+        verify(unitOfWork).end();
+    }
+}
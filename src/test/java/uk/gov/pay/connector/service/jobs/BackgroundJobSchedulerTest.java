@@ -0,0 +1,147 @@
+package uk.gov.pay.connector.service.jobs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.persist.UnitOfWork;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.lifecycle.setup.ScheduledExecutorServiceBuilder;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.BackgroundJobConfig;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BackgroundJobSchedulerTest {
+
+    private static final Duration MINIMUM_INTERVAL = Duration.ofSeconds(10);
+    private static final Duration MAXIMUM_INTERVAL = Duration.ofSeconds(200);
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private LifecycleEnvironment lifecycleEnvironment;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private BackgroundJobLeases leases;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private BackgroundJob job;
+
+    @Mock
+    private BackgroundJobConfig jobConfig;
+
+    private BackgroundJobScheduler scheduler;
+
+    @Before
+    public void setup() {
+        ScheduledExecutorServiceBuilder scheduledExecutorServiceBuilder = mock(ScheduledExecutorServiceBuilder.class, invocation -> {
+            Object mock = invocation.getMock();
+            if (invocation.getMethod().getReturnType().isInstance(mock)) {
+                return mock;
+            } else {
+                return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+        when(scheduledExecutorServiceBuilder.build()).thenReturn(scheduledExecutorService);
+        when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(environment.metrics()).thenReturn(new MetricRegistry());
+        when(lifecycleEnvironment.scheduledExecutorService(anyString())).thenReturn(scheduledExecutorServiceBuilder);
+
+        when(job.getName()).thenReturn("a-job");
+        when(jobConfig.getBatchSize()).thenReturn(100);
+        when(jobConfig.getMinimumIntervalAsJavaDuration()).thenReturn(MINIMUM_INTERVAL);
+        when(jobConfig.getMaximumIntervalAsJavaDuration()).thenReturn(MAXIMUM_INTERVAL);
+
+        scheduler = new BackgroundJobScheduler(environment, leases, unitOfWork, ImmutableMap.of(job, jobConfig));
+    }
+
+    @Test
+    public void shouldRunAgainAfterTheMinimumIntervalWhileTheJobIsWorkingThroughABacklog() {
+        when(job.run(eq(100), any())).thenReturn(new BackgroundJobResult(100, 250));
+        AtomicLong backlog = new AtomicLong();
+
+        Duration nextDelay = scheduler.runOnce(job, jobConfig, backlog, Duration.ofSeconds(80));
+
+        assertThat(nextDelay, is(MINIMUM_INTERVAL));
+        assertThat(backlog.get(), is(250L));
+    }
+
+    @Test
+    public void shouldBackOffUpToTheMaximumIntervalWhenThereIsNothingToDo() {
+        when(job.run(eq(100), any())).thenReturn(new BackgroundJobResult(0, 0));
+
+        assertThat(scheduler.runOnce(job, jobConfig, new AtomicLong(), MINIMUM_INTERVAL), is(Duration.ofSeconds(20)));
+        assertThat(scheduler.runOnce(job, jobConfig, new AtomicLong(), Duration.ofSeconds(150)), is(MAXIMUM_INTERVAL));
+    }
+
+    @Test
+    public void shouldBackOffWhenNothingOfTheBacklogCouldBeProcessed() {
+        when(job.run(eq(100), any())).thenReturn(new BackgroundJobResult(0, 7));
+
+        assertThat(scheduler.runOnce(job, jobConfig, new AtomicLong(), Duration.ofSeconds(40)), is(Duration.ofSeconds(80)));
+    }
+
+    @Test
+    public void shouldNotRunAnExclusiveJobWhenItsLeaseIsHeldByAnotherNode() {
+        when(job.isExclusive()).thenReturn(true);
+        when(leases.runHolding(eq("a-job"), any())).thenReturn(Optional.empty());
+
+        Duration nextDelay = scheduler.runOnce(job, jobConfig, new AtomicLong(), MINIMUM_INTERVAL);
+
+        assertThat(nextDelay, is(Duration.ofSeconds(20)));
+        verify(job, never()).run(anyInt(), any());
+    }
+
+    @Test
+    public void shouldRunAnExclusiveJobHoldingItsLease() {
+        when(job.isExclusive()).thenReturn(true);
+        BooleanSupplier leaseHeld = () -> true;
+        doAnswer(invocation -> Optional.of(((Function<BooleanSupplier, ?>) invocation.getArguments()[1]).apply(leaseHeld)))
+                .when(leases).runHolding(eq("a-job"), any());
+        when(job.run(100, leaseHeld)).thenReturn(new BackgroundJobResult(3, 0));
+
+        scheduler.runOnce(job, jobConfig, new AtomicLong(), MINIMUM_INTERVAL);
+
+        verify(job).run(100, leaseHeld);
+        verify(unitOfWork).end();
+    }
+
+    @Test
+    public void shouldNotTakeALeaseForAJobThatIsNotExclusive() {
+        when(job.run(eq(100), any())).thenReturn(new BackgroundJobResult(3, 0));
+
+        scheduler.runOnce(job, jobConfig, new AtomicLong(), MINIMUM_INTERVAL);
+
+        verify(leases, never()).runHolding(anyString(), any());
+    }
+}
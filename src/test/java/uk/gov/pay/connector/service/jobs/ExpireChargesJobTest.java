@@ -0,0 +1,79 @@
+package uk.gov.pay.connector.service.jobs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.dao.ChargeDao;
+import uk.gov.pay.connector.service.ChargeExpiryService;
+import uk.gov.pay.connector.service.ChargeExpiryService.SweepResult;
+
+import java.time.ZonedDateTime;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.service.ChargeExpiryService.EXPIRABLE_STATUSES;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExpireChargesJobTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Mock
+    private ChargeDao chargeDao;
+
+    @Mock
+    private ChargeExpiryService chargeExpiryService;
+
+    private final ZonedDateTime expiryDate = ZonedDateTime.now().minusHours(1);
+    private final BooleanSupplier leaseHeld = () -> true;
+    private ExpireChargesJob expireChargesJob;
+
+    @Before
+    public void setUp() {
+        when(chargeExpiryService.getExpiryDate()).thenReturn(expiryDate);
+        when(chargeDao.countBeforeDateWithStatusIn(expiryDate, EXPIRABLE_STATUSES)).thenReturn(100L);
+        expireChargesJob = new ExpireChargesJob(chargeDao, chargeExpiryService);
+    }
+
+    @Test
+    public void shouldCarryOnAfterTheLastChargeOfTheRunBeforeRatherThanSweepChargesThatFailedAgain() {
+        SweepResult cutShort = aSweepResult(10, 42L, false);
+        when(chargeExpiryService.sweepAfter(eq(expiryDate), anyLong(), eq(BATCH_SIZE), any())).thenReturn(cutShort);
+
+        expireChargesJob.run(BATCH_SIZE, leaseHeld);
+        expireChargesJob.run(BATCH_SIZE, leaseHeld);
+
+        verify(chargeExpiryService).sweepAfter(expiryDate, 0L, BATCH_SIZE, leaseHeld);
+        verify(chargeExpiryService).sweepAfter(expiryDate, 42L, BATCH_SIZE, leaseHeld);
+    }
+
+    @Test
+    public void shouldStartFromTheFirstChargeAgainOnceASweepReachedTheEnd() {
+        SweepResult cutShort = aSweepResult(10, 42L, false);
+        SweepResult finished = aSweepResult(3, 57L, true);
+        when(chargeExpiryService.sweepAfter(eq(expiryDate), anyLong(), eq(BATCH_SIZE), any())).thenReturn(cutShort, finished);
+
+        expireChargesJob.run(BATCH_SIZE, leaseHeld);
+        expireChargesJob.run(BATCH_SIZE, leaseHeld);
+        expireChargesJob.run(BATCH_SIZE, leaseHeld);
+
+        verify(chargeExpiryService, times(2)).sweepAfter(expiryDate, 0L, BATCH_SIZE, leaseHeld);
+        verify(chargeExpiryService).sweepAfter(expiryDate, 42L, BATCH_SIZE, leaseHeld);
+    }
+
+    private SweepResult aSweepResult(int swept, long lastSweptId, boolean finished) {
+        SweepResult result = mock(SweepResult.class);
+        when(result.getSwept()).thenReturn(swept);
+        when(result.getLastSweptId()).thenReturn(lastSweptId);
+        when(result.isFinished()).thenReturn(finished);
+        return result;
+    }
+}
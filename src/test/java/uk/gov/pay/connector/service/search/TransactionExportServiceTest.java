@@ -0,0 +1,162 @@
+package uk.gov.pay.connector.service.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.TransactionsPaginationServiceConfig;
+import uk.gov.pay.connector.dao.ChargeSearchParams;
+import uk.gov.pay.connector.dao.TransactionDao;
+import uk.gov.pay.connector.model.domain.Transaction;
+import uk.gov.pay.connector.service.CardTypeCatalogue;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionExportServiceTest {
+
+    private static final Duration STATEMENT_TIMEOUT = Duration.ofMinutes(5);
+    private static final Timestamp CREATED_DATE = Timestamp.from(Instant.parse("2018-01-10T12:30:00Z"));
+
+    @Mock
+    private TransactionDao mockTransactionDao;
+
+    @Mock
+    private CardTypeCatalogue mockCardTypeCatalogue;
+
+    @Mock
+    private ConnectorConfiguration mockConfiguration;
+
+    @Mock
+    private UriInfo mockUriInfo;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChargeSearchParams searchParams = new ChargeSearchParams().withGatewayAccountId(1L);
+    private TransactionExportService transactionExportService;
+
+    @Before
+    public void setUp() {
+        TransactionsPaginationServiceConfig paginationConfig = mock(TransactionsPaginationServiceConfig.class);
+        when(paginationConfig.getExportFetchSize()).thenReturn(250);
+        when(paginationConfig.getExportStatementTimeoutAsJavaDuration()).thenReturn(STATEMENT_TIMEOUT);
+        when(paginationConfig.getMaximumConcurrentExports()).thenReturn(1);
+        when(mockConfiguration.getTransactionsPaginationConfig()).thenReturn(paginationConfig);
+        when(mockCardTypeCatalogue.getLabelsByBrand()).thenReturn(ImmutableMap.of("visa", "Visa"));
+
+        transactionExportService = new TransactionExportService(mockTransactionDao,
+                new TransactionSearchStrategy(mockTransactionDao, mockCardTypeCatalogue), mockCardTypeCatalogue,
+                objectMapper, mockConfiguration);
+    }
+
+    @Test
+    public void shouldWriteOneCsvLinePerTransaction_afterTheHeader() throws Exception {
+        givenStreamedTransactions(
+                aTransaction("CHARGE", 1L, "charge-1", "ref, \"quoted\"", "CAPTURED"),
+                aTransaction("REFUND", 2L, "charge-1", "ref-2", "REFUNDED"));
+
+        String csv = export(TransactionExportService.CSV_TYPE);
+
+        String[] lines = csv.split("\r\n");
+        assertThat(lines.length, is(3));
+        assertThat(lines[0], is("transaction_type,charge_id,reference,description,email,amount,state,finished,code," +
+                "gateway_transaction_id,card_brand,cardholder_name,last_digits_card_number,expiry_date,created_date"));
+        assertThat(lines[1], is("payment,charge-1,\"ref, \"\"quoted\"\"\",a description,someone@example.com,500,success,true,," +
+                "gateway-tx,Visa,Mr Payment,1234,10/21,2018-01-10T12:30:00Z"));
+        assertThat(lines[2], is("refund,charge-1,ref-2,a description,someone@example.com,500,success,true,," +
+                "gateway-tx,Visa,Mr Payment,1234,10/21,2018-01-10T12:30:00Z"));
+    }
+
+    @Test
+    public void shouldWriteOneJsonDocumentPerLine_inTheShapeOfTheSearchResults() throws Exception {
+        givenStreamedTransactions(
+                aTransaction("CHARGE", 1L, "charge-1", "ref-1", "CAPTURED"),
+                aTransaction("CHARGE", 3L, "charge-2", "ref-2", "CREATED"));
+        when(mockUriInfo.getBaseUriBuilder()).thenAnswer(invocation -> UriBuilder.fromUri("http://connector.example.com"));
+
+        String ndjson = export(TransactionExportService.NDJSON_TYPE);
+
+        String[] lines = ndjson.split("\n");
+        assertThat(lines.length, is(2));
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("charge_id").asText(), is("charge-1"));
+        assertThat(first.get("transaction_type").asText(), is("payment"));
+        assertThat(first.get("state").get("status").asText(), is("success"));
+        assertThat(first.get("card_details").get("card_brand").asText(), is("Visa"));
+        assertThat(objectMapper.readTree(lines[1]).get("reference").asText(), is("ref-2"));
+    }
+
+    @Test
+    public void shouldPrefixCsvTextThatASpreadsheetWouldTakeForAFormula() throws Exception {
+        givenStreamedTransactions(
+                aTransaction("CHARGE", 1L, "charge-1", "=HYPERLINK(\"http://example.com\")", "CAPTURED"),
+                aTransaction("CHARGE", 2L, "charge-2", "@SUM(A1)", "CAPTURED"),
+                aTransaction("CHARGE", 3L, "charge-3", "-2+3", "CAPTURED"));
+
+        String[] lines = export(TransactionExportService.CSV_TYPE).split("\r\n");
+
+        assertThat(lines[1], startsWith("payment,charge-1,\"'=HYPERLINK(\"\"http://example.com\"\")\","));
+        assertThat(lines[2], startsWith("payment,charge-2,'@SUM(A1),"));
+        assertThat(lines[3], startsWith("payment,charge-3,'-2+3,"));
+    }
+
+    @Test
+    public void shouldNotStartAnExportWhileTheMaximumNumberOfExportsAreRunning() throws Exception {
+        givenStreamedTransactions(aTransaction("CHARGE", 1L, "charge-1", "ref-1", "CAPTURED"));
+        Optional<StreamingOutput> running = transactionExportService.export(searchParams, TransactionExportService.CSV_TYPE, mockUriInfo);
+
+        assertThat(running.isPresent(), is(true));
+        assertThat(transactionExportService.export(searchParams, TransactionExportService.CSV_TYPE, mockUriInfo), is(Optional.empty()));
+
+        running.get().write(new ByteArrayOutputStream());
+
+        assertThat(transactionExportService.export(searchParams, TransactionExportService.CSV_TYPE, mockUriInfo).isPresent(), is(true));
+    }
+
+    private String export(MediaType mediaType) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        transactionExportService.export(searchParams, mediaType, mockUriInfo).get().write(output);
+        return new String(output.toByteArray(), UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenStreamedTransactions(Transaction... transactions) {
+        doAnswer(invocation -> {
+            Consumer<Transaction> consumer = (Consumer<Transaction>) invocation.getArguments()[3];
+            for (Transaction transaction : transactions) {
+                consumer.accept(transaction);
+            }
+            return null;
+        }).when(mockTransactionDao).stream(eq(searchParams), eq(250), eq(STATEMENT_TIMEOUT), any(Consumer.class));
+    }
+
+    private Transaction aTransaction(String operation, long id, String externalId, String reference, String status) {
+        return new Transaction(operation, id, externalId, reference, "a description", status, "someone@example.com", 1L,
+                "gateway-tx", CREATED_DATE, "visa", null, "Mr Payment", "10/21", "1234", null, null, null, null, null,
+                null, 500L);
+    }
+}
@@ -18,6 +18,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.model.CaptureGatewayRequest;
 import uk.gov.pay.connector.model.Notification;
 import uk.gov.pay.connector.model.Notifications;
@@ -43,13 +44,16 @@ import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.function.BiFunction;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static com.google.common.io.Resources.getResource;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.not;
@@ -95,7 +99,7 @@ public class SmartpayPaymentProviderTest {
 
     @Before
     public void setup() throws Exception {
-        gatewayClientFactory = new GatewayClientFactory(mockClientFactory);
+        gatewayClientFactory = new GatewayClientFactory(mockClientFactory, new ConnectorConfiguration());
 
         when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
@@ -250,7 +254,7 @@ public class SmartpayPaymentProviderTest {
         when(mockSessionIdentifier.apply(Matchers.any(GatewayOrder.class), eq(mockBuilder))).thenReturn(mockBuilder);
 
         Response response = mock(Response.class);
-        when(response.readEntity(String.class)).thenReturn(responsePayload);
+        when(response.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(responsePayload.getBytes(UTF_8)));
         when(mockBuilder.post(Matchers.any(Entity.class))).thenReturn(response);
 
         when(response.getStatus()).thenReturn(httpStatus);
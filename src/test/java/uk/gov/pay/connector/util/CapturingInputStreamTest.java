@@ -0,0 +1,43 @@
+package uk.gov.pay.connector.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class CapturingInputStreamTest {
+
+    @Test
+    public void shouldCaptureTheWholeStreamWhenWithinTheLimit() throws Exception {
+        CapturingInputStream stream = new CapturingInputStream(new ByteArrayInputStream("<foo>bar</foo>".getBytes(UTF_8)), 100);
+
+        String read = IOUtils.toString(stream, UTF_8);
+
+        assertThat(read, is("<foo>bar</foo>"));
+        assertThat(stream.getCaptured(), is("<foo>bar</foo>"));
+    }
+
+    @Test
+    public void shouldCaptureOnlyUpToTheLimitButPassTheWholeStreamThrough() throws Exception {
+        CapturingInputStream stream = new CapturingInputStream(new ByteArrayInputStream("<foo>bar</foo>".getBytes(UTF_8)), 5);
+
+        String read = IOUtils.toString(stream, UTF_8);
+
+        assertThat(read, is("<foo>bar</foo>"));
+        assertThat(stream.getCaptured(), is("<foo>..."));
+    }
+
+    @Test
+    public void shouldCaptureSingleByteReads() throws Exception {
+        CapturingInputStream stream = new CapturingInputStream(new ByteArrayInputStream("ab".getBytes(UTF_8)), 5);
+
+        stream.read();
+        stream.read();
+
+        assertThat(stream.getCaptured(), is("ab"));
+    }
+}
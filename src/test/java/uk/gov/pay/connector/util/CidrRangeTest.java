@@ -0,0 +1,53 @@
+package uk.gov.pay.connector.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CidrRangeTest {
+
+    @Test
+    public void shouldContainOnlyAddressesWithTheSamePrefix() {
+        CidrRange range = CidrRange.parse("195.35.90.0/23");
+
+        assertThat(range.contains("195.35.90.0"), is(true));
+        assertThat(range.contains("195.35.91.255"), is(true));
+        assertThat(range.contains("195.35.92.0"), is(false));
+        assertThat(range.contains("195.35.89.255"), is(false));
+    }
+
+    @Test
+    public void shouldTreatAnAddressWithoutPrefixLengthAsASingleAddress() {
+        CidrRange range = CidrRange.parse("10.0.0.1");
+
+        assertThat(range.contains("10.0.0.1"), is(true));
+        assertThat(range.contains("10.0.0.2"), is(false));
+    }
+
+    @Test
+    public void shouldMatchIpv6AddressesOnlyAgainstIpv6Ranges() {
+        CidrRange range = CidrRange.parse("2001:db8::/32");
+
+        assertThat(range.contains("2001:db8:1::1"), is(true));
+        assertThat(range.contains("2001:db9::1"), is(false));
+        assertThat(range.contains("32.1.13.184"), is(false));
+    }
+
+    @Test
+    public void shouldNotContainHostNames() {
+        assertThat(CidrRange.parse("0.0.0.0/0").contains("localhost"), is(false));
+    }
+
+    @Test
+    public void shouldRecogniseRangesAndAddressesButNotHostNames() {
+        assertThat(CidrRange.isCidrRange("195.35.90.0/23"), is(true));
+        assertThat(CidrRange.isCidrRange("10.0.0.1"), is(true));
+        assertThat(CidrRange.isCidrRange("notifications.worldpay.com"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPrefixLengthsLongerThanTheAddress() {
+        CidrRange.parse("10.0.0.0/33");
+    }
+}
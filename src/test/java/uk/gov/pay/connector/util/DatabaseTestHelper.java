@@ -356,6 +356,17 @@ public class DatabaseTestHelper {
         );
     }
 
+    public void addToken(Long chargeId, String tokenId, ZonedDateTime createdDate) {
+        jdbi.withHandle(handle ->
+                handle
+                        .createStatement("INSERT INTO tokens(charge_id, secure_redirect_token, created_date) VALUES (:charge_id, :secure_redirect_token, :created_date)")
+                        .bind("charge_id", chargeId)
+                        .bind("secure_redirect_token", tokenId)
+                        .bind("created_date", Timestamp.from(createdDate.toInstant()))
+                        .execute()
+        );
+    }
+
     public void addEmailNotification(Long accountId, String templateBody, boolean enabled) {
         jdbi.withHandle(handle ->
                 handle
@@ -0,0 +1,112 @@
+package uk.gov.pay.connector.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.NotificationSourceConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DnsUtilsTest {
+
+    private static final Instant NOW = Instant.parse("2018-01-01T10:00:00Z");
+    private static final String WORLDPAY_IP = "195.35.90.1";
+    private static final String OTHER_IP = "8.8.8.8";
+
+    @Mock
+    private NotificationSourceConfig mockConfig;
+
+    @Mock
+    private Clock mockClock;
+
+    @Before
+    public void setUp() {
+        when(mockConfig.getVerifiedExpireAfterAsJavaDuration()).thenReturn(Duration.ofMinutes(10));
+        when(mockConfig.getRejectedExpireAfterAsJavaDuration()).thenReturn(Duration.ofMinutes(1));
+        when(mockConfig.getMaximumCachedAddresses()).thenReturn(100);
+        when(mockClock.instant()).thenReturn(NOW);
+    }
+
+    @Test
+    public void shouldReuseTheReverseDnsLookupOfAnAddressUntilItExpires() throws Exception {
+        DnsUtils dnsUtils = spy(new DnsUtils(mockConfig, mockClock));
+        doReturn(Optional.of("hello.worldpay.com.")).when(dnsUtils).reverseDnsLookup(WORLDPAY_IP);
+
+        assertThat(dnsUtils.ipMatchesDomain(WORLDPAY_IP + ", " + OTHER_IP, "worldpay.com"), is(true));
+        assertThat(dnsUtils.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+        verify(dnsUtils, times(1)).reverseDnsLookup(WORLDPAY_IP);
+
+        when(mockClock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(10)));
+
+        assertThat(dnsUtils.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+        verify(dnsUtils, times(2)).reverseDnsLookup(WORLDPAY_IP);
+    }
+
+    @Test
+    public void shouldRejectAnAddressWithoutAHostWithoutLookingItUpAgainUntilTheRejectionExpires() throws Exception {
+        DnsUtils dnsUtils = spy(new DnsUtils(mockConfig, mockClock));
+        doReturn(Optional.empty()).when(dnsUtils).reverseDnsLookup(OTHER_IP);
+
+        assertThat(dnsUtils.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+        assertThat(dnsUtils.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+        verify(dnsUtils, times(1)).reverseDnsLookup(OTHER_IP);
+
+        when(mockClock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+
+        assertThat(dnsUtils.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+        verify(dnsUtils, times(2)).reverseDnsLookup(OTHER_IP);
+    }
+
+    @Test
+    public void shouldCheckAddressesAgainstTheAllowListWithoutReverseDnsLookups() throws Exception {
+        when(mockConfig.getAllowList()).thenReturn(ImmutableMap.of("worldpay.com", asList("195.35.90.0/23", "10.0.0.1")));
+        DnsUtils dnsUtils = spy(new DnsUtils(mockConfig, mockClock));
+
+        assertThat(dnsUtils.ipMatchesDomain("195.35.91.254, " + OTHER_IP, "worldpay.com"), is(true));
+        assertThat(dnsUtils.ipMatchesDomain("10.0.0.1", "worldpay.com"), is(true));
+        assertThat(dnsUtils.ipMatchesDomain("195.35.92.1", "worldpay.com"), is(false));
+        assertThat(dnsUtils.ipMatchesDomain("not-an-ip", "worldpay.com"), is(false));
+        verify(dnsUtils, never()).reverseDnsLookup(anyString());
+    }
+
+    @Test
+    public void shouldOnlyAllowAnAddressForTheDomainsWhoseAllowListHasIt() throws Exception {
+        when(mockConfig.getAllowList()).thenReturn(ImmutableMap.of(
+                "worldpay.com", asList("195.35.90.0/23"),
+                "smartpay.com", asList("10.0.0.0/8")));
+        DnsUtils dnsUtils = spy(new DnsUtils(mockConfig, mockClock));
+
+        assertThat(dnsUtils.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+        assertThat(dnsUtils.ipMatchesDomain(WORLDPAY_IP, "smartpay.com"), is(false));
+        assertThat(dnsUtils.ipMatchesDomain("10.1.2.3", "worldpay.com"), is(false));
+        verify(dnsUtils, never()).reverseDnsLookup(anyString());
+    }
+
+    @Test
+    public void shouldUseReverseDnsLookupsForADomainWithoutAnAllowList() throws Exception {
+        when(mockConfig.getAllowList()).thenReturn(ImmutableMap.of("smartpay.com", asList("10.0.0.0/8")));
+        DnsUtils dnsUtils = spy(new DnsUtils(mockConfig, mockClock));
+        doReturn(Optional.of("hello.worldpay.com.")).when(dnsUtils).reverseDnsLookup(WORLDPAY_IP);
+
+        assertThat(dnsUtils.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+        verify(dnsUtils).reverseDnsLookup(WORLDPAY_IP);
+    }
+}
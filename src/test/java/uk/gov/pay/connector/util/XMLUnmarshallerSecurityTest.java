@@ -9,7 +9,14 @@ import org.junit.rules.ExpectedException;
 import org.xml.sax.SAXParseException;
 
 import javax.xml.bind.UnmarshalException;
-
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
@@ -89,6 +96,55 @@ public class XMLUnmarshallerSecurityTest {
         XMLUnmarshaller.unmarshall(xmlData, XMLUnmarshallingAttackTest.class);
     }
 
+    @Test
+    public void shouldUnmarshallAfterAPreviousPayloadWasRejected() throws Exception {
+
+        String attack = "<!DOCTYPE foo [" +
+                "<!ENTITY a \"1234567890\" >" +
+                "<!ENTITY b \"&a;&a;&a;&a;&a;&a;&a;&a;&a;&a;\" >" +
+                "]> " +
+                "<foo>&b;</foo>";
+
+        try {
+            XMLUnmarshaller.unmarshall(attack, XMLUnmarshallingAttackTest.class);
+        } catch (XMLUnmarshallerException expected) {
+        }
+
+        XMLUnmarshallingAttackTest unmarshall = XMLUnmarshaller.unmarshall("<foo>hola</foo>", XMLUnmarshallingAttackTest.class);
+
+        assertThat(unmarshall.getValue(), is("hola"));
+    }
+
+    @Test
+    public void shouldUnmarshallPayloadsFromManyThreadsAtOnce() throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> values = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String value = "value-" + i;
+                values.add(executor.submit(() -> XMLUnmarshaller.unmarshall("<foo>" + value + "</foo>", XMLUnmarshallingAttackTest.class).getValue()));
+            }
+
+            for (int i = 0; i < values.size(); i++) {
+                assertThat(values.get(i).get(), is("value-" + i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldUnmarshallFromAStreamUsingTheDeclaredEncoding() throws Exception {
+
+        String xmlData = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><foo>caf\u00e9</foo>";
+
+        XMLUnmarshallingAttackTest unmarshall = XMLUnmarshaller.unmarshall(
+                new ByteArrayInputStream(xmlData.getBytes(ISO_8859_1)), XMLUnmarshallingAttackTest.class);
+
+        assertThat(unmarshall.getValue(), is("caf\u00e9"));
+    }
+
     private Matcher<Throwable> unmarshalExceptionWithLinkedSAXParseException(final String expectedMessage) {
         return new TypeSafeMatcher<Throwable>() {
             @Override
@@ -2,6 +2,7 @@ package uk.gov.pay.connector.util.templates;
 
 import com.google.common.collect.ImmutableList;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.message.BasicNameValuePair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -74,4 +75,25 @@ public class FormUrlEncodedStringBuilderTest {
         assertThat(result, is("snowman=%3F"));
     }
 
+    @Test
+    public void shouldEncodeEveryCharacterTheSameWayAsUrlEncodedUtils() {
+        StringBuilder everyCharacter = new StringBuilder();
+        for (char c = 0; c < 0x180; c++) {
+            everyCharacter.append(c);
+        }
+        everyCharacter.append("€‚ƒ„…†‡ˆ‰Š‹Œ''\"\"•–—˜™š›œŸ☃");
+        ImmutableList<NameValuePair> params = ImmutableList.of(
+                new BasicNameValuePair(everyCharacter.toString(), everyCharacter.toString()),
+                new BasicNameValuePair("no value", null),
+                new BasicNameValuePair("", ""));
+        when(mockPayloadDefinition.extract(mockTemplateData)).thenReturn(params);
+
+        Charset windows1252 = Charset.forName("windows-1252");
+        formUrlEncodedStringBuilder = new FormUrlEncodedStringBuilder(mockPayloadDefinition, windows1252);
+
+        String result = formUrlEncodedStringBuilder.buildWith(mockTemplateData);
+
+        assertThat(result, is(URLEncodedUtils.format(params, windows1252)));
+    }
+
 }